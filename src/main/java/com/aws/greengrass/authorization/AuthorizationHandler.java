@@ -221,27 +221,16 @@ public class AuthorizationHandler  {
 
         // Lookup all possible allow configurations starting from most specific to least
         // This helps for access logs, as customer can figure out which policy is being hit.
-        String[][] combinations = {
-                {destination, principal, operation, resource},
-                {destination, principal, ANY_REGEX, resource},
-                {destination, ANY_REGEX, operation, resource},
-                {destination, ANY_REGEX, ANY_REGEX, resource},
-        };
+        CompiledPolicies.Match match;
         try (LockScope scope = LockScope.lock(rwLock.readLock())) {
-            for (String[] combination : combinations) {
-                if (authModule.isPresent(combination[0],
-                        Permission.builder()
-                                .principal(combination[1])
-                                .operation(combination[2])
-                                .resource(combination[3])
-                                .build(), resourceLookupPolicy)) {
-                    logger.atDebug().log("Hit policy with principal {}, operation {}, resource {}",
-                            combination[1],
-                            combination[2],
-                            combination[3]);
-                    return true;
-                }
-            }
+            match = authModule.findPermission(destination, principal, operation, resource, resourceLookupPolicy);
+        }
+        if (match != CompiledPolicies.Match.NONE) {
+            logger.atDebug().log("Hit policy with principal {}, operation {}, resource {}",
+                    match.principal(principal),
+                    match.operation(operation),
+                    resource);
+            return true;
         }
         throw new AuthorizationException(
                 String.format("Principal %s is not authorized to perform %s:%s on resource %s",
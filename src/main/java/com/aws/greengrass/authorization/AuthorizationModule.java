@@ -14,6 +14,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.aws.greengrass.authorization.AuthorizationHandler.ANY_REGEX;
 import static com.aws.greengrass.authorization.WildcardTrie.escapeChar;
@@ -28,11 +29,11 @@ import static com.aws.greengrass.authorization.WildcardTrie.wildcardChar;
  */
 public class AuthorizationModule {
     // Destination, Principal, Operation, Resource
-    Map<String, Map<String, Map<String, WildcardTrie>>> resourceAuthZCompleteMap =
-            new DefaultConcurrentHashMap<>(() -> new DefaultConcurrentHashMap<>(() ->
-                    new DefaultConcurrentHashMap<>(WildcardTrie::new)));
     Map<String, Map<String, Map<String, Set<String>>>> rawResourceList = new DefaultConcurrentHashMap<>(
             () -> new DefaultConcurrentHashMap<>(() -> new DefaultConcurrentHashMap<>(CopyOnWriteArraySet::new)));
+    // bumped after every change of the table, lookups recompile the policies when it moved on
+    private final AtomicLong generation = new AtomicLong();
+    private volatile CompiledPolicies compiledPolicies;
 
     /**
      * Add permission for the given input set.
@@ -49,10 +50,9 @@ public class AuthorizationModule {
         }
         String resource = permission.getResource();
         validateResource(resource);
-        resourceAuthZCompleteMap.get(destination).get(permission.getPrincipal()).get(permission.getOperation()).add(
-                resource);
         rawResourceList.get(destination).get(permission.getPrincipal()).get(permission.getOperation()).add(
                 resource);
+        generation.incrementAndGet();
     }
 
     /**
@@ -102,8 +102,8 @@ public class AuthorizationModule {
      * @param destination destination value
      */
     public void deletePermissionsWithDestination(String destination) {
-        resourceAuthZCompleteMap.remove(destination);
         rawResourceList.remove(destination);
+        generation.incrementAndGet();
     }
 
     /**
@@ -114,34 +114,61 @@ public class AuthorizationModule {
      * @return true if the input combination is present.
      * @throws AuthorizationException when arguments are invalid
      */
-    @SuppressWarnings("PMD.AvoidDeeplyNestedIfStmts")
     public boolean isPresent(String destination, Permission permission, ResourceLookupPolicy resourceLookupPolicy)
             throws AuthorizationException {
-        if (Utils.isEmpty(permission.getPrincipal())
-                || Utils.isEmpty(destination)
-                || Utils.isEmpty(permission.getOperation())) {
+        validateLookup(destination, permission.getPrincipal(), permission.getOperation(), permission.getResource());
+        return getCompiledPolicies().isPresent(destination, permission.getPrincipal(), permission.getOperation(),
+                permission.getResource(), resourceLookupPolicy);
+    }
+
+    public boolean isPresent(String destination, Permission permission) throws AuthorizationException {
+        return isPresent(destination, permission, ResourceLookupPolicy.STANDARD);
+    }
+
+    /**
+     * Find the most specific permission which allows the combination of destination, principal, operation and
+     * resource, also looking at permissions with * operation/principal. Decisions are cached until the table changes.
+     *
+     * @param destination          destination value
+     * @param principal            principal value
+     * @param operation            operation value
+     * @param resource             resource value
+     * @param resourceLookupPolicy whether to match MQTT wildcards or not.
+     * @return the matching permission, {@link CompiledPolicies.Match#NONE} if there is none
+     * @throws AuthorizationException when arguments are invalid
+     */
+    CompiledPolicies.Match findPermission(String destination, String principal, String operation, String resource,
+                                          ResourceLookupPolicy resourceLookupPolicy) throws AuthorizationException {
+        validateLookup(destination, principal, operation, resource);
+        return getCompiledPolicies().find(destination, principal, operation, resource, resourceLookupPolicy);
+    }
+
+    private void validateLookup(String destination, String principal, String operation, String resource)
+            throws AuthorizationException {
+        if (Utils.isEmpty(principal) || Utils.isEmpty(destination) || Utils.isEmpty(operation)) {
             throw new AuthorizationException("Invalid arguments");
         }
         // resource as null is ok, but it should not be empty
-        String resource = permission.getResource();
         if (resource != null && Utils.isEmpty(resource)) {
             throw new AuthorizationException("Resource cannot be empty");
         }
-        if (resourceAuthZCompleteMap.containsKey(destination)) {
-            Map<String, Map<String, WildcardTrie>> destMap = resourceAuthZCompleteMap.get(destination);
-            if (destMap.containsKey(permission.getPrincipal())) {
-                Map<String, WildcardTrie> principalMap = destMap.get(permission.getPrincipal());
-                if (principalMap.containsKey(permission.getOperation())) {
-                    return principalMap.get(permission.getOperation()).matches(permission.getResource(),
-                            resourceLookupPolicy);
-                }
-            }
-        }
-        return false;
     }
 
-    public boolean isPresent(String destination, Permission permission) throws AuthorizationException {
-        return isPresent(destination, permission, ResourceLookupPolicy.STANDARD);
+    private CompiledPolicies getCompiledPolicies() {
+        CompiledPolicies compiled = compiledPolicies;
+        if (compiled != null && compiled.getGeneration() == generation.get()) {
+            return compiled;
+        }
+        synchronized (this) {
+            // read the generation before the table, so that changes made while compiling are never missed
+            long current = generation.get();
+            compiled = compiledPolicies;
+            if (compiled == null || compiled.getGeneration() != current) {
+                compiled = CompiledPolicies.compile(current, rawResourceList);
+                compiledPolicies = compiled;
+            }
+            return compiled;
+        }
     }
 
     /**
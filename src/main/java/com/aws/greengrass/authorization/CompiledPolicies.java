@@ -0,0 +1,217 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.authorization;
+
+import com.aws.greengrass.authorization.AuthorizationHandler.ResourceLookupPolicy;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.aws.greengrass.authorization.AuthorizationHandler.ANY_REGEX;
+
+/**
+ * Immutable view of the permission table, compiled into one resource trie per destination, principal and operation.
+ * It's compiled once per generation of the table and never changes afterwards, so lookups don't need any locking.
+ * It also caches the most recently used decisions, which are thrown away together with the view once the table
+ * changes.
+ */
+final class CompiledPolicies {
+    private static final int CACHE_STRIPES = 16;
+    private static final int CACHED_DECISIONS_PER_STRIPE = 256;
+
+    @Getter
+    private final long generation;
+    // Destination, Principal, Operation, Resource
+    private final Map<String, Map<String, Map<String, WildcardTrie>>> tries;
+    private final DecisionStripe[] decisions = new DecisionStripe[CACHE_STRIPES];
+
+    /**
+     * Which of the permissions, from most specific to least, allows a request.
+     */
+    enum Match {
+        PRINCIPAL_AND_OPERATION(false, false),
+        PRINCIPAL(false, true),
+        OPERATION(true, false),
+        ANY(true, true),
+        NONE(false, false);
+
+        private final boolean anyPrincipal;
+        private final boolean anyOperation;
+
+        Match(boolean anyPrincipal, boolean anyOperation) {
+            this.anyPrincipal = anyPrincipal;
+            this.anyOperation = anyOperation;
+        }
+
+        String principal(String requested) {
+            return anyPrincipal ? ANY_REGEX : requested;
+        }
+
+        String operation(String requested) {
+            return anyOperation ? ANY_REGEX : requested;
+        }
+    }
+
+    private CompiledPolicies(long generation, Map<String, Map<String, Map<String, WildcardTrie>>> tries) {
+        this.generation = generation;
+        this.tries = tries;
+        for (int i = 0; i < CACHE_STRIPES; i++) {
+            decisions[i] = new DecisionStripe();
+        }
+    }
+
+    /**
+     * Compile the resources of every destination, principal and operation into tries.
+     *
+     * @param generation generation of the permission table
+     * @param resources  resources of the permission table by destination, principal and operation
+     * @return compiled policies
+     */
+    static CompiledPolicies compile(long generation,
+                                    Map<String, Map<String, Map<String, Set<String>>>> resources) {
+        Map<String, Map<String, Map<String, WildcardTrie>>> tries = new HashMap<>();
+        resources.forEach((destination, principals) -> {
+            Map<String, Map<String, WildcardTrie>> principalTries = new HashMap<>();
+            principals.forEach((principal, operations) -> {
+                Map<String, WildcardTrie> operationTries = new HashMap<>();
+                operations.forEach((operation, operationResources) -> {
+                    WildcardTrie trie = new WildcardTrie();
+                    operationResources.forEach(trie::add);
+                    operationTries.put(operation, trie);
+                });
+                principalTries.put(principal, operationTries);
+            });
+            tries.put(destination, principalTries);
+        });
+        return new CompiledPolicies(generation, tries);
+    }
+
+    /**
+     * Check if exactly this combination of destination, principal and operation allows the resource.
+     */
+    boolean isPresent(String destination, String principal, String operation, String resource,
+                      ResourceLookupPolicy lookupPolicy) {
+        Map<String, Map<String, WildcardTrie>> principals = tries.get(destination);
+        return principals != null && matches(principals.get(principal), operation, resource, lookupPolicy);
+    }
+
+    /**
+     * Find the most specific permission of the destination which allows the principal to perform the operation on
+     * the resource, looking at * principal and operation too.
+     */
+    Match find(String destination, String principal, String operation, String resource,
+               ResourceLookupPolicy lookupPolicy) {
+        DecisionKey key = new DecisionKey(destination, principal, operation, resource, lookupPolicy);
+        DecisionStripe stripe = decisions[key.hash & (CACHE_STRIPES - 1)];
+        Match match;
+        synchronized (stripe) {
+            match = stripe.get(key);
+        }
+        if (match == null) {
+            match = evaluate(destination, principal, operation, resource, lookupPolicy);
+            synchronized (stripe) {
+                stripe.put(key, match);
+            }
+        }
+        return match;
+    }
+
+    private Match evaluate(String destination, String principal, String operation, String resource,
+                           ResourceLookupPolicy lookupPolicy) {
+        Map<String, Map<String, WildcardTrie>> principals = tries.get(destination);
+        if (principals == null) {
+            return Match.NONE;
+        }
+        Map<String, WildcardTrie> principalTries = principals.get(principal);
+        if (matches(principalTries, operation, resource, lookupPolicy)) {
+            return Match.PRINCIPAL_AND_OPERATION;
+        }
+        if (matches(principalTries, ANY_REGEX, resource, lookupPolicy)) {
+            return Match.PRINCIPAL;
+        }
+        Map<String, WildcardTrie> anyPrincipalTries = principals.get(ANY_REGEX);
+        if (matches(anyPrincipalTries, operation, resource, lookupPolicy)) {
+            return Match.OPERATION;
+        }
+        if (matches(anyPrincipalTries, ANY_REGEX, resource, lookupPolicy)) {
+            return Match.ANY;
+        }
+        return Match.NONE;
+    }
+
+    private static boolean matches(Map<String, WildcardTrie> operations, String operation, String resource,
+                                   ResourceLookupPolicy lookupPolicy) {
+        if (operations == null) {
+            return false;
+        }
+        WildcardTrie trie = operations.get(operation);
+        return trie != null && trie.matches(resource, lookupPolicy);
+    }
+
+    /**
+     * Least recently used decisions of the keys which hash to one stripe of the cache.
+     */
+    private static class DecisionStripe extends LinkedHashMap<DecisionKey, Match> {
+        private static final long serialVersionUID = 1L;
+
+        DecisionStripe() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DecisionKey, Match> eldest) {
+            return size() > CACHED_DECISIONS_PER_STRIPE;
+        }
+    }
+
+    private static final class DecisionKey {
+        private final String destination;
+        private final String principal;
+        private final String operation;
+        private final String resource;
+        private final ResourceLookupPolicy lookupPolicy;
+        private final int hash;
+
+        DecisionKey(String destination, String principal, String operation, String resource,
+                    ResourceLookupPolicy lookupPolicy) {
+            this.destination = destination;
+            this.principal = principal;
+            this.operation = operation;
+            this.resource = resource;
+            this.lookupPolicy = lookupPolicy;
+            int h = destination.hashCode();
+            h = 31 * h + principal.hashCode();
+            h = 31 * h + operation.hashCode();
+            h = 31 * h + Objects.hashCode(resource);
+            h = 31 * h + lookupPolicy.ordinal();
+            // spread the high bits, the low ones pick the stripe
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DecisionKey)) {
+                return false;
+            }
+            DecisionKey other = (DecisionKey) o;
+            return hash == other.hash && destination.equals(other.destination) && principal.equals(other.principal)
+                    && operation.equals(other.operation) && Objects.equals(resource, other.resource)
+                    && lookupPolicy == other.lookupPolicy;
+        }
+    }
+}
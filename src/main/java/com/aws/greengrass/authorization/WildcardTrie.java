@@ -8,7 +8,6 @@ package com.aws.greengrass.authorization;
 import com.aws.greengrass.authorization.AuthorizationHandler.ResourceLookupPolicy;
 import com.aws.greengrass.util.DefaultConcurrentHashMap;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -46,8 +45,8 @@ public class WildcardTrie {
 
     /**
      * Add allowed resources for a particular operation.
-     * - A new node is created for every occurrence of a wildcard (*, #, +).
-     * - Only nodes with valid usage of wildcards are marked with isWildcard or isMQTTWildcard.
+     * - A new node is created for every occurrence of a * wildcard and every valid usage of a MQTT wildcard (#, +).
+     * - MQTT wildcards which aren't used validly are treated as normal characters.
      * - Any other characters are grouped together to form a node.
      * - Just a '*' or '#' creates a Node setting matchAll to true and would match all resources
      *
@@ -81,6 +80,7 @@ public class WildcardTrie {
             WildcardTrie initial = this.children.get(MQTT_SINGLELEVEL_WILDCARD);
             initial.isMQTTWildcard = true;
             initial.add(subject.substring(1), true);
+            return;
         }
 
         add(subject, true);
@@ -100,7 +100,7 @@ public class WildcardTrie {
             // Create separate Nodes for wildcards *, # and +
             // Also tag them wildcard if its a valid usage
             if (currentChar == wildcardChar) {
-                current = current.add(sb.toString(), false);
+                current = current.literalChild(sb.toString());
                 current = current.children.get(GLOB_WILDCARD);
                 current.isWildcard = true;
                 // If the string ends with *, then the wildcard is a terminal
@@ -110,39 +110,29 @@ public class WildcardTrie {
                 }
                 return current.add(subject.substring(i + 1), true);
             }
-            if (currentChar == multiLevelWildcardChar) {
-                WildcardTrie terminalLevel = current.add(sb.toString(), false);
+            // MQTT wildcards which aren't used validly are kept as normal characters instead of getting a node of
+            // their own, as that node would be shared with the valid usages of other resources and be matched as a
+            // wildcard for them too
+            if (currentChar == multiLevelWildcardChar && i == subjectLength - 1 && i > 0
+                    && subject.charAt(i - 1) == levelSeparatorChar) {
+                WildcardTrie terminalLevel = current.literalChild(sb.toString());
                 current = terminalLevel.children.get(MQTT_MULTILEVEL_WILDCARD);
-                if (i == subjectLength - 1) {
-                    current.isTerminal = true;
-                    // check if # wildcard usage is valid
-                    if (i > 0 && subject.charAt(i - 1) == levelSeparatorChar) {
-                        current.isMQTTWildcard = true;
-                        current.matchAll = true;
-                        terminalLevel.isTerminalLevel = true;
-                    }
-                    return current;
-                }
-                return current.add(subject.substring(i + 1), true);
+                current.isTerminal = true;
+                current.isMQTTWildcard = true;
+                current.matchAll = true;
+                terminalLevel.isTerminalLevel = true;
+                return current;
             }
-            if (currentChar == singleLevelWildcardChar) {
-                current = current.add(sb.toString(), false);
+            // check if '+' wildcard usage is valid, if it's used at the last level or in middle levels
+            if (currentChar == singleLevelWildcardChar && i > 0 && subject.charAt(i - 1) == levelSeparatorChar
+                    && (i == subjectLength - 1 || subject.charAt(i + 1) == levelSeparatorChar)) {
+                current = current.literalChild(sb.toString());
                 current = current.children.get(MQTT_SINGLELEVEL_WILDCARD);
+                current.isMQTTWildcard = true;
                 if (i == subjectLength - 1) {
                     current.isTerminal = true;
-                    // check if '+' wildcard usage is valid
-                    // if it's used at the last level
-                    if (i > 0 && subject.charAt(i - 1) == levelSeparatorChar) {
-                        current.isMQTTWildcard = true;
-                    }
                     return current;
                 }
-                // check if '+' wildcard usage is valid
-                // if it's used in middle levels
-                if (i > 0 && subject.charAt(i - 1) == levelSeparatorChar
-                        && subject.charAt(i + 1) == levelSeparatorChar) {
-                    current.isMQTTWildcard = true;
-                }
                 return current.add(subject.substring(i + 1), true);
             }
             if (currentChar == escapeChar) {
@@ -161,6 +151,19 @@ public class WildcardTrie {
         return current;
     }
 
+    /**
+     * Get the child for the given normal characters, which unlike {@link #add(String, boolean)} are not parsed again,
+     * so that escaped characters and MQTT wildcards treated as normal characters don't turn into wildcards.
+     *
+     * @param key normal characters, empty for this node itself
+     */
+    private WildcardTrie literalChild(String key) {
+        if (key.isEmpty()) {
+            return this;
+        }
+        return children.get(key);
+    }
+
     /**
      * The method tries to parse the given string using escape sequence ${c} (where c is a character to be escaped)
      * and returns the character c if the pattern is matched. In any other scenario it returns null character ('\0')
@@ -183,58 +186,55 @@ public class WildcardTrie {
      *
      * @param str string to match.
      */
-    @SuppressWarnings({"PMD.UselessParentheses", "PMD.CollapsibleIfStatements"})
     public boolean matchesStandard(String str) {
         if (str == null) {
             return true;
         }
-        if ((isWildcard && isTerminal) || (isTerminal && str.isEmpty())) {
+        return matchesStandard(str, 0);
+    }
+
+    /**
+     * Match the part of the given string starting at the given index, so that no substrings are needed while walking
+     * down the trie.
+     *
+     * @param str  string to match
+     * @param from index of the first character to match
+     */
+    @SuppressWarnings({"PMD.UselessParentheses", "PMD.CollapsibleIfStatements"})
+    private boolean matchesStandard(String str, int from) {
+        if ((isWildcard && isTerminal) || (isTerminal && from == str.length())) {
             return true;
         }
 
-        boolean hasMatch = false;
-        Map<String, WildcardTrie> matchingChildren = new HashMap<>();
         for (Map.Entry<String, WildcardTrie> e : children.entrySet()) {
-            // Succeed fast
-            if (hasMatch) {
-                return true;
-            }
             String key = e.getKey();
             WildcardTrie value = e.getValue();
 
             // Process * wildcards
             if (value.isWildcard && key.equals(GLOB_WILDCARD)) {
-                hasMatch = value.matchesStandard(str);
+                if (value.matchesStandard(str, from)) {
+                    return true;
+                }
                 continue;
             }
 
             // Match normal characters
-            if (str.startsWith(key)) {
-                hasMatch = value.matchesStandard(str.substring(key.length()));
-                // Succeed fast
-                if (hasMatch) {
-                    return true;
-                }
+            if (str.startsWith(key, from) && value.matchesStandard(str, from + key.length())) {
+                return true;
             }
 
             // If I'm a wildcard, then I need to maybe chomp many characters to match my children
             if (isWildcard) {
-                int foundChildIndex = str.indexOf(key);
                 int keyLength = key.length();
+                int foundChildIndex = str.indexOf(key, from);
                 while (foundChildIndex >= 0) {
-                    matchingChildren.put(str.substring(foundChildIndex + keyLength), value);
+                    if (value.matchesStandard(str, foundChildIndex + keyLength)) {
+                        return true;
+                    }
                     foundChildIndex = str.indexOf(key, foundChildIndex + 1);
                 }
             }
         }
-        // Succeed fast
-        if (hasMatch) {
-            return true;
-        }
-        if (isWildcard && !matchingChildren.isEmpty()) {
-            return matchingChildren.entrySet().stream().anyMatch((e) -> e.getValue().matchesStandard(e.getKey()));
-        }
-
         return false;
     }
 
@@ -244,27 +244,34 @@ public class WildcardTrie {
      *
      * @param str string to match
      */
-    @SuppressWarnings({"PMD.UselessParentheses", "PMD.CollapsibleIfStatements"})
     public boolean matchesMQTT(String str) {
         if (str == null) {
             return true;
         }
-        if ((isWildcard && isTerminal) || (isTerminal && str.isEmpty())) {
+        return matchesMQTT(str, 0);
+    }
+
+    /**
+     * Match the part of the given string starting at the given index, so that no substrings are needed while walking
+     * down the trie.
+     *
+     * @param str  string to match
+     * @param from index of the first character to match
+     */
+    @SuppressWarnings({"PMD.UselessParentheses", "PMD.CollapsibleIfStatements",
+            "PMD.AvoidDeeplyNestedIfStmts"})
+    private boolean matchesMQTT(String str, int from) {
+        int length = str.length();
+        if ((isWildcard && isTerminal) || (isTerminal && from == length)) {
             return true;
         }
         if (isMQTTWildcard) {
-            if (matchAll || (isTerminal && (str.indexOf(MQTT_LEVEL_SEPARATOR) == -1))) {
+            if (matchAll || (isTerminal && (str.indexOf(levelSeparatorChar, from) == -1))) {
                 return true;
             }
         }
 
-        boolean hasMatch = false;
-        Map<String, WildcardTrie> matchingChildren = new HashMap<>();
         for (Map.Entry<String, WildcardTrie> e : children.entrySet()) {
-            // Succeed fast
-            if (hasMatch) {
-                return true;
-            }
             String key = e.getKey();
             WildcardTrie value = e.getValue();
 
@@ -272,62 +279,59 @@ public class WildcardTrie {
             if ((value.isWildcard && key.equals(GLOB_WILDCARD))
                     || (value.isMQTTWildcard && (key.equals(MQTT_SINGLELEVEL_WILDCARD)
                     || key.equals(MQTT_MULTILEVEL_WILDCARD)))) {
-                hasMatch = value.matchesMQTT(str);
+                if (value.matchesMQTT(str, from)) {
+                    return true;
+                }
                 continue;
             }
 
             // Match normal characters
-            if (str.startsWith(key)) {
-                hasMatch = value.matchesMQTT(str.substring(key.length()));
-                // Succeed fast
-                if (hasMatch) {
-                    return true;
-                }
+            if (str.startsWith(key, from) && value.matchesMQTT(str, from + key.length())) {
+                return true;
             }
 
             // Check if it's terminalLevel to allow matching of string without "/" in the end
             //      "abc/#" should match "abc".
             //      "abc/*xy/#" should match "abc/12xy"
-            String terminalKey = key.substring(0, key.length() - 1);
             if (value.isTerminalLevel) {
-                if (str.equals(terminalKey)) {
-                    return true;
-                }
-                if (str.endsWith(terminalKey)) {
-                    key = terminalKey;
+                int terminalKeyLength = key.length() - 1;
+                int remaining = length - from;
+                if (remaining >= terminalKeyLength
+                        && str.regionMatches(length - terminalKeyLength, key, 0, terminalKeyLength)) {
+                    if (remaining == terminalKeyLength) {
+                        return true;
+                    }
+                    key = key.substring(0, terminalKeyLength);
                 }
             }
 
             int keyLength = key.length();
             // If I'm a wildcard, then I need to maybe chomp many characters to match my children
             if (isWildcard) {
-                int foundChildIndex = str.indexOf(key);
-                while (foundChildIndex >= 0 && foundChildIndex < str.length()) {
-                    matchingChildren.put(str.substring(foundChildIndex + keyLength), value);
+                int foundChildIndex = str.indexOf(key, from);
+                while (foundChildIndex >= 0 && foundChildIndex < length) {
+                    if (value.matchesMQTT(str, foundChildIndex + keyLength)) {
+                        return true;
+                    }
                     foundChildIndex = str.indexOf(key, foundChildIndex + 1);
                 }
             }
             // If I'm a MQTT wildcard (specifically +, as # is already covered),
             // then I need to maybe chomp many characters to match my children
             if (isMQTTWildcard) {
-                int foundChildIndex = str.indexOf(key);
+                int foundChildIndex = str.indexOf(key, from);
                 // Matched characters inside + should not contain a "/"
+                int separatorIndex = str.indexOf(levelSeparatorChar, from);
                 while (foundChildIndex >= 0
-                        && foundChildIndex < str.length()
-                        && (str.substring(0,foundChildIndex).indexOf(MQTT_LEVEL_SEPARATOR) == -1)) {
-                    matchingChildren.put(str.substring(foundChildIndex + keyLength), value);
+                        && foundChildIndex < length
+                        && (separatorIndex == -1 || foundChildIndex <= separatorIndex)) {
+                    if (value.matchesMQTT(str, foundChildIndex + keyLength)) {
+                        return true;
+                    }
                     foundChildIndex = str.indexOf(key, foundChildIndex + 1);
                 }
             }
         }
-        // Succeed fast
-        if (hasMatch) {
-            return true;
-        }
-        if ((isWildcard || isMQTTWildcard) && !matchingChildren.isEmpty()) {
-            return matchingChildren.entrySet().stream().anyMatch((e) -> e.getValue().matchesMQTT(e.getKey()));
-        }
-
         return false;
     }
 
@@ -156,7 +156,8 @@ public class PubSubIPCEventStreamAgent {
                 cbs.add(context.getCallback());
             }
         });
-        SubscriptionResponseMessage message = new SubscriptionResponseMessage();
+        // one message for all subscriber streams, so that its eventstream payload is only encoded once
+        SubscriptionResponseMessage message = new SharedSubscriptionResponseMessage();
         PublishEvent publishedEvent = PublishEvent.builder().topic(topic).build();
         MessageContext messageContext = new MessageContext().withTopic(topic);
         if (jsonMessage.isPresent()) {
@@ -0,0 +1,31 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.builtin.services.pubsub;
+
+import com.google.gson.Gson;
+import software.amazon.awssdk.aws.greengrass.model.SubscriptionResponseMessage;
+
+/**
+ * Subscription message which is sent to every subscriber of a publish. The eventstream payload is encoded by the
+ * first subscriber stream which sends it and the same bytes are reused by all the others, so the message must not be
+ * modified once it's handed to the subscribers.
+ */
+class SharedSubscriptionResponseMessage extends SubscriptionResponseMessage {
+    // transient so that gson leaves them out of the payload
+    private transient Gson payloadGson;
+    private transient byte[] payload;
+
+    @Override
+    public byte[] toPayload(Gson gson) {
+        synchronized (this) {
+            if (payload == null || payloadGson != gson) {
+                payload = super.toPayload(gson);
+                payloadGson = gson;
+            }
+            return payload;
+        }
+    }
+}
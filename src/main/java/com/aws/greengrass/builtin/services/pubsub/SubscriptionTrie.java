@@ -5,38 +5,56 @@
 
 package com.aws.greengrass.builtin.services.pubsub;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Trie to manage subscriptions.
+ *
+ * <p>Topics are matched level by level in place, without splitting them. The set of callbacks matching a topic is
+ * cached per topic until the next subscription change, so that publishing to the same topic again does not
+ * allocate.</p>
  */
 public class SubscriptionTrie<K> {
-    private static final String TOPIC_LEVEL_SEPARATOR = "/";
+    private static final char TOPIC_LEVEL_SEPARATOR = '/';
     private static final String SINGLE_LEVEL_WILDCARD = "+";
     private static final String MULTI_LEVEL_WILDCARD = "#";
+    private static final Level SINGLE_LEVEL_WILDCARD_KEY = new Level(SINGLE_LEVEL_WILDCARD);
+    private static final Level MULTI_LEVEL_WILDCARD_KEY = new Level(MULTI_LEVEL_WILDCARD);
+    private static final int MAX_CACHED_TOPICS = 1024;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
 
-    private final Map<String, SubscriptionTrie<K>> children = new ConcurrentHashMap<>();
-    private final Set<K> subscriptionCallbacks;
+    private final TrieNode<K> root = new TrieNode<>();
+    // incremented on every subscription change, cached matches of older versions are ignored
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, CachedMatch<K>> matchCache = new ConcurrentHashMap<>();
 
     /**
      * Construct.
      */
     public SubscriptionTrie() {
-        this.subscriptionCallbacks = ConcurrentHashMap.newKeySet();
     }
 
-    private SubscriptionTrie<K> lookup(String topic) {
-        SubscriptionTrie<K> current = this;
-        for (String topicLevel : topic.split(TOPIC_LEVEL_SEPARATOR)) {
-            current = current.children.get(topicLevel);
-            if (current == null) {
-                return null;
+    private TrieNode<K> lookup(String topic) {
+        Scratch scratch = SCRATCH.get();
+        Level level = scratch.level;
+        TrieNode<K> current = root;
+        int end = levelsEnd(topic);
+        for (int start = 0; end >= 0 && current != null; ) {
+            int levelEnd = levelEnd(topic, start, end);
+            current = current.children.get(level.set(topic, start, levelEnd));
+            if (levelEnd == end) {
+                break;
             }
+            start = levelEnd + 1;
         }
+        level.clear();
         return current;
     }
 
@@ -69,11 +87,15 @@ public class SubscriptionTrie<K> {
      * @return if changed after removal
      */
     public boolean remove(String topic, Set<K> cbs) {
-        SubscriptionTrie<K> sub = lookup(topic);
+        TrieNode<K> sub = lookup(topic);
         if (sub == null) {
             return false;
         }
-        return sub.subscriptionCallbacks.removeAll(cbs);
+        if (sub.subscriptionCallbacks.removeAll(cbs)) {
+            invalidateMatches();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -82,11 +104,7 @@ public class SubscriptionTrie<K> {
      * @return size
      */
     public int size() {
-        int size = this.subscriptionCallbacks.size();
-        for (SubscriptionTrie<K> child : children.values()) {
-            size += child.size();
-        }
-        return size;
+        return root.size();
     }
 
     /**
@@ -107,56 +125,105 @@ public class SubscriptionTrie<K> {
      * @param cbs   callbacks
      */
     public boolean add(String topic, Set<K> cbs) {
-        SubscriptionTrie<K> current = this;
-        for (String topicLevel : topic.split(TOPIC_LEVEL_SEPARATOR)) {
-            current = current.children.computeIfAbsent(topicLevel, k -> new SubscriptionTrie<>());
-        }
-        return current.subscriptionCallbacks.addAll(cbs);
-    }
-
-    private void addMatchingPaths(String topicLevel, Set<K> result, Set<SubscriptionTrie<K>> paths) {
-        SubscriptionTrie<K> childPath = this.children.get(topicLevel);
-        if (childPath != null) {
-            paths.add(childPath);
+        TrieNode<K> current = root;
+        int end = levelsEnd(topic);
+        for (int start = 0; end >= 0; ) {
+            int levelEnd = levelEnd(topic, start, end);
+            current = current.children.computeIfAbsent(new Level(topic.substring(start, levelEnd)),
+                    k -> new TrieNode<>());
+            if (levelEnd == end) {
+                break;
+            }
+            start = levelEnd + 1;
         }
-
-        SubscriptionTrie<K> childPlusPath = this.children.get(SINGLE_LEVEL_WILDCARD);
-        if (childPlusPath != null) {
-            paths.add(childPlusPath);
+        if (current.subscriptionCallbacks.addAll(cbs)) {
+            invalidateMatches();
+            return true;
         }
+        return false;
+    }
 
-        SubscriptionTrie<K> childPoundPath = this.children.get(MULTI_LEVEL_WILDCARD);
-        if (childPoundPath != null) {
-            paths.add(childPoundPath);
-            result.addAll(childPoundPath.subscriptionCallbacks);
-        }
+    private void invalidateMatches() {
+        version.incrementAndGet();
+        matchCache.clear();
     }
 
     /**
      * Get callback objects given a topic.
      *
      * @param topic topic
-     * @return a set of callback objects
+     * @return an immutable set of callback objects
      */
     public Set<K> get(String topic) {
-        String[] topicLevels = topic.split(TOPIC_LEVEL_SEPARATOR);
-        Set<K> result = new HashSet<>();
-        Set<SubscriptionTrie<K>> paths = new HashSet<>();
-        this.addMatchingPaths(topicLevels[0], result, paths);
+        long currentVersion = version.get();
+        CachedMatch<K> cached = matchCache.get(topic);
+        if (cached != null && cached.version == currentVersion) {
+            return cached.callbacks;
+        }
+        Set<K> result = match(topic);
+        if (matchCache.size() >= MAX_CACHED_TOPICS) {
+            matchCache.clear();
+        }
+        matchCache.put(topic, new CachedMatch<>(currentVersion, result));
+        return result;
+    }
 
-        for (int level = 1; level < topicLevels.length && !paths.isEmpty(); level++) {
-            Set<SubscriptionTrie<K>> newPaths = new HashSet<>();
-            for (SubscriptionTrie<K> path : paths) {
-                path.addMatchingPaths(topicLevels[level], result, newPaths);
+    @SuppressWarnings("unchecked")
+    private Set<K> match(String topic) {
+        Scratch scratch = SCRATCH.get();
+        List<TrieNode<?>> paths = scratch.paths;
+        List<TrieNode<?>> newPaths = scratch.newPaths;
+        Level level = scratch.level;
+        Set<K> result = new HashSet<>();
+        int end = levelsEnd(topic);
+        if (end < 0) {
+            // topic made of separators only, which is subscribed to at the root
+            result.addAll(root.subscriptionCallbacks);
+            return result.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(result);
+        }
+        try {
+            paths.add(root);
+            for (int start = 0; !paths.isEmpty(); ) {
+                int levelEnd = levelEnd(topic, start, end);
+                level.set(topic, start, levelEnd);
+                for (TrieNode<?> path : paths) {
+                    ((TrieNode<K>) path).addMatchingPaths(level, result, newPaths);
+                }
+                List<TrieNode<?>> swap = paths;
+                paths = newPaths;
+                newPaths = swap;
+                newPaths.clear();
+                if (levelEnd == end) {
+                    break;
+                }
+                start = levelEnd + 1;
             }
-            paths = newPaths;
+            for (TrieNode<?> path : paths) {
+                result.addAll(((TrieNode<K>) path).subscriptionCallbacks);
+            }
+        } finally {
+            scratch.paths.clear();
+            scratch.newPaths.clear();
+            level.clear();
         }
+        return result.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(result);
+    }
 
-        for (SubscriptionTrie<K> path : paths) {
-            result.addAll(path.subscriptionCallbacks);
+    /**
+     * End of the last topic level, ignoring trailing separators like {@link String#split(String)} does. Returns -1
+     * for a non-empty topic which has separators only, and thus no levels.
+     */
+    private static int levelsEnd(String topic) {
+        int end = topic.length();
+        while (end > 0 && topic.charAt(end - 1) == TOPIC_LEVEL_SEPARATOR) {
+            end--;
         }
+        return end == 0 && !topic.isEmpty() ? -1 : end;
+    }
 
-        return result;
+    private static int levelEnd(String topic, int start, int end) {
+        int separator = topic.indexOf(TOPIC_LEVEL_SEPARATOR, start);
+        return separator < 0 || separator > end ? end : separator;
     }
 
     /**
@@ -167,7 +234,7 @@ public class SubscriptionTrie<K> {
      * @return whether the topic is wildcard
      */
     public static boolean isWildcard(String topic) {
-        String[] topicLevels = topic.split(TOPIC_LEVEL_SEPARATOR);
+        String[] topicLevels = topic.split(String.valueOf(TOPIC_LEVEL_SEPARATOR));
 
         int i;
         for (i = 0; i < topicLevels.length; i++) {
@@ -182,4 +249,108 @@ public class SubscriptionTrie<K> {
 
     }
 
+    private static final class TrieNode<K> {
+        private final Map<Level, TrieNode<K>> children = new ConcurrentHashMap<>();
+        private final Set<K> subscriptionCallbacks = ConcurrentHashMap.newKeySet();
+
+        private int size() {
+            int size = subscriptionCallbacks.size();
+            for (TrieNode<K> child : children.values()) {
+                size += child.size();
+            }
+            return size;
+        }
+
+        private void addMatchingPaths(Level topicLevel, Set<K> result, List<TrieNode<?>> paths) {
+            TrieNode<K> childPath = children.get(topicLevel);
+            if (childPath != null) {
+                paths.add(childPath);
+            }
+
+            TrieNode<K> childPlusPath = children.get(SINGLE_LEVEL_WILDCARD_KEY);
+            if (childPlusPath != null && childPlusPath != childPath) {
+                paths.add(childPlusPath);
+            }
+
+            TrieNode<K> childPoundPath = children.get(MULTI_LEVEL_WILDCARD_KEY);
+            if (childPoundPath != null) {
+                if (childPoundPath != childPath) {
+                    paths.add(childPoundPath);
+                }
+                result.addAll(childPoundPath.subscriptionCallbacks);
+            }
+        }
+    }
+
+    /**
+     * Topic level used as the key of the children of a node. Stored keys cover a whole string, while lookups use a
+     * reusable key covering a range of the topic, so that the topic does not need to be split.
+     */
+    private static final class Level {
+        private String topic;
+        private int start;
+        private int end;
+        private int hash;
+
+        Level(String level) {
+            set(level, 0, level.length());
+        }
+
+        Level() {
+        }
+
+        Level set(String topic, int start, int end) {
+            this.topic = topic;
+            this.start = start;
+            this.end = end;
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + topic.charAt(i);
+            }
+            this.hash = h;
+            return this;
+        }
+
+        void clear() {
+            topic = null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Level)) {
+                return false;
+            }
+            Level other = (Level) o;
+            int length = end - start;
+            return hash == other.hash && length == other.end - other.start
+                    && topic.regionMatches(start, other.topic, other.start, length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CachedMatch<K> {
+        private final long version;
+        private final Set<K> callbacks;
+
+        CachedMatch(long version, Set<K> callbacks) {
+            this.version = version;
+            this.callbacks = callbacks;
+        }
+    }
+
+    /**
+     * Per thread buffers reused by every match.
+     */
+    private static final class Scratch {
+        private final Level level = new Level();
+        private final List<TrieNode<?>> paths = new ArrayList<>();
+        private final List<TrieNode<?>> newPaths = new ArrayList<>();
+    }
 }
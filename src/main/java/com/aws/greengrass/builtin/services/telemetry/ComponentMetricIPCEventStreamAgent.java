@@ -10,13 +10,11 @@ import com.aws.greengrass.authorization.Permission;
 import com.aws.greengrass.authorization.exceptions.AuthorizationException;
 import com.aws.greengrass.logging.api.Logger;
 import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.telemetry.MetricsRecorder;
 import com.aws.greengrass.telemetry.impl.Metric;
-import com.aws.greengrass.telemetry.impl.MetricFactory;
 import com.aws.greengrass.telemetry.models.TelemetryAggregation;
 import com.aws.greengrass.telemetry.models.TelemetryUnit;
 import com.aws.greengrass.util.Utils;
-import lombok.AccessLevel;
-import lombok.Getter;
 import org.apache.commons.lang3.EnumUtils;
 import software.amazon.awssdk.aws.greengrass.GeneratedAbstractPutComponentMetricOperationHandler;
 import software.amazon.awssdk.aws.greengrass.model.InvalidArgumentsError;
@@ -30,9 +28,7 @@ import software.amazon.awssdk.eventstreamrpc.model.EventStreamJsonMessage;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 import javax.inject.Inject;
 
@@ -48,13 +44,13 @@ public class ComponentMetricIPCEventStreamAgent {
     private static final String NON_ALPHANUMERIC_REGEX = "[^A-Za-z0-9]";
     private static final String SERVICE_NAME = "ServiceName";
 
-    @Getter(AccessLevel.PACKAGE)
-    private final Map<String, MetricFactory> metricFactoryMap = new HashMap<>();
     private final AuthorizationHandler authorizationHandler;
+    private final MetricsRecorder metricsRecorder;
 
     @Inject
-    ComponentMetricIPCEventStreamAgent(AuthorizationHandler authorizationHandler) {
+    ComponentMetricIPCEventStreamAgent(AuthorizationHandler authorizationHandler, MetricsRecorder metricsRecorder) {
         this.authorizationHandler = authorizationHandler;
+        this.metricsRecorder = metricsRecorder;
     }
 
     public PutComponentMetricOperationHandler getPutComponentMetricHandler(
@@ -133,16 +129,13 @@ public class ComponentMetricIPCEventStreamAgent {
         // Translate request metrics to telemetry metrics and emit them
         private void translateAndEmit(List<software.amazon.awssdk.aws.greengrass.model.Metric> componentMetrics,
                                       String metricNamespace) {
-            final MetricFactory metricFactory =
-                    metricFactoryMap.computeIfAbsent(metricNamespace, k -> new MetricFactory(metricNamespace));
-
             componentMetrics.forEach(metric -> {
                 logger.atDebug().kv(SERVICE_NAME, serviceName)
                         .log("Translating component metric to Telemetry metric" + metric.getName());
                 Metric telemetryMetric = getTelemetryMetric(metric, metricNamespace);
                 logger.atDebug().kv(SERVICE_NAME, serviceName)
                         .log("Publish Telemetry metric" + telemetryMetric.getName());
-                metricFactory.putMetricData(telemetryMetric);
+                metricsRecorder.record(telemetryMetric);
             });
         }
     }
@@ -0,0 +1,358 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Binary transaction log encoding.
+ *
+ * <p>A binary tlog starts with {@link #MAGIC}, followed by records of the form
+ * {@code [int payloadLength][int crc32(payload)][payload]}. The payload holds the timestamp, the action, the topic
+ * path and a type-tagged value.</p>
+ *
+ * <p>Records are group committed, so a crash may leave a partially written record, or a zero filled region, at the
+ * end of the file. That tail was never acknowledged as durable and is ignored. A complete record with a bad checksum
+ * anywhere in the file means the file is corrupted.</p>
+ */
+final class BinaryTlog {
+    static final byte[] MAGIC = {'G', 'G', 'T', 'L', 'O', 'G', 'B', 1};
+    static final int RECORD_HEADER_SIZE = 8;
+    // timestamp + action + path length
+    private static final int MIN_PAYLOAD_SIZE = 8 + 1 + 4;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INT = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_TRUE = 5;
+    private static final byte VALUE_FALSE = 6;
+    private static final byte VALUE_JSON = 7;
+
+    // Default configuration like the mapper Coerce writes complex values of the JSON tlog with, so that they round
+    // trip identically in both formats
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final WhatHappened[] ACTIONS = WhatHappened.values();
+
+    private BinaryTlog() {
+    }
+
+    /**
+     * Result of scanning a binary tlog.
+     */
+    static final class ScanResult {
+        long validLength;
+        long recordCount;
+        boolean corrupted;
+        boolean tornTail;
+    }
+
+    /**
+     * Check if the file at the given path is a binary tlog.
+     *
+     * @param path path to check
+     * @return true if the file exists and starts with the binary tlog header
+     * @throws IOException if reading the file fails
+     */
+    static boolean isBinaryTlog(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return hasMagic(in);
+        }
+    }
+
+    /**
+     * Check if the stream starts with the binary tlog header. Consumes the header bytes.
+     *
+     * @param in stream to read from
+     * @return true if the header matches
+     * @throws IOException if reading fails
+     */
+    static boolean hasMagic(InputStream in) throws IOException {
+        byte[] header = new byte[MAGIC.length];
+        int n = 0;
+        while (n < header.length) {
+            int r = in.read(header, n, header.length - n);
+            if (r < 0) {
+                return false;
+            }
+            n += r;
+        }
+        return Arrays.equals(header, MAGIC);
+    }
+
+    /**
+     * Encode a tlog line as a complete record, including the length and checksum header.
+     *
+     * @param line line to encode
+     * @return record bytes
+     * @throws IOException if the value can't be serialized
+     */
+    static byte[] encode(Tlogline line) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        // placeholder for length and checksum
+        out.writeLong(0);
+        out.writeLong(line.timestamp);
+        out.writeByte(line.action.ordinal());
+        String[] path = line.topicPath == null ? new String[0] : line.topicPath;
+        out.writeInt(path.length);
+        for (String segment : path) {
+            writeString(out, segment);
+        }
+        writeValue(out, line.value);
+        out.flush();
+
+        byte[] record = bytes.toByteArray();
+        int payloadLength = record.length - RECORD_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(record, RECORD_HEADER_SIZE, payloadLength);
+        putInt(record, 0, payloadLength);
+        putInt(record, 4, (int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Read all valid records from a binary tlog stream, including the header.
+     *
+     * @param input    stream positioned at the start of the tlog
+     * @param consumer consumer of decoded records, may be null to only validate
+     * @return scan result
+     * @throws IOException if reading fails or the stream is not a binary tlog
+     */
+    static ScanResult scan(InputStream input, Consumer<Tlogline> consumer) throws IOException {
+        InputStream in = input instanceof BufferedInputStream ? input : new BufferedInputStream(input);
+        if (!hasMagic(in)) {
+            throw new IOException("Not a binary transaction log");
+        }
+        return scanRecords(in, MAGIC.length, consumer);
+    }
+
+    /**
+     * Read all valid records from a stream positioned at a record boundary, after the header.
+     *
+     * @param input       stream positioned at the first record to read
+     * @param startOffset offset of the first record in the file, used for {@link ScanResult#validLength}
+     * @param consumer    consumer of decoded records, may be null to only validate
+     * @return scan result
+     * @throws IOException if reading fails
+     */
+    static ScanResult scanRecords(InputStream input, long startOffset, Consumer<Tlogline> consumer)
+            throws IOException {
+        ScanResult result = new ScanResult();
+        DataInputStream in = new DataInputStream(input instanceof BufferedInputStream ? input
+                : new BufferedInputStream(input));
+        result.validLength = startOffset;
+        byte[] header = new byte[RECORD_HEADER_SIZE];
+        while (true) {
+            int headerRead = readFully(in, header, header.length);
+            if (headerRead == 0) {
+                return result;
+            }
+            if (headerRead < header.length) {
+                result.tornTail = true;
+                return result;
+            }
+            int length = getInt(header, 0);
+            int checksum = getInt(header, 4);
+            if (length < MIN_PAYLOAD_SIZE || length > MAX_PAYLOAD_SIZE) {
+                markInvalidRecord(result, header, in);
+                return result;
+            }
+            byte[] payload = new byte[length];
+            if (readFully(in, payload, length) < length) {
+                result.tornTail = true;
+                return result;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            Tlogline line;
+            try {
+                line = (int) crc.getValue() == checksum ? decodePayload(payload) : null;
+            } catch (IOException e) {
+                line = null;
+            }
+            if (line == null) {
+                markInvalidRecord(result, payload, in);
+                return result;
+            }
+            if (consumer != null) {
+                consumer.accept(line);
+            }
+            result.recordCount++;
+            result.validLength += RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    /**
+     * An invalid record followed only by zeros is an unfinished commit that the filesystem padded with zeros;
+     * anything else is corruption.
+     */
+    private static void markInvalidRecord(ScanResult result, byte[] consumed, InputStream in) throws IOException {
+        boolean allZero = true;
+        for (byte b : consumed) {
+            if (b != 0) {
+                allZero = false;
+                break;
+            }
+        }
+        int b;
+        while (allZero && (b = in.read()) >= 0) {
+            allZero = b == 0;
+        }
+        if (allZero) {
+            result.tornTail = true;
+        } else {
+            result.corrupted = true;
+        }
+    }
+
+    /**
+     * Decode a record payload, without the length and checksum header.
+     *
+     * @param payload payload bytes
+     * @return decoded line
+     * @throws IOException if the payload is malformed
+     */
+    static Tlogline decodePayload(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        try {
+            long timestamp = in.readLong();
+            int action = in.readUnsignedByte();
+            if (action >= ACTIONS.length) {
+                throw new IOException("Unknown tlog action " + action);
+            }
+            int pathLength = in.readInt();
+            if (pathLength < 0 || pathLength > payload.length) {
+                throw new IOException("Invalid tlog path length " + pathLength);
+            }
+            String[] path = new String[pathLength];
+            for (int i = 0; i < pathLength; i++) {
+                path[i] = readString(in, payload.length);
+            }
+            Object value = readValue(in, payload.length);
+            if (in.available() > 0) {
+                throw new IOException("Trailing bytes in tlog record");
+            }
+            return new Tlogline(timestamp, path, ACTIONS[action], value);
+        } catch (EOFException e) {
+            throw new IOException("Truncated tlog record", e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(VALUE_INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? VALUE_TRUE : VALUE_FALSE);
+        } else {
+            // lists, maps and anything else go through Jackson, exactly like the JSON tlog
+            out.writeByte(VALUE_JSON);
+            byte[] json = MAPPER.writeValueAsBytes(value);
+            out.writeInt(json.length);
+            out.write(json);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, int maxLength) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(in, maxLength);
+            case VALUE_INT:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_JSON:
+                return MAPPER.readValue(readBytes(in, maxLength), Object.class);
+            default:
+                throw new IOException("Unknown tlog value type " + tag);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, int maxLength) throws IOException {
+        return new String(readBytes(in, maxLength), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid tlog field length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int readFully(InputStream in, byte[] buf, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int r = in.read(buf, n, length - n);
+            if (r < 0) {
+                break;
+            }
+            n += r;
+        }
+        return n;
+    }
+
+    private static void putInt(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) (value >>> 24);
+        buf[offset + 1] = (byte) (value >>> 16);
+        buf[offset + 2] = (byte) (value >>> 8);
+        buf[offset + 3] = (byte) value;
+    }
+
+    static int getInt(byte[] buf, int offset) {
+        return (buf[offset] & 0xFF) << 24 | (buf[offset + 1] & 0xFF) << 16 | (buf[offset + 2] & 0xFF) << 8
+                | buf[offset + 3] & 0xFF;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.config;
+
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.util.Commitable;
+import com.aws.greengrass.util.CommitableFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link BinaryTlog} records with group commit. Records are buffered in memory and written with a single
+ * {@link FileChannel#force(boolean)} once {@code groupCommitMaxRecords} records have accumulated or
+ * {@code groupCommitWindowMillis} has elapsed since the first buffered record, whichever comes first.
+ */
+final class BinaryTlogWriter implements Closeable, Flushable, Commitable {
+    private static final Logger logger = LogManager.getLogger(BinaryTlogWriter.class);
+
+    private final FileChannel channel;
+    private final CommitableFile commitableFile;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(8192);
+    private int pendingRecords;
+    // records were written but not forced to disk yet
+    private boolean unforced;
+    private long groupCommitWindowMillis = ConfigurationWriter.DEFAULT_GROUP_COMMIT_WINDOW_MILLIS;
+    private int groupCommitMaxRecords = ConfigurationWriter.DEFAULT_GROUP_COMMIT_MAX_RECORDS;
+    private ScheduledExecutorService committer;
+    private ScheduledFuture<?> scheduledCommit;
+    private boolean closed;
+
+    private BinaryTlogWriter(FileChannel channel, CommitableFile commitableFile) {
+        this.channel = channel;
+        this.commitableFile = commitableFile;
+    }
+
+    /**
+     * Open a binary tlog for appending. A torn tail left by an interrupted commit is truncated away so that new
+     * records follow the last valid one.
+     *
+     * @param path path to the tlog
+     * @return writer
+     * @throws IOException if the file can't be opened, is not a binary tlog, or is corrupted
+     */
+    static BinaryTlogWriter appendTo(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        try {
+            if (channel.size() == 0) {
+                channel.write(ByteBuffer.wrap(BinaryTlog.MAGIC));
+            } else {
+                // not closing the stream since that would close the channel
+                InputStream in = Channels.newInputStream(channel.position(0));
+                BinaryTlog.ScanResult result = BinaryTlog.scan(in, null);
+                if (result.corrupted) {
+                    throw new IOException("Binary transaction log is corrupted: " + path);
+                }
+                if (result.tornTail) {
+                    logger.atWarn().kv("path", path).kv("validLength", result.validLength)
+                            .log("Truncating incomplete records at the end of the transaction log");
+                    channel.truncate(result.validLength);
+                }
+                channel.position(result.validLength);
+            }
+            channel.force(true);
+            return new BinaryTlogWriter(channel, null);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write a new binary tlog which replaces the file at the given path only once committed.
+     *
+     * @param path path to the tlog
+     * @return writer
+     * @throws IOException if the file can't be created
+     */
+    static BinaryTlogWriter replace(Path path) throws IOException {
+        CommitableFile file = CommitableFile.abandonOnClose(path);
+        file.write(BinaryTlog.MAGIC);
+        BinaryTlogWriter writer = new BinaryTlogWriter(null, file);
+        // whole file is made durable on commit, never need a timed commit
+        writer.groupCommitMaxRecords = Integer.MAX_VALUE;
+        return writer;
+    }
+
+    synchronized void setGroupCommit(long windowMillis, int maxRecords) {
+        groupCommitWindowMillis = Math.max(0, windowMillis);
+        groupCommitMaxRecords = Math.max(1, maxRecords);
+    }
+
+    /**
+     * Buffer a record for the next group commit.
+     *
+     * @param line record to append
+     * @throws IOException if encoding the record or committing a full batch fails
+     */
+    synchronized void append(Tlogline line) throws IOException {
+        if (closed) {
+            throw new IOException("Transaction log writer is closed");
+        }
+        pending.write(BinaryTlog.encode(line));
+        pendingRecords++;
+        if (pendingRecords >= groupCommitMaxRecords || groupCommitWindowMillis == 0) {
+            flush();
+        } else if (scheduledCommit == null && channel != null) {
+            if (committer == null) {
+                committer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "Tlog group commit");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            scheduledCommit = committer.schedule(this::timedCommit, groupCommitWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void timedCommit() {
+        scheduledCommit = null;
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.atError().setEventType("tlog-group-commit-error").setCause(e).log();
+        }
+    }
+
+    /**
+     * Write all buffered records and force them to disk.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (scheduledCommit != null) {
+            scheduledCommit.cancel(false);
+            scheduledCommit = null;
+        }
+        if (closed || pendingRecords == 0 && !unforced) {
+            return;
+        }
+        if (channel == null) {
+            pending.writeTo(commitableFile);
+            pending.reset();
+            pendingRecords = 0;
+            return;
+        }
+        if (pendingRecords > 0) {
+            byte[] bytes = pending.toByteArray();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                // keep only what wasn't written, so that retrying doesn't write any record twice
+                if (buffer.position() > 0) {
+                    unforced = true;
+                    pending.reset();
+                    pending.write(bytes, buffer.position(), buffer.remaining());
+                    if (!buffer.hasRemaining()) {
+                        pendingRecords = 0;
+                    }
+                }
+            }
+        }
+        channel.force(false);
+        unforced = false;
+    }
+
+    @Override
+    public synchronized void commit() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.atError().setEventType("tlog-commit-error").setCause(e).log();
+        }
+        if (commitableFile != null) {
+            commitableFile.commit();
+        }
+    }
+
+    @Override
+    public synchronized void abandon() {
+        pending.reset();
+        pendingRecords = 0;
+        unforced = false;
+        if (commitableFile != null) {
+            commitableFile.abandon();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (channel != null) {
+                flush();
+            }
+        } finally {
+            closed = true;
+            if (committer != null) {
+                committer.shutdownNow();
+            }
+            if (channel != null) {
+                channel.close();
+            } else {
+                // not committed explicitly, keep the old file
+                commitableFile.close();
+            }
+        }
+    }
+}
@@ -7,8 +7,6 @@ package com.aws.greengrass.config;
 
 import lombok.NonNull;
 
-import java.util.Objects;
-
 public class CaseInsensitiveString implements CharSequence {
     private final String value;
     private String lower;
@@ -17,6 +15,22 @@ public class CaseInsensitiveString implements CharSequence {
         this.value = value;
     }
 
+    private CaseInsensitiveString(String value, String lower) {
+        this.value = value;
+        this.lower = lower;
+    }
+
+    /**
+     * Get an equal instance whose strings are interned, so that keys stored in long lived maps share their
+     * strings with every other key of the same name.
+     *
+     * @return interned copy of this string
+     */
+    CaseInsensitiveString intern() {
+        String v = value.intern();
+        return new CaseInsensitiveString(v, getLower().intern());
+    }
+
     private String getLower() {
         if (lower == null) {
             lower = value.toLowerCase();
@@ -38,7 +52,7 @@ public class CaseInsensitiveString implements CharSequence {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getLower());
+        return getLower().hashCode();
     }
 
     @Override
@@ -0,0 +1,191 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.config;
+
+import com.aws.greengrass.util.CommitableFile;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a whole configuration tree, used to start up without replaying the full transaction log.
+ *
+ * <p>The file starts with {@link #MAGIC}, whose last byte is the format version, followed by
+ * {@code [long tlogOffset][long tlogFingerprint][int recordCount]} and then {@link BinaryTlog} records, one for
+ * every node in depth first order. A snapshot belongs to the tlog it was taken with: the tlog must still be at
+ * least {@code tlogOffset} bytes long and match the fingerprint of its content up to that offset. Only the records
+ * after {@code tlogOffset} then need to be replayed on top of the snapshot.</p>
+ */
+final class ConfigSnapshot {
+    static final byte[] MAGIC = {'G', 'G', 'C', 'S', 'N', 'A', 'P', 2};
+    private static final int HEADER_SIZE = MAGIC.length + 8 + 8 + 4;
+
+    private ConfigSnapshot() {
+    }
+
+    /**
+     * Snapshot as loaded from disk.
+     */
+    static final class Loaded {
+        final long tlogOffset;
+        final List<Tlogline> records;
+
+        Loaded(long tlogOffset, List<Tlogline> records) {
+            this.tlogOffset = tlogOffset;
+            this.records = records;
+        }
+    }
+
+    /**
+     * Capture every persisted node of the configuration, parents before their children. Nodes whose path contains
+     * a name starting with '_' are skipped, exactly like in the tlog.
+     *
+     * @param config configuration to capture
+     * @return records describing the tree
+     */
+    static List<Tlogline> capture(Configuration config) {
+        List<Tlogline> records = new ArrayList<>();
+        capture(config.getRoot(), records);
+        return records;
+    }
+
+    private static void capture(Node node, List<Tlogline> records) {
+        String name = node.getName();
+        if (name != null && name.startsWith("_")) {
+            return;
+        }
+        if (node instanceof Topic) {
+            records.add(new Tlogline(node.getModtime(), node.path(), WhatHappened.changed, ((Topic) node).getOnce()));
+            return;
+        }
+        records.add(new Tlogline(node.getModtime(), node.path(), WhatHappened.interiorAdded, null));
+        for (Node child : ((Topics) node).children.values()) {
+            capture(child, records);
+        }
+    }
+
+    /**
+     * Write a snapshot of the given records, taken when the tlog was {@code tlogOffset} bytes long. The snapshot
+     * file is replaced atomically.
+     *
+     * @param snapshotPath path of the snapshot
+     * @param records      records captured by {@link #capture}
+     * @param tlogPath     tlog which holds the same content up to {@code tlogOffset}
+     * @param tlogOffset   length of the tlog content covered by the snapshot
+     * @throws IOException if writing fails
+     */
+    static void write(Path snapshotPath, List<Tlogline> records, Path tlogPath, long tlogOffset) throws IOException {
+        long fingerprint = fingerprint(tlogPath, tlogOffset);
+        try (CommitableFile file = CommitableFile.abandonOnClose(snapshotPath)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            out.write(MAGIC);
+            out.writeLong(tlogOffset);
+            out.writeLong(fingerprint);
+            out.writeInt(records.size());
+            for (Tlogline line : records) {
+                out.write(BinaryTlog.encode(line));
+            }
+            out.flush();
+            file.commit();
+        }
+    }
+
+    /**
+     * Load a snapshot. The file is read into memory instead of being mapped, so that it can be replaced right away
+     * on every platform. The snapshot is only returned if it is complete and still belongs
+     * to the given tlog.
+     *
+     * @param snapshotPath path of the snapshot
+     * @param tlogPath     current tlog
+     * @return loaded snapshot, or null if it is missing, invalid or stale
+     * @throws IOException if reading fails
+     */
+    static Loaded load(Path snapshotPath, Path tlogPath) throws IOException {
+        if (!Files.exists(snapshotPath) || !Files.exists(tlogPath)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            return null;
+        }
+        long tlogOffset = buffer.getLong();
+        long fingerprint = buffer.getLong();
+        int recordCount = buffer.getInt();
+        if (tlogOffset < 0 || recordCount < 0 || Files.size(tlogPath) < tlogOffset
+                || fingerprint != fingerprint(tlogPath, tlogOffset)) {
+            return null;
+        }
+        List<Tlogline> records = new ArrayList<>(Math.min(recordCount, buffer.remaining()));
+        for (int i = 0; i < recordCount; i++) {
+            Tlogline line = readRecord(buffer);
+            if (line == null) {
+                return null;
+            }
+            records.add(line);
+        }
+        return buffer.hasRemaining() ? null : new Loaded(tlogOffset, records);
+    }
+
+    private static Tlogline readRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < BinaryTlog.RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        try {
+            return BinaryTlog.decodePayload(payload);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checksum of the tlog length and its whole content up to the end of the snapshotted range. Appending to the tlog
+     * keeps the fingerprint, while any change to the snapshotted range, like a compaction, a restore from backup or
+     * an edit, changes it.
+     */
+    private static long fingerprint(Path tlogPath, long tlogOffset) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(0, tlogOffset).array());
+        try (InputStream in = Files.newInputStream(tlogPath)) {
+            byte[] buf = new byte[64 * 1024];
+            long remaining = tlogOffset;
+            while (remaining > 0) {
+                int r = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                if (r < 0) {
+                    throw new IOException("Transaction log is shorter than the snapshot");
+                }
+                crc.update(buf, 0, r);
+                remaining -= r;
+            }
+        }
+        return crc.getValue();
+    }
+}
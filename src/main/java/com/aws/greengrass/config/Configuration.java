@@ -238,6 +238,10 @@ public class Configuration {
     public Configuration read(Path s) throws IOException {
         logger.atInfo().addKeyValue("path", s).setEventType("config-loading")
                 .log("Read configuration from a file path");
+        if (BinaryTlog.isBinaryTlog(s)) {
+            ConfigurationReader.mergeTLogInto(this, s, false, null);
+            return this;
+        }
         try (BufferedReader br = Files.newBufferedReader(s)) {
             read(br, extension(s.toString()), Files.getLastModifiedTime(s).toMillis());
         }
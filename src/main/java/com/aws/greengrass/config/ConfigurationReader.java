@@ -12,11 +12,18 @@ import com.aws.greengrass.util.Coerce;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Predicate;
 
 public final class ConfigurationReader {
@@ -44,35 +51,7 @@ public final class ConfigurationReader {
 
             for (l = in.readLine(); l != null; l = in.readLine()) {
                 try {
-                    Tlogline tlogline = Coerce.toObject(l, TLOG_LINE_REF);
-                    if (WhatHappened.changed.equals(tlogline.action)) {
-
-                        Topic targetTopic = config.lookup(tlogline.timestamp, tlogline.topicPath);
-                        if (mergeCondition != null && !mergeCondition.test(targetTopic)) {
-                            continue;
-                        }
-                        targetTopic.withNewerValue(tlogline.timestamp, tlogline.value, forceTimestamp);
-                    } else if (WhatHappened.removed.equals(tlogline.action)) {
-                        Node n = config.findNode(tlogline.topicPath);
-                        if (n == null) {
-                            continue;
-                        }
-                        if (mergeCondition != null && !mergeCondition.test(n)) {
-                            continue;
-                        }
-                        if (forceTimestamp) {
-                            n.remove();
-                        } else {
-                            n.remove(tlogline.timestamp);
-                        }
-                    } else if (WhatHappened.timestampUpdated.equals(tlogline.action)) {
-                        Topic targetTopic = config.lookup(tlogline.topicPath);
-                        if (tlogline.timestamp > targetTopic.modtime) {
-                            targetTopic.modtime = tlogline.timestamp;
-                        }
-                    } else if (WhatHappened.interiorAdded.equals(tlogline.action)) {
-                        config.lookupTopics(tlogline.timestamp, tlogline.topicPath);
-                    }
+                    mergeTloglineInto(config, Coerce.toObject(l, TLOG_LINE_REF), forceTimestamp, mergeCondition);
                 } catch (JsonProcessingException e) {
                     // this should not happen since all tlog lines were validated previously
                     logger.atError().setCause(e).log("Fail to parse log line");
@@ -81,6 +60,57 @@ public final class ConfigurationReader {
         }
     }
 
+    /**
+     * Merge the given binary transaction log into the given configuration. Reading stops at the first invalid
+     * record.
+     *
+     * @param config         configuration to merge into
+     * @param in             stream of the binary transaction log, including its header
+     * @param forceTimestamp should ignore if the proposed timestamp is older than current
+     * @param mergeCondition Predicate that returns true if the provided Topic should be merged and false if not
+     * @throws IOException if reading fails
+     */
+    public static void mergeBinaryTLogInto(Configuration config, InputStream in, boolean forceTimestamp,
+                                           Predicate<Node> mergeCondition) throws IOException {
+        BinaryTlog.ScanResult result =
+                BinaryTlog.scan(in, tlogline -> mergeTloglineInto(config, tlogline, forceTimestamp, mergeCondition));
+        if (result.corrupted) {
+            // this should not happen since the tlog was validated previously
+            logger.atError().kv("recordsRead", result.recordCount).log("Fail to parse binary tlog record");
+        }
+    }
+
+    private static void mergeTloglineInto(Configuration config, Tlogline tlogline, boolean forceTimestamp,
+                                          Predicate<Node> mergeCondition) {
+        if (WhatHappened.changed.equals(tlogline.action)) {
+            Topic targetTopic = config.lookup(tlogline.timestamp, tlogline.topicPath);
+            if (mergeCondition != null && !mergeCondition.test(targetTopic)) {
+                return;
+            }
+            targetTopic.withNewerValue(tlogline.timestamp, tlogline.value, forceTimestamp);
+        } else if (WhatHappened.removed.equals(tlogline.action)) {
+            Node n = config.findNode(tlogline.topicPath);
+            if (n == null) {
+                return;
+            }
+            if (mergeCondition != null && !mergeCondition.test(n)) {
+                return;
+            }
+            if (forceTimestamp) {
+                n.remove();
+            } else {
+                n.remove(tlogline.timestamp);
+            }
+        } else if (WhatHappened.timestampUpdated.equals(tlogline.action)) {
+            Topic targetTopic = config.lookup(tlogline.topicPath);
+            if (tlogline.timestamp > targetTopic.modtime) {
+                targetTopic.modtime = tlogline.timestamp;
+            }
+        } else if (WhatHappened.interiorAdded.equals(tlogline.action)) {
+            config.lookupTopics(tlogline.timestamp, tlogline.topicPath);
+        }
+    }
+
     /**
      * Merge the given transaction log into the given configuration.
      *
@@ -92,15 +122,120 @@ public final class ConfigurationReader {
      */
     public static void mergeTLogInto(Configuration config, Path tlogPath, boolean forceTimestamp,
                                      Predicate<Node> mergeCondition) throws IOException {
+        if (BinaryTlog.isBinaryTlog(tlogPath)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(tlogPath))) {
+                mergeBinaryTLogInto(config, in, forceTimestamp, mergeCondition);
+            }
+            return;
+        }
         try (BufferedReader bufferedReader = Files.newBufferedReader(tlogPath)) {
             mergeTLogInto(config, bufferedReader, forceTimestamp, mergeCondition);
         }
     }
 
     private static void mergeTLogInto(Configuration c, Path p) throws IOException {
-        try (BufferedReader bufferedReader = Files.newBufferedReader(p)) {
-            mergeTLogInto(c, bufferedReader, false, null);
+        mergeTLogInto(c, p, false, null);
+    }
+
+    /**
+     * Merge a config snapshot and the part of the transaction log written after it into the given configuration.
+     * Nodes from the snapshot are restored directly, without publishing change events for them. Nothing is merged
+     * if the snapshot is missing, doesn't belong to the transaction log, or if the rest of the transaction log is
+     * invalid; the caller should then read the whole transaction log instead.
+     *
+     * @param config       configuration to merge into
+     * @param snapshotPath path of the snapshot written by {@link ConfigurationWriter#withSnapshot(Path)}
+     * @param tlogPath     path of the transaction log the snapshot was taken from
+     * @return true if the snapshot and the rest of the transaction log were merged
+     */
+    public static boolean mergeSnapshotInto(Configuration config, Path snapshotPath, Path tlogPath) {
+        try {
+            ConfigSnapshot.Loaded snapshot = ConfigSnapshot.load(snapshotPath, tlogPath);
+            if (snapshot == null) {
+                logger.atDebug().setEventType("read-config-snapshot").kv("path", snapshotPath)
+                        .log("No usable config snapshot for the transaction log");
+                return false;
+            }
+            List<Tlogline> suffix = readTlogFrom(tlogPath, snapshot.tlogOffset);
+            if (suffix == null) {
+                return false;
+            }
+            for (Tlogline tlogline : snapshot.records) {
+                restoreInto(config, tlogline);
+            }
+            for (Tlogline tlogline : suffix) {
+                mergeTloglineInto(config, tlogline, false, null);
+            }
+            logger.atInfo().setEventType("read-config-snapshot").kv("path", snapshotPath)
+                    .kv("snapshotRecords", snapshot.records.size()).kv("tlogRecords", suffix.size())
+                    .log("Read configuration from snapshot");
+            return true;
+        } catch (IOException e) {
+            logger.atWarn().setCause(e).setEventType("read-config-snapshot").kv("path", snapshotPath)
+                    .log("Unable to read the config snapshot");
+            return false;
+        }
+    }
+
+    /*
+     * Read all records after the given offset, or null if any of them is corrupted. Like in validateTlog, a torn
+     * record at the end of a binary tlog is ignored.
+     */
+    private static List<Tlogline> readTlogFrom(Path tlogPath, long offset) throws IOException {
+        List<Tlogline> lines = new ArrayList<>();
+        boolean binary = BinaryTlog.isBinaryTlog(tlogPath);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(tlogPath))) {
+            long toSkip = offset;
+            while (toSkip > 0) {
+                long skipped = in.skip(toSkip);
+                if (skipped <= 0) {
+                    return null;
+                }
+                toSkip -= skipped;
+            }
+            if (binary) {
+                BinaryTlog.ScanResult result = BinaryTlog.scanRecords(in, offset, lines::add);
+                return result.corrupted ? null : lines;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String l = reader.readLine(); l != null; l = reader.readLine()) {
+                lines.add(Coerce.toObject(l, TLOG_LINE_REF));
+            }
+        } catch (JsonProcessingException e) {
+            logger.atWarn().setCause(e).setEventType("read-config-snapshot").kv("path", tlogPath)
+                    .log("Transaction log after the config snapshot is invalid");
+            return null;
+        }
+        return lines;
+    }
+
+    private static void restoreInto(Configuration config, Tlogline tlogline) {
+        String[] path = tlogline.topicPath;
+        if (path.length == 0) {
+            if (tlogline.timestamp > config.getRoot().modtime) {
+                config.getRoot().modtime = tlogline.timestamp;
+            }
+            return;
         }
+        boolean leaf = WhatHappened.changed.equals(tlogline.action);
+        Node parent = config.findNode(Arrays.copyOf(path, path.length - 1));
+        if (parent instanceof Topics && ((Topics) parent).restoreChild(path[path.length - 1], tlogline.timestamp,
+                leaf, tlogline.value) != null) {
+            return;
+        }
+        // the node already exists, merge it in like a regular tlog line
+        mergeTloglineInto(config, tlogline, false, null);
+    }
+
+    /**
+     * Get the format of the tlog at the given path.
+     *
+     * @param tlogPath path to the tlog
+     * @return format of the tlog, JSON if the file does not exist
+     * @throws IOException if reading the file fails
+     */
+    public static TlogFormat getTlogFormat(Path tlogPath) throws IOException {
+        return BinaryTlog.isBinaryTlog(tlogPath) ? TlogFormat.BINARY : TlogFormat.JSON;
     }
 
     /**
@@ -117,6 +252,9 @@ public final class ConfigurationReader {
                         .log("Transaction log file does not exist at given path");
                 return false;
             }
+            if (BinaryTlog.isBinaryTlog(tlogPath)) {
+                return validateBinaryTlog(tlogPath);
+            }
             try (BufferedReader in = Files.newBufferedReader(tlogPath)) {
                 // We have seen two different file corruption scenarios
                 // 1. The last line of config file is corrupted with non-UTF8 characters and BufferedReader::readLine
@@ -156,6 +294,33 @@ public final class ConfigurationReader {
         return true;
     }
 
+    /*
+     * Every complete record must pass its checksum. Incomplete records at the very end of the file are from a group
+     * commit that never finished, so they were never acknowledged as durable and don't invalidate the file.
+     */
+    private static boolean validateBinaryTlog(Path tlogPath) throws IOException {
+        BinaryTlog.ScanResult result;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(tlogPath))) {
+            result = BinaryTlog.scan(in, null);
+        }
+        if (result.corrupted) {
+            logger.atError().setEventType("validate-tlog").kv("path", tlogPath)
+                    .kv("validRecords", result.recordCount).kv("validLength", result.validLength)
+                    .log("Binary transaction log contains a corrupted record");
+            return false;
+        }
+        if (result.recordCount == 0) {
+            logger.atError().setEventType("validate-tlog").kv("path", tlogPath)
+                    .log("Empty transaction log file");
+            return false;
+        }
+        if (result.tornTail) {
+            logger.atWarn().setEventType("validate-tlog").kv("path", tlogPath).kv("validLength", result.validLength)
+                    .log("Ignoring incomplete records at the end of the binary transaction log");
+        }
+        return true;
+    }
+
     /**
      * Create a Configuration based on a transaction log's path.
      *
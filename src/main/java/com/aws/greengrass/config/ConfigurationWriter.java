@@ -6,32 +6,45 @@
 package com.aws.greengrass.config;
 
 import com.aws.greengrass.dependency.Context;
-import com.aws.greengrass.lifecyclemanager.Kernel;
 import com.aws.greengrass.logging.api.Logger;
 import com.aws.greengrass.logging.impl.LogManager;
 import com.aws.greengrass.util.Coerce;
 import com.aws.greengrass.util.Commitable;
+import com.aws.greengrass.util.CommitableFile;
 import com.aws.greengrass.util.CommitableWriter;
 import com.aws.greengrass.util.Utils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 
 import static com.aws.greengrass.util.Utils.flush;
 
 public class ConfigurationWriter implements Closeable, ChildChanged {
     private static final String TRUNCATE_TLOG_EVENT = "truncate-tlog";
     private static final long DEFAULT_MAX_TLOG_ENTRIES = 15_000;
+    // group commit policy of binary tlogs unless configured otherwise
+    public static final long DEFAULT_GROUP_COMMIT_WINDOW_MILLIS = 5;
+    public static final int DEFAULT_GROUP_COMMIT_MAX_RECORDS = 512;
 
     private Writer out;
+    private BinaryTlogWriter binaryOut;
+    private final TlogFormat format;
     private final Path tlogOutputPath;
     private final Configuration conf;
     private final AtomicBoolean closed = new AtomicBoolean();
@@ -44,13 +57,36 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
     @SuppressFBWarnings(value = "IS2_INCONSISTENT_SYNC", justification = "No need to sync config variable")
     private long maxCount = DEFAULT_MAX_TLOG_ENTRIES;  // max before truncation
     private long retryCount = 0;  // retry truncate at this count after error occurred
+    private long groupCommitWindowMillis = DEFAULT_GROUP_COMMIT_WINDOW_MILLIS;
+    private int groupCommitMaxRecords = DEFAULT_GROUP_COMMIT_MAX_RECORDS;
     private Context context;
+    // records written since the compaction started, null when no compaction is in progress
+    private List<Tlogline> compactionTail;
+    // records written while the compacted tlog replaces the current one, null unless the tlog is being replaced
+    private List<Tlogline> swapTail;
+    private ExecutorService compactor;
+    private long compactions;
+    private long compactionMillis;
+    private long compactionBytesReclaimed;
+    @Nullable
+    private Path snapshotPath;
+    private final Object snapshotLock = new Object();
 
     private static final Logger logger = LogManager.getLogger(ConfigurationWriter.class);
 
     @SuppressWarnings("LeakingThisInConstructor")
     ConfigurationWriter(Configuration c, Writer o, Path p) {
         out = o;
+        format = TlogFormat.JSON;
+        tlogOutputPath = p;
+        conf = c;
+        conf.getRoot().addWatcher(this);
+    }
+
+    @SuppressWarnings("LeakingThisInConstructor")
+    ConfigurationWriter(Configuration c, BinaryTlogWriter o, Path p) {
+        binaryOut = o;
+        format = TlogFormat.BINARY;
         tlogOutputPath = p;
         conf = c;
         conf.getRoot().addWatcher(this);
@@ -68,7 +104,20 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
      * @throws IOException if writing fails
      */
     public static void dump(Configuration c, Path p) throws IOException {
-        try (ConfigurationWriter cs = new ConfigurationWriter(c, p)) {
+        dump(c, p, TlogFormat.JSON);
+    }
+
+    /**
+     * Dump the configuration into a file given by the path, using the given tlog format.
+     *
+     * @param c      configuration to write out
+     * @param p      path to write to
+     * @param format format of the transaction log
+     * @throws IOException if writing fails
+     */
+    public static void dump(Configuration c, Path p, TlogFormat format) throws IOException {
+        try (ConfigurationWriter cs = TlogFormat.BINARY.equals(format)
+                ? new ConfigurationWriter(c, BinaryTlogWriter.replace(p), p) : new ConfigurationWriter(c, p)) {
             cs.writeAll();
         }
     }
@@ -82,23 +131,64 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
      * @throws IOException if creating the configuration file fails
      */
     public static ConfigurationWriter logTransactionsTo(Configuration c, Path p) throws IOException {
+        return logTransactionsTo(c, p, TlogFormat.JSON);
+    }
+
+    /**
+     * Create a ConfigurationWriter from a given configuration and file path, using the given tlog format. The file,
+     * if it exists, must already be in that format.
+     *
+     * @param c      initial configuration
+     * @param p      path to save the configuration
+     * @param format format of the transaction log
+     * @return ConfigurationWriter
+     * @throws IOException if creating the configuration file fails
+     */
+    public static ConfigurationWriter logTransactionsTo(Configuration c, Path p, TlogFormat format)
+            throws IOException {
+        if (TlogFormat.BINARY.equals(format)) {
+            return new ConfigurationWriter(c, BinaryTlogWriter.appendTo(p), p);
+        }
         return new ConfigurationWriter(c, newTlogWriter(p), p);
     }
 
     @Override
     public synchronized void close() {
+        // let a tlog swap in progress finish, so that the records it holds are written to the new tlog
+        boolean interrupted = false;
+        while (swapTail != null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
         closed.set(true);
         conf.getRoot().remove(this);
-        if (out instanceof Commitable) {
-            ((Commitable) out).commit();
+        Object sink = TlogFormat.BINARY.equals(format) ? binaryOut : out;
+        if (sink instanceof Commitable) {
+            ((Commitable) sink).commit();
+        }
+        Utils.close(sink);
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+        if (snapshotPath != null) {
+            writeSnapshot(ConfigSnapshot.capture(conf), fileSize(tlogOutputPath));
         }
-        Utils.close(out);
+    }
+
+    public TlogFormat getFormat() {
+        return format;
     }
 
     /**
      * Set to enable auto truncate.
      *
-     * @param context a Context to provide access to kernel
+     * @param context a Context whose publish queue takes the compaction snapshot
      * @return this
      */
     public synchronized ConfigurationWriter withAutoTruncate(Context context) {
@@ -107,6 +197,19 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
         return this;
     }
 
+    /**
+     * Keep a binary snapshot of the whole configuration next to the tlog, which lets startup skip replaying the
+     * tlog up to the point where the snapshot was taken. The snapshot is written on close and after every
+     * compaction.
+     *
+     * @param path path of the snapshot
+     * @return this
+     */
+    public synchronized ConfigurationWriter withSnapshot(Path path) {
+        snapshotPath = path;
+        return this;
+    }
+
     /**
      * Set max new entries of tlog written before truncation.
      *
@@ -127,7 +230,25 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
     public synchronized ConfigurationWriter flushImmediately(boolean fl) {
         flushImmediately = fl;
         if (fl) {
-            flush(out);
+            flushTlog();
+        }
+        return this;
+    }
+
+    /**
+     * Set the group commit policy of a binary tlog. Records are made durable together once the given number of
+     * records has accumulated or the window has elapsed since the first unwritten record. Ignored for JSON tlogs,
+     * which are written synchronously.
+     *
+     * @param windowMillis maximum time in milliseconds a record may wait to be committed, 0 to commit every record
+     * @param maxRecords   maximum number of records in one commit
+     * @return this
+     */
+    public synchronized ConfigurationWriter withGroupCommit(long windowMillis, int maxRecords) {
+        groupCommitWindowMillis = windowMillis;
+        groupCommitMaxRecords = maxRecords;
+        if (binaryOut != null) {
+            binaryOut.setGroupCommit(windowMillis, maxRecords);
         }
         return this;
     }
@@ -137,37 +258,30 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
         if (closed.get()) {
             return;
         }
-        if (n == null) {
-            return;
-        }
-        for (int i = 0; i < n.path().length; i++) {
-            if (n.path()[i].startsWith("_")) {
-                return; // Don't log entries whose name starts in '_'
-            }
-        }
-
-        Tlogline tlogline;
-        if (what == WhatHappened.childChanged && n instanceof Topic) {
-            Topic t = (Topic) n;
-            tlogline = new Tlogline(t.getModtime(), t.path(), WhatHappened.changed, t.getOnce());
-        } else if (what == WhatHappened.childRemoved) {
-            tlogline = new Tlogline(n.getModtime(), n.path(), WhatHappened.removed, null);
-        } else if (what == WhatHappened.timestampUpdated) {
-            tlogline = new Tlogline(n.getModtime(), n.path(), WhatHappened.timestampUpdated, null);
-        } else if (what == WhatHappened.interiorAdded) {
-            tlogline = new Tlogline(n.getModtime(), n.path(), WhatHappened.interiorAdded, null);
-        } else {
+        Tlogline tlogline = toTlogline(what, n);
+        if (tlogline == null) {
             return;
         }
 
         try {
-            Coerce.appendParseableString(tlogline, out);
+            if (swapTail != null) {
+                // the tlog is being replaced, the record is written once writing resumes on the new one
+                swapTail.add(tlogline);
+            } else if (TlogFormat.BINARY.equals(format)) {
+                // durability is provided by group commit, flushImmediately does not force every record
+                binaryOut.append(tlogline);
+            } else {
+                Coerce.appendParseableString(tlogline, out);
+                if (flushImmediately) {
+                    flush(out);
+                }
+            }
         } catch (IOException ex) {
             logger.atError().setEventType("config-dump-error").addKeyValue("configNode", n.getFullName()).setCause(ex)
                     .log();
         }
-        if (flushImmediately) {
-            flush(out);
+        if (compactionTail != null) {
+            compactionTail.add(tlogline);
         }
         long currCount = count.incrementAndGet();
         if (autoTruncate && currCount > maxCount && currCount > retryCount
@@ -178,6 +292,31 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
         }
     }
 
+    @Nullable
+    private static Tlogline toTlogline(WhatHappened what, Node n) {
+        if (n == null) {
+            return null;
+        }
+        String[] path = n.path();
+        for (String segment : path) {
+            if (segment.startsWith("_")) {
+                return null; // Don't log entries whose name starts in '_'
+            }
+        }
+
+        if (what == WhatHappened.childChanged && n instanceof Topic) {
+            Topic t = (Topic) n;
+            return new Tlogline(t.getModtime(), path, WhatHappened.changed, t.getOnce());
+        } else if (what == WhatHappened.childRemoved) {
+            return new Tlogline(n.getModtime(), path, WhatHappened.removed, null);
+        } else if (what == WhatHappened.timestampUpdated) {
+            return new Tlogline(n.getModtime(), path, WhatHappened.timestampUpdated, null);
+        } else if (what == WhatHappened.interiorAdded) {
+            return new Tlogline(n.getModtime(), path, WhatHappened.interiorAdded, null);
+        }
+        return null;
+    }
+
     public void writeAll() {
         conf.deepForEachTopic(n -> childChanged(WhatHappened.childChanged, n));
         conf.forEachChildlessTopics(t -> childChanged(WhatHappened.interiorAdded, t));
@@ -195,76 +334,269 @@ public class ConfigurationWriter implements Closeable, ChildChanged {
                 StandardOpenOption.SYNC, StandardOpenOption.CREATE);
     }
 
+    private Closeable openTlog() throws IOException {
+        if (TlogFormat.BINARY.equals(format)) {
+            BinaryTlogWriter writer = BinaryTlogWriter.appendTo(tlogOutputPath);
+            writer.setGroupCommit(groupCommitWindowMillis, groupCommitMaxRecords);
+            return writer;
+        }
+        return newTlogWriter(tlogOutputPath);
+    }
+
+    private static void write(Closeable sink, Tlogline line) throws IOException {
+        if (sink instanceof BinaryTlogWriter) {
+            ((BinaryTlogWriter) sink).append(line);
+        } else {
+            Coerce.appendParseableString(line, (Writer) sink);
+        }
+    }
+
+    private void flushTlog() {
+        flush(TlogFormat.BINARY.equals(format) ? binaryOut : out);
+    }
+
     public static Path getOldTlogPath(Path tlogPath) {
         return tlogPath.resolveSibling(tlogPath.getFileName() + ".old");
     }
 
     /**
-     * Discard current tlog. Start a new tlog with the current kernel configs.
+     * Start compacting the tlog. Runs on the publish queue so that every record written from now on is kept as the
+     * tail of the compacted tlog; the configuration is read and written by {@link #compactTlog} on a background
+     * thread.
      */
     private synchronized void truncateTlog() {
-        logger.atDebug(TRUNCATE_TLOG_EVENT).log("started");
         truncateQueued.set(false);
-        Path oldTlogPath = getOldTlogPath(tlogOutputPath);
-        // close existing writer
-        flush(out);
-        if (out instanceof Commitable) {
-            ((Commitable) out).commit();
+        if (closed.get() || compactionTail != null || swapTail != null) {
+            return;
         }
+        logger.atDebug(TRUNCATE_TLOG_EVENT).log("started");
+        long startNanos = System.nanoTime();
+        // records from now on go to both the current tlog and the tail of the compacted one
+        compactionTail = new ArrayList<>();
+        try {
+            getCompactor().execute(() -> compactTlog(startNanos));
+        } catch (RejectedExecutionException e) {
+            compactionTail = null;
+        }
+    }
+
+    private static void addIfNotNull(List<Tlogline> lines, Tlogline line) {
+        if (line != null) {
+            lines.add(line);
+        }
+    }
+
+    private synchronized ExecutorService getCompactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "Tlog compaction");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return compactor;
+    }
+
+    /**
+     * Write the configuration to the new version of the tlog. Foreground writes keep going to the current tlog
+     * meanwhile. The configuration may change while it is read, but every change since the compaction started is also
+     * in the tail, which is written after it, so replaying the compacted tlog still ends in the current configuration.
+     * Once the compacted tlog is in place, the config snapshot read at the same time is written for its prefix.
+     */
+    private void compactTlog(long startNanos) {
+        List<Tlogline> snapshot = new ArrayList<>();
+        conf.deepForEachTopic(n -> addIfNotNull(snapshot, toTlogline(WhatHappened.childChanged, n)));
+        conf.forEachChildlessTopics(t -> addIfNotNull(snapshot, toTlogline(WhatHappened.interiorAdded, t)));
+        List<Tlogline> treeSnapshot = snapshotPath == null ? null : ConfigSnapshot.capture(conf);
 
-        // move old tlog
+        Closeable compacted = null;
+        long snapshotOffset;
+        long tailRecords;
         try {
-            out.close();
-            logger.atDebug(TRUNCATE_TLOG_EVENT).log("existing tlog writer closed");
-            Files.move(tlogOutputPath, oldTlogPath, StandardCopyOption.REPLACE_EXISTING);
+            if (TlogFormat.BINARY.equals(format)) {
+                compacted = BinaryTlogWriter.replace(tlogOutputPath);
+            } else {
+                compacted = CommitableWriter.abandonOnClose(tlogOutputPath);
+            }
+            for (Tlogline line : snapshot) {
+                write(compacted, line);
+            }
+            ((Flushable) compacted).flush();
+            logger.atDebug(TRUNCATE_TLOG_EVENT).log("snapshot of " + snapshot.size() + " entries written");
+            snapshotOffset = fileSize(CommitableFile.getNewFile(tlogOutputPath));
+            // catch up with the records written meanwhile, so that few are left for when writing stops for the swap
+            List<Tlogline> tail = takeCompactionTail();
+            for (Tlogline line : tail) {
+                write(compacted, line);
+            }
+            tailRecords = tail.size();
         } catch (IOException e) {
-            logger.atError(TRUNCATE_TLOG_EVENT, e).log("failed to rename existing tlog");
-            // recover: reopen writer to old tlog
+            logger.atError(TRUNCATE_TLOG_EVENT, e).log("failed to write compacted tlog");
+            abandonCompaction(compacted);
+            return;
+        }
+        if (swapInCompactedTlog(compacted, tailRecords, startNanos) && treeSnapshot != null) {
+            writeSnapshot(treeSnapshot, snapshotOffset);
+        }
+    }
+
+    private synchronized List<Tlogline> takeCompactionTail() {
+        List<Tlogline> tail = compactionTail == null ? new ArrayList<>() : compactionTail;
+        compactionTail = new ArrayList<>();
+        return tail;
+    }
+
+    private void writeSnapshot(List<Tlogline> records, long tlogOffset) {
+        synchronized (snapshotLock) {
             try {
-                out = newTlogWriter(tlogOutputPath);
-            } catch (IOException innerException) {
-                logger.atError(TRUNCATE_TLOG_EVENT, innerException).log("failed to recover");
-                return;
+                ConfigSnapshot.write(snapshotPath, records, tlogOutputPath, tlogOffset);
+            } catch (IOException e) {
+                // startup falls back to reading the whole tlog
+                logger.atWarn().setEventType("write-config-snapshot").kv("path", snapshotPath).setCause(e)
+                        .log("Unable to write the config snapshot");
             }
-            setTruncateRetryCount();
-            logger.atWarn(TRUNCATE_TLOG_EVENT).log("recovered and will retry later");
-            return;
         }
-        logger.atDebug(TRUNCATE_TLOG_EVENT).log("existing tlog renamed to " + oldTlogPath);
-        // write current state to new tlog
+    }
+
+    /**
+     * Append the rest of the tail and atomically replace the current tlog. Only handing over the tail and the writer
+     * happens under the lock. While the compacted tlog is synced and renamed, new records are kept in memory and they
+     * are written once the new tlog is open. The old tlog is kept as the backup until the next compaction.
+     *
+     * @return true if the compacted tlog replaced the current one
+     */
+    private boolean swapInCompactedTlog(Closeable compacted, long tailRecords, long startNanos) {
+        List<Tlogline> tail;
+        Closeable sink;
+        synchronized (this) {
+            if (closed.get()) {
+                abandonCompaction(compacted);
+                return false;
+            }
+            tail = compactionTail;
+            compactionTail = null;
+            swapTail = new ArrayList<>();
+            sink = TlogFormat.BINARY.equals(format) ? binaryOut : out;
+        }
+
+        flush(sink);
+        Utils.close(sink);
+        long oldSize = fileSize(tlogOutputPath);
+        boolean replaced = false;
         try {
-            context.get(Kernel.class).writeEffectiveConfigAsTransactionLog(tlogOutputPath);
-        } catch (IOException e) {
-            logger.atError(TRUNCATE_TLOG_EVENT, e).log("failed to persist Nucleus config");
-            // recover: undo renaming and keep using old tlog
-            try {
-                Files.move(oldTlogPath, tlogOutputPath, StandardCopyOption.REPLACE_EXISTING);
-                out = newTlogWriter(tlogOutputPath);
-            } catch (IOException innerException) {
-                logger.atError(TRUNCATE_TLOG_EVENT, innerException).log("failed to recover");
-                return;
+            for (Tlogline line : tail) {
+                write(compacted, line);
             }
-            setTruncateRetryCount();
-            logger.atWarn(TRUNCATE_TLOG_EVENT).log("recovered and will retry later");
-            return;
+            // commit would rename the file even if writing the last records failed
+            ((Flushable) compacted).flush();
+            ((Commitable) compacted).commit();
+            replaced = Files.exists(tlogOutputPath);
+            if (!replaced) {
+                // commit failed half way, put the old tlog back. It has every record, including the tail
+                try {
+                    Files.move(CommitableFile.getBackupFile(tlogOutputPath), tlogOutputPath,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    logger.atError(TRUNCATE_TLOG_EVENT, e).log("failed to recover");
+                }
+            }
+        } catch (IOException e) {
+            logger.atError(TRUNCATE_TLOG_EVENT, e).log("failed to write compacted tlog");
+            ((Commitable) compacted).abandon();
+            Utils.close(compacted);
         }
-        logger.atDebug(TRUNCATE_TLOG_EVENT).log("current effective config written to " + tlogOutputPath);
-        // open writer to new tlog
+
+        Closeable newSink = null;
         try {
-            out = newTlogWriter(tlogOutputPath);
+            newSink = openTlog();
         } catch (IOException e) {
             logger.atError(TRUNCATE_TLOG_EVENT, e).log("failed to open writer");
-            return;
         }
-        logger.atDebug(TRUNCATE_TLOG_EVENT).log("writer rotated");
-        count.set(0);
-        retryCount = 0;
+        long newSize = fileSize(tlogOutputPath);
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        synchronized (this) {
+            int swapped = resumeWriting(newSink);
+            if (!replaced || newSink == null) {
+                setTruncateRetryCount();
+                logger.atWarn(TRUNCATE_TLOG_EVENT).log("failed to replace tlog, will retry later");
+                return false;
+            }
+            count.set(tailRecords + tail.size() + swapped);
+            retryCount = 0;
+            compactions++;
+            compactionMillis += durationMillis;
+            compactionBytesReclaimed += Math.max(0, oldSize - newSize);
+        }
+        logger.atInfo(TRUNCATE_TLOG_EVENT).kv("durationMillis", durationMillis)
+                .kv("bytesReclaimed", Math.max(0, oldSize - newSize)).log("completed successfully");
+        return true;
+    }
+
+    /**
+     * Write the records kept while the tlog was replaced to the new writer and continue writing there.
+     *
+     * @param sink writer of the tlog now in place, or null if it couldn't be opened
+     * @return number of records written while the tlog was replaced
+     */
+    private synchronized int resumeWriting(@Nullable Closeable sink) {
+        List<Tlogline> swapped = swapTail;
+        swapTail = null;
+        notifyAll();
+        if (sink == null) {
+            // keep the closed writer, so that further records fail to be written and are logged
+            logger.atError(TRUNCATE_TLOG_EVENT).kv("records", swapped.size()).log("records not written to tlog");
+            return swapped.size();
+        }
+        if (sink instanceof BinaryTlogWriter) {
+            binaryOut = (BinaryTlogWriter) sink;
+        } else {
+            out = (Writer) sink;
+        }
         try {
-            Files.deleteIfExists(oldTlogPath);
+            for (Tlogline line : swapped) {
+                write(sink, line);
+            }
+        } catch (IOException e) {
+            logger.atError().setEventType("config-dump-error").setCause(e).log();
+        }
+        if (flushImmediately) {
+            flushTlog();
+        }
+        return swapped.size();
+    }
+
+    private synchronized void abandonCompaction(Closeable compacted) {
+        compactionTail = null;
+        if (compacted instanceof Commitable) {
+            ((Commitable) compacted).abandon();
+        }
+        Utils.close(compacted);
+        if (!closed.get()) {
+            setTruncateRetryCount();
+            logger.atWarn(TRUNCATE_TLOG_EVENT).log("keep using the existing tlog and will retry later");
+        }
+    }
+
+    private static long fileSize(Path path) {
+        try {
+            return Files.size(path);
         } catch (IOException e) {
-            logger.atError(TRUNCATE_TLOG_EVENT).setCause(e).log("failed to delete old tlog");
+            return 0;
         }
-        logger.atInfo(TRUNCATE_TLOG_EVENT).log("completed successfully");
+    }
+
+    /**
+     * Get the tlog compactions completed since the previous call.
+     *
+     * @return compaction metrics
+     */
+    public synchronized TlogCompactionMetrics collectCompactionMetrics() {
+        TlogCompactionMetrics metrics = new TlogCompactionMetrics(compactions, compactionMillis,
+                compactionBytesReclaimed);
+        compactions = 0;
+        compactionMillis = 0;
+        compactionBytesReclaimed = 0;
+        return metrics;
     }
 
     private synchronized void setTruncateRetryCount() {
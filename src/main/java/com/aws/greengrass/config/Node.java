@@ -9,16 +9,22 @@ import com.aws.greengrass.dependency.Context;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Consumer;
 
+import static com.aws.greengrass.lifecyclemanager.GreengrassService.SERVICES_NAMESPACE_TOPIC;
+
 public abstract class Node {
     public final Context context;
     public final Topics parent;
-    private final String fnc;
+    private String fnc;
     private final String name;
-    protected final CopyOnWriteArraySet<Watcher> watchers = new CopyOnWriteArraySet<>();
+    // Most nodes are never watched, so the set is only allocated with the first watcher
+    private volatile CopyOnWriteArraySet<Watcher> watchers;
     private boolean parentNeedsToKnow = true; // parent gets notified of changes to this node
     private String[] path;
 
@@ -33,7 +39,6 @@ public abstract class Node {
         context = c;
         name = n;
         parent = p;
-        fnc = calcFnc();
         modtime = timestamp;
     }
 
@@ -65,7 +70,15 @@ public abstract class Node {
         }
     }
 
+    /**
+     * Get the dot separated name of this node. Computed on first use since most nodes never need it.
+     *
+     * @return full name
+     */
     public String getFullName() {
+        if (fnc == null) {
+            fnc = calcFnc();
+        }
         return fnc;
     }
 
@@ -103,10 +116,30 @@ public abstract class Node {
      * @return true if this is a new watcher; false if its a duplicate
      */
     protected boolean addWatcher(Watcher s) {
-        if (s != null) {
-            return watchers.add(s);
+        if (s == null) {
+            return false;
+        }
+        CopyOnWriteArraySet<Watcher> w = watchers;
+        if (w == null) {
+            synchronized (this) {
+                w = watchers;
+                if (w == null) {
+                    w = new CopyOnWriteArraySet<>();
+                    watchers = w;
+                }
+            }
         }
-        return false;
+        return w.add(s);
+    }
+
+    /**
+     * Get the watchers of this node.
+     *
+     * @return watchers, empty if none were ever added
+     */
+    protected Collection<Watcher> getWatchers() {
+        CopyOnWriteArraySet<Watcher> w = watchers;
+        return w == null ? Collections.emptySet() : w;
     }
 
     /**
@@ -115,7 +148,10 @@ public abstract class Node {
      * @param s subscriber to remove
      */
     public void remove(Watcher s) {
-        watchers.remove(s);
+        CopyOnWriteArraySet<Watcher> w = watchers;
+        if (w != null) {
+            w.remove(s);
+        }
     }
 
     /**
@@ -144,7 +180,7 @@ public abstract class Node {
         // Try to make all the validators happy, but not infinitely
         for (int laps = 3; laps > 0 && rewrite; --laps) {
             rewrite = false;
-            for (Watcher s : watchers) {
+            for (Watcher s : getWatchers()) {
                 if (!(s instanceof Validator)) {
                     continue;
                 }
@@ -186,18 +222,46 @@ public abstract class Node {
             return path;
         }
 
-        String[] p = {name};
-
-        if (parent != null) {
-            String[] na = new String[p.length + parent.path().length];
-            System.arraycopy(p, 0, na, parent.path().length, p.length);
-            System.arraycopy(parent.path(), 0, na, 0, parent.path().length);
-            p = na;
-        }
+        String[] parentPath = parent == null ? new String[0] : parent.path();
+        String[] p = Arrays.copyOf(parentPath, parentPath.length + 1);
+        p[parentPath.length] = name;
         path = p;
         return p;
     }
 
+    /**
+     * Get the key of the publish queue lane that change events of this node are dispatched on. Events under the
+     * same service, or under the same top level namespace outside of services, share a lane and stay in order.
+     *
+     * @return lane key, or null for the root and top level nodes, whose events are dispatched as barriers
+     */
+    String publishQueueKey() {
+        // computed on each change instead of kept on every node, the keys themselves are kept with the context
+        Node top = null;
+        Node second = null;
+        for (Node n = this; n.parent != null; n = n.parent) {
+            second = top;
+            top = n;
+        }
+        if (second == null) {
+            return null;
+        }
+        if (SERVICES_NAMESPACE_TOPIC.equalsIgnoreCase(top.name)) {
+            return context.servicePublishQueueKey(second.name);
+        }
+        return context.namespacePublishQueueKey(top.name);
+    }
+
+    /**
+     * Run a change event of this node on its publish queue lane.
+     *
+     * @param r task to run
+     */
+    void runOnPublishQueue(Runnable r) {
+        // with a single lane every task runs in order anyway, so the key isn't needed
+        context.runOnPublishQueue(context.hasPublishLanes() ? publishQueueKey() : null, r);
+    }
+
     /**
      * Get if parents will be notified for changes.
      *
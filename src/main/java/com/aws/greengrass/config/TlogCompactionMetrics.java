@@ -0,0 +1,18 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.config;
+
+import lombok.Value;
+
+/**
+ * Transaction log compactions completed since the previous collection.
+ */
+@Value
+public class TlogCompactionMetrics {
+    long compactions;
+    long durationMillis;
+    long bytesReclaimed;
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.config;
+
+/**
+ * On-disk format of a configuration transaction log.
+ */
+public enum TlogFormat {
+    /**
+     * One JSON encoded {@link Tlogline} per line, synchronously written.
+     */
+    JSON,
+    /**
+     * Length-prefixed, checksummed binary records written with group commit. See {@link BinaryTlog}.
+     */
+    BINARY
+}
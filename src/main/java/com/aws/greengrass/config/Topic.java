@@ -29,6 +29,10 @@ public class Topic extends Node {
         super(c, n, p, timestamp);
     }
 
+    void restoreValue(Object v) {
+        value = v;
+    }
+
     public static Topic of(Context c, String n, Object v) {
         return new Topic(c, n, null).dflt(v);
     }
@@ -251,16 +255,16 @@ public class Topic extends Node {
         value = validated;
         modtime = proposedModtime;
         if (changed) {
-            context.runOnPublishQueue(() -> this.fire(WhatHappened.changed));
+            runOnPublishQueue(() -> this.fire(WhatHappened.changed));
         } else {
-            context.runOnPublishQueue(() -> this.fire(WhatHappened.timestampUpdated));
+            runOnPublishQueue(() -> this.fire(WhatHappened.timestampUpdated));
         }
         return this;
     }
 
     @Override
     protected void fire(WhatHappened what) {
-        for (Watcher s : watchers) {
+        for (Watcher s : getWatchers()) {
             if (s instanceof Subscriber) {
                 ((Subscriber) s).published(what, this);
             }
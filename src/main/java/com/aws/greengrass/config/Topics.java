@@ -12,22 +12,28 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import javax.annotation.Nonnull;
 
 public class Topics extends Node implements Iterable<Node> {
-    public final Map<CaseInsensitiveString, Node> children = new ConcurrentHashMap<>();
+    // Most containers only hold a handful of children, so start with the smallest table and let it grow on demand
+    public final Map<CaseInsensitiveString, Node> children = new ConcurrentHashMap<>(INITIAL_CHILDREN_CAPACITY);
 
     private static final Logger logger = LogManager.getLogger(Topics.class);
+    private static final int INITIAL_CHILDREN_CAPACITY = 2;
+
+    // Child holding the newest modtime, and that modtime, so that a change only needs to be compared against it
+    // instead of scanning all children. Guarded by this since publish lanes may update shared ancestors.
+    private Node newestChild;
+    private long newestChildModtime;
 
     Topics(Context c, String n, Topics p) {
         super(c, n, p);
@@ -114,10 +120,10 @@ public class Topics extends Node implements Iterable<Node> {
     }
 
     private Topic createLeafChild(CaseInsensitiveString name, long timestamp) {
-        Node n = children.computeIfAbsent(name,
+        Node n = getOrCreateChild(name,
                 (nm) -> {
                     Topic t = new Topic(context, nm.toString(), this, timestamp);
-                    context.runOnPublishQueue(() -> childChanged(WhatHappened.childChanged, t));
+                    t.runOnPublishQueue(() -> childChanged(WhatHappened.childChanged, t));
                     return t;
                 });
         if (n instanceof Topic) {
@@ -128,6 +134,46 @@ public class Topics extends Node implements Iterable<Node> {
         }
     }
 
+    private Node getOrCreateChild(CaseInsensitiveString name, Function<CaseInsensitiveString, Node> create) {
+        Node n = children.get(name);
+        if (n != null) {
+            return n;
+        }
+        // only intern when adding a child, the key and the node's name then share the interned string
+        return children.computeIfAbsent(name.intern(), create);
+    }
+
+    /**
+     * Add a child restored from a config snapshot without publishing any change. Only meant for loading a tree that
+     * nothing watches yet; if a child with the name already exists it is left alone.
+     *
+     * @param name      name of the child
+     * @param timestamp modtime of the child
+     * @param leaf      true to add a Topic, false to add a Topics
+     * @param value     value of a Topic, ignored for a Topics
+     * @return the new child, or null if a child with the name already exists
+     */
+    Node restoreChild(String name, long timestamp, boolean leaf, Object value) {
+        CaseInsensitiveString key = new CaseInsensitiveString(name);
+        if (children.containsKey(key)) {
+            return null;
+        }
+        key = key.intern();
+        Node n;
+        if (leaf) {
+            Topic t = new Topic(context, key.toString(), this, timestamp);
+            t.restoreValue(value);
+            n = t;
+        } else {
+            n = new Topics(context, key.toString(), this, timestamp);
+        }
+        if (children.putIfAbsent(key, n) != null) {
+            return null;
+        }
+        childAdded(n);
+        return n;
+    }
+
     /**
      * Create an interior Topics node with the provided name.
      * Returns the new node or the existing node if it already existed.
@@ -151,10 +197,10 @@ public class Topics extends Node implements Iterable<Node> {
     }
 
     private Topics createInteriorChild(CaseInsensitiveString name, long timestamp) {
-        Node n = children.computeIfAbsent(name,
+        Node n = getOrCreateChild(name,
                 (nm) -> {
                     Topics t = new Topics(context, nm.toString(), this, timestamp);
-                    context.runOnPublishQueue(() -> childChanged(WhatHappened.interiorAdded, t));
+                    t.runOnPublishQueue(() -> childChanged(WhatHappened.interiorAdded, t));
                     return t;
                 });
         if (n instanceof Topics) {
@@ -341,7 +387,7 @@ public class Topics extends Node implements Iterable<Node> {
             } else {
                 remove(existingChild);
                 Topics newNode = createInteriorChild(key.toString(), mergeBehavior.getTimestampToUse());
-                for (Watcher watcher : existingChild.watchers) {
+                for (Watcher watcher : existingChild.getWatchers()) {
                     newNode.addWatcher(watcher);
                 }
                 newNode.updateFromMap((Map) value, childMergeBehavior);
@@ -354,7 +400,7 @@ public class Topics extends Node implements Iterable<Node> {
             } else {
                 remove(existingChild);
                 Topic newNode = createLeafChild(key.toString());
-                for (Watcher watcher : existingChild.watchers) {
+                for (Watcher watcher : existingChild.getWatchers()) {
                     newNode.addWatcher(watcher);
                 }
                 newNode.withNewerValue(childMergeBehavior.getTimestampToUse(), value, false, true);
@@ -406,7 +452,8 @@ public class Topics extends Node implements Iterable<Node> {
                     .log();
             return;
         }
-        context.runOnPublishQueue(() -> {
+        childRemoved(n);
+        n.runOnPublishQueue(() -> {
             n.fire(WhatHappened.removed);
             this.childChanged(WhatHappened.childRemoved, n);
         });
@@ -424,9 +471,20 @@ public class Topics extends Node implements Iterable<Node> {
         context.waitForPublishQueueToClear();
     }
 
-    @SuppressWarnings("PMD.AvoidCatchingThrowable")
     protected void childChanged(WhatHappened what, Node child) {
-        for (Watcher s : watchers) {
+        childChanged(what, child, child);
+    }
+
+    /**
+     * Notify watchers of a change in the subtree and update the modtime.
+     *
+     * @param what         what happened
+     * @param child        node which changed, passed to the watchers
+     * @param changedChild direct child of this node on the path to the changed node
+     */
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void childChanged(WhatHappened what, Node child, Node changedChild) {
+        for (Watcher s : getWatchers()) {
             if (s instanceof ChildChanged) {
                 try {
                     ((ChildChanged) s).childChanged(what, child);
@@ -441,17 +499,67 @@ public class Topics extends Node implements Iterable<Node> {
             return;
         }
 
-        if (child != null && (child.modtime > this.modtime || children.isEmpty())) {
-            this.modtime = child.modtime;
-        } else {
-            Optional<Node> n = children.values().stream().max(Comparator.comparingLong(node -> node.modtime));
-            Node node = n.orElse(child);
-            if (node != null) {
-                this.modtime = node.modtime;
+        // a child which was just removed can't be the newest child anymore
+        updateModtime(changedChild, what.equals(WhatHappened.childRemoved) && changedChild == child);
+        if (parentNeedsToKnow()) {
+            parent.childChanged(what, child, this);
+        }
+    }
+
+    /**
+     * Keep this node's modtime at the newest modtime of its children in constant time. The children are only scanned
+     * when the newest child is removed or its modtime is lowered.
+     *
+     * @param changedChild direct child of this node on the path to the changed node
+     * @param removed      true if the changed child was just removed from this node
+     */
+    private synchronized void updateModtime(Node changedChild, boolean removed) {
+        // comparing the parent of the child instead of looking it up keeps this free of allocations
+        boolean candidate = changedChild != null && changedChild.parent == this && !removed;
+        if (changedChild != null && (changedChild.modtime > this.modtime || children.isEmpty())) {
+            this.modtime = changedChild.modtime;
+            if (candidate) {
+                newestChild = changedChild;
+                newestChildModtime = changedChild.modtime;
             }
+            return;
         }
-        if (parentNeedsToKnow()) {
-            parent.childChanged(what, child);
+        Node newest = newestChild;
+        if (changedChild != null && newest != null && newest.modtime == newestChildModtime) {
+            if (candidate && changedChild.modtime > newestChildModtime) {
+                newestChild = changedChild;
+                newestChildModtime = changedChild.modtime;
+            }
+            // same as scanning the children, which also lowers the modtime to that of the newest child
+            this.modtime = newestChildModtime;
+            return;
+        }
+
+        newest = null;
+        for (Node n : children.values()) {
+            if (newest == null || n.modtime > newest.modtime) {
+                newest = n;
+            }
+        }
+        if (newest != null) {
+            this.modtime = newest.modtime;
+            newestChildModtime = newest.modtime;
+        }
+        newestChild = newest;
+    }
+
+    private synchronized void childAdded(Node n) {
+        Node newest = newestChild;
+        if (newest != null && n.modtime > newestChildModtime) {
+            newestChild = n;
+            newestChildModtime = n.modtime;
+        }
+    }
+
+    private synchronized void childRemoved(Node n) {
+        if (newestChild == n) {
+            // scan the children again at the next change
+            newestChild = null;
         }
     }
 
@@ -26,14 +26,21 @@ import java.lang.annotation.Target;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -50,11 +57,23 @@ import static com.aws.greengrass.util.Utils.nullEmpty;
 public class Context implements Closeable {
     private static final Logger logger = LogManager.getLogger(Context.class);
     private static final String classKeyword = "class";
+    // Number of lanes that publish queue tasks for independent config subtrees are dispatched on. With a single
+    // lane every task runs on the publish thread, in order.
+    public static final String PUBLISH_QUEUE_LANES_PROPERTY = "aws.greengrass.publishQueueLanes";
+    private static final String PUBLISH_THREAD_NAME = "Serialized listener processor";
+    private static final String STATE_CHANGE_THREAD_NAME = "Service state change dispatcher";
     private final ConcurrentHashMap<Object, Value> parts = new ConcurrentHashMap<>();
-    private final BlockingDeque<Runnable> serialized = new LinkedBlockingDeque<>();
+    private final BlockingDeque<PublishTask> serialized = new LinkedBlockingDeque<>();
+    private final PublishLane[] lanes = createPublishLanes(Integer.getInteger(PUBLISH_QUEUE_LANES_PROPERTY, 1));
+    private final PublishLane.PublishLaneStats serialStats = new PublishLane.PublishLaneStats("Serial");
+    private final Object lanesIdle = new Object();
+    private int laneTasksInFlight; // guarded by lanesIdle
+    // Publish lane keys of top level config namespaces and of services by name, so that each is only built once
+    private final Map<String, String> namespacePublishQueueKeys = new ConcurrentHashMap<>();
+    private final Map<String, String> servicePublishQueueKeys = new ConcurrentHashMap<>();
     private final Thread publishThread = new Thread() {
         {
-            setName("Serialized listener processor");
+            setName(PUBLISH_THREAD_NAME);
             setPriority(Thread.MAX_PRIORITY - 1);
             //                setDaemon(true);
         }
@@ -62,14 +81,19 @@ public class Context implements Closeable {
         @SuppressWarnings("PMD.AvoidCatchingThrowable")
         @Override
         public void run() {
-            while (!requestPublishThreadStop.get()) {
-                try {
-                    Runnable task = serialized.takeFirst();
-                    task.run();
-                } catch (InterruptedException ie) {
-                    return;
-                } catch (Throwable t) {
-                    logger.atError().setEventType("run-on-publish-queue-error").setCause(t).log();
+            try {
+                while (!requestPublishThreadStop.get()) {
+                    try {
+                        dispatch(serialized.takeFirst());
+                    } catch (InterruptedException ie) {
+                        return;
+                    } catch (Throwable t) {
+                        logger.atError().setEventType("run-on-publish-queue-error").setCause(t).log();
+                    }
+                }
+            } finally {
+                for (PublishLane lane : lanes) {
+                    lane.requestStop();
                 }
             }
         }
@@ -78,12 +102,70 @@ public class Context implements Closeable {
     // magical
     private boolean shuttingDown = false;
     // global state change notification
-    private CopyOnWriteArrayList<GlobalStateChangeListener> listeners;
+    private volatile CopyOnWriteArrayList<GlobalStateChangeListener> listeners;
+    private final BlockingQueue<StateChange> stateChanges = new LinkedBlockingQueue<>();
+    private final AtomicLong stateChangesQueued = new AtomicLong();
+    // guards queueing a state change against the dispatcher exiting
+    private final Object stateChangesLock = new Object();
+    // set once the dispatcher sent every state change queued before it was stopped, guarded by stateChangesLock
+    private boolean stateChangeThreadStopped;
+    private final Object stateChangesDispatchedLock = new Object();
+    // sequence number of the last state change sent to the listeners, guarded by stateChangesDispatchedLock
+    private long stateChangesDispatched;
     private final AtomicBoolean requestPublishThreadStop = new AtomicBoolean();
+    private final Thread stateChangeThread = new Thread() {
+        {
+            setName(STATE_CHANGE_THREAD_NAME);
+            setPriority(Thread.MAX_PRIORITY - 1);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            boolean stopping = false;
+            while (true) {
+                StateChange change;
+                try {
+                    // once stopped, send what is left without waiting for more
+                    change = stopping ? stateChanges.poll() : stateChanges.take();
+                } catch (InterruptedException ie) {
+                    change = null;
+                    stopping = true;
+                }
+                if (change == StateChange.STOP) {
+                    stopping = true;
+                } else if (change != null) {
+                    dispatchStateChange(change);
+                } else {
+                    synchronized (stateChangesLock) {
+                        if (stateChanges.isEmpty()) {
+                            stateChangeThreadStopped = true;
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    };
 
     public Context() {
         parts.put(Context.class, new Value(Context.class, this));
+        for (PublishLane lane : lanes) {
+            lane.start();
+        }
         publishThread.start();
+        stateChangeThread.start();
+    }
+
+    private PublishLane[] createPublishLanes(int count) {
+        if (count <= 1) {
+            return new PublishLane[0];
+        }
+        PublishLane[] created = new PublishLane[count];
+        for (int i = 0; i < count; i++) {
+            created[i] = new PublishLane(PUBLISH_THREAD_NAME + " lane " + i, "Lane" + i, this::laneTaskDone);
+        }
+        return created;
     }
 
     /**
@@ -222,6 +304,7 @@ public class Context implements Closeable {
         requestPublishThreadStop.set(true);
         // Add something into the queue to be sure that takeFirst returns
         runOnPublishQueue(() -> {});
+        stateChanges.add(StateChange.STOP);
     }
 
     @Override
@@ -253,28 +336,183 @@ public class Context implements Closeable {
     }
 
     /**
-     * Serially send an event to the global state change listeners.
+     * Queue an event for the global state change listeners. Events are numbered in the order they are queued and sent
+     * to the listeners one at a time in that order on a dedicated thread, so the caller doesn't wait for the listeners
+     * and doesn't need to hold any lock to keep the order of the events consistent across services. Events queued
+     * before the context is shut down are still sent, and later ones are sent on the caller's thread.
      *
      * @param changedService the service which had a state change
      * @param oldState       the old state of the service
      * @param newState       the new state of the service
      */
+    public void globalNotifyStateChanged(GreengrassService changedService, final State oldState,
+                                         final State newState) {
+        StateChange change = new StateChange(changedService, oldState, newState);
+        synchronized (stateChangesLock) {
+            stateChangesQueued.incrementAndGet();
+            if (!stateChangeThreadStopped) {
+                stateChanges.add(change);
+                return;
+            }
+        }
+        // the context was shut down and the dispatcher has exited, so send it on the caller's thread instead
+        dispatchStateChange(change);
+    }
+
+    /**
+     * Wait until the listeners were sent every state change queued before this call.
+     *
+     * @param timeoutMillis maximum time to wait
+     * @return true if the state changes were sent, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean waitForStateChangesToBeDispatched(long timeoutMillis) throws InterruptedException {
+        long target = stateChangesQueued.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (stateChangesDispatchedLock) {
+            while (stateChangesDispatched < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                stateChangesDispatchedLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
     @SuppressWarnings("PMD.AvoidCatchingThrowable")
-    public synchronized void globalNotifyStateChanged(GreengrassService changedService, final State oldState,
-                                                      final State newState) {
-        if (listeners != null) {
-            listeners.forEach(s -> {
+    private void dispatchStateChange(StateChange change) {
+        long sequenceNumber;
+        synchronized (stateChangesDispatchedLock) {
+            sequenceNumber = stateChangesDispatched + 1;
+        }
+        List<GlobalStateChangeListener> current = listeners;
+        if (current != null) {
+            current.forEach(s -> {
                 try {
-                    s.globalServiceStateChanged(changedService, oldState, newState);
+                    s.globalServiceStateChanged(change.service, change.oldState, change.newState);
                 } catch (Throwable t) {
-                    logger.atError().log("Error publishing service state change", t);
+                    logger.atError().kv("sequenceNumber", sequenceNumber)
+                            .log("Error publishing service state change", t);
                 }
             });
         }
+        synchronized (stateChangesDispatchedLock) {
+            stateChangesDispatched++;
+            stateChangesDispatchedLock.notifyAll();
+        }
+    }
+
+    private static final class StateChange {
+        private static final StateChange STOP = new StateChange(null, null, null);
+
+        private final GreengrassService service;
+        private final State oldState;
+        private final State newState;
+
+        StateChange(GreengrassService service, State oldState, State newState) {
+            this.service = service;
+            this.oldState = oldState;
+            this.newState = newState;
+        }
     }
 
+    /**
+     * Run a task on the publish queue. The task runs after every task queued before it has completed, and before
+     * any task queued after it starts, regardless of lane.
+     *
+     * @param r task to run
+     */
     public void runOnPublishQueue(Runnable r) {
-        serialized.add(r);
+        serialized.add(new PublishTask(r, -1));
+    }
+
+    /**
+     * Run a task on the publish lane of the given key. Tasks with the same key run in the order they were queued.
+     * Tasks with different keys may run concurrently when more than one lane is configured.
+     *
+     * @param key key of the lane, typically the root of a config subtree; null to run as a barrier
+     * @param r   task to run
+     */
+    public void runOnPublishQueue(String key, Runnable r) {
+        int lane = key == null || lanes.length == 0 ? -1 : Math.floorMod(key.hashCode(), lanes.length);
+        serialized.add(new PublishTask(r, lane));
+    }
+
+    /**
+     * Check if publish queue tasks are dispatched on more than one lane, so that their keys matter.
+     *
+     * @return true if more than one lane is configured
+     */
+    public boolean hasPublishLanes() {
+        return lanes.length > 0;
+    }
+
+    /**
+     * Get the publish lane key of a top level config namespace.
+     *
+     * @param namespace name of the namespace
+     * @return lane key
+     */
+    public String namespacePublishQueueKey(String namespace) {
+        String key = namespacePublishQueueKeys.get(namespace);
+        return key == null ? namespacePublishQueueKeys.computeIfAbsent(namespace, k -> k.toLowerCase(Locale.ROOT))
+                : key;
+    }
+
+    /**
+     * Get the publish lane key of a service.
+     *
+     * @param service name of the service
+     * @return lane key
+     */
+    public String servicePublishQueueKey(String service) {
+        String key = servicePublishQueueKeys.get(service);
+        return key == null ? servicePublishQueueKeys.computeIfAbsent(service,
+                k -> (SERVICES_NAMESPACE_TOPIC + '.' + k).toLowerCase(Locale.ROOT)) : key;
+    }
+
+    private void dispatch(PublishTask task) throws InterruptedException {
+        if (task.lane >= 0) {
+            synchronized (lanesIdle) {
+                laneTasksInFlight++;
+            }
+            lanes[task.lane].submit(task.task, task.enqueuedNanos);
+            return;
+        }
+        // barrier: wait for everything dispatched earlier to finish
+        synchronized (lanesIdle) {
+            while (laneTasksInFlight > 0) {
+                lanesIdle.wait();
+            }
+        }
+        serialStats.recordDispatch(task.enqueuedNanos, serialized.size());
+        task.task.run();
+    }
+
+    private void laneTaskDone() {
+        synchronized (lanesIdle) {
+            laneTasksInFlight--;
+            if (laneTasksInFlight == 0) {
+                lanesIdle.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Collect queue depth and dispatch latency of the publish thread and each publish lane since the previous
+     * collection.
+     *
+     * @return metrics for each lane, starting with the publish thread
+     */
+    public List<PublishQueueMetrics> collectPublishQueueMetrics() {
+        List<PublishQueueMetrics> metrics = new ArrayList<>(lanes.length + 1);
+        metrics.add(serialStats.collect(serialized.size()));
+        for (PublishLane lane : lanes) {
+            metrics.add(lane.getStats().collect(lane.getQueueDepth()));
+        }
+        return metrics;
     }
 
     /**
@@ -316,7 +554,27 @@ public class Context implements Closeable {
     }
 
     private boolean onPublishThread() {
-        return Thread.currentThread() == publishThread;
+        Thread current = Thread.currentThread();
+        if (current == publishThread) {
+            return true;
+        }
+        for (PublishLane lane : lanes) {
+            if (current == lane) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class PublishTask {
+        private final Runnable task;
+        private final int lane;
+        private final long enqueuedNanos = System.nanoTime();
+
+        PublishTask(Runnable task, int lane) {
+            this.task = task;
+            this.lane = lane;
+        }
     }
 
     /**
@@ -0,0 +1,108 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.dependency;
+
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One lane of the publish queue. Tasks for the same config subtree always land on the same lane, so they run in
+ * the order they were published while other subtrees make progress on other lanes.
+ */
+class PublishLane extends Thread {
+    private static final Logger logger = LogManager.getLogger(PublishLane.class);
+    private static final Runnable STOP = () -> {
+    };
+
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private final Runnable onTaskDone;
+    private final PublishLaneStats stats;
+
+    PublishLane(String threadName, String laneName, Runnable onTaskDone) {
+        super(threadName);
+        setPriority(Thread.MAX_PRIORITY - 1);
+        this.onTaskDone = onTaskDone;
+        this.stats = new PublishLaneStats(laneName);
+    }
+
+    void submit(Runnable task, long enqueuedNanos) {
+        queue.add(() -> {
+            stats.recordDispatch(enqueuedNanos, queue.size());
+            task.run();
+        });
+    }
+
+    void requestStop() {
+        queue.add(STOP);
+    }
+
+    PublishLaneStats getStats() {
+        return stats;
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    @Override
+    public void run() {
+        while (true) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException ie) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.atError().setEventType("run-on-publish-queue-error").setCause(t).log();
+            } finally {
+                onTaskDone.run();
+            }
+        }
+    }
+
+    /**
+     * Dispatch counters of a lane, reset every time they are collected.
+     */
+    static class PublishLaneStats {
+        private final String name;
+        private final AtomicLong dispatched = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+        private final AtomicLong maxQueueDepth = new AtomicLong();
+
+        PublishLaneStats(String name) {
+            this.name = name;
+        }
+
+        void recordDispatch(long enqueuedNanos, int queueDepth) {
+            long latency = System.nanoTime() - enqueuedNanos;
+            dispatched.incrementAndGet();
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+        }
+
+        PublishQueueMetrics collect(int queueDepth) {
+            long count = dispatched.getAndSet(0);
+            long total = totalLatencyNanos.getAndSet(0);
+            return new PublishQueueMetrics(name, queueDepth, maxQueueDepth.getAndSet(queueDepth), count,
+                    count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(total / count),
+                    TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.getAndSet(0)));
+        }
+    }
+}
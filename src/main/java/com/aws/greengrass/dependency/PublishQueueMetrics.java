@@ -0,0 +1,21 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.dependency;
+
+import lombok.Value;
+
+/**
+ * Publish queue statistics of one lane since the previous collection.
+ */
+@Value
+public class PublishQueueMetrics {
+    String lane;
+    int queueDepth;
+    long maxQueueDepth;
+    long dispatchedCount;
+    long averageDispatchLatencyMicros;
+    long maxDispatchLatencyMicros;
+}
@@ -638,6 +638,16 @@ public class DeviceConfiguration {
         return getMQTTNamespace().lookupTopics(DEVICE_SPOOLER_NAMESPACE);
     }
 
+    /**
+     * Get the directory where the MQTT spooler keeps messages when it's configured to spool to the file system.
+     *
+     * @return spooler directory inside the Nucleus work directory
+     * @throws IOException if the Nucleus work directory can't be created
+     */
+    public Path getSpoolerDirectory() throws IOException {
+        return kernel.getNucleusPaths().workPath(getNucleusComponentName()).resolve(DEVICE_SPOOLER_NAMESPACE);
+    }
+
     public Topics getNetworkProxyNamespace() {
         return getTopics(DEVICE_NETWORK_PROXY_NAMESPACE);
     }
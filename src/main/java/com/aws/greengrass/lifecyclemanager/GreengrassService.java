@@ -22,6 +22,7 @@ import com.aws.greengrass.logging.api.Logger;
 import com.aws.greengrass.logging.impl.LogManager;
 import com.aws.greengrass.status.model.ComponentStatusDetails;
 import com.aws.greengrass.util.Coerce;
+import com.aws.greengrass.util.LockScope;
 import com.aws.greengrass.util.Pair;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import lombok.AllArgsConstructor;
@@ -41,6 +42,9 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -77,10 +81,13 @@ public class GreengrassService implements InjectionActions {
     public Context context;
 
     private final Lifecycle lifecycle;
-    private final Object dependersExitedLock = new Object();
+    // Explicit locks rather than monitors, so that waiting on them does not pin the carrier of a virtual thread
+    private final Lock dependersExitedLock = new ReentrantLock();
+    private final Condition dependersExitedCondition = dependersExitedLock.newCondition();
     private Throwable error;
     private final Periodicity periodicityInformation;
-    private final Object dependencyReadyLock = new Object();
+    private final Lock dependencyReadyLock = new ReentrantLock();
+    private final Condition dependencyReadyCondition = dependencyReadyLock.newCondition();
 
     // dependencies that are explicitly declared by customer in config store.
     private final Topic externalDependenciesTopic;
@@ -488,24 +495,26 @@ public class GreengrassService implements InjectionActions {
                 }
                 GlobalStateChangeListener listener = createDependencyListener(dependencyService, dependencyType);
                 getContext().addGlobalStateChangeListener(listener);
-                context.get(Kernel.class).clearODcache();
                 return new DependencyInfo(dependencyType, isDefault, listener);
             });
+            context.get(Kernel.class).dependencyAdded(this, dependencyService);
         }
     }
 
     private GlobalStateChangeListener createDependencyListener(GreengrassService dependencyService,
                                                                DependencyType dependencyType) {
         return (service, oldState, newState) -> {
+            // State changes are sent after the fact, so decide by the state the dependency changed to rather than by
+            // its current state, which may already have recovered
             if (service.equals(dependencyService) && (State.STARTING.equals(getState()) || State.RUNNING.equals(
-                    getState())) && !dependencyReady(dependencyService, dependencyType)) {
+                    getState())) && !dependencyReady(newState, dependencyType)) {
                 requestRestart();
                 logger.atInfo("service-restart").log("Restarting service because dependency {} was in a bad state",
                         dependencyService.getName());
             }
-            synchronized (dependencyReadyLock) {
+            try (LockScope ls = LockScope.lock(dependencyReadyLock)) {
                 if (dependencyReady()) {
-                    dependencyReadyLock.notifyAll();
+                    dependencyReadyCondition.signalAll();
                 }
             }
         };
@@ -533,9 +542,9 @@ public class GreengrassService implements InjectionActions {
         dependers.forEach(dependerGreengrassService -> {
             GlobalStateChangeListener dependerExitWatcher = (service, oldState, newState) -> {
                 if (service.equals(dependerGreengrassService)) {
-                    synchronized (dependersExitedLock) {
+                    try (LockScope ls = LockScope.lock(dependersExitedLock)) {
                         if (dependersExited(dependers)) {
-                            dependersExitedLock.notifyAll();
+                            dependersExitedCondition.signalAll();
                         }
                     }
                 }
@@ -544,10 +553,10 @@ public class GreengrassService implements InjectionActions {
             watchers.add(dependerExitWatcher);
         });
 
-        synchronized (dependersExitedLock) {
+        try (LockScope ls = LockScope.lock(dependersExitedLock)) {
             while (!dependersExited(dependers)) {
                 logger.atDebug("service-waiting-for-dependent-to-finish").log();
-                dependersExitedLock.wait();
+                dependersExitedCondition.await();
             }
         }
         // removing state change watchers
@@ -575,16 +584,19 @@ public class GreengrassService implements InjectionActions {
     }
 
     private boolean dependencyReady(GreengrassService v, DependencyType dependencyType) {
-        State state = v.getState();
+        return dependencyReady(v.getState(), dependencyType);
+    }
+
+    private static boolean dependencyReady(State state, DependencyType dependencyType) {
         // Soft dependency can be in any state, while hard dependency has to be in RUNNING, STOPPING or FINISHED.
         return dependencyType.equals(DependencyType.SOFT) || state.isHappy() && State.RUNNING.preceedsOrEqual(state);
     }
 
     void waitForDependencyReady() throws InterruptedException {
-        synchronized (dependencyReadyLock) {
+        try (LockScope ls = LockScope.lock(dependencyReadyLock)) {
             while (!dependencyReady()) {
                 logger.atDebug("service-waiting-for-dependency").log();
-                dependencyReadyLock.wait();
+                dependencyReadyCondition.await();
             }
         }
     }
@@ -13,6 +13,7 @@ import com.aws.greengrass.componentmanager.models.ComponentIdentifier;
 import com.aws.greengrass.config.Configuration;
 import com.aws.greengrass.config.ConfigurationWriter;
 import com.aws.greengrass.config.Node;
+import com.aws.greengrass.config.TlogFormat;
 import com.aws.greengrass.config.Topic;
 import com.aws.greengrass.config.Topics;
 import com.aws.greengrass.dependency.Context;
@@ -54,6 +55,7 @@ import java.lang.reflect.Constructor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -97,9 +99,11 @@ public class Kernel {
     static final String DEFAULT_CONFIG_YAML_FILE_READ = "config.yaml";
     static final String DEFAULT_CONFIG_YAML_FILE_WRITE = "effectiveConfig.yaml";
     static final String DEFAULT_CONFIG_TLOG_FILE = "config.tlog";
+    static final String DEFAULT_CONFIG_SNAPSHOT_FILE = "config.snapshot";
     public static final String DEFAULT_BOOTSTRAP_CONFIG_TLOG_FILE = "bootstrap.tlog";
     public static final String SERVICE_DIGEST_TOPIC_KEY = "service-digest";
     private static final String DEPLOYMENT_STAGE_LOG_KEY = "stage";
+    static final String VIRTUAL_THREADS_PROPERTY = "aws.greengrass.virtualThreads";
 
     protected static final ObjectMapper CONFIG_YAML_WRITER =
             YAMLMapper.builder().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET).build();
@@ -120,8 +124,13 @@ public class Kernel {
     private KernelLifecycle kernelLifecycle;
     @Getter
     private final NucleusPaths nucleusPaths;
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    private TlogFormat tlogFormat = TlogFormat.JSON;
 
-    private Collection<GreengrassService> cachedOD = null;
+    // services in dependency order, null when the order has to be computed again
+    private volatile OrderedServices cachedOD;
+    private final Object orderedDependenciesLock = new Object();
     private DeploymentStage deploymentStageAtLaunch = DeploymentStage.DEFAULT;
 
     /**
@@ -133,7 +142,7 @@ public class Kernel {
         context.put(Configuration.class, config);
         context.put(Kernel.class, this);
         ScheduledThreadPoolExecutor ses = new ScheduledThreadPoolExecutor(4);
-        ExecutorService executorService = Executors.newCachedThreadPool();
+        ExecutorService executorService = newExecutorService();
         context.put(ScheduledThreadPoolExecutor.class, ses);
         context.put(ScheduledExecutorService.class, ses);
         context.put(Executor.class, executorService);
@@ -159,6 +168,26 @@ public class Kernel {
         context.put(SERVICE_TYPE_TO_CLASS_MAP_KEY, typeToClassMap);
     }
 
+    /**
+     * Create the executor which runs the lifecycle of the services, their backing tasks and their waits for
+     * dependencies. Most of these tasks are parked most of the time, so when the {@value #VIRTUAL_THREADS_PROPERTY}
+     * system property is true they run on virtual threads, which don't hold a platform thread and its stack while
+     * parked. Virtual threads need Java 21, on older JVMs the cached thread pool is used.
+     *
+     * @return executor service
+     */
+    static ExecutorService newExecutorService() {
+        if (Coerce.toBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "false"))) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.atWarn().kv("javaVersion", System.getProperty("java.version"))
+                        .log("Virtual threads are not supported by this JVM, using platform threads");
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
     /**
      * Find the service that a Node belongs to (or null if it is not under a service).
      *
@@ -280,31 +309,85 @@ public class Kernel {
         return kernelLifecycle.getMain();
     }
 
+    /**
+     * Forget the dependency order so that it is computed again when it is next read.
+     */
     @SuppressWarnings("PMD.NullAssignment")
-    public synchronized void clearODcache() {
-        cachedOD = null;
+    public void clearODcache() {
+        synchronized (orderedDependenciesLock) {
+            cachedOD = null;
+        }
     }
 
     /**
-     * Get a list of all dependencies in order (with the main service as the last).
+     * Update the dependency order for a dependency which was added or updated. The order is kept as it is if it
+     * already has the dependency before the depender, or doesn't have the depender at all, since the dependency
+     * then changes neither the services which are in the order nor where they are.
+     *
+     * @param depender   service which has the dependency
+     * @param dependency service which is depended on
+     */
+    @SuppressWarnings("PMD.NullAssignment")
+    void dependencyAdded(GreengrassService depender, GreengrassService dependency) {
+        synchronized (orderedDependenciesLock) {
+            OrderedServices od = cachedOD;
+            if (od != null && !od.isUnchangedByDependency(depender, dependency)) {
+                cachedOD = null;
+            }
+        }
+    }
+
+    /**
+     * Get a list of all dependencies in order (with the main service as the last). The list is an immutable snapshot
+     * which is only computed again after the dependencies changed, so reading it doesn't block.
      *
      * @return collection of services in dependency order
      */
-    public synchronized Collection<GreengrassService> orderedDependencies() {
-        if (cachedOD != null) {
-            return cachedOD;
+    public Collection<GreengrassService> orderedDependencies() {
+        OrderedServices od = cachedOD;
+        if (od != null) {
+            return od.services;
         }
 
-        if (getMain() == null) {
-            return Collections.emptyList();
+        synchronized (orderedDependenciesLock) {
+            if (cachedOD != null) {
+                return cachedOD.services;
+            }
+            GreengrassService main = getMain();
+            if (main == null) {
+                return Collections.emptyList();
+            }
+
+            final HashSet<GreengrassService> pendingDependencyServices = new LinkedHashSet<>();
+            main.putDependenciesIntoSet(pendingDependencyServices);
+            final LinkedHashSet<GreengrassService> dependencyFoundServices = new DependencyOrder<GreengrassService>()
+                    .computeOrderedDependencies(pendingDependencyServices, s -> s.getDependencies().keySet());
+
+            cachedOD = new OrderedServices(dependencyFoundServices);
+            return cachedOD.services;
         }
+    }
 
-        final HashSet<GreengrassService> pendingDependencyServices = new LinkedHashSet<>();
-        getMain().putDependenciesIntoSet(pendingDependencyServices);
-        final LinkedHashSet<GreengrassService> dependencyFoundServices = new DependencyOrder<GreengrassService>()
-                .computeOrderedDependencies(pendingDependencyServices, s -> s.getDependencies().keySet());
+    private static final class OrderedServices {
+        private final List<GreengrassService> services;
+        private final Map<GreengrassService, Integer> positions;
 
-        return cachedOD = dependencyFoundServices;
+        OrderedServices(Collection<GreengrassService> ordered) {
+            services = Collections.unmodifiableList(new ArrayList<>(ordered));
+            positions = new HashMap<>();
+            for (GreengrassService service : services) {
+                positions.put(service, positions.size());
+            }
+        }
+
+        boolean isUnchangedByDependency(GreengrassService depender, GreengrassService dependency) {
+            Integer dependerPosition = positions.get(depender);
+            if (dependerPosition == null) {
+                return true;
+            }
+            Integer dependencyPosition = positions.get(dependency);
+            return dependencyPosition != null && dependencyPosition < dependerPosition;
+        }
     }
 
     /**
@@ -335,13 +418,13 @@ public class Kernel {
     }
 
     /**
-     * Write the effective config in the transaction log format.
+     * Write the effective config in the transaction log format selected by {@link #getTlogFormat()}.
      *
      * @param transactionLogPath path to write the file into
      * @throws IOException if writing fails
      */
     public void writeEffectiveConfigAsTransactionLog(Path transactionLogPath) throws IOException {
-        ConfigurationWriter.dump(config, transactionLogPath);
+        ConfigurationWriter.dump(config, transactionLogPath, tlogFormat);
     }
 
     /**
@@ -9,6 +9,7 @@ import com.amazon.aws.iot.greengrass.component.common.DependencyType;
 import com.aws.greengrass.componentmanager.plugins.docker.DockerApplicationManagerService;
 import com.aws.greengrass.config.ConfigurationReader;
 import com.aws.greengrass.config.ConfigurationWriter;
+import com.aws.greengrass.config.TlogFormat;
 import com.aws.greengrass.config.Topics;
 import com.aws.greengrass.config.UpdateBehaviorTree;
 import com.aws.greengrass.dependency.EZPlugins;
@@ -38,6 +39,7 @@ import com.aws.greengrass.status.FleetStatusService;
 import com.aws.greengrass.telemetry.TelemetryAgent;
 import com.aws.greengrass.telemetry.impl.config.TelemetryConfig;
 import com.aws.greengrass.tes.TokenExchangeService;
+import com.aws.greengrass.util.Coerce;
 import com.aws.greengrass.util.CommitableFile;
 import com.aws.greengrass.util.NucleusPaths;
 import com.aws.greengrass.util.RetryUtils;
@@ -54,6 +56,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -90,6 +93,14 @@ public class KernelLifecycle {
     private static final String DEFAULT_PROVISIONING_POLICY = "PROVISION_IF_NOT_PROVISIONED";
     private static final String SYSTEM_SHUTDOWN_EVENT = "system-shutdown";
     private static final int MAX_PROVISIONING_PLUGIN_RETRY_ATTEMPTS = 3;
+    // JVM options selecting the config transaction log format and the group commit policy of the binary format
+    static final String TLOG_FORMAT_PROPERTY = "aws.greengrass.config.tlogFormat";
+    static final String TLOG_GROUP_COMMIT_WINDOW_MS_PROPERTY = "aws.greengrass.config.tlogGroupCommitWindowMs";
+    static final String TLOG_GROUP_COMMIT_MAX_RECORDS_PROPERTY = "aws.greengrass.config.tlogGroupCommitMaxRecords";
+    // JVM option to disable loading the config from a snapshot of the tlog at startup
+    static final String CONFIG_SNAPSHOT_PROPERTY = "aws.greengrass.config.snapshot";
+    // JVM option limiting how many services are starting at once when the kernel launches, 0 for no limit
+    static final String SERVICE_STARTUP_CONCURRENCY_PROPERTY = "aws.greengrass.serviceStartupConcurrency";
 
     public static final String MULTIPLE_PROVISIONING_PLUGINS_FOUND_EXCEPTION = "Multiple provisioning plugins found "
             + "[%s]. Greengrass expects only one provisioning plugin";
@@ -116,6 +127,7 @@ public class KernelLifecycle {
     private ConfigurationWriter tlog;
     private GreengrassService mainService;
     private final AtomicBoolean isShutdownInitiated = new AtomicBoolean(false);
+    private volatile ServiceStartup serviceStartup;
 
     /**
      * Constructor.
@@ -266,7 +278,12 @@ public class KernelLifecycle {
     void initConfigAndTlog() {
         try {
             Path transactionLogPath = nucleusPaths.configPath().resolve(Kernel.DEFAULT_CONFIG_TLOG_FILE);
+            Path snapshotPath = nucleusPaths.configPath().resolve(Kernel.DEFAULT_CONFIG_SNAPSHOT_FILE);
+            boolean useSnapshot = Coerce.toBoolean(System.getProperty(CONFIG_SNAPSHOT_PROPERTY, "true"));
             boolean readFromTlog = true;
+            TlogFormat tlogFormat =
+                    Coerce.toEnum(TlogFormat.class, System.getProperty(TLOG_FORMAT_PROPERTY), TlogFormat.JSON);
+            kernel.setTlogFormat(tlogFormat);
 
             if (Objects.nonNull(kernelCommandLine.getProvidedConfigPathName())) {
                 // If a config file is provided, kernel will use the provided file as a new base
@@ -277,15 +294,19 @@ public class KernelLifecycle {
             } else {
                 Path bootstrapTlogPath = nucleusPaths.configPath().resolve(Kernel.DEFAULT_BOOTSTRAP_CONFIG_TLOG_FILE);
 
-                // config.tlog is valid if any incomplete tlog truncation is handled correctly and the tlog content
-                // is validated
+                // config.tlog is valid if any incomplete tlog truncation is handled correctly and either the snapshot
+                // of it and the records after the snapshot, or the whole tlog content is validated
+                boolean truncationHandled = handleIncompleteTlogTruncation(transactionLogPath);
+                boolean loadedFromSnapshot = truncationHandled && useSnapshot
+                        && ConfigurationReader.mergeSnapshotInto(kernel.getConfig(), snapshotPath, transactionLogPath);
                 boolean transactionTlogValid =
-                        handleIncompleteTlogTruncation(transactionLogPath) && ConfigurationReader.validateTlog(
-                                transactionLogPath);
+                        loadedFromSnapshot || truncationHandled && ConfigurationReader.validateTlog(transactionLogPath);
 
                 // if config.tlog is valid, read the tlog first because the yaml config file may not be up to date
                 if (transactionTlogValid) {
-                    kernel.getConfig().read(transactionLogPath);
+                    if (!loadedFromSnapshot) {
+                        kernel.getConfig().read(transactionLogPath);
+                    }
                 } else {
                     // if config.tlog is not valid, try to read config from backup tlogs
                     readConfigFromBackUpTLog(transactionLogPath, bootstrapTlogPath);
@@ -314,15 +335,23 @@ public class KernelLifecycle {
             }
 
             // write new tlog and config files
-            // only dump out the current config if we read from a source which was not the tlog
-            if (!readFromTlog) {
+            // only dump out the current config if we read from a source which was not the tlog, or if the tlog
+            // needs to be converted to the configured format
+            if (!readFromTlog || !tlogFormat.equals(ConfigurationReader.getTlogFormat(transactionLogPath))) {
                 kernel.writeEffectiveConfigAsTransactionLog(transactionLogPath);
             }
             kernel.writeEffectiveConfig();
 
             // hook tlog to config so that changes over time are persisted to the tlog
-            tlog = ConfigurationWriter.logTransactionsTo(kernel.getConfig(), transactionLogPath)
+            tlog = ConfigurationWriter.logTransactionsTo(kernel.getConfig(), transactionLogPath, tlogFormat)
+                    .withGroupCommit(Long.getLong(TLOG_GROUP_COMMIT_WINDOW_MS_PROPERTY,
+                            ConfigurationWriter.DEFAULT_GROUP_COMMIT_WINDOW_MILLIS),
+                            Integer.getInteger(TLOG_GROUP_COMMIT_MAX_RECORDS_PROPERTY,
+                                    ConfigurationWriter.DEFAULT_GROUP_COMMIT_MAX_RECORDS))
                     .flushImmediately(true).withAutoTruncate(kernel.getContext());
+            if (useSnapshot) {
+                tlog.withSnapshot(snapshotPath);
+            }
         } catch (IOException ioe) {
             logger.atError().setEventType("nucleus-read-config-error").setCause(ioe).log();
             throw new RuntimeException(ioe);
@@ -330,7 +359,8 @@ public class KernelLifecycle {
     }
 
     /*
-     * Check if last tlog truncation was interrupted and undo its effect
+     * Check if last tlog truncation was interrupted and undo its effect. Compaction no longer moves config.tlog
+     * aside, but a nucleus upgraded from a version which did may still find config.tlog.old after a crash.
      *
      * @param transactionLogPath path to config.tlog
      * @return true if last tlog truncation was complete or if we are able to undo its effect;
@@ -338,7 +368,7 @@ public class KernelLifecycle {
      */
     private boolean handleIncompleteTlogTruncation(Path transactionLogPath) {
         Path oldTlogPath = ConfigurationWriter.getOldTlogPath(transactionLogPath);
-        // At the beginning of tlog truncation, the original config.tlog file is moved to config.tlog.old
+        // At the beginning of tlog truncation, the original config.tlog file was moved to config.tlog.old
         // If .old file exists, then the last truncation was incomplete, so we need to undo its effect by moving it
         // back to the original location.
         if (Files.exists(oldTlogPath)) {
@@ -355,7 +385,7 @@ public class KernelLifecycle {
                 return false;
             }
         }
-        // also delete the new file (config.tlog+) as part of undoing the effect of incomplete truncation
+        // also delete the compacted tlog (config.tlog+) left behind by an interrupted compaction
         Path newTlogPath = CommitableFile.getNewFile(transactionLogPath);
         try {
             Files.deleteIfExists(newTlogPath);
@@ -446,11 +476,15 @@ public class KernelLifecycle {
     }
 
     /**
-     * Make all services startup in order.
+     * Make all services startup by dependency level, with at most the number of services set by
+     * {@value #SERVICE_STARTUP_CONCURRENCY_PROPERTY} starting at once, and log the startup timeline once they started.
      */
     public void startupAllServices() {
-        kernel.orderedDependencies().stream().filter(GreengrassService::shouldAutoStart)
-                .forEach(GreengrassService::requestStart);
+        Collection<GreengrassService> ordered = kernel.orderedDependencies();
+        serviceStartup = new ServiceStartup(kernel.getContext(), ordered,
+                ordered.stream().filter(GreengrassService::shouldAutoStart).collect(Collectors.toList()),
+                Integer.getInteger(SERVICE_STARTUP_CONCURRENCY_PROPERTY, 0));
+        serviceStartup.start();
     }
 
     /**
@@ -460,6 +494,10 @@ public class KernelLifecycle {
      */
     @SuppressWarnings("PMD.AvoidCatchingThrowable")
     public void stopAllServices(int timeoutSeconds) {
+        ServiceStartup startup = serviceStartup;
+        if (startup != null) {
+            startup.cancel();
+        }
         GreengrassService[] d = kernel.orderedDependencies().toArray(new GreengrassService[0]);
 
         CompletableFuture<?>[] arr = new CompletableFuture[d.length];
@@ -5,38 +5,62 @@
 
 package com.aws.greengrass.lifecyclemanager;
 
+import com.aws.greengrass.config.ConfigurationWriter;
+import com.aws.greengrass.config.TlogCompactionMetrics;
+import com.aws.greengrass.dependency.PublishQueueMetrics;
 import com.aws.greengrass.dependency.State;
 import com.aws.greengrass.logging.api.Logger;
 import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.mqttclient.MqttClient;
+import com.aws.greengrass.mqttclient.PublishRateLimitMetrics;
+import com.aws.greengrass.mqttclient.SpoolerDrainMetrics;
+import com.aws.greengrass.telemetry.MetricsRecorder;
 import com.aws.greengrass.telemetry.PeriodicMetricsEmitter;
 import com.aws.greengrass.telemetry.impl.Metric;
-import com.aws.greengrass.telemetry.impl.MetricFactory;
 import com.aws.greengrass.telemetry.models.TelemetryAggregation;
 import com.aws.greengrass.telemetry.models.TelemetryUnit;
+import com.aws.greengrass.util.OrderedExecutorService;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 
 public class KernelMetricsEmitter extends PeriodicMetricsEmitter {
     public static final Logger logger = LogManager.getLogger(KernelMetricsEmitter.class);
     public static final String NAMESPACE = "GreengrassComponents";
+    public static final String PUBLISH_QUEUE_NAMESPACE = "KernelPublishQueue";
+    public static final String TLOG_NAMESPACE = "KernelTlog";
+    public static final String MQTT_SPOOLER_NAMESPACE = "MqttSpooler";
+    public static final String MQTT_RATE_LIMIT_NAMESPACE = "MqttRateLimit";
+    public static final String ORDERED_EXECUTOR_NAMESPACE = "KernelOrderedExecutor";
+    // Namespaces of the nucleus internals, which are aggregated locally but not published to the cloud
+    public static final Set<String> LOCAL_NAMESPACES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(PUBLISH_QUEUE_NAMESPACE, TLOG_NAMESPACE, MQTT_SPOOLER_NAMESPACE, MQTT_RATE_LIMIT_NAMESPACE,
+                    ORDERED_EXECUTOR_NAMESPACE, ServiceStartup.NAMESPACE)));
     private final Kernel kernel;
-    private final MetricFactory mf = new MetricFactory(NAMESPACE);
+    private final MetricsRecorder metricsRecorder;
+    // dropped tasks of the ordered executor when the metrics were last retrieved
+    private long lastDroppedOrderedTasks;
 
     /**
      * Constructor for kernel metrics emitter.
      *
-     * @param kernel {@link Kernel}
+     * @param kernel          {@link Kernel}
+     * @param metricsRecorder {@link MetricsRecorder}
      */
     @Inject
-    public KernelMetricsEmitter(Kernel kernel) {
+    public KernelMetricsEmitter(Kernel kernel, MetricsRecorder metricsRecorder) {
         super();
         this.kernel = kernel;
+        this.metricsRecorder = metricsRecorder;
     }
 
     /**
@@ -46,8 +70,253 @@ public class KernelMetricsEmitter extends PeriodicMetricsEmitter {
     public void emitMetrics() {
         List<Metric> retrievedMetrics = getMetrics();
         for (Metric retrievedMetric : retrievedMetrics) {
-            mf.putMetricData(retrievedMetric);
+            metricsRecorder.record(retrievedMetric);
         }
+        // Kept in separate namespaces so that they are aggregated locally but not published, see LOCAL_NAMESPACES
+        for (Metric publishQueueMetric : getPublishQueueMetrics()) {
+            metricsRecorder.record(publishQueueMetric);
+        }
+        for (Metric tlogMetric : getTlogCompactionMetrics()) {
+            metricsRecorder.record(tlogMetric);
+        }
+        for (Metric spoolerMetric : getSpoolerMetrics()) {
+            metricsRecorder.record(spoolerMetric);
+        }
+        for (Metric rateLimitMetric : getPublishRateLimitMetrics()) {
+            metricsRecorder.record(rateLimitMetric);
+        }
+        for (Metric orderedExecutorMetric : getOrderedExecutorMetrics()) {
+            metricsRecorder.record(orderedExecutorMetric);
+        }
+    }
+
+    /**
+     * Retrieve the pending tasks of the ordered executor delivering pub/sub messages, and the tasks it dropped since
+     * the last call. Keys are subscribers, so the depths are aggregated instead of being reported per key.
+     * @return a list of {@link Metric}, empty if there is no ordered executor
+     */
+    public synchronized List<Metric> getOrderedExecutorMetrics() {
+        List<Metric> metricsList = new ArrayList<>();
+        OrderedExecutorService orderedExecutor = kernel.getContext().getIfExists(OrderedExecutorService.class, null);
+        if (orderedExecutor == null) {
+            return metricsList;
+        }
+        Map<Object, Integer> depths = orderedExecutor.getQueueDepths();
+        int maxDepth = 0;
+        long pendingTasks = 0;
+        for (int depth : depths.values()) {
+            maxDepth = Math.max(maxDepth, depth);
+            pendingTasks += depth;
+        }
+        long dropped = orderedExecutor.getDroppedTaskCount();
+        long droppedSinceLastCall = dropped - lastDroppedOrderedTasks;
+        lastDroppedOrderedTasks = dropped;
+        long timestamp = Instant.now().toEpochMilli();
+        metricsList.add(Metric.builder()
+                .namespace(ORDERED_EXECUTOR_NAMESPACE)
+                .name("MaxQueueDepthPerKey")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Maximum)
+                .value(maxDepth)
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(ORDERED_EXECUTOR_NAMESPACE)
+                .name("PendingTasks")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Maximum)
+                .value(pendingTasks)
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(ORDERED_EXECUTOR_NAMESPACE)
+                .name("KeysWithPendingTasks")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Maximum)
+                .value(depths.size())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(ORDERED_EXECUTOR_NAMESPACE)
+                .name("DroppedTasks")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Sum)
+                .value(droppedSinceLastCall)
+                .timestamp(timestamp)
+                .build());
+        return metricsList;
+    }
+
+    /**
+     * Retrieve the MQTT publish rates in effect and the publishes throttled by AWS IoT Core since the last call.
+     * @return a list of {@link Metric}, empty if there is no MQTT client
+     */
+    public List<Metric> getPublishRateLimitMetrics() {
+        List<Metric> metricsList = new ArrayList<>();
+        MqttClient mqttClient = kernel.getContext().getIfExists(MqttClient.class, null);
+        if (mqttClient == null) {
+            return metricsList;
+        }
+        PublishRateLimitMetrics rateLimits = mqttClient.collectPublishRateLimitMetrics();
+        long timestamp = Instant.now().toEpochMilli();
+        metricsList.add(Metric.builder()
+                .namespace(MQTT_RATE_LIMIT_NAMESPACE)
+                .name("PublishesPerSecondPerConnection")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Average)
+                .value(rateLimits.getPublishesPerSecondPerConnection())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(MQTT_RATE_LIMIT_NAMESPACE)
+                .name("BytesPerSecondPerConnection")
+                .unit(TelemetryUnit.Bytes)
+                .aggregation(TelemetryAggregation.Average)
+                .value(rateLimits.getBytesPerSecondPerConnection())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(MQTT_RATE_LIMIT_NAMESPACE)
+                .name("ThrottledPublishes")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Sum)
+                .value(rateLimits.getThrottledPublishes())
+                .timestamp(timestamp)
+                .build());
+        return metricsList;
+    }
+
+    /**
+     * Retrieve how fast the MQTT spooler published since the last call and the backlog it has left.
+     * @return a list of {@link Metric}, empty if there is no MQTT client
+     */
+    public List<Metric> getSpoolerMetrics() {
+        List<Metric> metricsList = new ArrayList<>();
+        MqttClient mqttClient = kernel.getContext().getIfExists(MqttClient.class, null);
+        if (mqttClient == null) {
+            return metricsList;
+        }
+        SpoolerDrainMetrics drain = mqttClient.collectSpoolerDrainMetrics();
+        long timestamp = Instant.now().toEpochMilli();
+        metricsList.add(Metric.builder()
+                .namespace(MQTT_SPOOLER_NAMESPACE)
+                .name("SpoolPublishedMessages")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Sum)
+                .value(drain.getPublishedMessages())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(MQTT_SPOOLER_NAMESPACE)
+                .name("SpoolPublishRate")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Average)
+                .value(drain.getPublishedMessagesPerSecond())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(MQTT_SPOOLER_NAMESPACE)
+                .name("SpoolBacklogMessages")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Maximum)
+                .value(drain.getBacklogMessages())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(MQTT_SPOOLER_NAMESPACE)
+                .name("SpoolBacklogAge")
+                .unit(TelemetryUnit.Milliseconds)
+                .aggregation(TelemetryAggregation.Maximum)
+                .value(drain.getOldestMessageAgeMillis())
+                .timestamp(timestamp)
+                .build());
+        return metricsList;
+    }
+
+    /**
+     * Retrieve duration and bytes reclaimed of the tlog compactions completed since the last call.
+     * @return a list of {@link Metric}, empty if no compaction completed
+     */
+    public List<Metric> getTlogCompactionMetrics() {
+        List<Metric> metricsList = new ArrayList<>();
+        ConfigurationWriter tlog = kernel.getContext().get(KernelLifecycle.class).getTlog();
+        if (tlog == null) {
+            return metricsList;
+        }
+        TlogCompactionMetrics compactions = tlog.collectCompactionMetrics();
+        if (compactions.getCompactions() == 0) {
+            return metricsList;
+        }
+        long timestamp = Instant.now().toEpochMilli();
+        metricsList.add(Metric.builder()
+                .namespace(TLOG_NAMESPACE)
+                .name("Compactions")
+                .unit(TelemetryUnit.Count)
+                .aggregation(TelemetryAggregation.Sum)
+                .value(compactions.getCompactions())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(TLOG_NAMESPACE)
+                .name("CompactionDuration")
+                .unit(TelemetryUnit.Milliseconds)
+                .aggregation(TelemetryAggregation.Sum)
+                .value(compactions.getDurationMillis())
+                .timestamp(timestamp)
+                .build());
+        metricsList.add(Metric.builder()
+                .namespace(TLOG_NAMESPACE)
+                .name("CompactionBytesReclaimed")
+                .unit(TelemetryUnit.Bytes)
+                .aggregation(TelemetryAggregation.Sum)
+                .value(compactions.getBytesReclaimed())
+                .timestamp(timestamp)
+                .build());
+        return metricsList;
+    }
+
+    /**
+     * Retrieve queue depth and dispatch latency of each publish queue lane since the last call.
+     * @return a list of {@link Metric}
+     */
+    public List<Metric> getPublishQueueMetrics() {
+        List<Metric> metricsList = new ArrayList<>();
+        long timestamp = Instant.now().toEpochMilli();
+        for (PublishQueueMetrics lane : kernel.getContext().collectPublishQueueMetrics()) {
+            metricsList.add(Metric.builder()
+                    .namespace(PUBLISH_QUEUE_NAMESPACE)
+                    .name(lane.getLane() + "QueueDepth")
+                    .unit(TelemetryUnit.Count)
+                    .aggregation(TelemetryAggregation.Maximum)
+                    .value(lane.getMaxQueueDepth())
+                    .timestamp(timestamp)
+                    .build());
+            metricsList.add(Metric.builder()
+                    .namespace(PUBLISH_QUEUE_NAMESPACE)
+                    .name(lane.getLane() + "DispatchedTasks")
+                    .unit(TelemetryUnit.Count)
+                    .aggregation(TelemetryAggregation.Sum)
+                    .value(lane.getDispatchedCount())
+                    .timestamp(timestamp)
+                    .build());
+            metricsList.add(Metric.builder()
+                    .namespace(PUBLISH_QUEUE_NAMESPACE)
+                    .name(lane.getLane() + "AverageDispatchLatency")
+                    .unit(TelemetryUnit.Milliseconds)
+                    .aggregation(TelemetryAggregation.Average)
+                    .value(lane.getAverageDispatchLatencyMicros() / 1000.0)
+                    .timestamp(timestamp)
+                    .build());
+            metricsList.add(Metric.builder()
+                    .namespace(PUBLISH_QUEUE_NAMESPACE)
+                    .name(lane.getLane() + "MaxDispatchLatency")
+                    .unit(TelemetryUnit.Milliseconds)
+                    .aggregation(TelemetryAggregation.Maximum)
+                    .value(lane.getMaxDispatchLatencyMicros() / 1000.0)
+                    .timestamp(timestamp)
+                    .build());
+        }
+        return metricsList;
     }
 
     /**
@@ -428,14 +428,12 @@ public class Lifecycle {
     void setState(State current, StateTransitionEvent stateTransitionEvent) {
         final State newState = stateTransitionEvent.getNewState();
         logger.atInfo("service-set-state").kv(NEW_STATE_METRIC_NAME, newState).log();
-        // Sync on State.class to make sure the order of setValue and globalNotifyStateChanged
-        // are consistent across different services.
-        synchronized (State.class) {
-            stateTopic.withValue(newState.ordinal());
-            statusCodeTopic.withValue(stateTransitionEvent.getStatusCode().name());
-            statusReasonTopic.withValue(stateTransitionEvent.getStatusReason());
-            greengrassService.getContext().globalNotifyStateChanged(greengrassService, current, newState);
-        }
+        // The state of a service is only set by its lifecycle thread, so the order of its state changes is kept.
+        // The listeners are sent the state changes of all services in one order by the context without a global lock.
+        stateTopic.withValue(newState.ordinal());
+        statusCodeTopic.withValue(stateTransitionEvent.getStatusCode().name());
+        statusReasonTopic.withValue(stateTransitionEvent.getStatusReason());
+        greengrassService.getContext().globalNotifyStateChanged(greengrassService, current, newState);
     }
 
     @SuppressWarnings("PMD.AvoidCatchingThrowable")
@@ -0,0 +1,309 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.lifecyclemanager;
+
+import com.amazon.aws.iot.greengrass.component.common.DependencyType;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.dependency.State;
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.telemetry.MetricsRecorder;
+import com.aws.greengrass.telemetry.impl.Metric;
+import com.aws.greengrass.telemetry.models.TelemetryAggregation;
+import com.aws.greengrass.telemetry.models.TelemetryUnit;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts services by dependency level and records how long each of them took to start.
+ *
+ * <p>The level of a service is 0 if it has no dependencies and one more than the highest level of its dependencies
+ * otherwise. Services are requested to start level by level, so that at most the configured number of services are
+ * starting at once and the dependencies of a service are always requested before it. Each service still only waits
+ * for its own dependencies, not for the whole level before it. A service stops counting towards the limit once it is
+ * running, finished, errored or broken, or once it is installed and waits for a hard dependency which isn't started
+ * along with it and isn't running, as it might wait for good.</p>
+ *
+ * <p>Once every service is done starting, the startup timeline is logged with the time each service took to install,
+ * to wait for its dependencies and to start up, and with the chain of dependencies which took the longest. The total
+ * time is recorded as a metric.</p>
+ */
+class ServiceStartup implements GlobalStateChangeListener {
+    private static final Logger logger = LogManager.getLogger(ServiceStartup.class);
+    static final String NAMESPACE = "KernelStartup";
+    static final String STARTUP_TIME_METRIC_NAME = "ServicesStartupTime";
+
+    private final Context context;
+    private final int maxConcurrency;
+    private final Map<GreengrassService, Integer> levels;
+    // services in the order they are requested to start, guarded by this
+    private final Map<GreengrassService, Timeline> timelines = new LinkedHashMap<>();
+    private final Deque<GreengrassService> pending = new ArrayDeque<>();
+    private int starting;
+    private int remaining;
+    private long startNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param context        context to listen to the state changes of the services on
+     * @param ordered        services in dependency order
+     * @param services       services to start
+     * @param maxConcurrency maximum number of services starting at once; 0 or less for no limit
+     */
+    ServiceStartup(Context context, Collection<GreengrassService> ordered, Collection<GreengrassService> services,
+                   int maxConcurrency) {
+        this.context = context;
+        this.maxConcurrency = maxConcurrency;
+        this.levels = dependencyLevels(ordered);
+        List<GreengrassService> byLevel = new ArrayList<>(services);
+        // stable, so services of the same level keep their dependency order
+        byLevel.sort(Comparator.comparingInt(s -> levels.getOrDefault(s, 0)));
+        for (GreengrassService service : byLevel) {
+            timelines.put(service, new Timeline(levels.getOrDefault(service, 0)));
+        }
+    }
+
+    /**
+     * Compute the dependency level of each service.
+     *
+     * @param ordered services in dependency order
+     * @return level of each service
+     */
+    static Map<GreengrassService, Integer> dependencyLevels(Collection<GreengrassService> ordered) {
+        Map<GreengrassService, Integer> levels = new HashMap<>();
+        for (GreengrassService service : ordered) {
+            int level = 0;
+            for (GreengrassService dependency : service.getDependencies().keySet()) {
+                Integer dependencyLevel = levels.get(dependency);
+                if (dependencyLevel != null) {
+                    level = Math.max(level, dependencyLevel + 1);
+                }
+            }
+            levels.put(service, level);
+        }
+        return levels;
+    }
+
+    /**
+     * Request the services to start.
+     */
+    void start() {
+        context.addGlobalStateChangeListener(this);
+        List<GreengrassService> toStart = new ArrayList<>();
+        boolean complete;
+        synchronized (this) {
+            startNanos = System.nanoTime();
+            for (Map.Entry<GreengrassService, Timeline> entry : timelines.entrySet()) {
+                if (isStarted(entry.getKey().getState())) {
+                    // nothing will change, only make sure it stays started
+                    entry.getValue().done(startNanos, entry.getKey().getState());
+                    toStart.add(entry.getKey());
+                } else {
+                    pending.add(entry.getKey());
+                    remaining++;
+                }
+            }
+            toStart.addAll(nextToStart());
+            complete = remaining == 0;
+        }
+        logger.atInfo("services-startup").kv("services", timelines.size()).kv("maxConcurrency", maxConcurrency)
+                .kv("dependencyLevels", levels.values().stream().mapToInt(l -> l + 1).max().orElse(0)).log();
+        toStart.forEach(GreengrassService::requestStart);
+        if (complete) {
+            complete();
+        }
+    }
+
+    /**
+     * Stop tracking the services which are still starting, for example when the kernel shuts down first.
+     */
+    void cancel() {
+        context.removeGlobalStateChangeListener(this);
+        synchronized (this) {
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void globalServiceStateChanged(GreengrassService service, State oldState, State newState) {
+        List<GreengrassService> toStart = Collections.emptyList();
+        boolean complete = false;
+        synchronized (this) {
+            Timeline timeline = timelines.get(service);
+            if (timeline == null || timeline.requestedNanos == 0 || timeline.doneNanos != 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (State.INSTALLED.equals(newState)) {
+                timeline.installedNanos = now;
+                if (!timeline.slotReleased && waitsForUnstartedDependency(service)) {
+                    logger.atInfo("services-startup-waiting").kv("service", service.getName())
+                            .log("Service waits for a dependency which isn't being started, starting others meanwhile");
+                    toStart = releaseSlot(timeline);
+                }
+            } else if (State.STARTING.equals(newState)) {
+                timeline.startingNanos = now;
+            }
+            if (isStarted(newState)) {
+                timeline.done(now, newState);
+                remaining--;
+                toStart = releaseSlot(timeline);
+                complete = remaining == 0;
+            }
+        }
+        toStart.forEach(GreengrassService::requestStart);
+        if (complete) {
+            complete();
+        }
+    }
+
+    private List<GreengrassService> releaseSlot(Timeline timeline) {
+        if (!timeline.slotReleased) {
+            timeline.slotReleased = true;
+            starting--;
+        }
+        return nextToStart();
+    }
+
+    /**
+     * Check if the service has a hard dependency which isn't started along with it and isn't running either, so
+     * nothing guarantees it ever will be.
+     */
+    private boolean waitsForUnstartedDependency(GreengrassService service) {
+        for (Map.Entry<GreengrassService, DependencyType> dependency : service.getDependencies().entrySet()) {
+            State state = dependency.getKey().getState();
+            if (DependencyType.HARD.equals(dependency.getValue()) && !timelines.containsKey(dependency.getKey())
+                    && !(state.isHappy() && State.RUNNING.preceedsOrEqual(state))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<GreengrassService> nextToStart() {
+        List<GreengrassService> toStart = new ArrayList<>();
+        while (!pending.isEmpty() && (maxConcurrency <= 0 || starting < maxConcurrency)) {
+            GreengrassService service = pending.poll();
+            timelines.get(service).requestedNanos = System.nanoTime();
+            starting++;
+            toStart.add(service);
+        }
+        return toStart;
+    }
+
+    private static boolean isStarted(State state) {
+        return State.RUNNING.equals(state) || State.FINISHED.equals(state) || State.ERRORED.equals(state)
+                || State.BROKEN.equals(state);
+    }
+
+    private void complete() {
+        context.removeGlobalStateChangeListener(this);
+        long totalMillis;
+        Map<String, Object> services = new LinkedHashMap<>();
+        List<String> criticalPath;
+        synchronized (this) {
+            GreengrassService last = null;
+            long lastDone = startNanos;
+            for (Map.Entry<GreengrassService, Timeline> entry : timelines.entrySet()) {
+                services.put(entry.getKey().getName(), entry.getValue().toMap());
+                if (entry.getValue().doneNanos > lastDone) {
+                    last = entry.getKey();
+                    lastDone = entry.getValue().doneNanos;
+                }
+            }
+            totalMillis = TimeUnit.NANOSECONDS.toMillis(lastDone - startNanos);
+            criticalPath = criticalPath(last);
+        }
+        logger.atInfo("services-startup-timeline").kv("totalMillis", totalMillis).kv("criticalPath", criticalPath)
+                .kv("services", services).log();
+
+        MetricsRecorder metricsRecorder = context.get(MetricsRecorder.class);
+        if (metricsRecorder != null) {
+            metricsRecorder.record(Metric.builder()
+                    .namespace(NAMESPACE)
+                    .name(STARTUP_TIME_METRIC_NAME)
+                    .unit(TelemetryUnit.Milliseconds)
+                    .aggregation(TelemetryAggregation.Maximum)
+                    .value(totalMillis)
+                    .timestamp(Instant.now().toEpochMilli())
+                    .build());
+        }
+    }
+
+    /**
+     * Follow the dependencies of the service which was done last back through the dependency done last each time.
+     *
+     * @return names of the services on the path, the first one first
+     */
+    private List<String> criticalPath(GreengrassService last) {
+        LinkedList<String> path = new LinkedList<>();
+        GreengrassService service = last;
+        while (service != null) {
+            path.addFirst(service.getName());
+            GreengrassService slowest = null;
+            long slowestDone = 0;
+            for (GreengrassService dependency : service.getDependencies().keySet()) {
+                Timeline timeline = timelines.get(dependency);
+                if (timeline != null && timeline.doneNanos > slowestDone) {
+                    slowest = dependency;
+                    slowestDone = timeline.doneNanos;
+                }
+            }
+            service = slowest;
+        }
+        return Collections.unmodifiableList(path);
+    }
+
+    private static final class Timeline {
+        private final int level;
+        private long requestedNanos;
+        private long installedNanos;
+        private long startingNanos;
+        private long doneNanos;
+        private State state;
+        // no longer counts towards the services starting at once
+        private boolean slotReleased;
+
+        Timeline(int level) {
+            this.level = level;
+        }
+
+        void done(long now, State doneState) {
+            doneNanos = now;
+            state = doneState;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("level", level);
+            map.put("state", state);
+            // installing includes waiting to be requested to start when the number of services starting is limited
+            putMillis(map, "installMillis", requestedNanos, installedNanos);
+            putMillis(map, "dependenciesWaitMillis", installedNanos, startingNanos);
+            putMillis(map, "startupMillis", startingNanos, doneNanos);
+            return map;
+        }
+
+        private static void putMillis(Map<String, Object> map, String key, long fromNanos, long toNanos) {
+            if (fromNanos != 0 && toNanos != 0) {
+                map.put(key, TimeUnit.NANOSECONDS.toMillis(toNanos - fromNanos));
+            }
+        }
+    }
+}
@@ -34,7 +34,6 @@ import software.amazon.awssdk.crt.mqtt5.packets.DisconnectPacket;
 import software.amazon.awssdk.crt.mqtt5.packets.PubAckPacket;
 import software.amazon.awssdk.crt.mqtt5.packets.UnsubscribePacket;
 import software.amazon.awssdk.iot.AwsIotMqtt5ClientBuilder;
-import vendored.com.google.common.util.concurrent.RateLimiter;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -98,10 +97,8 @@ class AwsIotMqtt5Client implements IndividualMqttClient {
     @Setter
     private static int waitTimeJitterMaxMillis = 10_000;
 
-    // Limit TPS to 100 which is IoT Core's limit per connection
-    private final RateLimiter transactionLimiter = RateLimiter.create(100.0);
-    // Limit bandwidth to 512 KBPS
-    private final RateLimiter bandwidthLimiter = RateLimiter.create(512.0 * 1024);
+    // Limits publishes per second and bandwidth, by default to IoT Core's limits per connection
+    private final PublishRateLimiter publishRateLimiter;
     private final AtomicBoolean hasConnectedOnce = new AtomicBoolean(false);
 
     private final AtomicReference<CompletableFuture<Void>> stopFuture = new AtomicReference<>(null);
@@ -181,6 +178,15 @@ class AwsIotMqtt5Client implements IndividualMqttClient {
                       Function<AwsIotMqtt5Client, Consumer<Publish>> messageHandler, String clientId, int clientIdNum,
                       Topics mqttTopics, CallbackEventManager callbackEventManager, ExecutorService executorService,
                       ScheduledExecutorService ses) {
+        this(builderProvider, messageHandler, clientId, clientIdNum, mqttTopics, callbackEventManager,
+                executorService, ses, new PublishRateLimitPolicy().newConnectionLimiter());
+    }
+
+    AwsIotMqtt5Client(Provider<AwsIotMqtt5ClientBuilder> builderProvider,
+                      Function<AwsIotMqtt5Client, Consumer<Publish>> messageHandler, String clientId, int clientIdNum,
+                      Topics mqttTopics, CallbackEventManager callbackEventManager, ExecutorService executorService,
+                      ScheduledExecutorService ses, PublishRateLimiter publishRateLimiter) {
+        this.publishRateLimiter = publishRateLimiter;
         this.clientId = clientId;
         this.clientIdNum = clientIdNum;
         this.mqttTopics = mqttTopics;
@@ -195,16 +201,12 @@ class AwsIotMqtt5Client implements IndividualMqttClient {
     }
 
     void disableRateLimiting() {
-        bandwidthLimiter.setRate(Double.MAX_VALUE);
-        transactionLimiter.setRate(Double.MAX_VALUE);
+        publishRateLimiter.disable();
     }
 
     @Override
-    public long getThrottlingWaitTimeMicros() {
-        // Return the worst possible wait time.
-        // Time to wait is independent of how many permits we need because future transactions
-        // will pay this current transaction's cost.  See the JavaDocs for RateLimiter for more info.
-        return Math.max(bandwidthLimiter.microTimeToNextPermit(), transactionLimiter.microTimeToNextPermit());
+    public long getThrottlingWaitTimeMicros(Publish publish) {
+        return publishRateLimiter.getWaitTimeMicros(publish);
     }
 
     @Override
@@ -347,8 +349,7 @@ class AwsIotMqtt5Client implements IndividualMqttClient {
             // Take the tokens from the limiters' token buckets.
             // This is guaranteed to not block because we've already slept the required time
             // in the spooler thread before calling this method.
-            transactionLimiter.acquire();
-            bandwidthLimiter.acquire(publish.getPayload().length);
+            publishRateLimiter.acquire(publish);
             logger.atTrace().kv(TOPIC_KEY, publish.getTopic())
                     .kv(QOS_KEY, publish.getQos().name())
                     .log("Publishing message");
@@ -90,10 +90,8 @@ class AwsIotMqttClient implements IndividualMqttClient {
     @Setter
     private static int waitTimeJitterMaxMillis = 10_000;
 
-    // Limit TPS to 100 which is IoT Core's limit per connection
-    private final RateLimiter transactionLimiter = RateLimiter.create(100.0);
-    // Limit bandwidth to 512 KBPS
-    private final RateLimiter bandwidthLimiter = RateLimiter.create(512.0 * 1024);
+    // Limits publishes per second and bandwidth, by default to IoT Core's limits per connection
+    private final PublishRateLimiter publishRateLimiter;
 
     // Limit TPS to 1 which is IoT Core's limit for connect requests per client-id
     // IoT was throttling connect calls even at 1 TPS because the limit is actually 0.1 when
@@ -136,6 +134,15 @@ class AwsIotMqttClient implements IndividualMqttClient {
                      Function<AwsIotMqttClient, Consumer<Publish>> messageHandler, String clientId, int clientIdNum,
                      Topics mqttTopics, CallbackEventManager callbackEventManager, ExecutorService executorService,
                      ScheduledExecutorService ses) {
+        this(builderProvider, messageHandler, clientId, clientIdNum, mqttTopics, callbackEventManager,
+                executorService, ses, new PublishRateLimitPolicy().newConnectionLimiter());
+    }
+
+    AwsIotMqttClient(Provider<AwsIotMqttConnectionBuilder> builderProvider,
+                     Function<AwsIotMqttClient, Consumer<Publish>> messageHandler, String clientId, int clientIdNum,
+                     Topics mqttTopics, CallbackEventManager callbackEventManager, ExecutorService executorService,
+                     ScheduledExecutorService ses, PublishRateLimiter publishRateLimiter) {
+        this.publishRateLimiter = publishRateLimiter;
         this.builderProvider = builderProvider;
         this.clientId = clientId;
         this.clientIdNum = clientIdNum;
@@ -151,16 +158,12 @@ class AwsIotMqttClient implements IndividualMqttClient {
 
     void disableRateLimiting() {
         connectLimiter.setRate(Double.MAX_VALUE);
-        bandwidthLimiter.setRate(Double.MAX_VALUE);
-        transactionLimiter.setRate(Double.MAX_VALUE);
+        publishRateLimiter.disable();
     }
 
     @Override
-    public long getThrottlingWaitTimeMicros() {
-        // Return the worst possible wait time.
-        // Time to wait is independent of how many permits we need because future transactions
-        // will pay this current transaction's cost.  See the JavaDocs for RateLimiter for more info.
-        return Math.max(bandwidthLimiter.microTimeToNextPermit(), transactionLimiter.microTimeToNextPermit());
+    public long getThrottlingWaitTimeMicros(Publish publish) {
+        return publishRateLimiter.getWaitTimeMicros(publish);
     }
 
     // Notes about the CRT MQTT client:
@@ -200,26 +203,20 @@ class AwsIotMqttClient implements IndividualMqttClient {
 
     @Override
     public CompletableFuture<PubAck> publish(Publish publish) {
-        return publish(new MqttMessage(publish.getTopic(), publish.getPayload(),
-                        QualityOfService.getEnumValueFromInteger(publish.getQos().getValue()), publish.isRetain()),
-                QualityOfService.getEnumValueFromInteger(publish.getQos().getValue()), publish.isRetain()).thenApply(
-                (i) -> new PubAck(PubAckPacket.PubAckReasonCode.SUCCESS.getValue(), null, null));
-    }
-
-    private CompletableFuture<Integer> publish(MqttMessage message, QualityOfService qos, boolean retain) {
+        QualityOfService qos = QualityOfService.getEnumValueFromInteger(publish.getQos().getValue());
         return connect().thenCompose((b) -> {
             // Take the tokens from the limiters' token buckets.
             // This is guaranteed to not block because we've already slept the required time
             // in the spooler thread before calling this method.
-            transactionLimiter.acquire();
-            bandwidthLimiter.acquire(message.getPayload().length);
+            publishRateLimiter.acquire(publish);
             synchronized (this) {
                 throwIfNoConnection();
-                logger.atTrace().kv(TOPIC_KEY, message.getTopic()).kv(QOS_KEY, qos.name()).kv("retain", retain)
-                        .log("Publishing message");
-                return connection.publish(message, qos, retain);
+                logger.atTrace().kv(TOPIC_KEY, publish.getTopic()).kv(QOS_KEY, qos.name())
+                        .kv("retain", publish.isRetain()).log("Publishing message");
+                return connection.publish(new MqttMessage(publish.getTopic(), publish.getPayload(), qos,
+                        publish.isRetain()), qos, publish.isRetain());
             }
-        });
+        }).thenApply((i) -> new PubAck(PubAckPacket.PubAckReasonCode.SUCCESS.getValue(), null, null));
     }
 
     @Override
@@ -0,0 +1,21 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+/**
+ * How the payloads of coalesced messages are framed into the payload of a batch.
+ */
+public enum CoalescingFraming {
+    /**
+     * Each payload is preceded by its length as a 4 byte big endian integer.
+     */
+    LengthPrefixed,
+
+    /**
+     * The payloads are the elements of a JSON array. Only messages with a JSON payload are coalesced.
+     */
+    JsonArray
+}
@@ -17,7 +17,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
 interface IndividualMqttClient extends Closeable {
-    long getThrottlingWaitTimeMicros();
+    long getThrottlingWaitTimeMicros(Publish publish);
 
     boolean canAddNewSubscription();
 
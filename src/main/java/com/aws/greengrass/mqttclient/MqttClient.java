@@ -5,6 +5,7 @@
 
 package com.aws.greengrass.mqttclient;
 
+import com.aws.greengrass.builtin.services.pubsub.SubscriptionTrie;
 import com.aws.greengrass.config.Topics;
 import com.aws.greengrass.config.WhatHappened;
 import com.aws.greengrass.deployment.DeviceConfiguration;
@@ -50,6 +51,7 @@ import software.amazon.awssdk.iot.AwsIotMqttConnectionBuilder;
 import java.io.Closeable;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -70,12 +72,13 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
@@ -134,6 +137,9 @@ public class MqttClient implements Closeable {
     @Getter(AccessLevel.PACKAGE)
     private final List<IndividualMqttClient> connections = new CopyOnWriteArrayList<>();
     private final Map<Subscribe, IndividualMqttClient> subscriptions = new ConcurrentHashMap<>();
+    // Index of the subscriptions above by the connection they are associated with, to route inbound messages
+    private final Map<IndividualMqttClient, SubscriptionTrie<Subscribe>> subscriptionsByClient =
+            new ConcurrentHashMap<>();
     private final Map<MqttTopic, IndividualMqttClient> subscriptionTopics = new ConcurrentHashMap<>();
     private final Set<Integer> activeClientIds = new HashSet<>();
     private final AtomicInteger connectionRoundRobin = new AtomicInteger(0);
@@ -160,6 +166,11 @@ public class MqttClient implements Closeable {
     private int maxPublishRetryCount;
     private int maxPublishMessageSize;
     private final AtomicBoolean isClosed = new AtomicBoolean(false);
+    private final LongAdder spoolerPublishedMessages = new LongAdder();
+    private final PublishRateLimitPolicy publishRateLimitPolicy = new PublishRateLimitPolicy();
+    private final PublishCoalescer publishCoalescer;
+    private final PayloadCompressor payloadCompressor = new PayloadCompressor();
+    private final AtomicLong lastSpoolerDrainMetricsNanos = new AtomicLong(System.nanoTime());
 
     @Getter(AccessLevel.PROTECTED)
     private final MqttClientConnectionEvents callbacks = new MqttClientConnectionEvents() {
@@ -255,6 +266,7 @@ public class MqttClient implements Closeable {
         this.deviceConfiguration = deviceConfiguration;
         this.executorService = executorService;
         this.ses = ses;
+        this.publishCoalescer = new PublishCoalescer(ses, this::spoolMessage);
         rootCaPath = Coerce.toString(deviceConfiguration.getRootCAFilePath());
         this.proxyTlsOptions = getTlsContextOptions(rootCaPath);
         this.proxyTlsContext = new ClientTlsContext(proxyTlsOptions);
@@ -371,6 +383,8 @@ public class MqttClient implements Closeable {
         this.spool = spool;
         this.mqttOnline.set(mqttOnline);
         this.executorService = executorService;
+        // Without a scheduler to end the batch windows, nothing is coalesced
+        this.publishCoalescer = new PublishCoalescer(null, this::spoolMessage);
         rootCaPath = Coerce.toString(deviceConfiguration.getRootCAFilePath());
         this.proxyTlsOptions = getTlsContextOptions(rootCaPath);
         this.proxyTlsContext = new ClientTlsContext(proxyTlsOptions);
@@ -412,6 +426,10 @@ public class MqttClient implements Closeable {
         // if maxPublishRetryCount = -1, publish request would be retried with unlimited times.
         maxPublishRetryCount =  Coerce.toInt(mqttTopics.findOrDefault(DEFAULT_MQTT_MAX_OF_PUBLISH_RETRY_COUNT,
                 MQTT_MAX_OF_PUBLISH_RETRY_COUNT_KEY));
+
+        publishRateLimitPolicy.configure(mqttTopics);
+        publishCoalescer.configure(mqttTopics, maxPublishMessageSize);
+        payloadCompressor.configure(mqttTopics, isMqtt5());
     }
 
     /**
@@ -443,10 +461,10 @@ public class MqttClient implements Closeable {
             Optional<Map.Entry<MqttTopic, IndividualMqttClient>> existingConnection =
                     findExistingSubscriberForTopic(request.getTopic());
             if (existingConnection.isPresent()) {
-                subscriptions.put(request, existingConnection.get().getValue());
+                putSubscription(request, existingConnection.get().getValue());
             } else {
                 connection = getConnection(true);
-                subscriptions.put(request, connection);
+                putSubscription(request, connection);
             }
         }
 
@@ -458,7 +476,7 @@ public class MqttClient implements Closeable {
                     if (t == null) {
                         subscriptionTopics.put(new MqttTopic(request.getTopic()), finalConnection);
                     } else {
-                        subscriptions.remove(request);
+                        removeSubscription(request);
                         logger.atError().kv(TOPIC_KEY, request.getTopic()).log("Error subscribing", t);
                     }
                 }
@@ -497,6 +515,29 @@ public class MqttClient implements Closeable {
                 .findAny();
     }
 
+    private void putSubscription(Subscribe request, IndividualMqttClient connection) {
+        IndividualMqttClient previous = subscriptions.put(request, connection);
+        if (previous != null && previous != connection) {
+            removeFromIndex(request, previous);
+        }
+        subscriptionsByClient.computeIfAbsent(connection, c -> new SubscriptionTrie<>())
+                .add(request.getTopic(), request);
+    }
+
+    private void removeSubscription(Subscribe request) {
+        IndividualMqttClient previous = subscriptions.remove(request);
+        if (previous != null) {
+            removeFromIndex(request, previous);
+        }
+    }
+
+    private void removeFromIndex(Subscribe request, IndividualMqttClient connection) {
+        SubscriptionTrie<Subscribe> index = subscriptionsByClient.get(connection);
+        if (index != null) {
+            index.remove(request.getTopic(), request);
+        }
+    }
+
     @SuppressFBWarnings("JLM_JSR166_UTILCONCURRENT_MONITORENTER")
     private void triggerSpooler() {
         // Do not synchronize on MqttClient because that causes a dead lock
@@ -527,7 +568,7 @@ public class MqttClient implements Closeable {
             for (Map.Entry<Subscribe, IndividualMqttClient> sub : subscriptions.entrySet()) {
                 if (sub.getKey().getCallback() == request.getSubscriptionCallback() && sub.getKey().getTopic()
                         .equals(request.getTopic())) {
-                    subscriptions.remove(sub.getKey());
+                    removeSubscription(sub.getKey());
                 }
 
             }
@@ -561,7 +602,7 @@ public class MqttClient implements Closeable {
                                             Optional<Map.Entry<MqttTopic, IndividualMqttClient>> subscriberForTopic =
                                                     findExistingSubscriberForTopic(e.getKey().getTopic());
                                             if (subscriberForTopic.isPresent()) {
-                                                subscriptions.put(e.getKey(), subscriberForTopic.get().getValue());
+                                                putSubscription(e.getKey(), subscriberForTopic.get().getValue());
                                             }
                                         });
                                 }
@@ -638,8 +679,9 @@ public class MqttClient implements Closeable {
         }
 
         try {
-            spool.addMessage(request);
-            triggerSpooler();
+            if (!publishCoalescer.offer(request)) {
+                spoolMessage(request);
+            }
         } catch (InterruptedException | SpoolerStoreException e) {
             logger.atDebug().log("Fail to add publish request to spooler queue", e);
             throw e;
@@ -647,6 +689,11 @@ public class MqttClient implements Closeable {
         return new PublishResponse();
     }
 
+    private void spoolMessage(Publish request) throws SpoolerStoreException, InterruptedException {
+        spool.addMessage(payloadCompressor.compress(request));
+        triggerSpooler();
+    }
+
     /**
      * Publish to a MQTT topic. The future will be completed immediately no matter what.
      * It only represents that the message has been successfully stored in the spooler.
@@ -709,131 +756,114 @@ public class MqttClient implements Closeable {
         }
     }
 
+    /**
+     * Publish a spooled message. It's removed from the spool once it's published or can't be published, otherwise
+     * its id goes back to the front of the spool queue to retry.
+     *
+     * @param connection     connection to publish with
+     * @param spooledMessage the spooled message
+     * @return future which completes when the message is published
+     * @throws InterruptedException if interrupted while publishing, in which case the caller puts the id back
+     */
     @SuppressWarnings({"PMD.AvoidCatchingThrowable", "PMD.PreserveStackTrace"})
-    protected CompletableFuture<PubAck> publishSingleSpoolerMessage(IndividualMqttClient connection)
+    protected CompletableFuture<PubAck> publishSpoolerMessage(IndividualMqttClient connection,
+                                                              SpoolMessage spooledMessage)
             throws InterruptedException {
-        long id = -1L;
+        long id = spooledMessage.getId();
+        Publish request = spooledMessage.getRequest();
+        CompletableFuture<PubAck> published;
         try {
-            id = spool.popId();
-            SpoolMessage spooledMessage = spool.getMessageById(id);
-            Publish request = spooledMessage.getRequest();
-
-            long finalId = id;
-            return connection.publish(request)
-                    .whenComplete((response, throwable) -> {
-                        if (throwable == null && (response == null || response.isSuccessful())) {
-                            spool.removeMessageById(finalId);
-                            logger.atTrace().kv("id", finalId).kv("topic", request.getTopic())
-                                    .log("Successfully published message");
-                        } else {
-                            // Handle reason codes by retrying (or not)
-                            if (response != null && !response.isSuccessful()) {
-                                int rc = response.getReasonCode();
-                                // If the error isn't retryable, then remove the message to stop
-                                // retrying it and log the problem.
-                                if (nonRetryablePubAckReasonCodes.contains(rc)) {
-                                    spool.removeMessageById(finalId);
-                                    logger.atInfo()
-                                            .kv("reasonCode", response.getReasonCode())
-                                            .kv("reason", response.getReasonString())
-                                            .kv(TOPIC_KEY, request.getTopic())
-                                            .log("Publishing message got a non-retryable reason code, not retrying");
-                                }
-                                // otherwise, fallthrough and let it retry
-                            }
-                            if (maxPublishRetryCount == -1 || spooledMessage.getRetried().getAndIncrement()
-                                    < maxPublishRetryCount) {
-                                spool.addId(finalId);
-                                LogEventBuilder l = logger.atError();
-                                if (response != null) {
-                                    l = l.kv("reasonCode", response.getReasonCode())
-                                         .kv("reason", response.getReasonString());
-                                }
-                                if (throwable != null) {
-                                    l = l.cause(throwable);
-                                }
-                                l.log("Failed to publish the message via Spooler and will retry");
-                            } else {
-                                LogEventBuilder l = logger.atError();
-                                if (response != null) {
-                                    l = l.kv("reasonCode", response.getReasonCode())
-                                          .kv("reason", response.getReasonString());
-                                }
-                                if (throwable != null) {
-                                    l = l.cause(throwable);
-                                }
-                                l.log("Failed to publish the message via Spooler"
-                                                + " after retried {} times and will drop the message",
-                                        maxPublishRetryCount);
-                                spool.removeMessageById(finalId);
-                            }
-
-                        }
-                    });
+            published = connection.publish(request);
         } catch (Throwable t) {
-            // valid id is starting from 0
-            if (id >= 0) {
-                spool.addId(id);
-            }
-
             if (Utils.getUltimateCause(t) instanceof InterruptedException) {
                 throw new InterruptedException("Interrupted while publishing from spooler");
             }
-
-            CompletableFuture<PubAck> fut = new CompletableFuture<>();
-            fut.completeExceptionally(t);
-            return fut;
+            // retried like any other failed publish
+            published = new CompletableFuture<>();
+            published.completeExceptionally(t);
         }
+        return published.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                publishRateLimitPolicy.onPublishAcknowledged(response);
+            }
+            if (throwable == null && (response == null || response.isSuccessful())) {
+                spool.removeMessageById(id);
+                spoolerPublishedMessages.increment();
+                logger.atTrace().kv("id", id).kv("topic", request.getTopic())
+                        .log("Successfully published message");
+            } else {
+                // Handle reason codes by retrying (or not)
+                if (response != null && !response.isSuccessful()) {
+                    int rc = response.getReasonCode();
+                    // If the error isn't retryable, then remove the message to stop
+                    // retrying it and log the problem.
+                    if (nonRetryablePubAckReasonCodes.contains(rc)) {
+                        spool.removeMessageById(id);
+                        logger.atInfo()
+                                .kv("reasonCode", response.getReasonCode())
+                                .kv("reason", response.getReasonString())
+                                .kv(TOPIC_KEY, request.getTopic())
+                                .log("Publishing message got a non-retryable reason code, not retrying");
+                    }
+                    // otherwise, fallthrough and let it retry
+                }
+                if (maxPublishRetryCount == -1 || spooledMessage.getRetried().getAndIncrement()
+                        < maxPublishRetryCount) {
+                    spool.addId(id);
+                    LogEventBuilder l = logger.atError();
+                    if (response != null) {
+                        l = l.kv("reasonCode", response.getReasonCode())
+                             .kv("reason", response.getReasonString());
+                    }
+                    if (throwable != null) {
+                        l = l.cause(throwable);
+                    }
+                    l.log("Failed to publish the message via Spooler and will retry");
+                } else {
+                    LogEventBuilder l = logger.atError();
+                    if (response != null) {
+                        l = l.kv("reasonCode", response.getReasonCode())
+                              .kv("reason", response.getReasonString());
+                    }
+                    if (throwable != null) {
+                        l = l.cause(throwable);
+                    }
+                    l.log("Failed to publish the message via Spooler"
+                                    + " after retried {} times and will drop the message",
+                            maxPublishRetryCount);
+                    spool.removeMessageById(id);
+                }
+
+            }
+        });
     }
 
     /**
      * Iterate the spooler queue to publish all the spooled message.
+     *
+     * <p>Ids are popped in batches of as many messages as the connections have room for in flight. Each message goes
+     * to the connection with room which gets tokens from its rate limiters the soonest, so the connections are only
+     * looked up again when there is none left.</p>
      */
-    @SuppressWarnings({"PMD.AvoidCatchingThrowable", "PMD.CloseResource"})
-    @SuppressFBWarnings("JLM_JSR166_UTILCONCURRENT_MONITORENTER")
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
     protected void runSpooler() {
-        // Do not use CompletableFuture.anyOf to wait for this set to have space
-        // due to https://bugs.openjdk.java.net/browse/JDK-8160402 this will cause
+        // Count the in flight publishes of each connection instead of keeping their futures around to wait on
+        // since due to https://bugs.openjdk.java.net/browse/JDK-8160402 CompletableFuture.anyOf would cause
         // a memory leak. See PR #881 for additional context.
-        Set<CompletableFuture<?>> publishRequests = ConcurrentHashMap.newKeySet();
+        Map<IndividualMqttClient, AtomicInteger> inFlightPublishes = new ConcurrentHashMap<>();
         while (!Thread.currentThread().isInterrupted()) {
             try {
                 getConnection(false).connect().get();
                 while (mqttOnline.get()) {
-                    synchronized (publishRequests) {
-                        // Wait for number of outstanding requests to decrease
-                        while (publishRequests.size() >= maxInFlightPublishes) {
-                            publishRequests.wait();
-                        }
-                    }
-
-                    // Select connection with minimum time to wait before publishing the next message
-                    IndividualMqttClient connection = getConnection(false);
-                    long minimumWaitTimeMicros = connection.getThrottlingWaitTimeMicros();
-                    for (IndividualMqttClient client : connections) {
-                        long waitTime = client.getThrottlingWaitTimeMicros();
-                        if (waitTime < minimumWaitTimeMicros) {
-                            connection = client;
-                            minimumWaitTimeMicros = waitTime;
-                        }
+                    // Read the next messages ahead while the previous ones are still being published
+                    spool.prefetch();
+                    int freePublishSlots = waitForFreePublishSlots(inFlightPublishes);
+                    if (freePublishSlots > 0) {
+                        publishSpoolerBatch(spool.popIds(freePublishSlots), inFlightPublishes);
+                    } else {
+                        // All connections are gone, get a new one
+                        getConnection(false);
                     }
-                    // Wait here in this thread so that we do not block the AWS CRT's event loop
-                    // which could delay the processing of other requests.
-                    // After this sleep time we will call acquire to take the tokens from the bucket
-                    // since we haven't taken them out yet; we've only queried when we'd be able to take
-                    // them without blocking. Since we have done the sleeping here, the acquire
-                    // is guaranteed to not block.
-                    TimeUnit.MICROSECONDS.sleep(minimumWaitTimeMicros);
-
-                    CompletableFuture<PubAck> future = publishSingleSpoolerMessage(connection);
-                    publishRequests.add(future);
-                    future.whenComplete((i, t) -> {
-                        // Notify the possible waiter that the size has changed
-                        synchronized (publishRequests) {
-                            publishRequests.remove(future);
-                            publishRequests.notifyAll();
-                        }
-                    });
                 }
                 break;
             } catch (ExecutionException e) {
@@ -852,6 +882,134 @@ public class MqttClient implements Closeable {
         }
     }
 
+    /**
+     * Wait until at least one connection has room for another in flight publish.
+     *
+     * @return number of publishes the connections have room for, 0 if there are no connections
+     */
+    @SuppressFBWarnings("JLM_JSR166_UTILCONCURRENT_MONITORENTER")
+    private int waitForFreePublishSlots(Map<IndividualMqttClient, AtomicInteger> inFlightPublishes)
+            throws InterruptedException {
+        synchronized (inFlightPublishes) {
+            while (true) {
+                if (connections.isEmpty()) {
+                    return 0;
+                }
+                // Forget the connections which were closed
+                inFlightPublishes.keySet().retainAll(connections);
+                int free = 0;
+                for (IndividualMqttClient connection : connections) {
+                    free += Math.max(0, maxInFlightPublishes - getInFlightCount(inFlightPublishes, connection));
+                }
+                if (free > 0) {
+                    return free;
+                }
+                inFlightPublishes.wait();
+            }
+        }
+    }
+
+    /**
+     * Publish a batch of spooled messages, putting the ids which aren't published back at the front of the queue if
+     * the connection drops or the spooler is interrupted.
+     */
+    @SuppressWarnings("PMD.CloseResource")
+    @SuppressFBWarnings("JLM_JSR166_UTILCONCURRENT_MONITORENTER")
+    private void publishSpoolerBatch(List<Long> ids, Map<IndividualMqttClient, AtomicInteger> inFlightPublishes)
+            throws InterruptedException {
+        int next = 0;
+        try {
+            while (next < ids.size() && mqttOnline.get()) {
+                SpoolMessage spooledMessage = spool.getMessageById(ids.get(next));
+                if (spooledMessage == null) {
+                    // removed since it was queued, e.g. dropped while offline
+                    next++;
+                    continue;
+                }
+                // Select the connection with room which needs the least time to wait before publishing the next
+                // message
+                IndividualMqttClient connection = null;
+                long minimumWaitTimeMicros = Long.MAX_VALUE;
+                for (IndividualMqttClient client : connections) {
+                    if (getInFlightCount(inFlightPublishes, client) >= maxInFlightPublishes) {
+                        continue;
+                    }
+                    long waitTime = client.getThrottlingWaitTimeMicros(spooledMessage.getRequest());
+                    if (waitTime < minimumWaitTimeMicros) {
+                        connection = client;
+                        minimumWaitTimeMicros = waitTime;
+                    }
+                }
+                if (connection == null) {
+                    // The connections changed since the batch was popped
+                    break;
+                }
+                // Wait here in this thread so that we do not block the AWS CRT's event loop
+                // which could delay the processing of other requests.
+                // After this sleep time we will call acquire to take the tokens from the bucket
+                // since we haven't taken them out yet; we've only queried when we'd be able to take
+                // them without blocking. Since we have done the sleeping here, the acquire
+                // is guaranteed to not block.
+                TimeUnit.MICROSECONDS.sleep(minimumWaitTimeMicros);
+
+                AtomicInteger inFlight = inFlightPublishes.computeIfAbsent(connection, c -> new AtomicInteger());
+                inFlight.incrementAndGet();
+                CompletableFuture<PubAck> future;
+                try {
+                    future = publishSpoolerMessage(connection, spooledMessage);
+                } catch (InterruptedException e) {
+                    inFlight.decrementAndGet();
+                    throw e;
+                }
+                next++;
+                future.whenComplete((i, t) -> {
+                    inFlight.decrementAndGet();
+                    // Notify the possible waiter that there is room again
+                    synchronized (inFlightPublishes) {
+                        inFlightPublishes.notifyAll();
+                    }
+                });
+            }
+        } finally {
+            // Put back what is left, including a message which was interrupted while publishing, in reverse so that
+            // the oldest message stays at the front
+            for (int i = ids.size() - 1; i >= next; i--) {
+                spool.addId(ids.get(i));
+            }
+        }
+    }
+
+    private int getInFlightCount(Map<IndividualMqttClient, AtomicInteger> inFlightPublishes,
+                                 IndividualMqttClient connection) {
+        AtomicInteger inFlight = inFlightPublishes.get(connection);
+        return inFlight == null ? 0 : inFlight.get();
+    }
+
+    /**
+     * Get the publish rates in effect and the number of publishes which were throttled since the previous call.
+     *
+     * @return publish rate limit metrics
+     */
+    public PublishRateLimitMetrics collectPublishRateLimitMetrics() {
+        return publishRateLimitPolicy.collectMetrics();
+    }
+
+    /**
+     * Get the number of spooled messages published since the previous call, how fast they were published and the
+     * backlog which is left.
+     *
+     * @return spooler drain metrics
+     */
+    public SpoolerDrainMetrics collectSpoolerDrainMetrics() {
+        long now = System.nanoTime();
+        long publishedMessages = spoolerPublishedMessages.sumThenReset();
+        long elapsedNanos = now - lastSpoolerDrainMetricsNanos.getAndSet(now);
+        double publishRate = elapsedNanos <= 0 ? 0 : publishedMessages * (double) TimeUnit.SECONDS.toNanos(1)
+                / elapsedNanos;
+        return new SpoolerDrainMetrics(publishedMessages, publishRate, spool.getCurrentMessageCount(),
+                spool.getOldestMessageAgeMillis());
+    }
+
     @SuppressWarnings("PMD.CloseResource")
     private synchronized IndividualMqttClient getConnection(boolean forSubscription) {
         // If we have no connections, or our connections are over-subscribed, create a new connection
@@ -878,6 +1036,7 @@ public class MqttClient implements Closeable {
                     closableConnection.close();
                     activeClientIds.remove(closableConnection.getClientIdNum());
                     connections.remove(closableConnection);
+                    subscriptionsByClient.remove(closableConnection);
                 }
             } else {
                 logger.atTrace().log("Number of connections that can add subscriptions is 1");
@@ -906,26 +1065,20 @@ public class MqttClient implements Closeable {
             // multiple clients such as A/B and A/#. Without this, an update to A/B would
             // trigger twice if those 2 subscriptions were in different clients because
             // both will receive the message from the cloud and call this handler.
-            Predicate<Map.Entry<Subscribe, IndividualMqttClient>> subscriptionsMatchingTopic =
-                    s -> MqttTopic.topicIsSupersetOf(s.getKey().getTopic(), message.getTopic());
-
-            Set<Subscribe> exactlyMatchingSubs = subscriptions.entrySet().stream()
-                    .filter(s -> s.getValue() == client)
-                    .filter(subscriptionsMatchingTopic)
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toSet());
-            Set<Subscribe> subs = exactlyMatchingSubs;
-            if (exactlyMatchingSubs.isEmpty()) {
+            SubscriptionTrie<Subscribe> clientSubscriptions = subscriptionsByClient.get(client);
+            Set<Subscribe> subs = clientSubscriptions == null ? Collections.emptySet()
+                    : clientSubscriptions.get(message.getTopic());
+            if (subs.isEmpty()) {
                 // We found no exact matches which means that we received a message on the wrong client, or
                 // we had no subscribers at all for the topic. We will now check if there is some subscriber
                 // which was in a different client. This can happen for IoT Jobs because they send the update/accepted
                 // message back to the same client which sent the update request, and not to the client that has
                 // subscribed to the update/accepted topic.
 
-                subs = subscriptions.entrySet().stream()
-                        .filter(subscriptionsMatchingTopic)
-                        .map(Map.Entry::getKey)
-                        .collect(Collectors.toSet());
+                subs = new HashSet<>();
+                for (SubscriptionTrie<Subscribe> otherClientSubscriptions : subscriptionsByClient.values()) {
+                    subs.addAll(otherClientSubscriptions.get(message.getTopic()));
+                }
 
                 if (subs.isEmpty()) {
                     // We found no subscribers at all, so we'll log out an error and exit.
@@ -968,8 +1121,7 @@ public class MqttClient implements Closeable {
                 : "#" + (clientIdNum + 1));
         logger.atDebug().kv("clientId", clientId).log("Getting new MQTT connection");
 
-        String mqttVersion = Coerce.toString(mqttTopics.findOrDefault(DEFAULT_MQTT_VERSION, "version"));
-        if ("mqtt5".equalsIgnoreCase(mqttVersion)) {
+        if (isMqtt5()) {
             return new AwsIotMqtt5Client(() -> {
                 try {
                     return builderProvider.apply(clientBootstrap).toAwsIotMqtt5ClientBuilder();
@@ -977,11 +1129,16 @@ public class MqttClient implements Closeable {
                     throw new RuntimeException(e);
                 }
             }, this::getMessageHandlerForClient, clientId, clientIdNum, mqttTopics, callbackEventManager,
-                    executorService, ses);
+                    executorService, ses, publishRateLimitPolicy.newConnectionLimiter());
         }
 
         return new AwsIotMqttClient(() -> builderProvider.apply(clientBootstrap), this::getMessageHandlerForClient,
-                clientId, clientIdNum, mqttTopics, callbackEventManager, executorService, ses);
+                clientId, clientIdNum, mqttTopics, callbackEventManager, executorService, ses,
+                publishRateLimitPolicy.newConnectionLimiter());
+    }
+
+    private boolean isMqtt5() {
+        return "mqtt5".equalsIgnoreCase(Coerce.toString(mqttTopics.findOrDefault(DEFAULT_MQTT_VERSION, "version")));
     }
 
     public boolean connected() {
@@ -991,12 +1148,15 @@ public class MqttClient implements Closeable {
     @Override
     public synchronized void close() {
         isClosed.set(true);
+        // Spool the messages waiting to be coalesced before the spool is closed
+        publishCoalescer.flushAll();
         // Shut down spooler and then no more message will be published
         if (spoolingFuture.get() != null) {
             spoolingFuture.get().cancel(true);
         }
 
         connections.forEach(IndividualMqttClient::closeOnShutdown);
+        spool.close();
         if (proxyTlsOptions != null) {
             proxyTlsOptions.close();
         }
@@ -0,0 +1,226 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.builtin.services.pubsub.SubscriptionTrie;
+import com.aws.greengrass.config.Topics;
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.UserProperty;
+import com.aws.greengrass.util.Coerce;
+import com.aws.greengrass.util.Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the payloads of messages published to the topics configured under {@code mqtt.compression}.
+ *
+ * <p>Payloads are compressed with deflate in the zlib format, by default with a preset dictionary of the JSON keys and
+ * values common to fleet status and telemetry messages. A compressed message carries the
+ * {@code content-encoding: deflate} user property, and its zlib header carries the Adler-32 checksum of the dictionary
+ * returned by {@link #getDictionary()} if one was used, so that subscribers know how to inflate it. Since the
+ * signal is an MQTT 5 user property, nothing is compressed over MQTT 3.1.1.</p>
+ *
+ * <p>Messages are compressed before they are spooled, so that the spool holds more of them within its size. A payload
+ * is only replaced if compressing it makes it smaller.</p>
+ */
+public class PayloadCompressor {
+    private static final Logger logger = LogManager.getLogger(PayloadCompressor.class);
+    static final String COMPRESSION_KEY = "compression";
+    static final String TOPICS_KEY = "topics";
+    static final String MIN_PAYLOAD_SIZE_IN_BYTES_KEY = "minPayloadSizeInBytes";
+    static final String LEVEL_KEY = "level";
+    static final String USE_DICTIONARY_KEY = "useDictionary";
+    public static final String CONTENT_ENCODING_PROPERTY = "content-encoding";
+    public static final String DEFLATE_ENCODING = "deflate";
+    static final int DEFAULT_MIN_PAYLOAD_SIZE_IN_BYTES = 256;
+    static final int DEFAULT_LEVEL = 6;
+
+    // Deflate refers back up to 32 KB, and favors the strings closest to the end, so the most common ones go last
+    private static final byte[] DICTIONARY = ("\"Count\":\"Max\":\"Min\":\"Average\":\"U\":\"Percent\"},"
+            + "{\"N\":\"TotalNumberOfFDs\",\"SystemMemUsage\",\"Megabytes\"},{\"N\":\"CpuUsage\",\"Sum\":"
+            + "{\"Schema\":\"2022-06-30\",\"ADP\":[{\"TS\":,\"NS\":\"SystemMetrics\",\"M\":[{\"N\":"
+            + "\"NumberOfComponentsInstalled\","
+            + "\"NumberOfComponentsRunning\",\"NumberOfComponentsFinished\",\"NumberOfComponentsErrored\","
+            + "\"NumberOfComponentsBroken\",\"U\":\"Count\"}]},{\"TS\":,\"NS\":\"GreengrassComponents\",\"M\":[{\"N\":"
+            + "\"deploymentInformation\":{\"status\":\"SUCCEEDED\",\"statusDetails\":{\"detailedStatus\":"
+            + "\"SUCCESSFUL\",\"failureCause\":null,\"errorStack\":null,\"errorTypes\":null},"
+            + "\"fleetConfigurationArnForStatus\":\"arn:aws:greengrass:\",\"deploymentId\":\""
+            + "\",\"unchangedRootComponents\":[]},\"ggcVersion\":\"2.\",\"platform\":\"linux\",\"architecture\":"
+            + "\"amd64\",\"aarch64\",\"arm\",\"thing\":\"\",\"overallDeviceStatus\":\"HEALTHY\",\"sequenceNumber\":"
+            + ",\"timestamp\":,\"messageType\":\"COMPLETE\",\"PARTIAL\",\"trigger\":\"CADENCE\",\"NUCLEUS_LAUNCH\","
+            + "\"THING_GROUP_DEPLOYMENT\",\"chunkInfo\":{\"chunkId\":,\"totalChunks\":},\"components\":[{"
+            + "\"componentStatusDetails\":{\"statusCodes\":[],\"statusReason\":\"\"},\"status\":\"FINISHED\"},{"
+            + "\"componentName\":\"aws.greengrass.\",\"version\":\"2.\",\"fleetConfigArns\":["
+            + "\"arn:aws:greengrass:us-east-1::configuration:thinggroup/\"],\"isRoot\":true,\"isRoot\":false,"
+            + "\"componentStatusDetails\":null,\"status\":\"RUNNING\"},{\"componentName\":\"")
+            .getBytes(StandardCharsets.UTF_8);
+
+    // null when compression is off
+    private volatile SubscriptionTrie<String> topicFilters;
+    private volatile int minPayloadSizeInBytes = DEFAULT_MIN_PAYLOAD_SIZE_IN_BYTES;
+    private volatile int level = DEFAULT_LEVEL;
+    private volatile boolean useDictionary = true;
+
+    /**
+     * Read the compression configuration.
+     *
+     * @param mqttTopics MQTT configuration namespace
+     * @param mqtt5      whether the connections use MQTT 5, without which nothing is compressed
+     */
+    public void configure(Topics mqttTopics, boolean mqtt5) {
+        List<String> filters = Coerce.toStringList(mqttTopics.findOrDefault(null, COMPRESSION_KEY, TOPICS_KEY));
+        if (filters.isEmpty()) {
+            topicFilters = null;
+            return;
+        }
+        if (!mqtt5) {
+            logger.atWarn().kv(TOPICS_KEY, filters)
+                    .log("Payload compression requires MQTT 5 to signal it, not compressing any payloads");
+            topicFilters = null;
+            return;
+        }
+        SubscriptionTrie<String> trie = new SubscriptionTrie<>();
+        for (String filter : filters) {
+            if (Utils.isNotEmpty(filter)) {
+                trie.add(filter, filter);
+            }
+        }
+        minPayloadSizeInBytes = Coerce.toInt(mqttTopics.findOrDefault(DEFAULT_MIN_PAYLOAD_SIZE_IN_BYTES,
+                COMPRESSION_KEY, MIN_PAYLOAD_SIZE_IN_BYTES_KEY));
+        int configuredLevel = Coerce.toInt(mqttTopics.findOrDefault(DEFAULT_LEVEL, COMPRESSION_KEY, LEVEL_KEY));
+        if (configuredLevel < Deflater.BEST_SPEED || configuredLevel > Deflater.BEST_COMPRESSION) {
+            logger.atWarn().kv(LEVEL_KEY, configuredLevel)
+                    .log("The compression level must be from 1 to 9. Will use the default: {}", DEFAULT_LEVEL);
+            configuredLevel = DEFAULT_LEVEL;
+        }
+        level = configuredLevel;
+        useDictionary = Coerce.toBoolean(mqttTopics.findOrDefault(true, COMPRESSION_KEY, USE_DICTIONARY_KEY));
+        topicFilters = trie.size() == 0 ? null : trie;
+    }
+
+    /**
+     * Compress the payload of a message if its topic is configured for compression.
+     *
+     * @param publish message to publish
+     * @return message with the compressed payload, or the given message if it isn't compressed
+     */
+    public Publish compress(Publish publish) {
+        SubscriptionTrie<String> filters = topicFilters;
+        byte[] payload = publish.getPayload();
+        if (filters == null || payload == null || payload.length < minPayloadSizeInBytes || isEncoded(publish)
+                || filters.get(publish.getTopic()).isEmpty()) {
+            return publish;
+        }
+        byte[] compressed = deflate(payload, level, useDictionary);
+        if (compressed == null) {
+            return publish;
+        }
+        List<UserProperty> userProperties = new ArrayList<>();
+        if (publish.getUserProperties() != null) {
+            userProperties.addAll(publish.getUserProperties());
+        }
+        userProperties.add(new UserProperty(CONTENT_ENCODING_PROPERTY, DEFLATE_ENCODING));
+        // the payload is no longer UTF-8, while the content type still describes the inflated payload
+        return Publish.builder().topic(publish.getTopic()).qos(publish.getQos()).retain(publish.isRetain())
+                .payload(compressed).messageExpiryIntervalSeconds(publish.getMessageExpiryIntervalSeconds())
+                .responseTopic(publish.getResponseTopic()).correlationData(publish.getCorrelationData())
+                .contentType(publish.getContentType()).userProperties(userProperties).build();
+    }
+
+    /**
+     * Get the preset dictionary which payloads are compressed with.
+     *
+     * @return copy of the dictionary
+     */
+    public static byte[] getDictionary() {
+        return DICTIONARY.clone();
+    }
+
+    /**
+     * Inflate a payload compressed by this class, with or without the dictionary.
+     *
+     * @param payload compressed payload
+     * @return inflated payload
+     * @throws DataFormatException if the payload isn't in the zlib format or needs a different dictionary
+     */
+    public static byte[] decompress(byte[] payload) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0) {
+                    if (inflater.needsDictionary()) {
+                        setDictionary(inflater);
+                    } else if (inflater.needsInput()) {
+                        throw new DataFormatException("Truncated payload");
+                    }
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void setDictionary(Inflater inflater) throws DataFormatException {
+        try {
+            inflater.setDictionary(DICTIONARY);
+        } catch (IllegalArgumentException e) {
+            throw new DataFormatException("Payload was compressed with a different dictionary");
+        }
+    }
+
+    /**
+     * Deflate a payload in the zlib format.
+     *
+     * @param payload       payload to compress
+     * @param level         compression level from 1 to 9
+     * @param useDictionary whether to use the preset dictionary
+     * @return compressed payload, or null if it isn't smaller than the payload
+     */
+    static byte[] deflate(byte[] payload, int level, boolean useDictionary) {
+        Deflater deflater = new Deflater(level);
+        try {
+            if (useDictionary) {
+                deflater.setDictionary(DICTIONARY);
+            }
+            deflater.setInput(payload);
+            deflater.finish();
+            byte[] buffer = new byte[payload.length];
+            int length = 0;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return deflater.finished() && length < buffer.length ? Arrays.copyOf(buffer, length) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static boolean isEncoded(Publish publish) {
+        if (publish.getUserProperties() != null) {
+            for (UserProperty property : publish.getUserProperties()) {
+                if (CONTENT_ENCODING_PROPERTY.equalsIgnoreCase(property.getKey())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
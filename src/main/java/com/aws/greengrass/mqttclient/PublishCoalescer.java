@@ -0,0 +1,267 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.builtin.services.pubsub.SubscriptionTrie;
+import com.aws.greengrass.config.Topics;
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.mqttclient.spool.SpoolerStoreException;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.util.Coerce;
+import com.aws.greengrass.util.Pair;
+import com.aws.greengrass.util.Utils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces messages published to the same topic with the same QoS into batch messages, configured under
+ * {@code mqtt.coalescing}.
+ *
+ * <p>Coalescing is opt-in for the topics matching the configured topic filters. Messages are held for up to
+ * {@code windowMs} or until the framed batch reaches {@code maxBatchSizeInBytes}, and then spooled as a single message
+ * so that a batch counts as one publish against the rate limits and survives offline periods like any other spooled
+ * message. Messages with properties which can't be shared by a batch, such as retained messages or messages with user
+ * properties, are published on their own.</p>
+ *
+ * <p>A message which is accepted into a batch is lost if the batch can't be spooled when its window ends, in which case
+ * the error is logged.</p>
+ */
+public class PublishCoalescer {
+    private static final Logger logger = LogManager.getLogger(PublishCoalescer.class);
+    static final String COALESCING_KEY = "coalescing";
+    static final String TOPICS_KEY = "topics";
+    static final String WINDOW_MS_KEY = "windowMs";
+    static final String MAX_BATCH_SIZE_IN_BYTES_KEY = "maxBatchSizeInBytes";
+    static final String FRAMING_KEY = "framing";
+    static final long DEFAULT_WINDOW_MS = 100;
+    static final int DEFAULT_MAX_BATCH_SIZE_IN_BYTES = 16 * 1024;
+    private static final int LENGTH_PREFIX_SIZE = Integer.BYTES;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ScheduledExecutorService ses;
+    private final BatchPublisher publisher;
+    // null when coalescing is off
+    private volatile SubscriptionTrie<String> topicFilters;
+    private volatile long windowMillis = DEFAULT_WINDOW_MS;
+    private volatile int maxBatchSizeInBytes = DEFAULT_MAX_BATCH_SIZE_IN_BYTES;
+    private volatile CoalescingFraming framing = CoalescingFraming.LengthPrefixed;
+    private final Map<Pair<String, QOS>, Batch> batches = new LinkedHashMap<>();
+
+    /**
+     * Spools a batch message.
+     */
+    @FunctionalInterface
+    interface BatchPublisher {
+        void publish(Publish batch) throws SpoolerStoreException, InterruptedException;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ses       executor to end the batch windows on, coalescing is off without one
+     * @param publisher spools the batch messages
+     */
+    PublishCoalescer(ScheduledExecutorService ses, BatchPublisher publisher) {
+        this.ses = ses;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Read the coalescing configuration. Batches which are being filled are spooled first, so that each batch is
+     * framed in one way.
+     *
+     * @param mqttTopics            MQTT configuration namespace
+     * @param maxPublishMessageSize maximum size of a message, which bounds the size of a batch
+     */
+    public synchronized void configure(Topics mqttTopics, int maxPublishMessageSize) {
+        flushAll();
+        List<String> filters = Coerce.toStringList(mqttTopics.findOrDefault(null, COALESCING_KEY, TOPICS_KEY));
+        if (ses == null || filters.isEmpty()) {
+            topicFilters = null;
+            return;
+        }
+        SubscriptionTrie<String> trie = new SubscriptionTrie<>();
+        for (String filter : filters) {
+            if (Utils.isNotEmpty(filter)) {
+                trie.add(filter, filter);
+            }
+        }
+        windowMillis = Math.max(1, Coerce.toLong(mqttTopics.findOrDefault(DEFAULT_WINDOW_MS, COALESCING_KEY,
+                WINDOW_MS_KEY)));
+        maxBatchSizeInBytes = Math.min(maxPublishMessageSize, Coerce.toInt(mqttTopics.findOrDefault(
+                DEFAULT_MAX_BATCH_SIZE_IN_BYTES, COALESCING_KEY, MAX_BATCH_SIZE_IN_BYTES_KEY)));
+        framing = Coerce.toEnum(CoalescingFraming.class, mqttTopics.findOrDefault(CoalescingFraming.LengthPrefixed,
+                COALESCING_KEY, FRAMING_KEY), CoalescingFraming.LengthPrefixed);
+        topicFilters = trie.size() == 0 ? null : trie;
+    }
+
+    /**
+     * Add a message to the batch of its topic if it is coalesced.
+     *
+     * @param publish message to publish
+     * @return true if the message was added to a batch, false if it is to be published on its own
+     * @throws SpoolerStoreException if a full batch can't be spooled
+     * @throws InterruptedException  if interrupted while spooling a full batch
+     */
+    public boolean offer(Publish publish) throws SpoolerStoreException, InterruptedException {
+        SubscriptionTrie<String> filters = topicFilters;
+        if (filters == null || filters.get(publish.getTopic()).isEmpty()) {
+            return false;
+        }
+        byte[] payload = publish.getPayload() == null ? new byte[0] : publish.getPayload();
+        CoalescingFraming currentFraming = framing;
+        boolean coalescable = hasNoMessageProperties(publish)
+                && (currentFraming != CoalescingFraming.JsonArray || isJson(payload));
+        Pair<String, QOS> key = new Pair<>(publish.getTopic(), publish.getQos());
+        synchronized (this) {
+            Batch batch = batches.get(key);
+            if (!coalescable || Batch.framedSize(currentFraming, 1, payload.length) > maxBatchSizeInBytes) {
+                // Spool what came before first to keep the order of the messages
+                if (batch != null) {
+                    flush(key, batch);
+                }
+                return false;
+            }
+            if (batch != null && batch.sizeWith(payload) > maxBatchSizeInBytes) {
+                flush(key, batch);
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(currentFraming);
+                batches.put(key, batch);
+                Batch scheduled = batch;
+                batch.timer = ses.schedule(() -> flushWindow(key, scheduled), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.add(payload);
+        }
+        return true;
+    }
+
+    /**
+     * Spool all the batches which are being filled.
+     */
+    public synchronized void flushAll() {
+        Iterator<Map.Entry<Pair<String, QOS>, Batch>> iterator = batches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Pair<String, QOS>, Batch> entry = iterator.next();
+            iterator.remove();
+            entry.getValue().timer.cancel(false);
+            try {
+                publisher.publish(entry.getValue().toPublish(entry.getKey()));
+            } catch (SpoolerStoreException e) {
+                logBatchLost(entry.getKey(), entry.getValue(), e);
+            } catch (InterruptedException e) {
+                logBatchLost(entry.getKey(), entry.getValue(), e);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized void flushWindow(Pair<String, QOS> key, Batch batch) {
+        if (batches.get(key) != batch) {
+            // already spooled since it was full
+            return;
+        }
+        try {
+            flush(key, batch);
+        } catch (SpoolerStoreException | InterruptedException e) {
+            logBatchLost(key, batch, e);
+        }
+    }
+
+    private void flush(Pair<String, QOS> key, Batch batch) throws SpoolerStoreException, InterruptedException {
+        batches.remove(key);
+        batch.timer.cancel(false);
+        publisher.publish(batch.toPublish(key));
+    }
+
+    private static void logBatchLost(Pair<String, QOS> key, Batch batch, Exception e) {
+        logger.atError().kv(AwsIotMqttClient.TOPIC_KEY, key.getLeft()).kv("messages", batch.payloads.size())
+                .setCause(e).log("Unable to spool coalesced messages, dropping them");
+    }
+
+    private static boolean hasNoMessageProperties(Publish publish) {
+        return !publish.isRetain() && publish.getMessageExpiryIntervalSeconds() == null
+                && publish.getResponseTopic() == null && publish.getCorrelationData() == null
+                && publish.getContentType() == null && Utils.isEmpty(publish.getUserProperties());
+    }
+
+    private static boolean isJson(byte[] payload) {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() == null) {
+                return false;
+            }
+            parser.skipChildren();
+            // a single value and nothing after it
+            return parser.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static final class Batch {
+        private final CoalescingFraming framing;
+        private final List<byte[]> payloads = new ArrayList<>();
+        private int payloadSizeInBytes;
+        private ScheduledFuture<?> timer;
+
+        Batch(CoalescingFraming framing) {
+            this.framing = framing;
+        }
+
+        static int framedSize(CoalescingFraming framing, int count, int payloadSizeInBytes) {
+            if (framing == CoalescingFraming.JsonArray) {
+                // brackets and commas
+                return payloadSizeInBytes + 2 + Math.max(0, count - 1);
+            }
+            return payloadSizeInBytes + count * LENGTH_PREFIX_SIZE;
+        }
+
+        int sizeWith(byte[] payload) {
+            return framedSize(framing, payloads.size() + 1, payloadSizeInBytes + payload.length);
+        }
+
+        void add(byte[] payload) {
+            payloads.add(payload);
+            payloadSizeInBytes += payload.length;
+        }
+
+        Publish toPublish(Pair<String, QOS> key) {
+            ByteBuffer buffer = ByteBuffer.allocate(framedSize(framing, payloads.size(), payloadSizeInBytes));
+            if (framing == CoalescingFraming.JsonArray) {
+                buffer.put((byte) '[');
+                for (int i = 0; i < payloads.size(); i++) {
+                    if (i > 0) {
+                        buffer.put((byte) ',');
+                    }
+                    buffer.put(payloads.get(i));
+                }
+                buffer.put((byte) ']');
+            } else {
+                for (byte[] payload : payloads) {
+                    buffer.putInt(payload.length);
+                    buffer.put(payload);
+                }
+            }
+            return Publish.builder().topic(key.getLeft()).qos(key.getRight()).payload(buffer.array())
+                    .payloadFormat(framing == CoalescingFraming.JsonArray ? Publish.PayloadFormatIndicator.UTF8
+                            : null).build();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import lombok.Value;
+
+/**
+ * Publish rates in effect for each connection, 0 when unlimited, and the publishes throttled by AWS IoT Core since the
+ * previous collection.
+ */
+@Value
+public class PublishRateLimitMetrics {
+    double publishesPerSecondPerConnection;
+    double bytesPerSecondPerConnection;
+    double rateFactor;
+    long throttledPublishes;
+}
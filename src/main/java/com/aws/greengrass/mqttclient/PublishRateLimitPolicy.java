@@ -0,0 +1,251 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.config.Topics;
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.mqttclient.v5.PubAck;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.util.Coerce;
+import software.amazon.awssdk.crt.mqtt5.packets.PubAckPacket;
+import vendored.com.google.common.util.concurrent.RateLimiter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publish rate limits shared by all the connections of a {@link MqttClient}, configured under
+ * {@code mqtt.rateLimits}.
+ *
+ * <p>Each connection is limited to a number of publishes and payload bytes per second, and all connections together to
+ * an aggregate budget, which defaults to no limit. A fraction of every budget is reserved for publishes to priority
+ * topics, such as deployment status and shadow updates, so that a backlog of telemetry can't starve them.</p>
+ *
+ * <p>The rates back off when AWS IoT Core acknowledges a publish with a quota exceeded reason code, by halving them at
+ * most once per second, and recover additively each second without throttling until they are back at the configured
+ * limits.</p>
+ */
+public class PublishRateLimitPolicy {
+    private static final Logger logger = LogManager.getLogger(PublishRateLimitPolicy.class);
+    static final String RATE_LIMITS_KEY = "rateLimits";
+    static final String MAX_PUBLISHES_PER_SECOND_PER_CONNECTION_KEY = "maxPublishesPerSecondPerConnection";
+    static final String MAX_BYTES_PER_SECOND_PER_CONNECTION_KEY = "maxBytesPerSecondPerConnection";
+    static final String MAX_PUBLISHES_PER_SECOND_KEY = "maxPublishesPerSecond";
+    static final String MAX_BYTES_PER_SECOND_KEY = "maxBytesPerSecond";
+    static final String PRIORITY_TOPIC_PREFIXES_KEY = "priorityTopicPrefixes";
+    static final String PRIORITY_RESERVED_FRACTION_KEY = "priorityReservedFraction";
+    static final String ADAPTIVE_KEY = "adaptive";
+    // IoT Core's limit per connection
+    static final double DEFAULT_MAX_PUBLISHES_PER_SECOND_PER_CONNECTION = 100.0;
+    static final double DEFAULT_MAX_BYTES_PER_SECOND_PER_CONNECTION = 512.0 * 1024;
+    static final String DEFAULT_PRIORITY_TOPIC_PREFIX = "$aws/things/";
+    static final double DEFAULT_PRIORITY_RESERVED_FRACTION = 0.1;
+    static final double MIN_RATE_FACTOR = 1.0 / 32;
+    static final double RATE_FACTOR_INCREASE = 0.05;
+    private static final long ADJUSTMENT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double UNLIMITED = Double.MAX_VALUE;
+
+    private volatile double maxPublishesPerSecondPerConnection = DEFAULT_MAX_PUBLISHES_PER_SECOND_PER_CONNECTION;
+    private volatile double maxBytesPerSecondPerConnection = DEFAULT_MAX_BYTES_PER_SECOND_PER_CONNECTION;
+    private volatile double maxPublishesPerSecond;
+    private volatile double maxBytesPerSecond;
+    private volatile List<String> priorityTopicPrefixes = Collections.singletonList(DEFAULT_PRIORITY_TOPIC_PREFIX);
+    private volatile double priorityReservedFraction = DEFAULT_PRIORITY_RESERVED_FRACTION;
+    private volatile boolean adaptive = true;
+
+    // Fraction of the configured rates currently in effect
+    private volatile double rateFactor = 1.0;
+    private long lastAdjustmentNanos = System.nanoTime() - ADJUSTMENT_INTERVAL_NANOS;
+    // Incremented whenever the rates in effect change, so that the connections update their limiters
+    private final AtomicInteger version = new AtomicInteger();
+    private final Budget aggregate = new Budget();
+    private final Budget aggregateBulk = new Budget();
+    private final LongAdder throttledPublishes = new LongAdder();
+
+    /**
+     * Construct a policy with the default limits.
+     */
+    public PublishRateLimitPolicy() {
+        applyRates();
+    }
+
+    /**
+     * Read the limits from the MQTT configuration.
+     *
+     * @param mqttTopics MQTT configuration namespace
+     */
+    public void configure(Topics mqttTopics) {
+        maxPublishesPerSecondPerConnection = positiveOrUnlimited(Coerce.toDouble(mqttTopics.findOrDefault(
+                DEFAULT_MAX_PUBLISHES_PER_SECOND_PER_CONNECTION, RATE_LIMITS_KEY,
+                MAX_PUBLISHES_PER_SECOND_PER_CONNECTION_KEY)));
+        maxBytesPerSecondPerConnection = positiveOrUnlimited(Coerce.toDouble(mqttTopics.findOrDefault(
+                DEFAULT_MAX_BYTES_PER_SECOND_PER_CONNECTION, RATE_LIMITS_KEY,
+                MAX_BYTES_PER_SECOND_PER_CONNECTION_KEY)));
+        maxPublishesPerSecond = positiveOrUnlimited(Coerce.toDouble(mqttTopics.findOrDefault(0,
+                RATE_LIMITS_KEY, MAX_PUBLISHES_PER_SECOND_KEY)));
+        maxBytesPerSecond = positiveOrUnlimited(Coerce.toDouble(mqttTopics.findOrDefault(0,
+                RATE_LIMITS_KEY, MAX_BYTES_PER_SECOND_KEY)));
+        priorityTopicPrefixes = Coerce.toStringList(mqttTopics.findOrDefault(
+                Collections.singletonList(DEFAULT_PRIORITY_TOPIC_PREFIX), RATE_LIMITS_KEY,
+                PRIORITY_TOPIC_PREFIXES_KEY));
+        double reserved = Coerce.toDouble(mqttTopics.findOrDefault(DEFAULT_PRIORITY_RESERVED_FRACTION,
+                RATE_LIMITS_KEY, PRIORITY_RESERVED_FRACTION_KEY));
+        if (reserved < 0 || reserved >= 1) {
+            logger.atWarn().kv(PRIORITY_RESERVED_FRACTION_KEY, reserved)
+                    .log("The reserved fraction must be at least 0 and less than 1. Will use the default: {}",
+                            DEFAULT_PRIORITY_RESERVED_FRACTION);
+            reserved = DEFAULT_PRIORITY_RESERVED_FRACTION;
+        }
+        priorityReservedFraction = reserved;
+        adaptive = Coerce.toBoolean(mqttTopics.findOrDefault(true, RATE_LIMITS_KEY, ADAPTIVE_KEY));
+        synchronized (this) {
+            if (!adaptive) {
+                rateFactor = 1.0;
+            }
+            applyRates();
+        }
+    }
+
+    /**
+     * Create the limiter of a new connection.
+     *
+     * @return connection limiter
+     */
+    public PublishRateLimiter newConnectionLimiter() {
+        return new PublishRateLimiter(this);
+    }
+
+    /**
+     * Adjust the rates to how AWS IoT Core acknowledged a publish.
+     *
+     * @param response acknowledgement, null for a QoS 0 publish
+     */
+    public void onPublishAcknowledged(PubAck response) {
+        boolean throttled = response != null
+                && response.getReasonCode() == PubAckPacket.PubAckReasonCode.QUOTA_EXCEEDED.getValue();
+        if (throttled) {
+            throttledPublishes.increment();
+        }
+        if (!adaptive || !throttled && rateFactor >= 1.0) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - lastAdjustmentNanos < ADJUSTMENT_INTERVAL_NANOS
+                    || !throttled && rateFactor >= 1.0) {
+                return;
+            }
+            double previous = rateFactor;
+            rateFactor = throttled ? Math.max(MIN_RATE_FACTOR, rateFactor / 2)
+                    : Math.min(1.0, rateFactor + RATE_FACTOR_INCREASE);
+            lastAdjustmentNanos = now;
+            if (throttled && previous != rateFactor) {
+                logger.atWarn().kv("rateFactor", rateFactor).log("Publishes are throttled, backing off");
+            }
+            applyRates();
+        }
+    }
+
+    /**
+     * Get the rates in effect and the number of throttled publishes since the previous call.
+     *
+     * @return rate limit metrics
+     */
+    public synchronized PublishRateLimitMetrics collectMetrics() {
+        return new PublishRateLimitMetrics(limitedOrZero(getPublishesPerSecondPerConnection()),
+                limitedOrZero(getBytesPerSecondPerConnection()), rateFactor, throttledPublishes.sumThenReset());
+    }
+
+    boolean isPriority(Publish publish) {
+        for (String prefix : priorityTopicPrefixes) {
+            if (publish.getTopic().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getVersion() {
+        return version.get();
+    }
+
+    synchronized double getPublishesPerSecondPerConnection() {
+        return scale(maxPublishesPerSecondPerConnection);
+    }
+
+    synchronized double getBytesPerSecondPerConnection() {
+        return scale(maxBytesPerSecondPerConnection);
+    }
+
+    double getBulkFraction() {
+        return 1 - priorityReservedFraction;
+    }
+
+    long getAggregateWaitTimeMicros(boolean priority) {
+        return priority ? aggregate.getWaitTimeMicros()
+                : Math.max(aggregate.getWaitTimeMicros(), aggregateBulk.getWaitTimeMicros());
+    }
+
+    void acquireAggregate(boolean priority, int bytes) {
+        aggregate.acquire(bytes);
+        if (!priority) {
+            aggregateBulk.acquire(bytes);
+        }
+    }
+
+    private void applyRates() {
+        double publishes = scale(maxPublishesPerSecond);
+        double bytes = scale(maxBytesPerSecond);
+        aggregate.setRates(publishes, bytes);
+        aggregateBulk.setRates(publishes * getBulkFraction(), bytes * getBulkFraction());
+        version.incrementAndGet();
+    }
+
+    private double scale(double rate) {
+        return rate == UNLIMITED ? UNLIMITED : rate * rateFactor;
+    }
+
+    private static double limitedOrZero(double rate) {
+        return rate == UNLIMITED ? 0 : rate;
+    }
+
+    private static double positiveOrUnlimited(double rate) {
+        return rate > 0 ? rate : UNLIMITED;
+    }
+
+    /**
+     * Pair of limiters for the number of publishes and the payload bytes.
+     */
+    static final class Budget {
+        private final RateLimiter publishes = RateLimiter.create(UNLIMITED);
+        private final RateLimiter bytes = RateLimiter.create(UNLIMITED);
+
+        void setRates(double publishesPerSecond, double bytesPerSecond) {
+            // Avoid resetting the stored permits when nothing changed
+            if (publishes.getRate() != publishesPerSecond) {
+                publishes.setRate(publishesPerSecond);
+            }
+            if (bytes.getRate() != bytesPerSecond) {
+                bytes.setRate(bytesPerSecond);
+            }
+        }
+
+        long getWaitTimeMicros() {
+            // Time to wait is independent of how many permits we need because future transactions
+            // will pay this current transaction's cost.  See the JavaDocs for RateLimiter for more info.
+            return Math.max(publishes.microTimeToNextPermit(), bytes.microTimeToNextPermit());
+        }
+
+        void acquire(int payloadBytes) {
+            publishes.acquire();
+            bytes.acquire(payloadBytes);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.mqttclient.v5.Publish;
+
+/**
+ * Publish rate limiter of a single connection, following the limits of a {@link PublishRateLimitPolicy}.
+ */
+public class PublishRateLimiter {
+    private final PublishRateLimitPolicy policy;
+    private final PublishRateLimitPolicy.Budget connection = new PublishRateLimitPolicy.Budget();
+    private final PublishRateLimitPolicy.Budget connectionBulk = new PublishRateLimitPolicy.Budget();
+    private int appliedVersion = -1;
+    private volatile boolean disabled;
+
+    PublishRateLimiter(PublishRateLimitPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Get how long to wait before publishing the given message without blocking.
+     *
+     * @param publish message to publish
+     * @return wait time in microseconds
+     */
+    public long getWaitTimeMicros(Publish publish) {
+        if (disabled) {
+            return 0;
+        }
+        updateRates();
+        boolean priority = policy.isPriority(publish);
+        long waitTime = Math.max(connection.getWaitTimeMicros(), policy.getAggregateWaitTimeMicros(priority));
+        return priority ? waitTime : Math.max(waitTime, connectionBulk.getWaitTimeMicros());
+    }
+
+    /**
+     * Take the permits to publish the given message, waiting if they are not available yet.
+     *
+     * @param publish message to publish
+     */
+    public void acquire(Publish publish) {
+        if (disabled) {
+            return;
+        }
+        updateRates();
+        boolean priority = policy.isPriority(publish);
+        int bytes = publish.getPayload() == null ? 0 : publish.getPayload().length;
+        connection.acquire(bytes);
+        if (!priority) {
+            connectionBulk.acquire(bytes);
+        }
+        policy.acquireAggregate(priority, bytes);
+    }
+
+    void disable() {
+        disabled = true;
+    }
+
+    private synchronized void updateRates() {
+        int version = policy.getVersion();
+        if (version == appliedVersion) {
+            return;
+        }
+        appliedVersion = version;
+        double publishes = policy.getPublishesPerSecondPerConnection();
+        double bytes = policy.getBytesPerSecondPerConnection();
+        connection.setRates(publishes, bytes);
+        connectionBulk.setRates(publishes * policy.getBulkFraction(), bytes * policy.getBulkFraction());
+    }
+}
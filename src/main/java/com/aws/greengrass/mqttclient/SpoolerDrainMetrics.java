@@ -0,0 +1,19 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import lombok.Value;
+
+/**
+ * Spooled messages published since the previous collection and the backlog which is left.
+ */
+@Value
+public class SpoolerDrainMetrics {
+    long publishedMessages;
+    double publishedMessagesPerSecond;
+    int backlogMessages;
+    long oldestMessageAgeMillis;
+}
@@ -5,11 +5,81 @@
 
 package com.aws.greengrass.mqttclient.spool;
 
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+
+import java.io.IOException;
+
 public interface CloudMessageSpool {
 
     SpoolMessage getMessageById(long id);
 
     void removeMessageById(long id);
 
-    void add(long id, SpoolMessage message);
+    void add(long id, SpoolMessage message) throws SpoolerStoreException;
+
+    /**
+     * Remove the message with the given id and pass its payload size and QoS to the consumer, if there was one. Spools
+     * which keep messages on disk override this so that the message isn't read just to be removed.
+     *
+     * @param id       id of the message
+     * @param consumer consumer of the removed message
+     */
+    default void removeMessageById(long id, SpooledMessageConsumer consumer) {
+        SpoolMessage message = getMessageById(id);
+        if (message != null) {
+            removeMessageById(id);
+            Publish request = message.getRequest();
+            consumer.accept(id, request.getPayload().length, request.getQos());
+        }
+    }
+
+    /**
+     * Pass every message which a previous run left in the spool to the consumer, oldest first. Only spools which
+     * persist messages have any.
+     *
+     * @param consumer consumer of the recovered messages
+     */
+    default void recoverMessages(SpooledMessageConsumer consumer) {
+    }
+
+    /**
+     * Hint that the message with the given id and the ones after it are about to be published, so that a spool which
+     * keeps messages on disk can read them ahead.
+     *
+     * @param id id of the next message to publish
+     */
+    default void prefetch(long id) {
+    }
+
+    /**
+     * Get the number of spooled messages held in memory.
+     *
+     * @return message count
+     */
+    default int getMemoryMessageCount() {
+        return 0;
+    }
+
+    /**
+     * Get the payload size of the spooled messages held in memory.
+     *
+     * @return size in bytes
+     */
+    default long getMemorySizeInBytes() {
+        return 0;
+    }
+
+    /**
+     * Release the resources of the spool. Messages of a persistent spool stay around for the next run.
+     *
+     * @throws IOException if persisting the messages failed
+     */
+    default void close() throws IOException {
+    }
+
+    @FunctionalInterface
+    interface SpooledMessageConsumer {
+        void accept(long id, int payloadSize, QOS qos);
+    }
 }
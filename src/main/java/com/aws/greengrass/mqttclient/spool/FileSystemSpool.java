@@ -0,0 +1,661 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient.spool;
+
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.mqttclient.v5.UserProperty;
+import com.aws.greengrass.util.Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Spool which keeps messages in append-only, memory-mapped segment files so that they survive a restart of the
+ * Nucleus.
+ *
+ * <p>Messages are appended to the newest segment as records holding the encoded message, its id, a status and a
+ * checksum. Removing a message marks its record removed in place, and a segment file is unmapped and deleted once all
+ * of its messages are removed. Records go to the page cache right away and are forced to disk in batches, every 1 MB
+ * of records or at most 100 ms after a change, so a crash of the device, not just of the Nucleus, may lose the last
+ * few messages or send a few removed ones again.</p>
+ *
+ * <p>Payloads may be compressed with deflate, which is decided per message so that a spool can be reopened with or
+ * without compression.</p>
+ *
+ * <p>Message ids must increase from one message to the next, as the spool assigns them.</p>
+ */
+public class FileSystemSpool implements CloudMessageSpool {
+    private static final Logger logger = LogManager.getLogger(FileSystemSpool.class);
+    public static final int DEFAULT_SEGMENT_SIZE_IN_BYTES = 32 * 1024 * 1024;
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String FILE_KEY = "file";
+    // "GGSPOOL1"
+    private static final long SEGMENT_MAGIC = 0x4747_5350_4F4F_4C31L;
+    private static final int SEGMENT_HEADER_SIZE = Long.BYTES;
+    // length of the encoded message, status, message id, payload size and checksum of the encoded message
+    private static final int STATUS_OFFSET = Integer.BYTES;
+    private static final int ID_OFFSET = STATUS_OFFSET + 1;
+    private static final int PAYLOAD_SIZE_OFFSET = ID_OFFSET + Long.BYTES;
+    private static final int CHECKSUM_OFFSET = PAYLOAD_SIZE_OFFSET + Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = CHECKSUM_OFFSET + Integer.BYTES;
+    private static final byte LIVE = 1;
+    private static final byte REMOVED = 2;
+    private static final byte ENCODING_VERSION = 1;
+    private static final byte DEFLATED_PAYLOAD_ENCODING_VERSION = 2;
+    // smaller payloads hardly ever get smaller
+    private static final int MIN_DEFLATED_PAYLOAD_SIZE = 64;
+    private static final int NULL_LENGTH = -1;
+    private static final long FLUSH_BYTES = 1024 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Spooler flush");
+        // Set as a daemon thread so that it dies when the main thread exits
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path directory;
+    private final int segmentSizeInBytes;
+    private final boolean compressPayloads;
+    // segments by the id of their first message
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private final Set<Segment> unflushedSegments = new HashSet<>();
+    private final ExposedByteArrayOutputStream encoded = new ExposedByteArrayOutputStream();
+    private final CRC32 checksum = new CRC32();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private byte[] deflated = new byte[0];
+    private Segment active;
+    private long unflushedBytes;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public FileSystemSpool(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE_IN_BYTES, false);
+    }
+
+    public FileSystemSpool(Path directory, int segmentSizeInBytes) throws IOException {
+        this(directory, segmentSizeInBytes, false);
+    }
+
+    /**
+     * Open the spool in the given directory and recover the messages it already holds.
+     *
+     * @param directory          directory of the segment files
+     * @param segmentSizeInBytes size of a segment file, larger messages get a segment of their own
+     * @param compressPayloads   whether to compress the payloads of new messages
+     * @throws IOException if the directory or the segments can't be opened
+     */
+    public FileSystemSpool(Path directory, int segmentSizeInBytes, boolean compressPayloads) throws IOException {
+        this.directory = directory;
+        this.segmentSizeInBytes = segmentSizeInBytes;
+        this.compressPayloads = compressPayloads;
+        Utils.createPaths(directory);
+        recover();
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long firstId;
+            try {
+                firstId = Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                logger.atWarn().kv(FILE_KEY, file).log("Ignoring file which is not a spooler segment");
+                continue;
+            }
+            Segment segment = Segment.open(file, firstId);
+            if (segment == null) {
+                logger.atWarn().kv(FILE_KEY, file).log("Deleting spooler segment with an invalid header");
+                Files.deleteIfExists(file);
+                continue;
+            }
+            segments.put(firstId, segment);
+        }
+        // new messages always go to a new segment, so every recovered segment without messages can go
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment.live == 0) {
+                delete(segment);
+            }
+        }
+        logger.atInfo().kv("segments", segments.size()).kv("messages", getMessageCount())
+                .log("Recovered spooled messages");
+    }
+
+    @Override
+    public synchronized SpoolMessage getMessageById(long id) {
+        Segment segment = segmentOf(id);
+        if (segment == null) {
+            return null;
+        }
+        int offset = segment.offsetOf(id);
+        if (offset < 0) {
+            return null;
+        }
+        return read(segment, id, offset);
+    }
+
+    /**
+     * Read the messages with the given id and the following ids, oldest first, until either limit is reached. At
+     * least one message is read if there is any.
+     *
+     * @param id                 id of the first message to read
+     * @param maxCount           maximum number of messages to read
+     * @param maxPayloadsInBytes maximum payload size of the messages to read
+     * @return the messages
+     */
+    public synchronized List<SpoolMessage> getMessagesFrom(long id, int maxCount, long maxPayloadsInBytes) {
+        List<SpoolMessage> messages = new ArrayList<>();
+        long payloadsInBytes = 0;
+        Long from = segments.floorKey(id);
+        for (Segment segment : segments.tailMap(from == null ? id : from, true).values()) {
+            for (int i = (int) Math.max(0, id - segment.firstId); i < segment.idCount; i++) {
+                int offset = segment.offsets[i];
+                if (offset < 0) {
+                    continue;
+                }
+                payloadsInBytes += segment.buffer.getInt(offset + PAYLOAD_SIZE_OFFSET);
+                if (!messages.isEmpty() && payloadsInBytes > maxPayloadsInBytes) {
+                    return messages;
+                }
+                messages.add(read(segment, segment.firstId + i, offset));
+                if (messages.size() >= maxCount) {
+                    return messages;
+                }
+            }
+        }
+        return messages;
+    }
+
+    private SpoolMessage read(Segment segment, long id, int offset) {
+        ByteBuffer record = segment.buffer.duplicate();
+        record.position(offset + RECORD_HEADER_SIZE);
+        record.limit(offset + RECORD_HEADER_SIZE + segment.buffer.getInt(offset));
+        return SpoolMessage.builder().id(id).request(decode(record)).build();
+    }
+
+    @Override
+    public synchronized void removeMessageById(long id) {
+        removeMessageById(id, (removedId, payloadSize, qos) -> {
+        });
+    }
+
+    @Override
+    public synchronized void removeMessageById(long id, SpooledMessageConsumer consumer) {
+        Segment segment = segmentOf(id);
+        if (segment == null) {
+            return;
+        }
+        int offset = segment.offsetOf(id);
+        if (offset < 0) {
+            return;
+        }
+        // from the record header, without decoding the message, and before the segment may be unmapped below
+        int payloadSize = segment.buffer.getInt(offset + PAYLOAD_SIZE_OFFSET);
+        QOS qos = segment.qosOf(offset);
+        segment.buffer.put(offset + STATUS_OFFSET, REMOVED);
+        segment.remove(id);
+        changed(segment);
+        if (segment.live == 0 && segment != active) {
+            delete(segment);
+        }
+        consumer.accept(id, payloadSize, qos);
+    }
+
+    @Override
+    public synchronized void add(long id, SpoolMessage message) throws SpoolerStoreException {
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last != null && id < last.getKey() + last.getValue().idCount) {
+            throw new SpoolerStoreException("Message id " + id + " is not larger than the ids already spooled");
+        }
+        try {
+            encoded.reset();
+            encode(new DataOutputStream(encoded), message.getRequest());
+        } catch (IOException e) {
+            throw new SpoolerStoreException("Unable to encode the message", e);
+        }
+        int length = encoded.size();
+        int recordSize = RECORD_HEADER_SIZE + length;
+        if (active == null || active.buffer.capacity() - active.position < recordSize) {
+            rollSegment(id, recordSize);
+        }
+
+        checksum.reset();
+        checksum.update(encoded.buffer(), 0, length);
+        int offset = active.position;
+        ByteBuffer record = active.buffer.duplicate();
+        record.position(offset);
+        record.putInt(length).put(LIVE).putLong(id).putInt(payloadSize(message.getRequest()))
+                .putInt((int) checksum.getValue()).put(encoded.buffer(), 0, length);
+        active.position += recordSize;
+        active.add(id, offset);
+
+        changed(active);
+        unflushedBytes += recordSize;
+        if (unflushedBytes >= FLUSH_BYTES) {
+            flush();
+        }
+    }
+
+    private void changed(Segment segment) {
+        unflushedSegments.add(segment);
+        if (scheduledFlush == null) {
+            scheduledFlush = FLUSHER.schedule(this::flush, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void recoverMessages(SpooledMessageConsumer consumer) {
+        for (Segment segment : segments.values()) {
+            for (int i = 0; i < segment.idCount; i++) {
+                int offset = segment.offsets[i];
+                if (offset >= 0) {
+                    consumer.accept(segment.firstId + i, segment.buffer.getInt(offset + PAYLOAD_SIZE_OFFSET),
+                            segment.qosOf(offset));
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+            unmap(segment.buffer);
+        }
+        segments.clear();
+        active = null;
+        deflater.end();
+        inflater.end();
+    }
+
+    /**
+     * Force every segment which changed since the last flush to disk.
+     */
+    public synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        for (Segment segment : unflushedSegments) {
+            segment.buffer.force();
+        }
+        unflushedSegments.clear();
+        unflushedBytes = 0;
+    }
+
+    /**
+     * Get the number of segment files.
+     *
+     * @return segment count
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    private int getMessageCount() {
+        return segments.values().stream().mapToInt(s -> s.live).sum();
+    }
+
+    private Segment segmentOf(long id) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(id);
+        return entry == null ? null : entry.getValue();
+    }
+
+    private void rollSegment(long firstId, int recordSize) throws SpoolerStoreException {
+        Segment previous = active;
+        Path file = directory.resolve(String.format("%020d%s", firstId, SEGMENT_FILE_SUFFIX));
+        try {
+            active = Segment.create(file, firstId, Math.max(segmentSizeInBytes, SEGMENT_HEADER_SIZE + recordSize));
+        } catch (IOException e) {
+            throw new SpoolerStoreException("Unable to create spooler segment " + file, e);
+        }
+        segments.put(firstId, active);
+        if (previous != null && previous.live == 0) {
+            delete(previous);
+        }
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.firstId);
+        unflushedSegments.remove(segment);
+        try {
+            segment.channel.close();
+            // Windows doesn't delete a file which is still mapped
+            unmap(segment.buffer);
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            // the segment has no messages left, so it's deleted when the spool is opened next time
+            logger.atWarn().kv(FILE_KEY, segment.path).setCause(e).log("Unable to delete spooler segment");
+        }
+    }
+
+    /**
+     * Unmap the buffer right away instead of once it's garbage collected. The buffer must not be used afterwards.
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    bufferCleaner.getClass().getMethod("clean").invoke(bufferCleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // unmapped once it's garbage collected
+            logger.atWarn().setCause(e).log("Unable to unmap spooler segment");
+        }
+    }
+
+    private static int payloadSize(Publish request) {
+        return request.getPayload() == null ? 0 : request.getPayload().length;
+    }
+
+    private void encode(DataOutputStream out, Publish request) throws IOException {
+        byte[] payload = request.getPayload();
+        int deflatedLength = compressPayloads && payload != null && payload.length >= MIN_DEFLATED_PAYLOAD_SIZE
+                ? deflate(payload) : NULL_LENGTH;
+        out.writeByte(deflatedLength == NULL_LENGTH ? ENCODING_VERSION : DEFLATED_PAYLOAD_ENCODING_VERSION);
+        writeString(out, request.getTopic());
+        out.writeByte(request.getQos().getValue());
+        out.writeBoolean(request.isRetain());
+        if (deflatedLength == NULL_LENGTH) {
+            writeBytes(out, payload);
+        } else {
+            out.writeInt(payload.length);
+            out.writeInt(deflatedLength);
+            out.write(deflated, 0, deflatedLength);
+        }
+        out.writeByte(request.getPayloadFormat() == null ? NULL_LENGTH : request.getPayloadFormat().getValue());
+        out.writeBoolean(request.getMessageExpiryIntervalSeconds() != null);
+        if (request.getMessageExpiryIntervalSeconds() != null) {
+            out.writeLong(request.getMessageExpiryIntervalSeconds());
+        }
+        writeString(out, request.getResponseTopic());
+        writeBytes(out, request.getCorrelationData());
+        writeString(out, request.getContentType());
+        List<UserProperty> userProperties = request.getUserProperties();
+        if (userProperties == null) {
+            out.writeInt(NULL_LENGTH);
+        } else {
+            out.writeInt(userProperties.size());
+            for (UserProperty property : userProperties) {
+                writeString(out, property.getKey());
+                writeString(out, property.getValue());
+            }
+        }
+    }
+
+    /**
+     * Deflate the payload into the deflated buffer.
+     *
+     * @return length of the deflated payload or -1 if it's not smaller than the payload
+     */
+    private int deflate(byte[] payload) {
+        if (deflated.length < payload.length) {
+            deflated = new byte[payload.length];
+        }
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished() && length < payload.length) {
+            length += deflater.deflate(deflated, length, payload.length - length);
+        }
+        return deflater.finished() && length < payload.length ? length : NULL_LENGTH;
+    }
+
+    private byte[] inflate(ByteBuffer in) {
+        byte[] payload = new byte[in.getInt()];
+        byte[] input = new byte[in.getInt()];
+        in.get(input);
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            int length = 0;
+            while (length < payload.length && !inflater.finished()) {
+                int inflatedLength = inflater.inflate(payload, length, payload.length - length);
+                if (inflatedLength == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflatedLength;
+            }
+            if (length != payload.length) {
+                throw new IllegalStateException("Spooled message payload is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Spooled message payload is corrupted", e);
+        }
+        return payload;
+    }
+
+    private Publish decode(ByteBuffer in) {
+        byte version = in.get();
+        if (version != ENCODING_VERSION && version != DEFLATED_PAYLOAD_ENCODING_VERSION) {
+            throw new IllegalStateException("Unknown spooled message encoding " + version);
+        }
+        Publish.PublishBuilder builder = Publish.builder()
+                .topic(readString(in))
+                .qos(QOS.fromInt(in.get()))
+                .retain(in.get() != 0)
+                .payload(version == DEFLATED_PAYLOAD_ENCODING_VERSION ? inflate(in) : readBytes(in));
+        byte payloadFormat = in.get();
+        if (payloadFormat != NULL_LENGTH) {
+            builder.payloadFormat(Publish.PayloadFormatIndicator.fromInt(payloadFormat));
+        }
+        if (in.get() != 0) {
+            builder.messageExpiryIntervalSeconds(in.getLong());
+        }
+        builder.responseTopic(readString(in)).correlationData(readBytes(in)).contentType(readString(in));
+        int userPropertyCount = in.getInt();
+        if (userPropertyCount != NULL_LENGTH) {
+            List<UserProperty> userProperties = new ArrayList<>(userPropertyCount);
+            for (int i = 0; i < userPropertyCount; i++) {
+                userProperties.add(new UserProperty(readString(in), readString(in)));
+            }
+            builder.userProperties(userProperties);
+        }
+        return builder.build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] value = readBytes(in);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.get(value);
+        return value;
+    }
+
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    /**
+     * One segment file, mapped into memory as a whole, with the offsets of the records of its live messages.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final long firstId;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // record offset of every message by id - firstId, -1 once the message is removed
+        private int[] offsets = new int[64];
+        private int idCount;
+        private int live;
+        private int position = SEGMENT_HEADER_SIZE;
+
+        private Segment(Path path, long firstId, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstId = firstId;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, long firstId, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putLong(0, SEGMENT_MAGIC);
+                return new Segment(path, firstId, channel, buffer);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Open an existing segment and index the records of its live messages, up to the first record which is
+         * incomplete.
+         *
+         * @return the segment or null if it's not a valid segment
+         */
+        static Segment open(Path path, long firstId) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer;
+            try {
+                long size = channel.size();
+                if (size < SEGMENT_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                    channel.close();
+                    return null;
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            if (buffer.getLong(0) != SEGMENT_MAGIC) {
+                channel.close();
+                unmap(buffer);
+                return null;
+            }
+            Segment segment = new Segment(path, firstId, channel, buffer);
+            CRC32 checksum = new CRC32();
+            int capacity = buffer.capacity();
+            int position = SEGMENT_HEADER_SIZE;
+            while (capacity - position >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > capacity - position - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                ByteBuffer body = buffer.duplicate();
+                body.position(position + RECORD_HEADER_SIZE);
+                body.limit(position + RECORD_HEADER_SIZE + length);
+                checksum.reset();
+                checksum.update(body);
+                if ((int) checksum.getValue() != buffer.getInt(position + CHECKSUM_OFFSET)) {
+                    // torn write at the end of the segment
+                    break;
+                }
+                long id = buffer.getLong(position + ID_OFFSET);
+                if (buffer.get(position + STATUS_OFFSET) == LIVE && id >= firstId + segment.idCount) {
+                    segment.add(id, position);
+                }
+                position += RECORD_HEADER_SIZE + length;
+            }
+            segment.position = position;
+            return segment;
+        }
+
+        void add(long id, int offset) {
+            int index = (int) (id - firstId);
+            if (index >= offsets.length) {
+                int oldLength = offsets.length;
+                offsets = Arrays.copyOf(offsets, Math.max(index + 1, oldLength * 2));
+                Arrays.fill(offsets, oldLength, offsets.length, -1);
+            }
+            // ids skipped by the spool have no record
+            Arrays.fill(offsets, idCount, index, -1);
+            offsets[index] = offset;
+            idCount = index + 1;
+            live++;
+        }
+
+        QOS qosOf(int offset) {
+            // the encoded message starts with its version, followed by the topic and the QoS
+            int topicLength = Math.max(0, buffer.getInt(offset + RECORD_HEADER_SIZE + 1));
+            return QOS.fromInt(buffer.get(offset + RECORD_HEADER_SIZE + 1 + Integer.BYTES + topicLength));
+        }
+
+        int offsetOf(long id) {
+            long index = id - firstId;
+            return index < idCount ? offsets[(int) index] : -1;
+        }
+
+        void remove(long id) {
+            offsets[(int) (id - firstId)] = -1;
+            live--;
+        }
+    }
+}
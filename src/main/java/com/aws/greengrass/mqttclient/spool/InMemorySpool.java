@@ -7,10 +7,12 @@ package com.aws.greengrass.mqttclient.spool;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class InMemorySpool implements CloudMessageSpool {
 
     private final Map<Long, SpoolMessage> messages = new ConcurrentHashMap<>();
+    private final AtomicLong sizeInBytes = new AtomicLong();
 
     @Override
     public SpoolMessage getMessageById(long messageId) {
@@ -19,12 +21,26 @@ public class InMemorySpool implements CloudMessageSpool {
 
     @Override
     public void removeMessageById(long messageId) {
-        messages.remove(messageId);
+        SpoolMessage message = messages.remove(messageId);
+        if (message != null) {
+            sizeInBytes.getAndAdd(-1L * message.getRequest().getPayload().length);
+        }
     }
 
     @Override
     public void add(long id, SpoolMessage message) {
-        messages.put(id, message);
+        SpoolMessage previous = messages.put(id, message);
+        sizeInBytes.getAndAdd(message.getRequest().getPayload().length
+                - (previous == null ? 0 : previous.getRequest().getPayload().length));
     }
 
+    @Override
+    public int getMemoryMessageCount() {
+        return messages.size();
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        return sizeInBytes.get();
+    }
 }
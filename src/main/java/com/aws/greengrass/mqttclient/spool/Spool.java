@@ -11,11 +11,19 @@ import com.aws.greengrass.deployment.DeviceConfiguration;
 import com.aws.greengrass.logging.api.Logger;
 import com.aws.greengrass.logging.impl.LogManager;
 import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
 import com.aws.greengrass.util.Coerce;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
@@ -27,16 +35,25 @@ public class Spool {
     private static final String GG_SPOOL_STORAGE_TYPE_KEY = "storageType";
     private static final String GG_SPOOL_MAX_SIZE_IN_BYTES_KEY = "maxSizeInBytes";
     private static final String GG_SPOOL_KEEP_QOS_0_WHEN_OFFLINE_KEY = "keepQos0WhenOffline";
+    private static final String GG_SPOOL_MEMORY_TIER_SIZE_IN_BYTES_KEY = "memoryTierSizeInBytes";
+    private static final String GG_SPOOL_QOS_0_EVICTION_POLICY_KEY = "qos0EvictionPolicy";
+    private static final String GG_SPOOL_QOS_1_EVICTION_POLICY_KEY = "qos1EvictionPolicy";
 
     private static final boolean DEFAULT_KEEP_Q0S_0_WHEN_OFFLINE = false;
     private static final SpoolerStorageType DEFAULT_GG_SPOOL_STORAGE_TYPE = SpoolerStorageType.Memory;
     private static final int DEFAULT_GG_SPOOL_MAX_MESSAGE_QUEUE_SIZE_IN_BYTES = (int)(2.5 * 1024 * 1024); // 2.5MB
+    private static final long DEFAULT_GG_SPOOL_MEMORY_TIER_SIZE_IN_BYTES = 1024 * 1024; // 1MB
+    private static final SpoolerEvictionPolicy DEFAULT_QOS_0_EVICTION_POLICY = SpoolerEvictionPolicy.DropOldest;
+    private static final SpoolerEvictionPolicy DEFAULT_QOS_1_EVICTION_POLICY = SpoolerEvictionPolicy.RejectNew;
 
     private final AtomicLong nextId = new AtomicLong(0);
     private SpoolerConfig config;
     private final BlockingDeque<Long> queueOfMessageId = new LinkedBlockingDeque<>();
     private final AtomicLong curMessageQueueSizeInBytes = new AtomicLong(0);
-
+    // spooled messages by QoS, to stop looking for messages to drop once there are none left
+    private final AtomicIntegerArray curMessageCountByQos = new AtomicIntegerArray(QOS.values().length);
+    // time at which the first message of every second was spooled by its id, for the age of the backlog
+    private final NavigableMap<Long, Long> spoolTimeById = new TreeMap<>();
 
     /**
      * Constructor.
@@ -48,6 +65,7 @@ public class Spool {
         Topics topics = this.deviceConfiguration.getSpoolerNamespace();
         setSpoolerConfigFromDeviceConfig(topics);
         spooler = setupSpooler();
+        recoverMessages();
         // To subscribe to the topics of spooler configuration
         topics.subscribe((what, node) -> {
             if (WhatHappened.childChanged.equals(what) && node != null) {
@@ -64,15 +82,29 @@ public class Spool {
                         GG_SPOOL_MAX_SIZE_IN_BYTES_KEY));
         boolean ggSpoolKeepQos0WhenOffline = Coerce.toBoolean(topics
                 .findOrDefault(DEFAULT_KEEP_Q0S_0_WHEN_OFFLINE, GG_SPOOL_KEEP_QOS_0_WHEN_OFFLINE_KEY));
+        long ggSpoolMemoryTierSizeInBytes = Coerce.toLong(topics
+                .findOrDefault(DEFAULT_GG_SPOOL_MEMORY_TIER_SIZE_IN_BYTES, GG_SPOOL_MEMORY_TIER_SIZE_IN_BYTES_KEY));
+        SpoolerEvictionPolicy ggSpoolQos0EvictionPolicy = Coerce.toEnum(SpoolerEvictionPolicy.class, topics
+                .findOrDefault(DEFAULT_QOS_0_EVICTION_POLICY, GG_SPOOL_QOS_0_EVICTION_POLICY_KEY),
+                DEFAULT_QOS_0_EVICTION_POLICY);
+        SpoolerEvictionPolicy ggSpoolQos1EvictionPolicy = Coerce.toEnum(SpoolerEvictionPolicy.class, topics
+                .findOrDefault(DEFAULT_QOS_1_EVICTION_POLICY, GG_SPOOL_QOS_1_EVICTION_POLICY_KEY),
+                DEFAULT_QOS_1_EVICTION_POLICY);
 
         logger.atInfo().kv(GG_SPOOL_STORAGE_TYPE_KEY, ggSpoolStorageType)
                 .kv(GG_SPOOL_MAX_SIZE_IN_BYTES_KEY, ggSpoolMaxMessageQueueSizeInBytes)
                 .kv(GG_SPOOL_KEEP_QOS_0_WHEN_OFFLINE_KEY, ggSpoolKeepQos0WhenOffline)
+                .kv(GG_SPOOL_MEMORY_TIER_SIZE_IN_BYTES_KEY, ggSpoolMemoryTierSizeInBytes)
+                .kv(GG_SPOOL_QOS_0_EVICTION_POLICY_KEY, ggSpoolQos0EvictionPolicy)
+                .kv(GG_SPOOL_QOS_1_EVICTION_POLICY_KEY, ggSpoolQos1EvictionPolicy)
                 .log("Spooler has been configured");
 
         this.config = SpoolerConfig.builder().storageType(ggSpoolStorageType)
                 .spoolSizeInBytes(ggSpoolMaxMessageQueueSizeInBytes)
-                .keepQos0WhenOffline(ggSpoolKeepQos0WhenOffline).build();
+                .keepQos0WhenOffline(ggSpoolKeepQos0WhenOffline)
+                .memoryTierSizeInBytes(ggSpoolMemoryTierSizeInBytes)
+                .qos0EvictionPolicy(ggSpoolQos0EvictionPolicy)
+                .qos1EvictionPolicy(ggSpoolQos1EvictionPolicy).build();
     }
 
     /**
@@ -80,11 +112,39 @@ public class Spool {
      * @return CloudMessageSpool    spooler instance
      */
     private CloudMessageSpool setupSpooler() {
-        if (config.getStorageType() == SpoolerStorageType.Memory) {
-            return new InMemorySpool();
+        try {
+            if (config.getStorageType() == SpoolerStorageType.FileSystem) {
+                return new FileSystemSpool(deviceConfiguration.getSpoolerDirectory());
+            }
+            if (config.getStorageType() == SpoolerStorageType.Tiered) {
+                return new TieredSpool(new FileSystemSpool(deviceConfiguration.getSpoolerDirectory(),
+                        FileSystemSpool.DEFAULT_SEGMENT_SIZE_IN_BYTES, true),
+                        () -> getSpoolConfig().getMemoryTierSizeInBytes());
+            }
+        } catch (IOException e) {
+            logger.atError().setCause(e).log("Unable to open the file system spooler, spooling messages in memory");
+        }
+        return new InMemorySpool();
+    }
+
+    /**
+     * Queue the messages which a persistent spooler kept from the previous run, in their original order, and
+     * continue the ids after them.
+     */
+    private void recoverMessages() {
+        spooler.recoverMessages((id, payloadSize, qos) -> {
+            queueOfMessageId.offerLast(id);
+            curMessageQueueSizeInBytes.getAndAdd(payloadSize);
+            curMessageCountByQos.incrementAndGet(qos.getValue());
+            nextId.set(id + 1);
+        });
+        if (!queueOfMessageId.isEmpty()) {
+            // the spool time of recovered messages is unknown, so their age counts from now
+            spoolTimeById.put(queueOfMessageId.peekFirst(), System.currentTimeMillis());
+            logger.atInfo().kv("messageCount", queueOfMessageId.size())
+                    .kv("spoolSizeInBytes", curMessageQueueSizeInBytes.get())
+                    .log("Recovered spooled messages from the previous run");
         }
-        // Only in memory spool is supported
-        return null;
     }
 
     /**
@@ -126,13 +186,26 @@ public class Spool {
 
         long id = nextId.getAndIncrement();
         SpoolMessage message = SpoolMessage.builder().id(id).request(request).build();
-        addMessageToSpooler(id, message);
+        try {
+            addMessageToSpooler(id, message);
+        } catch (SpoolerStoreException e) {
+            curMessageQueueSizeInBytes.getAndAdd(-1L * messageSizeInBytes);
+            throw e;
+        }
+        curMessageCountByQos.incrementAndGet(request.getQos().getValue());
+        long now = System.currentTimeMillis();
+        Map.Entry<Long, Long> lastSpoolTime = spoolTimeById.lastEntry();
+        if (lastSpoolTime == null || now - lastSpoolTime.getValue() >= 1000) {
+            spoolTimeById.put(id, now);
+            // drops the spool times of the messages which are gone
+            getOldestSpoolTime();
+        }
         queueOfMessageId.putLast(id);
 
         return message;
     }
 
-    private void addMessageToSpooler(long id, SpoolMessage message) {
+    private void addMessageToSpooler(long id, SpoolMessage message) throws SpoolerStoreException {
         spooler.add(id, message);
     }
 
@@ -147,6 +220,7 @@ public class Spool {
         long id;
         while (true) {
             id = queueOfMessageId.takeFirst();
+            spooler.prefetch(id);
             message = getMessageById(id);
             if (message != null) {
                 break;
@@ -155,6 +229,60 @@ public class Spool {
         return id;
     }
 
+    /**
+     * Pop the ids of up to the given number of the oldest PublishRequests, waiting for the first one if the queue is
+     * empty. Ids of messages which were removed in the meantime may be among them.
+     *
+     * @param maxCount maximum number of ids to pop
+     * @return message ids, oldest first
+     * @throws InterruptedException the thread is interrupted while popping the first id from the queue
+     */
+    public List<Long> popIds(int maxCount) throws InterruptedException {
+        List<Long> ids = new ArrayList<>(maxCount);
+        ids.add(queueOfMessageId.takeFirst());
+        queueOfMessageId.drainTo(ids, maxCount - 1);
+        spooler.prefetch(ids.get(0));
+        return ids;
+    }
+
+    /**
+     * Get how long the oldest queued message has been spooled, to within a second.
+     *
+     * @return age in milliseconds, 0 if the queue is empty
+     */
+    public synchronized long getOldestMessageAgeMillis() {
+        Map.Entry<Long, Long> spoolTime = getOldestSpoolTime();
+        return spoolTime == null ? 0 : Math.max(0, System.currentTimeMillis() - spoolTime.getValue());
+    }
+
+    /**
+     * Get the spool time of the oldest queued message and drop the spool times before it.
+     */
+    private Map.Entry<Long, Long> getOldestSpoolTime() {
+        Long oldestId = queueOfMessageId.peekFirst();
+        if (oldestId == null) {
+            return null;
+        }
+        // a message which failed to publish goes back to the front of the queue and may be older than all spool
+        // times left, in which case the oldest one left is the best guess
+        Map.Entry<Long, Long> spoolTime = spoolTimeById.floorEntry(oldestId);
+        if (spoolTime == null) {
+            return spoolTimeById.firstEntry();
+        }
+        spoolTimeById.headMap(spoolTime.getKey(), false).clear();
+        return spoolTime;
+    }
+
+    /**
+     * Let the spooler read the oldest messages ahead, if it keeps them on disk.
+     */
+    public void prefetch() {
+        Long id = queueOfMessageId.peekFirst();
+        if (id != null) {
+            spooler.prefetch(id);
+        }
+    }
+
     @Nullable
     public SpoolMessage getMessageById(long messageId) {
         return spooler.getMessageById(messageId);
@@ -166,25 +294,41 @@ public class Spool {
      * @param messageId  message id
      */
     public void removeMessageById(long messageId) {
-        SpoolMessage toBeRemovedMessage = getMessageById(messageId);
-        if (toBeRemovedMessage != null) {
-            spooler.removeMessageById(messageId);
-            int messageSize = toBeRemovedMessage.getRequest().getPayload().length;
-            curMessageQueueSizeInBytes.getAndAdd(-1L * messageSize);
-        }
+        // the spooler passes on the payload size and QoS without reading the whole message back
+        spooler.removeMessageById(messageId, (id, payloadSize, qos) -> {
+            curMessageQueueSizeInBytes.getAndAdd(-1L * payloadSize);
+            curMessageCountByQos.decrementAndGet(qos.getValue());
+        });
     }
 
+    /**
+     * Drop the oldest messages of the QoS levels whose eviction policy allows it, until the spool is no longer over
+     * its size.
+     */
     public void removeOldestMessage() {
-        removeMessagesWithQosZero(true);
+        SpoolerConfig spoolConfig = getSpoolConfig();
+        Iterator<Long> messageIdIterator = queueOfMessageId.iterator();
+        while (messageIdIterator.hasNext()
+                && curMessageQueueSizeInBytes.get() > spoolConfig.getSpoolSizeInBytes()
+                && getEvictableMessageCount(spoolConfig) > 0) {
+            long id = messageIdIterator.next();
+            SpoolMessage message = getMessageById(id);
+            if (message != null && spoolConfig.getEvictionPolicy(message.getRequest().getQos())
+                    == SpoolerEvictionPolicy.DropOldest) {
+                Publish request = message.getRequest();
+                removeMessageById(id);
+                logger.atDebug().kv("id", id).kv("topic", request.getTopic()).kv("Qos", request.getQos().getValue())
+                        .log("The spooler is full. Dropping the oldest message now.");
+            }
+        }
     }
 
+    /**
+     * Drop all messages with QoS 0.
+     */
     public void popOutMessagesWithQosZero() {
-        removeMessagesWithQosZero(false);
-    }
-
-    private void removeMessagesWithQosZero(boolean needToCheckCurSpoolerSize) {
         Iterator<Long> messageIdIterator = queueOfMessageId.iterator();
-        while (messageIdIterator.hasNext() && addJudgementWithCurrentSpoolerSize(needToCheckCurSpoolerSize)) {
+        while (messageIdIterator.hasNext() && curMessageCountByQos.get(QOS.AT_MOST_ONCE.getValue()) > 0) {
             long id = messageIdIterator.next();
             SpoolMessage message = getMessageById(id);
             if (message != null) {
@@ -199,24 +343,60 @@ public class Spool {
         }
     }
 
-    private boolean addJudgementWithCurrentSpoolerSize(boolean needToCheckCurSpoolerSize) {
-        if (!needToCheckCurSpoolerSize) {
-            return true;
+    private int getEvictableMessageCount(SpoolerConfig spoolConfig) {
+        int count = 0;
+        for (QOS qos : QOS.values()) {
+            if (spoolConfig.getEvictionPolicy(qos) == SpoolerEvictionPolicy.DropOldest) {
+                count += curMessageCountByQos.get(qos.getValue());
+            }
         }
-        return curMessageQueueSizeInBytes.get() > getSpoolConfig().getSpoolSizeInBytes();
+        return count;
     }
 
     public int getCurrentMessageCount() {
         return queueOfMessageId.size();
     }
 
+    /**
+     * Get the number of spooled messages held in the given tier.
+     *
+     * @param tier spooler tier
+     * @return message count
+     */
+    public int getCurrentMessageCount(SpoolerTier tier) {
+        int inMemory = spooler.getMemoryMessageCount();
+        return tier == SpoolerTier.Memory ? inMemory : Math.max(0, getCurrentMessageCount() - inMemory);
+    }
+
     public long getCurrentSpoolerSize() {
         return curMessageQueueSizeInBytes.get();
     }
 
+    /**
+     * Get the payload size of the spooled messages held in the given tier.
+     *
+     * @param tier spooler tier
+     * @return size in bytes
+     */
+    public long getCurrentSpoolerSize(SpoolerTier tier) {
+        long inMemory = spooler.getMemorySizeInBytes();
+        return tier == SpoolerTier.Memory ? inMemory : Math.max(0, getCurrentSpoolerSize() - inMemory);
+    }
+
     public SpoolerConfig getSpoolConfig() {
         return config;
     }
+
+    /**
+     * Close the spooler. Messages spooled to the file system stay there for the next run.
+     */
+    public void close() {
+        try {
+            spooler.close();
+        } catch (IOException e) {
+            logger.atWarn().setCause(e).log("Unable to close the spooler");
+        }
+    }
 }
 
 
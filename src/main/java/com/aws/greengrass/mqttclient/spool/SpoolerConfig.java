@@ -5,6 +5,7 @@
 
 package com.aws.greengrass.mqttclient.spool;
 
+import com.aws.greengrass.mqttclient.v5.QOS;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -14,4 +15,21 @@ public class SpoolerConfig {
     private SpoolerStorageType storageType;
     private Long spoolSizeInBytes;
     private boolean keepQos0WhenOffline;
+    // size of the in-memory tier of the tiered spool, older messages overflow to disk
+    @Builder.Default
+    private long memoryTierSizeInBytes = 1024 * 1024;
+    @Builder.Default
+    private SpoolerEvictionPolicy qos0EvictionPolicy = SpoolerEvictionPolicy.DropOldest;
+    @Builder.Default
+    private SpoolerEvictionPolicy qos1EvictionPolicy = SpoolerEvictionPolicy.RejectNew;
+
+    /**
+     * Get the eviction policy for spooled messages of the given QoS. QoS 2 messages follow the QoS 1 policy.
+     *
+     * @param qos QoS of the spooled message
+     * @return eviction policy
+     */
+    public SpoolerEvictionPolicy getEvictionPolicy(QOS qos) {
+        return qos == QOS.AT_MOST_ONCE ? qos0EvictionPolicy : qos1EvictionPolicy;
+    }
 }
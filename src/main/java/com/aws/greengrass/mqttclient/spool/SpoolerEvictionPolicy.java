@@ -0,0 +1,21 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient.spool;
+
+/**
+ * What happens to the spooled messages of a QoS when the spool is full.
+ */
+public enum SpoolerEvictionPolicy {
+    /**
+     * Drop the oldest spooled messages of the QoS to make room for new messages.
+     */
+    DropOldest,
+
+    /**
+     * Keep the spooled messages of the QoS, new messages are rejected until there is room again.
+     */
+    RejectNew
+}
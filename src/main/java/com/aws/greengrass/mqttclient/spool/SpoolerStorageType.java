@@ -6,5 +6,5 @@
 package com.aws.greengrass.mqttclient.spool;
 
 public enum SpoolerStorageType {
-    Memory, FileSystem
+    Memory, FileSystem, Tiered
 }
@@ -0,0 +1,13 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient.spool;
+
+/**
+ * Where spooled messages are held.
+ */
+public enum SpoolerTier {
+    Memory, Disk
+}
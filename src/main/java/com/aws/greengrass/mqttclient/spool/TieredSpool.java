@@ -0,0 +1,200 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient.spool;
+
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Spool which keeps the newest messages in memory and lets older messages overflow to a file system spool with
+ * compressed payloads.
+ *
+ * <p>Once the payloads held in memory exceed the size of the memory tier, the oldest messages in memory move to disk.
+ * Since the spool is drained oldest first, the messages on disk are the next to be published and are read ahead in
+ * batches when the spooler asks for them. Read ahead messages stay in memory until they are removed, so that a message
+ * which is being published keeps its retry count. A message which was handed out from memory keeps its retry count as
+ * well once it moves to disk.</p>
+ *
+ * <p>Messages in memory move to disk when the spool is closed, so they survive a restart of the Nucleus but not a
+ * crash.</p>
+ */
+public class TieredSpool implements CloudMessageSpool {
+    private static final Logger logger = LogManager.getLogger(TieredSpool.class);
+    static final int PREFETCH_MESSAGE_COUNT = 64;
+    static final long PREFETCH_SIZE_IN_BYTES = 1024 * 1024;
+
+    private final FileSystemSpool disk;
+    private final LongSupplier memoryTierSizeInBytes;
+    // newest messages in id order
+    private final LinkedHashMap<Long, SpoolMessage> memory = new LinkedHashMap<>();
+    private long memorySizeInBytes;
+    // ids of the messages in memory which were handed out, so may be published and retried
+    private final Set<Long> handedOut = new HashSet<>();
+    // retry counts of the messages which moved to disk after they were handed out
+    private final Map<Long, AtomicInteger> retriedOnDisk = new HashMap<>();
+    // messages read ahead from disk, which still count towards the disk tier
+    private final Map<Long, SpoolMessage> prefetched = new HashMap<>();
+    private long prefetchedSizeInBytes;
+    private long lastPrefetchedId = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param disk                  spool for the messages which don't fit in memory
+     * @param memoryTierSizeInBytes supplier of the payload size to keep in memory
+     */
+    public TieredSpool(FileSystemSpool disk, LongSupplier memoryTierSizeInBytes) {
+        this.disk = disk;
+        this.memoryTierSizeInBytes = memoryTierSizeInBytes;
+    }
+
+    @Override
+    public synchronized SpoolMessage getMessageById(long id) {
+        SpoolMessage message = memory.get(id);
+        if (message != null) {
+            handedOut.add(id);
+            return message;
+        }
+        message = prefetched.get(id);
+        if (message == null) {
+            message = withRetried(disk.getMessageById(id));
+        }
+        return message;
+    }
+
+    @Override
+    public synchronized void removeMessageById(long id) {
+        removeMessageById(id, (removedId, payloadSize, qos) -> {
+        });
+    }
+
+    @Override
+    public synchronized void removeMessageById(long id, SpooledMessageConsumer consumer) {
+        SpoolMessage message = memory.remove(id);
+        if (message != null) {
+            handedOut.remove(id);
+            memorySizeInBytes -= payloadSize(message);
+            consumer.accept(id, payloadSize(message), message.getRequest().getQos());
+            return;
+        }
+        retriedOnDisk.remove(id);
+        message = prefetched.remove(id);
+        if (message != null) {
+            prefetchedSizeInBytes -= payloadSize(message);
+        }
+        disk.removeMessageById(id, consumer);
+    }
+
+    @Override
+    public synchronized void add(long id, SpoolMessage message) {
+        memory.put(id, message);
+        memorySizeInBytes += payloadSize(message);
+        long limit = memoryTierSizeInBytes.getAsLong();
+        if (memorySizeInBytes > limit) {
+            try {
+                overflow(limit);
+            } catch (SpoolerStoreException e) {
+                // the spool size limit still applies, so the messages can stay in memory for now
+                logger.atWarn().setCause(e).log("Unable to move spooled messages from memory to disk");
+            }
+        }
+    }
+
+    /**
+     * Read the messages from the given id on ahead from disk once at least half of the read ahead budget is free.
+     *
+     * @param id id of the next message to publish
+     */
+    @Override
+    public synchronized void prefetch(long id) {
+        if (memory.containsKey(id) || disk.getSegmentCount() == 0) {
+            return;
+        }
+        int freeCount = PREFETCH_MESSAGE_COUNT - prefetched.size();
+        long freeSizeInBytes = PREFETCH_SIZE_IN_BYTES - prefetchedSizeInBytes;
+        boolean hit = prefetched.containsKey(id);
+        if (hit && (freeCount < PREFETCH_MESSAGE_COUNT / 2 || freeSizeInBytes < PREFETCH_SIZE_IN_BYTES / 2)) {
+            return;
+        }
+        long from = hit ? Math.max(id, lastPrefetchedId + 1) : id;
+        for (SpoolMessage message : disk.getMessagesFrom(from, Math.max(1, freeCount), freeSizeInBytes)) {
+            if (prefetched.putIfAbsent(message.getId(), withRetried(message)) == null) {
+                prefetchedSizeInBytes += payloadSize(message);
+            }
+            lastPrefetchedId = Math.max(lastPrefetchedId, message.getId());
+        }
+    }
+
+    @Override
+    public synchronized void recoverMessages(SpooledMessageConsumer consumer) {
+        disk.recoverMessages(consumer);
+    }
+
+    @Override
+    public synchronized int getMemoryMessageCount() {
+        return memory.size();
+    }
+
+    @Override
+    public synchronized long getMemorySizeInBytes() {
+        return memorySizeInBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            overflow(-1);
+        } catch (SpoolerStoreException e) {
+            throw new IOException("Unable to move the spooled messages in memory to disk", e);
+        } finally {
+            disk.close();
+        }
+    }
+
+    /**
+     * Move the oldest messages in memory to disk until the payloads left in memory fit into the given size.
+     */
+    private void overflow(long limit) throws SpoolerStoreException {
+        Iterator<Map.Entry<Long, SpoolMessage>> iterator = memory.entrySet().iterator();
+        while (memorySizeInBytes > limit && iterator.hasNext()) {
+            Map.Entry<Long, SpoolMessage> oldest = iterator.next();
+            disk.add(oldest.getKey(), oldest.getValue());
+            iterator.remove();
+            if (handedOut.remove(oldest.getKey())) {
+                // shared with the copy handed out, which may still be retried
+                retriedOnDisk.put(oldest.getKey(), oldest.getValue().getRetried());
+            }
+            memorySizeInBytes -= payloadSize(oldest.getValue());
+        }
+    }
+
+    /**
+     * Let a message read from disk share the retry count it had before it moved to disk.
+     */
+    private SpoolMessage withRetried(SpoolMessage message) {
+        if (message != null) {
+            AtomicInteger retried = retriedOnDisk.get(message.getId());
+            if (retried != null) {
+                message.setRetried(retried);
+            }
+        }
+        return message;
+    }
+
+    private static int payloadSize(SpoolMessage message) {
+        return message.getRequest().getPayload() == null ? 0 : message.getRequest().getPayload().length;
+    }
+}
@@ -7,32 +7,68 @@ package com.aws.greengrass.telemetry;
 
 import com.aws.greengrass.lifecyclemanager.KernelMetricsEmitter;
 import com.aws.greengrass.logging.api.Logger;
-import com.aws.greengrass.logging.impl.GreengrassLogMessage;
 import com.aws.greengrass.logging.impl.LogManager;
 import com.aws.greengrass.telemetry.impl.Metric;
 import com.aws.greengrass.telemetry.impl.MetricFactory;
 import com.aws.greengrass.telemetry.impl.TelemetryLoggerMessage;
 import com.aws.greengrass.telemetry.impl.config.TelemetryConfig;
+import com.aws.greengrass.telemetry.models.TelemetryUnit;
 import com.aws.greengrass.util.Coerce;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
+import javax.inject.Inject;
 
 public class MetricsAggregator {
     public static final Logger logger = LogManager.getLogger(MetricsAggregator.class);
     protected static final String AGGREGATE_METRICS_FILE = "AggregateMetrics";
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private final MetricFactory metricFactory = new MetricFactory(AGGREGATE_METRICS_FILE);
+    private final MetricsRecorder metricsRecorder;
+    // The metric files are only read from where the previous aggregation or publish stopped reading them
+    private final TelemetryLogTailer metricsTailer = new TelemetryLogTailer();
+    private final TelemetryLogTailer aggregatedMetricsTailer = new TelemetryLogTailer();
+    // Metrics which were read but emitted at/after the timestamp of the last aggregation, by namespace
+    private final Map<String, List<Metric>> pendingMetrics = new HashMap<>();
+    // Aggregated metrics which were read but aggregated at/after the timestamp of the last publish
+    private final List<AggregatedNamespaceData> pendingAggregatedMetrics = new ArrayList<>();
+
+    public MetricsAggregator() {
+        this(new MetricsRecorder());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param metricsRecorder recorder of the metrics emitted by the nucleus
+     */
+    @Inject
+    public MetricsAggregator(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    /**
+     * Also write the metrics recorded in memory to the telemetry log files, for debugging.
+     *
+     * @param writeMetricsToFiles true to write the metrics to the files
+     */
+    public void setWriteMetricsToFiles(boolean writeMetricsToFiles) {
+        metricsRecorder.setWriteToFiles(writeMetricsToFiles);
+    }
 
     /**
      * Read namespaces from files.
@@ -46,12 +82,9 @@ public class MetricsAggregator {
                 .walk(TelemetryConfig.getTelemetryDirectory())
                 .filter(Files::isRegularFile)) {
             paths.forEach((p) -> {
-                String fileName = Coerce.toString(p.getFileName()).split(".log")[0];
-                if (fileName.contains("_")) {
-                    fileName = fileName.split("_")[0];
-                }
-                if (!fileName.equalsIgnoreCase(AGGREGATE_METRICS_FILE)) {
-                    namespaces.add(fileName);
+                String namespace = getNamespace(p);
+                if (!namespace.equalsIgnoreCase(AGGREGATE_METRICS_FILE)) {
+                    namespaces.add(namespace);
                 }
             });
         } catch (IOException e) {
@@ -60,70 +93,112 @@ public class MetricsAggregator {
         return namespaces;
     }
 
+    private static String getNamespace(Path path) {
+        String fileName = Coerce.toString(path.getFileName()).split(".log")[0];
+        if (fileName.contains("_")) {
+            fileName = fileName.split("_")[0];
+        }
+        return fileName;
+    }
+
+    /**
+     * Read the "message" of a log line without binding the rest of it.
+     *
+     * @param log log line written by a {@link MetricFactory}
+     * @return the message, or null if there is none
+     * @throws IOException if the line is not valid JSON
+     */
+    private static String readMessage(String log) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(log)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken() != JsonToken.VALUE_NULL && "message".equals(field)) {
+                    return parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
     /**
      * This method performs aggregation on the metrics emitted over the aggregation interval and writes them to a file.
+     * The metrics recorded by the {@link MetricsRecorder} are aggregated from memory, the ones emitted by other
+     * {@link MetricFactory} users from the telemetry log files. Only the lines appended to the metric files since the
+     * previous call are read, so the timestamps are expected to not decrease from one call to the next.
      *
      * @param lastAgg       timestamp at which the last aggregation was done.
      * @param currTimestamp timestamp at which the current aggregation is initiated.
      */
-    protected void aggregateMetrics(long lastAgg, long currTimestamp) {
-        for (String namespace : getNamespaceSet()) {
-            AggregatedNamespaceData aggMetrics = new AggregatedNamespaceData();
-            HashMap<String, List<Metric>> metrics = new HashMap<>();
-            // Read from the Telemetry/namespace*.log file.
-            // TODO: [P41214521] Read only those files that are modified after the last aggregation.
-            // file.lastModified() behavior is platform dependent.
-            // filter only files with given namespace that end in ".log"
-            try (Stream<Path> paths = Files
-                    .walk(TelemetryConfig.getTelemetryDirectory())
-                    .filter(Files::isRegularFile)
-                    .filter((path) -> Coerce.toString(path.getFileName()).startsWith(namespace)
-                            && Coerce.toString(path.getFileName()).endsWith(".log"))
-            ) {
-                paths.forEach(path -> {
-                    try (Stream<String> logs = Files.lines(path)) {
-                        logs.forEach((log) -> {
-                            try {
-                                /* {"thread":"pool-3-thread-4","level":"TRACE","eventType":null,"message":"{\"NS\":
-
-                                \"SystemMetrics\",\"N\":\"TotalNumberOfFDs\",\"U\":\"Count\",\"A\":\"Average\",\"V\"
-
-                                :4583,\"TS\":1600127641506}","contexts":{},"loggerName":"Metrics-SystemMetrics",
-
-                                "timestamp":1600127641506,"cause":null} */
-                                GreengrassLogMessage egLog = objectMapper.readValue(log,
-                                        GreengrassLogMessage.class);
-                                Metric mdp = objectMapper.readValue(egLog.getMessage(), Metric.class);
-                                // Avoid the metrics that are emitted at/after the currTimestamp and before the
-                                // aggregation interval
-                                if (mdp != null && currTimestamp > mdp.getTimestamp() && mdp.getTimestamp()
-                                        >= lastAgg) {
-                                    metrics.computeIfAbsent(mdp.getName(), k -> new ArrayList<>()).add(mdp);
-                                }
-                            } catch (IOException e) {
-                                logger.atError().cause(e).log("Unable to parse the metric log.");
+    protected synchronized void aggregateMetrics(long lastAgg, long currTimestamp) {
+        // namespace -> metric name -> aggregate
+        Map<String, Map<String, RunningAggregate>> aggregates = new HashMap<>();
+        List<Map.Entry<String, Metric>> metrics = new ArrayList<>();
+        pendingMetrics.forEach((namespace, list) ->
+                list.forEach(mdp -> metrics.add(new AbstractMap.SimpleEntry<>(namespace, mdp))));
+        pendingMetrics.clear();
+        // Read the new lines of the Telemetry/namespace*.log files.
+        try {
+            metricsTailer.readNewLines(TelemetryConfig.getTelemetryDirectory(),
+                    (path) -> Coerce.toString(path.getFileName()).endsWith(".log")
+                            && !getNamespace(path).equalsIgnoreCase(AGGREGATE_METRICS_FILE),
+                    (path, log) -> {
+                        try {
+                            /* {"thread":"pool-3-thread-4","level":"TRACE","eventType":null,"message":"{\"NS\":
+
+                            \"SystemMetrics\",\"N\":\"TotalNumberOfFDs\",\"U\":\"Count\",\"A\":\"Average\",\"V\"
+
+                            :4583,\"TS\":1600127641506}","contexts":{},"loggerName":"Metrics-SystemMetrics",
+
+                            "timestamp":1600127641506,"cause":null} */
+                            String message = readMessage(log);
+                            Metric mdp = message == null ? null : objectMapper.readValue(message, Metric.class);
+                            if (mdp != null) {
+                                metrics.add(new AbstractMap.SimpleEntry<>(getNamespace(path), mdp));
                             }
-                        });
-                    } catch (IOException e) {
-                        logger.atError().cause(e).log("Unable to parse the emitted metric log file.");
-                    }
-                });
-            } catch (IOException e) {
-                logger.atError().cause(e).log("Unable to read metric files from the directory");
-            }
+                        } catch (IOException e) {
+                            logger.atError().cause(e).log("Unable to parse the metric log.");
+                        }
+                    });
+        } catch (IOException e) {
+            logger.atError().cause(e).log("Unable to read metric files from the directory");
+        }
 
-            // No aggregation if the metrics are empty
-            if (!metrics.isEmpty()) {
-                aggMetrics.setNamespace(namespace);
-                aggMetrics.setTimestamp(currTimestamp);
-                aggMetrics.setMetrics(doAggregation(metrics));
-                metricFactory.logMetrics(new TelemetryLoggerMessage(aggMetrics));
+        for (Map.Entry<String, Metric> metric : metrics) {
+            Metric mdp = metric.getValue();
+            // Avoid the logged metrics which are also recorded in memory
+            if (mdp.getTimestamp() >= metricsRecorder.getRecordingStart(metric.getKey())) {
+                continue;
+            }
+            // Avoid the metrics that are emitted before the aggregation interval, and keep the ones emitted at/after
+            // the currTimestamp for the next aggregation
+            if (mdp.getTimestamp() >= currTimestamp) {
+                pendingMetrics.computeIfAbsent(metric.getKey(), k -> new ArrayList<>()).add(mdp);
+            } else if (mdp.getTimestamp() >= lastAgg) {
+                aggregates.computeIfAbsent(metric.getKey(), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(mdp.getName(), k -> new RunningAggregate(
+                                Coerce.toString(mdp.getAggregation()), mdp.getUnit()))
+                        .add(Coerce.toDouble(mdp.getValue()));
             }
         }
+        metricsRecorder.drainTo(aggregates);
+
+        // No aggregation if the metrics are empty
+        aggregates.forEach((namespace, namespaceAggregates) -> {
+            AggregatedNamespaceData aggMetrics = new AggregatedNamespaceData();
+            aggMetrics.setNamespace(namespace);
+            aggMetrics.setTimestamp(currTimestamp);
+            aggMetrics.setMetrics(doAggregation(namespaceAggregates));
+            metricFactory.logMetrics(new TelemetryLoggerMessage(aggMetrics));
+        });
     }
 
     /**
-     * This function takes in the map of metrics with metric name as key and returns a list of metrics with aggregation.
+     * This function takes in the map of metric aggregates with metric name as key and returns a list of metrics with
+     * aggregation.
      * Example:
      * Input:
      * NumOfComponentsInstalled
@@ -136,25 +211,18 @@ public class MetricsAggregator {
      * |___N -  NumOfComponentsInstalled,Average - 12.5,U - Count
      * |___N -  NumOfComponentsBroken,Average - 15,U - Count
      *
-     * @param map metric name -> metric
+     * @param map metric name -> aggregate of the metric values
      * @return a list of {@link AggregatedMetric}
      */
-    private List<AggregatedMetric> doAggregation(Map<String, List<Metric>> map) {
+    private List<AggregatedMetric> doAggregation(Map<String, RunningAggregate> map) {
         List<AggregatedMetric> aggMetrics = new ArrayList<>();
-        for (Map.Entry<String, List<Metric>> metric : map.entrySet()) {
-            String metricName = metric.getKey();
-            List<Metric> metrics = metric.getValue();
-            String aggregationType = Coerce.toString(metrics.get(0).getAggregation());
-            List<Double> values = new ArrayList<>();
-            for (Metric m : metrics) {
-                values.add(Coerce.toDouble(m.getValue()));
-            }
-            double aggregation = values.isEmpty() ? 0 : getAggregatedValue(values, aggregationType);
+        for (Map.Entry<String, RunningAggregate> metric : map.entrySet()) {
+            RunningAggregate aggregate = metric.getValue();
             Map<String, Object> value = new HashMap<>();
-            value.put(aggregationType, aggregation);
+            value.put(aggregate.aggregationType, aggregate.getValue());
             AggregatedMetric m = AggregatedMetric.builder()
-                    .name(metricName)
-                    .unit(metrics.get(0).getUnit())
+                    .name(metric.getKey())
+                    .unit(aggregate.unit)
                     .value(value)
                     .build();
             aggMetrics.add(m);
@@ -165,23 +233,24 @@ public class MetricsAggregator {
     /**
      * This function returns the set of all the aggregated metric data points that are to be published to the cloud
      * since the last upload. This also includes one extra aggregated point for each namespace which is the aggregation
-     * of aggregated points in that publish interval.
+     * of aggregated points in that publish interval. The namespaces of the nucleus internals are only aggregated
+     * locally, so they are left out. Only the lines appended to the aggregated metric files since the previous call are
+     * read, so the timestamps are expected to not decrease from one call to the next.
      *
      * @param lastPublish   timestamp at which the last publish was done.
      * @param currTimestamp timestamp at which the current publish is initiated.
      */
-    protected Map<Long, List<AggregatedNamespaceData>> getMetricsToPublish(long lastPublish, long currTimestamp) {
+    protected synchronized Map<Long, List<AggregatedNamespaceData>> getMetricsToPublish(long lastPublish,
+                                                                                     long currTimestamp) {
         // TODO: We do not need this map. This needs to be converted into a list.
         Map<Long, List<AggregatedNamespaceData>> aggUploadMetrics = new HashMap<>();
-        // Read from the Telemetry/AggregatedMetrics.log file.
-        // TODO: [P41214521] Read only those files that are modified after the last publish.
-        try (Stream<Path> paths = Files
-                .walk(TelemetryConfig.getTelemetryDirectory())
-                .filter(Files::isRegularFile)
-                .filter((path) -> Coerce.toString(path.getFileName()).startsWith(AGGREGATE_METRICS_FILE))) {
-            paths.forEach(path -> {
-                try (Stream<String> logs = Files.lines(path)) {
-                    logs.forEach(log -> {
+        List<AggregatedNamespaceData> aggregatedMetrics = new ArrayList<>(pendingAggregatedMetrics);
+        pendingAggregatedMetrics.clear();
+        // Read the new lines of the Telemetry/AggregatedMetrics.log files.
+        try {
+            aggregatedMetricsTailer.readNewLines(TelemetryConfig.getTelemetryDirectory(),
+                    (path) -> Coerce.toString(path.getFileName()).startsWith(AGGREGATE_METRICS_FILE),
+                    (path, log) -> {
                         try {
                             /* {"thread":"main","level":"TRACE","eventType":null,
 
@@ -192,27 +261,33 @@ public class MetricsAggregator {
                             {\"N\":\"SystemMemUsage\",\"V\":3000.0,\"U\":\"Megabytes\"}]}","contexts":{},"loggerName":
 
                             "Metrics-AggregateMetrics","timestamp":1599617227595,"cause":null} */
-                            GreengrassLogMessage egLog = objectMapper.readValue(log,
-                                    GreengrassLogMessage.class);
-                            AggregatedNamespaceData am = objectMapper.readValue(egLog.getMessage(),
-                                    AggregatedNamespaceData.class);
-                            // Avoid the metrics that are aggregated at/after the currTimestamp and before the
-                            // upload interval
-                            if (am != null && currTimestamp > am.getTimestamp() && am.getTimestamp() >= lastPublish) {
-                                aggUploadMetrics.computeIfAbsent(currTimestamp, k -> new ArrayList<>()).add(am);
+                            String message = readMessage(log);
+                            AggregatedNamespaceData am = message == null ? null
+                                    : objectMapper.readValue(message, AggregatedNamespaceData.class);
+                            if (am != null) {
+                                aggregatedMetrics.add(am);
                             }
-                        } catch (JsonProcessingException e) {
+                        } catch (IOException e) {
                             logger.atError().cause(e).log("Unable to parse the aggregated metric log.");
                         }
                     });
-                } catch (IOException e) {
-                    logger.atError().cause(e).log("Unable to parse the aggregated metric log file.");
-                }
-            });
         } catch (IOException e) {
             logger.atError().cause(e).log("Unable to read the aggregated metric files from the directory");
         }
 
+        for (AggregatedNamespaceData am : aggregatedMetrics) {
+            if (KernelMetricsEmitter.LOCAL_NAMESPACES.contains(am.getNamespace())) {
+                continue;
+            }
+            // Avoid the metrics that are aggregated before the upload interval, and keep the ones aggregated at/after
+            // the currTimestamp for the next upload
+            if (am.getTimestamp() >= currTimestamp) {
+                pendingAggregatedMetrics.add(am);
+            } else if (am.getTimestamp() >= lastPublish) {
+                aggUploadMetrics.computeIfAbsent(currTimestamp, k -> new ArrayList<>()).add(am);
+            }
+        }
+
         // If there are no metrics to be published, then we should return and not publish any telemetry messages.
         if (aggUploadMetrics.isEmpty()) {
             return aggUploadMetrics;
@@ -270,7 +345,9 @@ public class MetricsAggregator {
     private List<AggregatedNamespaceData> getAggForThePublishInterval(List<AggregatedNamespaceData> aggList,
                                                                       long currTimestamp) {
         List<AggregatedNamespaceData> list = new ArrayList<>();
-        for (String namespace : getNamespaceSet()) {
+        Set<String> namespaces = new LinkedHashSet<>();
+        aggList.forEach(am -> namespaces.add(am.getNamespace()));
+        for (String namespace : namespaces) {
             HashMap<String, List<AggregatedMetric>> metrics = new HashMap<>();
             AggregatedNamespaceData newAgg = new AggregatedNamespaceData();
             for (AggregatedNamespaceData am : aggList) {
@@ -315,14 +392,14 @@ public class MetricsAggregator {
         List<AggregatedMetric> aggMetrics = new ArrayList<>();
         for (Map.Entry<String, List<AggregatedMetric>> metric : map.entrySet()) {
             List<AggregatedMetric> metrics = metric.getValue();
-            List<Double> values = new ArrayList<>();
             metrics.get(0).getValue().forEach((aggType, aggValue) -> {
-                metrics.forEach((v) -> values.add(Coerce.toDouble(v.getValue().get(aggType))));
+                RunningAggregate aggregate = new RunningAggregate(aggType, metrics.get(0).getUnit());
+                metrics.forEach((v) -> aggregate.add(Coerce.toDouble(v.getValue().get(aggType))));
                 Map<String, Object> value = new HashMap<>();
-                value.put(aggType, values.isEmpty() ? 0 : getAggregatedValue(values, aggType));
+                value.put(aggType, aggregate.getValue());
                 AggregatedMetric m = AggregatedMetric.builder()
                         .name(metric.getKey())
-                        .unit(metrics.get(0).getUnit())
+                        .unit(aggregate.unit)
                         .value(value)
                         .build();
                 aggMetrics.add(m);
@@ -332,35 +409,54 @@ public class MetricsAggregator {
     }
 
     /**
-     * This method performs aggregation on the list of values of the metrics.
-     *
-     * @param values          list of the values extracted from the metrics
-     * @param aggregationType string value of {@link com.aws.greengrass.telemetry.models.TelemetryAggregation}
-     * @return returns an aggregated value for the entire list.
+     * Aggregate of the values of a metric, updated as the values are read.
      */
-    private double getAggregatedValue(List<Double> values, String aggregationType) {
-        double aggregation = 0;
-        switch (aggregationType) {
-            case "Average":
-                aggregation = values.stream().mapToDouble(Coerce::toDouble).sum();
-                if (!values.isEmpty()) {
-                    aggregation = aggregation / values.size();
-                }
-                break;
-            case "Sum":
-                aggregation = values.stream().mapToDouble(Coerce::toDouble).sum();
-                break;
-            case "Maximum":
-                aggregation = values.stream().mapToDouble(Coerce::toDouble).max().getAsDouble();
-                break;
-            case "Minimum":
-                aggregation = values.stream().mapToDouble(Coerce::toDouble).min().getAsDouble();
-                break;
-            default:
-                logger.atError().log("Unknown aggregation type: {}", aggregationType);
-                break;
+    static final class RunningAggregate {
+        private final String aggregationType;
+        private final TelemetryUnit unit;
+        private long count;
+        private double sum;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double min = Double.POSITIVE_INFINITY;
+
+        RunningAggregate(String aggregationType, TelemetryUnit unit) {
+            this.aggregationType = aggregationType;
+            this.unit = unit;
+        }
+
+        void add(double value) {
+            merge(1, value, value, value);
+        }
+
+        void merge(long count, double sum, double min, double max) {
+            this.count += count;
+            this.sum += sum;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+
+        /**
+         * Get the aggregated value.
+         *
+         * @return aggregated value of the {@link com.aws.greengrass.telemetry.models.TelemetryAggregation} type
+         */
+        double getValue() {
+            if (count == 0) {
+                return 0;
+            }
+            switch (aggregationType) {
+                case "Average":
+                    return sum / count;
+                case "Sum":
+                    return sum;
+                case "Maximum":
+                    return max;
+                case "Minimum":
+                    return min;
+                default:
+                    logger.atError().log("Unknown aggregation type: {}", aggregationType);
+                    return 0;
+            }
         }
-        return aggregation;
     }
 }
-
@@ -0,0 +1,122 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.telemetry;
+
+import com.aws.greengrass.telemetry.MetricsAggregator.RunningAggregate;
+import com.aws.greengrass.telemetry.impl.Metric;
+import com.aws.greengrass.telemetry.impl.MetricFactory;
+import com.aws.greengrass.telemetry.models.TelemetryUnit;
+import com.aws.greengrass.util.Coerce;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the metrics emitted in this process in memory until they are aggregated, instead of writing them to the
+ * telemetry log files and reading them back. Each metric is accumulated into a count, sum, minimum and maximum which
+ * are updated together without locking.
+ *
+ * <p>The metrics can also be written to the telemetry log files for debugging, in which case the
+ * {@link MetricsAggregator} still only aggregates them from memory.</p>
+ */
+public class MetricsRecorder {
+    // namespace -> metric name -> accumulator
+    private final Map<String, Map<String, MetricAccumulator>> accumulators = new ConcurrentHashMap<>();
+    // namespace -> timestamp from which its metrics are recorded in memory
+    private final Map<String, Long> recordingStarts = new ConcurrentHashMap<>();
+    private final Map<String, MetricFactory> metricFactories = new ConcurrentHashMap<>();
+    @Getter
+    @Setter
+    private volatile boolean writeToFiles;
+
+    /**
+     * Record a metric data point.
+     *
+     * @param metric metric with its value and timestamp
+     */
+    public void record(Metric metric) {
+        String namespace = metric.getNamespace();
+        recordingStarts.computeIfAbsent(namespace,
+                k -> Math.min(metric.getTimestamp(), Instant.now().toEpochMilli()));
+        accumulators.computeIfAbsent(namespace, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(metric.getName(),
+                        k -> new MetricAccumulator(Coerce.toString(metric.getAggregation()), metric.getUnit()))
+                .add(Coerce.toDouble(metric.getValue()));
+        if (writeToFiles) {
+            metricFactories.computeIfAbsent(namespace, MetricFactory::new).putMetricData(metric);
+        }
+    }
+
+    /**
+     * Get the timestamp from which the metrics of a namespace are recorded in memory. Data points of the namespace
+     * which are logged to the telemetry log files at/after it are already recorded.
+     *
+     * @param namespace metric namespace
+     * @return timestamp, or {@link Long#MAX_VALUE} if nothing was recorded for the namespace
+     */
+    long getRecordingStart(String namespace) {
+        return recordingStarts.getOrDefault(namespace, Long.MAX_VALUE);
+    }
+
+    /**
+     * Move the data points recorded since the last call into the aggregates of their metrics.
+     *
+     * @param aggregates namespace -> metric name -> aggregate, added to
+     */
+    void drainTo(Map<String, Map<String, RunningAggregate>> aggregates) {
+        accumulators.forEach((namespace, metrics) -> metrics.forEach((name, accumulator) -> {
+            Values v = accumulator.values.getAndSet(Values.EMPTY);
+            if (v.count > 0) {
+                aggregates.computeIfAbsent(namespace, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(name, k -> new RunningAggregate(accumulator.aggregationType, accumulator.unit))
+                        .merge(v.count, v.sum, v.min, v.max);
+            }
+        }));
+    }
+
+    private static final class MetricAccumulator {
+        private final String aggregationType;
+        private final TelemetryUnit unit;
+        private final AtomicReference<Values> values = new AtomicReference<>(Values.EMPTY);
+
+        MetricAccumulator(String aggregationType, TelemetryUnit unit) {
+            this.aggregationType = aggregationType;
+            this.unit = unit;
+        }
+
+        void add(double value) {
+            values.updateAndGet(v -> v.add(value));
+        }
+    }
+
+    /**
+     * Immutable values of an accumulator, replaced as a whole so that they are always consistent with each other.
+     */
+    private static final class Values {
+        static final Values EMPTY = new Values(0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+        final long count;
+        final double sum;
+        final double min;
+        final double max;
+
+        Values(long count, double sum, double min, double max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        Values add(double value) {
+            return new Values(count + 1, sum + value, Math.min(min, value), Math.max(max, value));
+        }
+    }
+}
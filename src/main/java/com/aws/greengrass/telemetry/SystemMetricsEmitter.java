@@ -8,7 +8,6 @@ package com.aws.greengrass.telemetry;
 import com.aws.greengrass.logging.api.Logger;
 import com.aws.greengrass.logging.impl.LogManager;
 import com.aws.greengrass.telemetry.impl.Metric;
-import com.aws.greengrass.telemetry.impl.MetricFactory;
 import com.aws.greengrass.telemetry.models.TelemetryAggregation;
 import com.aws.greengrass.telemetry.models.TelemetryUnit;
 import oshi.SystemInfo;
@@ -18,6 +17,7 @@ import oshi.hardware.GlobalMemory;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import javax.inject.Inject;
 
 public class SystemMetricsEmitter extends PeriodicMetricsEmitter {
     public static final Logger logger = LogManager.getLogger(SystemMetricsEmitter.class);
@@ -26,9 +26,20 @@ public class SystemMetricsEmitter extends PeriodicMetricsEmitter {
     public static final String NAMESPACE = "SystemMetrics";
     private static final SystemInfo systemInfo = new SystemInfo();
     private static final CentralProcessor cpu = systemInfo.getHardware().getProcessor();
-    private final MetricFactory mf = new MetricFactory(NAMESPACE);
+    private final MetricsRecorder metricsRecorder;
     private long[] previousTicks = new long[CentralProcessor.TickType.values().length];
 
+    /**
+     * Constructor for system metrics emitter.
+     *
+     * @param metricsRecorder {@link MetricsRecorder}
+     */
+    @Inject
+    public SystemMetricsEmitter(MetricsRecorder metricsRecorder) {
+        super();
+        this.metricsRecorder = metricsRecorder;
+    }
+
     /**
      * Emit kernel component state metrics.
      */
@@ -36,7 +47,7 @@ public class SystemMetricsEmitter extends PeriodicMetricsEmitter {
     public void emitMetrics() {
         List<Metric> retrievedMetrics = getMetrics();
         for (Metric retrievedMetric : retrievedMetrics) {
-            mf.putMetricData(retrievedMetric);
+            metricsRecorder.record(retrievedMetric);
         }
     }
 
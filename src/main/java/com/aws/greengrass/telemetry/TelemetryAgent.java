@@ -328,6 +328,7 @@ public class TelemetryAgent extends GreengrassService {
             cancelAllJobs();
         }
         currentConfiguration.set(newTelemetryConfiguration);
+        metricsAggregator.setWriteMetricsToFiles(newTelemetryConfiguration.isWriteMetricsToFiles());
         if (aggregateMetricsIntervalSecChanged) {
             schedulePeriodicAggregateMetrics(true);
         }
@@ -352,6 +353,7 @@ public class TelemetryAgent extends GreengrassService {
                 .periodicAggregateMetricsIntervalSeconds(telemetryConfiguration
                         .getPeriodicAggregateMetricsIntervalSeconds())
                 .enabled(telemetryConfiguration.isEnabled())
+                .writeMetricsToFiles(telemetryConfiguration.isWriteMetricsToFiles())
                 .build());
         synchronized (periodicPublishMetricsInProgressLock) {
             if (periodicPublishMetricsFuture != null && telemetryConfiguration.isEnabled()) {
@@ -369,6 +371,7 @@ public class TelemetryAgent extends GreengrassService {
                 .periodicPublishMetricsIntervalSeconds(telemetryConfiguration
                         .getPeriodicPublishMetricsIntervalSeconds())
                 .enabled(telemetryConfiguration.isEnabled())
+                .writeMetricsToFiles(telemetryConfiguration.isWriteMetricsToFiles())
                 .build());
 
         synchronized (periodicAggregateMetricsInProgressLock) {
@@ -27,6 +27,9 @@ public class TelemetryConfiguration {
     int periodicAggregateMetricsIntervalSeconds = DEFAULT_PERIODIC_AGGREGATE_INTERVAL_SEC;
     @Builder.Default
     int periodicPublishMetricsIntervalSeconds = DEFAULT_PERIODIC_PUBLISH_INTERVAL_SEC;
+    // Metrics are aggregated in memory, writing them to the telemetry log files is only needed for debugging
+    @Builder.Default
+    boolean writeMetricsToFiles = false;
 
     /**
      * Get the telemetry configuration from the POJO map.
@@ -37,6 +40,7 @@ public class TelemetryConfiguration {
         int periodicAggregateMetricsIntervalSec = DEFAULT_PERIODIC_AGGREGATE_INTERVAL_SEC;
         int periodicPublishMetricsIntervalSec = DEFAULT_PERIODIC_PUBLISH_INTERVAL_SEC;
         boolean isEnabled = true;
+        boolean writeMetricsToFiles = false;
         for (Map.Entry<String, Object> entry : pojo.entrySet()) {
             switch (entry.getKey()) {
                 case "enabled":
@@ -60,6 +64,9 @@ public class TelemetryConfiguration {
                     }
                     periodicPublishMetricsIntervalSec = newPeriodicPublishMetricsIntervalSec;
                     break;
+                case "writeMetricsToFiles":
+                    writeMetricsToFiles = Coerce.toBoolean(entry.getValue());
+                    break;
                 default:
                     break;
             }
@@ -74,6 +81,7 @@ public class TelemetryConfiguration {
                 .enabled(isEnabled)
                 .periodicAggregateMetricsIntervalSeconds(periodicAggregateMetricsIntervalSec)
                 .periodicPublishMetricsIntervalSeconds(periodicPublishMetricsIntervalSec)
+                .writeMetricsToFiles(writeMetricsToFiles)
                 .build();
     }
 }
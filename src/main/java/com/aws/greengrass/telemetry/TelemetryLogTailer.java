@@ -0,0 +1,106 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.telemetry;
+
+import com.aws.greengrass.logging.api.Logger;
+import com.aws.greengrass.logging.impl.LogManager;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Reads the lines appended to the log files in a directory since the previous read.
+ *
+ * <p>The read offset of each file is remembered by its file key, which is the inode on Unix-like systems, so that a
+ * file which is rotated by renaming it is read on from where it was left. Where the file system has no file keys,
+ * offsets are remembered by path, and a rotated file is read again from its start. A file which got smaller than its
+ * offset was replaced and is read from its start. A line is only read once it is complete.</p>
+ */
+class TelemetryLogTailer {
+    private static final Logger logger = LogManager.getLogger(TelemetryLogTailer.class);
+
+    private final Map<Object, Long> offsetsByFile = new HashMap<>();
+
+    /**
+     * Read the lines appended to the regular files accepted by the filter.
+     *
+     * @param directory directory to read the files of
+     * @param filter    files to read
+     * @param lines     called with the file and each new line of it
+     * @throws IOException if the directory can't be listed
+     */
+    void readNewLines(Path directory, Predicate<Path> filter, BiConsumer<Path, String> lines) throws IOException {
+        Map<Object, Long> offsets = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(Files::isRegularFile).filter(filter).forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    Object key = attributes.fileKey() == null ? path.toAbsolutePath() : attributes.fileKey();
+                    long offset = offsetsByFile.getOrDefault(key, 0L);
+                    if (attributes.size() < offset) {
+                        offset = 0;
+                    }
+                    if (attributes.size() > offset) {
+                        offset = readLines(path, offset, attributes.size(), lines);
+                    }
+                    offsets.put(key, offset);
+                } catch (IOException e) {
+                    logger.atError().cause(e).kv("file", path).log("Unable to read the telemetry log file");
+                }
+            });
+        }
+        // forget the files which are gone
+        offsetsByFile.clear();
+        offsetsByFile.putAll(offsets);
+    }
+
+    /**
+     * Read the complete lines between the offsets.
+     *
+     * @return offset after the last complete line
+     */
+    private static long readLines(Path path, long from, long to, BiConsumer<Path, String> lines) throws IOException {
+        long offset = from;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(from)))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            for (long position = from; position < to; position++) {
+                int b = in.read();
+                if (b < 0) {
+                    break;
+                }
+                if (b == '\n') {
+                    lines.accept(path, toLine(line));
+                    line.reset();
+                    offset = position + 1;
+                } else {
+                    line.write(b);
+                }
+            }
+        }
+        return offset;
+    }
+
+    private static String toLine(ByteArrayOutputStream line) {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
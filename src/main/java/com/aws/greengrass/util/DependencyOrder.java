@@ -8,8 +8,16 @@ package com.aws.greengrass.util;
 import com.aws.greengrass.logging.api.Logger;
 import com.aws.greengrass.logging.impl.LogManager;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class DependencyOrder<T> {
     private static final Logger logger = LogManager.getLogger(DependencyOrder.class);
@@ -20,32 +28,47 @@ public class DependencyOrder<T> {
     }
 
     /**
-     * Resolve the inter-dependency order within a given set of elements.
+     * Resolve the inter-dependency order within a given set of elements, using Kahn's algorithm: the number of
+     * unresolved dependencies of each element is counted, and an element is added to the order once the count drops
+     * to 0. Elements which depend on anything outside of the set, or which are in or depend on a cycle, are left out.
      *
      * @param pendingDependencies a set of inter-dependent elements
      * @param dependencyGetter function to get all dependency elements of the given element
-     * @return
+     * @return the elements, each after all of its dependencies
      */
     @SuppressWarnings("PMD.LooseCoupling")
     public LinkedHashSet<T> computeOrderedDependencies(Set<T> pendingDependencies,
                                                        DependencyGetter<T> dependencyGetter) {
+        Map<T, Integer> unresolvedCounts = new HashMap<>();
+        Map<T, List<T>> dependers = new HashMap<>();
+        Deque<T> resolved = new ArrayDeque<>();
+        for (T elem : pendingDependencies) {
+            Set<T> dependencies = dependencyGetter.getDependencies(elem);
+            unresolvedCounts.put(elem, dependencies.size());
+            if (dependencies.isEmpty()) {
+                resolved.add(elem);
+            }
+            for (T dependency : dependencies) {
+                dependers.computeIfAbsent(dependency, k -> new ArrayList<>()).add(elem);
+            }
+        }
+
         final LinkedHashSet<T> dependencyFound = new LinkedHashSet<>();
-        while (!pendingDependencies.isEmpty()) {
-            int sz = pendingDependencies.size();
-            pendingDependencies.removeIf(pendingService -> {
-                if (dependencyFound.containsAll(dependencyGetter.getDependencies(pendingService))) {
-                    dependencyFound.add(pendingService);
-                    return true;
+        while (!resolved.isEmpty()) {
+            T elem = resolved.poll();
+            dependencyFound.add(elem);
+            for (T depender : dependers.getOrDefault(elem, Collections.emptyList())) {
+                if (unresolvedCounts.merge(depender, -1, Integer::sum) == 0) {
+                    resolved.add(depender);
                 }
-                return false;
-            });
-            if (sz == pendingDependencies.size()) {
-                // didn't find anything to remove, there must be a cycle
-                logger.atError().kv("pendingItems", pendingDependencies).log(
-                        "Found potential circular dependencies. Ignoring all pending items");
-                break;
             }
         }
+        if (dependencyFound.size() < pendingDependencies.size()) {
+            // didn't resolve everything, there must be a cycle
+            logger.atError().kv("pendingItems", pendingDependencies.stream().filter(e -> !dependencyFound.contains(e))
+                    .collect(Collectors.toList()))
+                    .log("Found potential circular dependencies. Ignoring all pending items");
+        }
         return dependencyFound;
     }
 }
@@ -10,15 +10,10 @@ import com.aws.greengrass.logging.impl.LogManager;
 import com.aws.greengrass.util.platforms.Platform;
 import com.aws.greengrass.util.platforms.ShellDecorator;
 import com.aws.greengrass.util.platforms.UserDecorator;
-import lombok.Getter;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
@@ -77,7 +72,6 @@ public abstract class Exec implements Closeable {
     private IntConsumer whenDone;
     private Consumer<CharSequence> stdout = NOP;
     private Consumer<CharSequence> stderr = NOP;
-    private AtomicInteger numberOfCopiers;
     protected String[] cmds;
 
     protected ShellDecorator shellDecorator;
@@ -86,8 +80,8 @@ public abstract class Exec implements Closeable {
     protected File dir = userdir;
     private long timeout = -1;
     private TimeUnit timeunit = TimeUnit.SECONDS;
-    private Copier stderrc;
-    private Copier stdoutc;
+    private ProcessOutputPump.Pipe stderrc;
+    private ProcessOutputPump.Pipe stdoutc;
     protected Duration gracefulShutdownTimeout = Duration.ofSeconds(5);
 
     public static void setDefaultEnv(String key, String value) {
@@ -316,10 +310,19 @@ public abstract class Exec implements Closeable {
         process = createProcess();
         logger.debug("Created process with pid {}", getPid());
 
-        stderrc = new Copier(process.getErrorStream(), stderr);
-        stdoutc = new Copier(process.getInputStream(), stdout);
-        stderrc.start();
-        stdoutc.start();
+        AtomicInteger openPipes = new AtomicInteger(2);
+        Runnable onEof = () -> {
+            if (whenDone != null && openPipes.decrementAndGet() <= 0) {
+                try {
+                    process.waitFor();
+                    setClosed();
+                } catch (InterruptedException ignore) {
+                    // Ignore as this thread is done running anyway and will exit
+                }
+            }
+        };
+        stderrc = ProcessOutputPump.getInstance().register(process, process.getErrorStream(), stderr, onEof);
+        stdoutc = ProcessOutputPump.getInstance().register(process, process.getInputStream(), stdout, onEof);
         if (whenDone == null) {
             try {
                 if (timeout < 0) {
@@ -339,8 +342,10 @@ public abstract class Exec implements Closeable {
                 }
                 throw ie;
             }
-            stderrc.join(5000);
-            stdoutc.join(5000);
+            stderrc.processExited();
+            stdoutc.processExited();
+            stderrc.awaitEof(5000);
+            stdoutc.awaitEof(5000);
             return Optional.of(process.exitValue());
         }
         return Optional.empty();
@@ -412,76 +417,4 @@ public abstract class Exec implements Closeable {
     public String toString() {
         return Utils.deepToString(cmds, 90).toString();
     }
-
-    /**
-     * Sends the lines of an InputStream to a consumer in the background.
-     */
-    @SuppressWarnings("PMD.AvoidCatchingThrowable")
-    private class Copier extends Thread {
-        private final Consumer<CharSequence> out;
-        private final InputStream in;
-        @Getter
-        private int nlines = 0;
-
-        Copier(InputStream i, Consumer<CharSequence> s) {
-            super("Copier");
-            in = i;
-            out = s;
-            // Set as a daemon thread so that it dies when the main thread exits
-            setDaemon(true);
-            if (whenDone != null) {
-                if (numberOfCopiers == null) {
-                    numberOfCopiers = new AtomicInteger(1);
-                } else {
-                    numberOfCopiers.incrementAndGet();
-                }
-            }
-        }
-
-        @Override
-        public void run() {
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 200)) {
-                StringBuilder sb = new StringBuilder();
-                boolean cr = false;
-                while (true) {
-                    int c;
-                    for (c = br.read(); c >= 0 && c != '\n' && c != '\r'; c = br.read()) {
-                        sb.append((char) c);
-                        cr = false;
-                    }
-
-                    // Append a newline to our builder if we get \n or if we are seeing \r for the first time.
-                    // This prevents \r\n from causing 2 lines to be logged.
-                    // If cr is true and we see another \r, we will append a newline (\r\r is 2 lines).
-                    if (c >= 0 && !cr || c == '\r') {
-                        // Split on cr too, this protects us from having crazy long lines from a console application
-                        // which is using \r to rewrite the last line, ex updating download status.
-                        if (c == '\r') {
-                            cr = true;
-                        }
-                        sb.append('\n');
-                        nlines++;
-                    }
-                    if (out != null && sb.length() > 0) {
-                        out.accept(sb);
-                    }
-                    sb.setLength(0);
-                    if (c < 0) {
-                        break;
-                    }
-                }
-            } catch (Throwable ignore) {
-                // nothing that can go wrong here worries us, they're
-                // all EOFs
-            }
-            if (whenDone != null && numberOfCopiers.decrementAndGet() <= 0) {
-                try {
-                    process.waitFor();
-                    setClosed();
-                } catch (InterruptedException ignore) {
-                    // Ignore as this thread is done running anyway and will exit
-                }
-            }
-        }
-    }
 }
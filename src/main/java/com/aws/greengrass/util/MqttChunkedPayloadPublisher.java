@@ -14,6 +14,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Setter;
 import software.amazon.awssdk.crt.mqtt.QualityOfService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -39,121 +40,219 @@ public class MqttChunkedPayloadPublisher<T> {
      * @param variablePayloads The variable objects in the payload to chunk
      */
     public void publish(Chunkable<T> chunkablePayload, List<T> variablePayloads) {
+        for (byte[] payloadInBytes : serializeChunks(chunkablePayload, variablePayloads)) {
+            this.mqttClient.publish(PublishRequest.builder()
+                    .qos(QualityOfService.AT_LEAST_ONCE)
+                    .topic(this.updateTopic)
+                    .payload(payloadInBytes).build())
+                    .whenComplete((r, t) -> {
+                        if (t == null) {
+                            logger.atDebug().kv(topicKey, updateTopic).log("MQTT publish succeeded");
+                        } else {
+                            logger.atWarn().kv(topicKey, updateTopic).log("MQTT publish failed", t);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Serialize the payload into messages below the size limit.
+     *
+     * <p>Each variable payload is serialized once, and the messages are put together by writing the serialized
+     * variable payloads into the serialized common payload, so that the time to chunk is linear in the size of the
+     * payloads.</p>
+     *
+     * @param chunkablePayload The common object payload included in all the messages
+     * @param variablePayloads The variable objects in the payload to chunk
+     * @return serialized messages
+     */
+    public List<byte[]> serializeChunks(Chunkable<T> chunkablePayload, List<T> variablePayloads) {
         // reserve enough space for chunk info
         chunkablePayload.setChunkInfo(Integer.MAX_VALUE, Integer.MAX_VALUE);
-        int payloadCommonInformationSize;
+        Envelope envelope;
         try {
-            payloadCommonInformationSize = SERIALIZER.writeValueAsBytes(chunkablePayload).length;
+            envelope = Envelope.of(chunkablePayload);
         } catch (JsonProcessingException e) {
             logger.atError().cause(e).kv(topicKey, updateTopic)
                     .log("Unable to write common payload as bytes. Dropping the message");
-            return;
+            return Collections.emptyList();
+        }
+        if (envelope == null) {
+            logger.atError().kv(topicKey, updateTopic)
+                    .log("Unable to find the variable payloads in the common payload. Dropping the message");
+            return Collections.emptyList();
         }
 
         // if common info already exceeds limit, drop the publish request
-        if (payloadCommonInformationSize > maxPayloadLengthBytes) {
+        if (envelope.getSize() > maxPayloadLengthBytes) {
             logger.atError().kv(topicKey, updateTopic).log("Failed to publish payload via "
                     + "MqttChunkedPayloadPublisher because the common information payload size "
                     + "exceeded the max limit allowed");
-            return;
+            return Collections.emptyList();
         }
 
         // chunk variable payloads into multiple lists conforming to limit
-        List<List<T>> chunkedVariablePayloadList = chunkVariablePayloads(chunkablePayload, variablePayloads);
+        List<Chunk<T>> chunks = chunkVariablePayloads(envelope, variablePayloads);
 
-        for (int i = 0; i < chunkedVariablePayloadList.size(); i++) {
-            chunkablePayload.setVariablePayload(chunkedVariablePayloadList.get(i));
-            chunkablePayload.setChunkInfo(i + 1, chunkedVariablePayloadList.size());
+        List<byte[]> messages = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk<T> chunk = chunks.get(i);
+            chunkablePayload.setChunkInfo(i + 1, chunks.size());
             try {
-                byte[] payloadInBytes = SERIALIZER.writeValueAsBytes(chunkablePayload);
-                this.mqttClient.publish(PublishRequest.builder()
-                        .qos(QualityOfService.AT_LEAST_ONCE)
-                        .topic(this.updateTopic)
-                        .payload(payloadInBytes).build())
-                        .whenComplete((r, t) -> {
-                            if (t == null) {
-                                logger.atDebug().kv(topicKey, updateTopic).log("MQTT publish succeeded");
-                            } else {
-                                logger.atWarn().kv(topicKey, updateTopic).log("MQTT publish failed", t);
-                            }
-                        });
+                Envelope chunkEnvelope = Envelope.of(chunkablePayload);
+                chunkablePayload.setVariablePayload(chunk.payloads);
+                messages.add(chunkEnvelope == null ? SERIALIZER.writeValueAsBytes(chunkablePayload)
+                        : chunkEnvelope.wrap(chunk));
             } catch (JsonProcessingException e) {
                 logger.atError().cause(e).kv(topicKey, updateTopic).log("Failed to publish message via "
                         + "MqttChunkedPayloadPublisher. Unable to write message as bytes");
             }
         }
+        return messages;
     }
 
     /**
-     * Chunk the variable objects into multiple lists below size limit.
+     * Chunk the variable objects into multiple lists below size limit, placing each one into the first chunk which
+     * has room for it.
      *
+     * @param envelope         serialized common objects
      * @param variablePayloads variable objects
-     * @param chunkablePayload common objects
-     * @return a list of variable object list
+     * @return chunks of serialized variable objects
      */
-    private List<List<T>> chunkVariablePayloads(Chunkable<T> chunkablePayload, List<T> variablePayloads) {
-        List<List<T>> chunkedVariablePayloadList = new ArrayList<>();
-
-        // if the total size is smaller than the limit, then we don't need to chunk at all
-        try {
-            if (getUpdatedChunkablePayloadSize(chunkablePayload, variablePayloads) < maxPayloadLengthBytes) {
-                chunkedVariablePayloadList.add(variablePayloads);
-                return chunkedVariablePayloadList;
-            }
-        } catch (JsonProcessingException e) {
-            logger.atError().cause(e).kv(topicKey, updateTopic)
-                    .log("Unable to write chunkable payload as bytes. Will continue with chunking");
-        }
-
-
-        chunkedVariablePayloadList.add(new ArrayList<>());
+    private List<Chunk<T>> chunkVariablePayloads(Envelope envelope, List<T> variablePayloads) {
+        List<Chunk<T>> chunks = new ArrayList<>();
+        Chunk<T> all = new Chunk<>();
         for (T payload : variablePayloads) {
-            // if the single payload size plus common info size exceeds the max limit, drop the payload
             try {
-                if (getUpdatedChunkablePayloadSize(chunkablePayload, Collections.singletonList(payload))
-                        > maxPayloadLengthBytes) {
-                    logger.atWarn().kv(topicKey, updateTopic).log("Dropping a variable payload in "
-                            + "chunkable payload publish because its size exceed the max limit allowed");
-                    continue;
-                }
+                all.add(payload, SERIALIZER.writeValueAsBytes(payload));
             } catch (JsonProcessingException e) {
                 logger.atError().cause(e).kv(topicKey, updateTopic)
                         .log("Unable to write chunkable payload as bytes. Dropping the variable payload");
+            }
+        }
+
+        // if the total size is smaller than the limit, then we don't need to chunk at all
+        if (envelope.getSize() + all.getSizeInBytes() < maxPayloadLengthBytes) {
+            chunks.add(all);
+            return chunks;
+        }
+
+        for (int i = 0; i < all.payloads.size(); i++) {
+            byte[] serialized = all.serializedPayloads.get(i);
+            // if the single payload size plus common info size exceeds the max limit, drop the payload
+            if (envelope.getSize() + serialized.length > maxPayloadLengthBytes) {
+                logger.atWarn().kv(topicKey, updateTopic).log("Dropping a variable payload in "
+                        + "chunkable payload publish because its size exceed the max limit allowed");
                 continue;
             }
 
-            boolean fitIntoExistingChunks = false;
+            Chunk<T> target = null;
             // try adding to an existing chunk
-            for (List<T> chunk : chunkedVariablePayloadList) {
-                try {
-                    // get payload size from updated chunkable
-                    // note that size(existing_chunk) + size(payload) may not equal size(updated_chunk)
-                    // because of how serializer works
-                    chunk.add(payload);
-                    if (getUpdatedChunkablePayloadSize(chunkablePayload, chunk) < maxPayloadLengthBytes) {
-                        fitIntoExistingChunks = true;
-                    } else {
-                        chunk.remove(chunk.size() - 1);
-                    }
-                } catch (JsonProcessingException e) {
-                    logger.atError().cause(e).kv(topicKey, updateTopic)
-                            .log("Unable to write chunkable payload as bytes. Dropping the variable payload");
-                    chunk.remove(chunk.size() - 1);
+            for (Chunk<T> chunk : chunks) {
+                if (envelope.getSize() + chunk.getSizeInBytesWith(serialized) < maxPayloadLengthBytes) {
+                    target = chunk;
                     break;
                 }
             }
-
-            // if we can't add to any exiting chunk, then we should create a new chunk,
-            if (!fitIntoExistingChunks) {
-                chunkedVariablePayloadList.add(new ArrayList<>(Collections.singletonList(payload)));
+            // if we can't add to any exiting chunk, then we should create a new chunk
+            if (target == null) {
+                target = new Chunk<>();
+                chunks.add(target);
             }
+            target.add(all.payloads.get(i), serialized);
         }
-        return chunkedVariablePayloadList;
+        return chunks;
     }
 
-    private int getUpdatedChunkablePayloadSize(Chunkable<T> chunkablePayload, List<T> variablePayloads)
-            throws JsonProcessingException {
-        chunkablePayload.setVariablePayload(variablePayloads);
-        return SERIALIZER.writeValueAsBytes(chunkablePayload).length;
+    /**
+     * Variable objects of one message along with their serialized form.
+     */
+    private static final class Chunk<T> {
+        private final List<T> payloads = new ArrayList<>();
+        private final List<byte[]> serializedPayloads = new ArrayList<>();
+        private int payloadBytes;
+
+        void add(T payload, byte[] serialized) {
+            payloads.add(payload);
+            serializedPayloads.add(serialized);
+            payloadBytes += serialized.length;
+        }
+
+        int getSizeInBytes() {
+            // separated by commas
+            return payloadBytes + Math.max(0, serializedPayloads.size() - 1);
+        }
+
+        int getSizeInBytesWith(byte[] serialized) {
+            return payloadBytes + serialized.length + serializedPayloads.size();
+        }
+    }
+
+    /**
+     * Common objects serialized with an empty list of variable objects, split where the variable objects go.
+     */
+    private static final class Envelope {
+        private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+        private final byte[] serialized;
+        private final int insertAt;
+
+        private Envelope(byte[] serialized, int insertAt) {
+            this.serialized = serialized;
+            this.insertAt = insertAt;
+        }
+
+        /**
+         * Serialize the common objects, and find where the variable objects go by comparing them with a list of
+         * one null variable object.
+         *
+         * @return envelope, null if the variable objects aren't serialized as a list
+         */
+        static <T> Envelope of(Chunkable<T> chunkablePayload) throws JsonProcessingException {
+            chunkablePayload.setVariablePayload(Collections.emptyList());
+            byte[] empty = SERIALIZER.writeValueAsBytes(chunkablePayload);
+            chunkablePayload.setVariablePayload(Collections.singletonList(null));
+            byte[] withNull = SERIALIZER.writeValueAsBytes(chunkablePayload);
+            if (withNull.length != empty.length + NULL.length) {
+                return null;
+            }
+            int insertAt = 0;
+            while (insertAt < empty.length && empty[insertAt] == withNull[insertAt]) {
+                insertAt++;
+            }
+            if (!regionMatches(withNull, insertAt, NULL, 0, NULL.length)
+                    || !regionMatches(withNull, insertAt + NULL.length, empty, insertAt, empty.length - insertAt)) {
+                return null;
+            }
+            return new Envelope(empty, insertAt);
+        }
+
+        int getSize() {
+            return serialized.length;
+        }
+
+        byte[] wrap(Chunk<?> chunk) {
+            byte[] message = new byte[serialized.length + chunk.getSizeInBytes()];
+            System.arraycopy(serialized, 0, message, 0, insertAt);
+            int position = insertAt;
+            for (int i = 0; i < chunk.serializedPayloads.size(); i++) {
+                if (i > 0) {
+                    message[position++] = ',';
+                }
+                byte[] payload = chunk.serializedPayloads.get(i);
+                System.arraycopy(payload, 0, message, position, payload.length);
+                position += payload.length;
+            }
+            System.arraycopy(serialized, insertAt, message, position, serialized.length - insertAt);
+            return message;
+        }
+
+        private static boolean regionMatches(byte[] a, int aFrom, byte[] b, int bFrom, int length) {
+            for (int i = 0; i < length; i++) {
+                if (a[aFrom + i] != b[bFrom + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
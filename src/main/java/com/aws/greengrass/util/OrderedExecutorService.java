@@ -12,27 +12,69 @@ import lombok.Getter;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 
 /**
  * This Executor warrants task ordering for tasks with same key (key have to implement hashCode and equal methods
  * correctly).
+ *
+ * <p>Every key with pending tasks has its own mailbox, a lock free queue and a count of the tasks submitted to it.
+ * The submission which finds the mailbox idle schedules it on the executor, and the mailbox then runs its tasks one
+ * at a time until it's empty again, at which point it's closed and removed. A submission racing with the removal
+ * never uses the closed mailbox, so there is no global lock on either path.</p>
  */
 public class OrderedExecutorService implements Executor {
     private static final Logger log = LogManager.getLogger(OrderedExecutorService.class);
+    private static final int CLOSED = -1;
+    private static final int DROPPED = -2;
+    private static final long BLOCKED_WAIT_MILLIS = 10;
     private final Executor executor;
     @Getter(AccessLevel.PACKAGE)
-    private final Map<Object, BlockingQueue<Runnable>> keyedOrderedTasks = new HashMap<>();
+    private final Map<Object, Mailbox> keyedOrderedTasks = new ConcurrentHashMap<>();
+    private final AtomicLong droppedTasks = new AtomicLong();
+    private volatile int maxTasksPerKey = Integer.MAX_VALUE;
+    private volatile QueueFullPolicy queueFullPolicy = QueueFullPolicy.BLOCK;
+
+    /**
+     * What to do with a task submitted for a key which already has the maximum number of pending tasks.
+     */
+    public enum QueueFullPolicy {
+        /**
+         * Drop the task.
+         */
+        DROP,
+        /**
+         * Block the caller until the key has room for the task. Must not be used when tasks submit tasks for their
+         * own key.
+         */
+        BLOCK
+    }
 
     @Inject
     public OrderedExecutorService(Executor executor) {
         this.executor = executor;
     }
 
+    /**
+     * Limit the number of pending tasks per key. Unlimited by default.
+     *
+     * @param maxTasks maximum number of tasks, including the running one, of a key
+     * @param policy   what to do with tasks submitted while the key is at the limit
+     * @return this
+     */
+    public OrderedExecutorService withMaxTasksPerKey(int maxTasks, QueueFullPolicy policy) {
+        this.maxTasksPerKey = maxTasks;
+        this.queueFullPolicy = policy;
+        return this;
+    }
+
     @Override
     public void execute(Runnable task) {
         // task without key can be executed immediately
@@ -54,55 +96,133 @@ public class OrderedExecutorService implements Executor {
             return;
         }
 
-        AtomicBoolean isFirst = new AtomicBoolean(false);
-        Runnable orderedTask;
-        synchronized (keyedOrderedTasks) {
-            BlockingQueue<Runnable> dependencyQueue = keyedOrderedTasks.computeIfAbsent(key, o -> {
-                isFirst.set(true);
-                return new LinkedBlockingDeque<>();
-            });
-            orderedTask = new OrderedTask(task, dependencyQueue, key);
-            if (!isFirst.get()) {
-                dependencyQueue.add(orderedTask);
+        while (true) {
+            Mailbox mailbox = keyedOrderedTasks.computeIfAbsent(key, Mailbox::new);
+            int pending = mailbox.reserve();
+            if (pending == CLOSED) {
+                // lost the race with the mailbox going idle, help remove it and retry with a new one
+                keyedOrderedTasks.remove(key, mailbox);
+                continue;
+            }
+            if (pending == DROPPED) {
+                droppedTasks.incrementAndGet();
+                log.atWarn().kv("key", key).kv("maxTasksPerKey", maxTasksPerKey)
+                        .log("Dropping ordered task since too many tasks are pending for the key");
+                return;
             }
+            mailbox.tasks.offer(task);
+            if (pending == 0) {
+                // execute method can block, it's called without holding anything
+                executor.execute(mailbox);
+            }
+            return;
         }
+    }
 
-        // execute method can block, call it outside synchronize block
-        if (isFirst.get()) {
-            executor.execute(orderedTask);
-        }
+    /**
+     * Get the number of pending tasks, including the running one, of every key which has any.
+     *
+     * @return pending tasks by key
+     */
+    public Map<Object, Integer> getQueueDepths() {
+        Map<Object, Integer> depths = new HashMap<>();
+        keyedOrderedTasks.forEach((key, mailbox) -> {
+            int pending = mailbox.pending.get();
+            if (pending > 0) {
+                depths.put(key, pending);
+            }
+        });
+        return depths;
     }
 
-    class OrderedTask implements Runnable {
-        private final BlockingQueue<Runnable> runnables;
-        private final Runnable task;
+    /**
+     * Get the number of tasks dropped so far because their key had too many pending tasks.
+     *
+     * @return dropped tasks
+     */
+    public long getDroppedTaskCount() {
+        return droppedTasks.get();
+    }
+
+    class Mailbox implements Runnable {
         private final Object key;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // tasks submitted and not finished yet, CLOSED once the mailbox went idle and must not be used anymore
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger blockedSubmitters = new AtomicInteger();
 
-        public OrderedTask(Runnable task, BlockingQueue<Runnable> runnables, Object key) {
-            this.task = task;
-            this.runnables = runnables;
+        Mailbox(Object key) {
             this.key = key;
         }
 
+        /**
+         * Reserve a slot for one more task.
+         *
+         * @return the number of tasks pending before, {@link #CLOSED} if the mailbox is closed, or {@link #DROPPED}
+         *         if the task must be dropped
+         */
+        private int reserve() {
+            while (true) {
+                int current = pending.get();
+                if (current == CLOSED) {
+                    return CLOSED;
+                }
+                if (current >= maxTasksPerKey) {
+                    if (queueFullPolicy == QueueFullPolicy.DROP) {
+                        return DROPPED;
+                    }
+                    awaitRoom();
+                    continue;
+                }
+                if (pending.compareAndSet(current, current + 1)) {
+                    return current;
+                }
+            }
+        }
+
+        private void awaitRoom() {
+            blockedSubmitters.incrementAndGet();
+            try {
+                synchronized (this) {
+                    int current = pending.get();
+                    if (current != CLOSED && current >= maxTasksPerKey) {
+                        // timed so that a notification racing with this check only delays the submitter
+                        wait(BLOCKED_WAIT_MILLIS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting to submit an ordered task", e);
+            } finally {
+                blockedSubmitters.decrementAndGet();
+            }
+        }
+
         @SuppressWarnings("PMD.AvoidCatchingThrowable")
         @Override
         public void run() {
+            Runnable task = tasks.poll();
+            while (task == null) {
+                // the slot was reserved, the submitter is about to add the task
+                Thread.yield();
+                task = tasks.poll();
+            }
             try {
                 task.run();
             } catch (Throwable e) {
                 log.atError().cause(e).log("Error executing ordered task for key: {}", this.key);
             } finally {
-                synchronized (keyedOrderedTasks) {
-                    keyedOrderedTasks.computeIfPresent(key, (o, runnables) -> {
-                        if (runnables.isEmpty()) {
-                            return null;
-                        }
-                        Runnable runnable = this.runnables.poll();
-                        if (runnable != null) {
-                            executor.execute(runnable);
-                        }
-                        return runnables;
-                    });
+                int remaining = pending.decrementAndGet();
+                if (blockedSubmitters.get() > 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+                if (remaining > 0) {
+                    // one task per executor run, so that a busy key doesn't hold on to a thread
+                    executor.execute(this);
+                } else if (pending.compareAndSet(0, CLOSED)) {
+                    keyedOrderedTasks.remove(key, this);
                 }
             }
         }
@@ -0,0 +1,341 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.util;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Sends the lines which child processes write to their stdout and stderr to consumers, without a thread per stream.
+ *
+ * <p>Process pipes can't be waited on with a selector in Java, so a small number of pump threads take turns over the
+ * pipes of the running processes and read whatever is available from each of them in bulk, which never blocks. A pump
+ * thread backs off while none of its pipes has anything to read. At most one buffer is read from a pipe per turn, so a
+ * process which writes a lot doesn't hold up the others and is slowed down by its pipe filling up instead.</p>
+ *
+ * <p>Once the process exited, the rest of its pipe is read to the end on a pooled thread, as that read may block
+ * until other processes holding the pipe open exit as well.</p>
+ *
+ * <p>Lines are split on \n, \r and \r\n and passed on with a trailing \n. Lines longer than the maximum line length
+ * are split into several lines.</p>
+ */
+public final class ProcessOutputPump {
+    // JVM options for the number of pump threads and the maximum length of a line in bytes
+    static final String PUMP_THREADS_PROPERTY = "aws.greengrass.processOutputPumpThreads";
+    static final String MAX_LINE_LENGTH_PROPERTY = "aws.greengrass.processOutputMaxLineLength";
+    private static final int DEFAULT_PUMP_THREADS = 2;
+    private static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MAX_IDLE_MILLIS = 50;
+
+    private static final ProcessOutputPump INSTANCE =
+            new ProcessOutputPump(Integer.getInteger(PUMP_THREADS_PROPERTY, DEFAULT_PUMP_THREADS),
+                    Integer.getInteger(MAX_LINE_LENGTH_PROPERTY, DEFAULT_MAX_LINE_LENGTH));
+
+    private final PumpThread[] pumps;
+    private final AtomicInteger nextPump = new AtomicInteger();
+    private final int maxLineLength;
+    private final ExecutorService drainers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Copier");
+        // Set as a daemon thread so that it dies when the main thread exits
+        t.setDaemon(true);
+        return t;
+    });
+
+    ProcessOutputPump(int pumpThreads, int maxLineLength) {
+        this.maxLineLength = Math.max(1, maxLineLength);
+        pumps = new PumpThread[Math.max(1, pumpThreads)];
+        for (int i = 0; i < pumps.length; i++) {
+            pumps[i] = new PumpThread("Process output pump " + i);
+            pumps[i].start();
+        }
+    }
+
+    public static ProcessOutputPump getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Stop the pump threads. Pipes which are being drained are still read to the end.
+     */
+    void shutdown() {
+        for (PumpThread pump : pumps) {
+            pump.stopped = true;
+            LockSupport.unpark(pump);
+        }
+        drainers.shutdown();
+    }
+
+    /**
+     * Start sending the lines of a pipe of a process to a consumer.
+     *
+     * @param process process writing to the pipe
+     * @param in      pipe to read
+     * @param out     consumer of the lines, may be null to discard them
+     * @param onEof   called once the whole pipe was read
+     * @return the registered pipe
+     */
+    public Pipe register(Process process, InputStream in, Consumer<CharSequence> out, Runnable onEof) {
+        Pipe pipe = new Pipe(process, in, new LineSplitter(out, maxLineLength), onEof);
+        PumpThread pump = pumps[Math.floorMod(nextPump.getAndIncrement(), pumps.length)];
+        pump.pipes.add(pipe);
+        LockSupport.unpark(pump);
+        return pipe;
+    }
+
+    /**
+     * A pipe of a process which is being read.
+     */
+    public final class Pipe {
+        private final Process process;
+        private final InputStream in;
+        private final LineSplitter lines;
+        private final Runnable onEof;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // held while reading the pipe, which the drainer may do in a blocking read
+        private final Lock reading = new ReentrantLock();
+        private final CountDownLatch eof = new CountDownLatch(1);
+
+        Pipe(Process process, InputStream in, LineSplitter lines, Runnable onEof) {
+            this.process = process;
+            this.in = in;
+            this.lines = lines;
+            this.onEof = onEof;
+        }
+
+        /**
+         * Get the number of complete lines read so far.
+         *
+         * @return number of lines
+         */
+        public int getNlines() {
+            return lines.getNlines();
+        }
+
+        /**
+         * Read the rest of the pipe right away instead of when the pump next finds that the process exited.
+         */
+        public void processExited() {
+            if (draining.compareAndSet(false, true)) {
+                drainers.execute(this::drain);
+            }
+        }
+
+        /**
+         * Wait until the whole pipe was read.
+         *
+         * @param timeoutMillis maximum time to wait
+         * @return true if the whole pipe was read
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean awaitEof(long timeoutMillis) throws InterruptedException {
+            return eof.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Read what is available without blocking.
+         *
+         * @return true if anything was read
+         * @throws IOException if the pipe can't be read
+         */
+        boolean pump(byte[] buffer) throws IOException {
+            // never wait for the drainer, as that would hold up every other pipe of the pump thread
+            if (draining.get() || !reading.tryLock()) {
+                return false;
+            }
+            try {
+                if (draining.get()) {
+                    return false;
+                }
+                int available = in.available();
+                if (available <= 0) {
+                    return false;
+                }
+                int read = in.read(buffer, 0, Math.min(available, buffer.length));
+                if (read > 0) {
+                    lines.accept(buffer, read);
+                }
+                return read > 0;
+            } finally {
+                reading.unlock();
+            }
+        }
+
+        @SuppressWarnings("PMD.AvoidCatchingThrowable")
+        private void drain() {
+            // waits for at most one pump turn, which doesn't block
+            reading.lock();
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                try {
+                    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                        lines.accept(buffer, read);
+                    }
+                } catch (Throwable ignore) {
+                    // nothing that can go wrong here worries us, they're
+                    // all EOFs
+                }
+                lines.flush();
+                // the JDK doesn't close the pipes of an exited process on every platform
+                Utils.close(in);
+            } finally {
+                reading.unlock();
+            }
+            eof.countDown();
+            onEof.run();
+        }
+    }
+
+    private static final class PumpThread extends Thread {
+        private final Queue<Pipe> pipes = new ConcurrentLinkedQueue<>();
+        private volatile boolean stopped;
+
+        PumpThread(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long idleMillis = 1;
+            while (!stopped) {
+                boolean read = false;
+                for (Pipe pipe : pipes) {
+                    if (!pipe.process.isAlive()) {
+                        pipes.remove(pipe);
+                        pipe.processExited();
+                        continue;
+                    }
+                    try {
+                        read |= pipe.pump(buffer);
+                    } catch (IOException e) {
+                        // closed, read whatever is left once the process exited
+                        pipes.remove(pipe);
+                        pipe.processExited();
+                    }
+                }
+                if (read) {
+                    idleMillis = 1;
+                } else {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(idleMillis));
+                    idleMillis = Math.min(idleMillis * 2, MAX_IDLE_MILLIS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the bytes read from a pipe into lines of UTF-8 text.
+     */
+    static final class LineSplitter {
+        private final Consumer<CharSequence> out;
+        private final int maxLineLength;
+        private byte[] line = new byte[128];
+        private int length;
+        // the last line ended with \r, so a \n right after it doesn't start another line
+        private boolean cr;
+        @Getter(AccessLevel.PACKAGE)
+        private int nlines;
+
+        LineSplitter(Consumer<CharSequence> out, int maxLineLength) {
+            this.out = out;
+            this.maxLineLength = maxLineLength;
+        }
+
+        void accept(byte[] bytes, int count) {
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                byte b = bytes[i];
+                if (b != '\n' && b != '\r') {
+                    continue;
+                }
+                if (b == '\n' && cr && i == start) {
+                    cr = false;
+                } else {
+                    // Split on cr too, this protects us from having crazy long lines from a console application
+                    // which is using \r to rewrite the last line, ex updating download status.
+                    append(bytes, start, i - start);
+                    emit(true);
+                    cr = b == '\r';
+                }
+                start = i + 1;
+            }
+            if (start < count) {
+                append(bytes, start, count - start);
+                cr = false;
+            }
+        }
+
+        void flush() {
+            if (length > 0) {
+                emit(false);
+            }
+        }
+
+        private void append(byte[] bytes, int offset, int count) {
+            int off = offset;
+            int len = count;
+            while (len > maxLineLength - length) {
+                int cut = maxLineLength - length;
+                // don't split a UTF-8 encoded character
+                while (cut > 0 && (bytes[off + cut] & 0xC0) == 0x80) {
+                    cut--;
+                }
+                if (cut == 0 && length == 0) {
+                    cut = maxLineLength;
+                }
+                copy(bytes, off, cut);
+                off += cut;
+                len -= cut;
+                emit(true);
+            }
+            copy(bytes, off, len);
+        }
+
+        private void copy(byte[] bytes, int off, int len) {
+            if (length + len > line.length) {
+                line = Arrays.copyOf(line, Math.min(maxLineLength, Math.max(line.length * 2, length + len)));
+            }
+            System.arraycopy(bytes, off, line, length, len);
+            length += len;
+        }
+
+        @SuppressWarnings("PMD.AvoidCatchingThrowable")
+        private void emit(boolean newline) {
+            String text = new String(line, 0, length, StandardCharsets.UTF_8);
+            length = 0;
+            if (newline) {
+                nlines++;
+                text += '\n';
+            }
+            if (out != null) {
+                try {
+                    out.accept(text);
+                } catch (Throwable ignore) {
+                    // a failing consumer doesn't stop the process output from being read
+                }
+            }
+        }
+    }
+}
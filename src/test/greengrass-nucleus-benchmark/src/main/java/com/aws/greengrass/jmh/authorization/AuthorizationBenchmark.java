@@ -0,0 +1,114 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.authorization;
+
+import com.aws.greengrass.authorization.AuthorizationHandler;
+import com.aws.greengrass.authorization.AuthorizationHandler.ResourceLookupPolicy;
+import com.aws.greengrass.authorization.AuthorizationModule;
+import com.aws.greengrass.authorization.AuthorizationPolicy;
+import com.aws.greengrass.authorization.AuthorizationPolicyParser;
+import com.aws.greengrass.authorization.Permission;
+import com.aws.greengrass.authorization.exceptions.AuthorizationException;
+import com.aws.greengrass.lifecyclemanager.Kernel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.aws.greengrass.ipc.modules.PubSubIPCService.PUB_SUB_SERVICE_NAME;
+import static software.amazon.awssdk.aws.greengrass.GreengrassCoreIPCService.PUBLISH_TO_TOPIC;
+
+/**
+ * Authorizing IPC publishes against 1,000 policies of one destination, each granting one component a mix of exact
+ * and wildcard topics. The hot request benchmark authorizes the same request over and over, while the other one
+ * goes through more distinct requests than the decision cache holds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Measurement(iterations = 5)
+@Warmup(iterations = 3)
+@State(Scope.Benchmark)
+public class AuthorizationBenchmark {
+    private static final int POLICIES = 1000;
+    private static final int REQUESTS = 8192;
+
+    private final Permission[] requests = new Permission[REQUESTS];
+    private Kernel kernel;
+    private AuthorizationHandler authorizationHandler;
+    private int next;
+
+    @Setup
+    public void setup() {
+        kernel = new Kernel();
+        authorizationHandler = new AuthorizationHandler(kernel, new AuthorizationModule(),
+                new AuthorizationPolicyParser());
+        List<AuthorizationPolicy> policies = new ArrayList<>(POLICIES);
+        for (int i = 0; i < POLICIES; i++) {
+            policies.add(AuthorizationPolicy.builder()
+                    .policyId("policy" + i)
+                    .principals(Collections.singleton("Component" + i))
+                    .operations(Collections.singleton(PUBLISH_TO_TOPIC))
+                    .resources(new HashSet<>(Arrays.asList("factory/line" + i % 10 + "/device" + i + "/telemetry",
+                            "factory/+/device" + i + "/status", "factory/line" + i % 10 + "/device" + i + "/logs/#",
+                            "alarms/*/device" + i)))
+                    .build());
+        }
+        authorizationHandler.loadAuthorizationPolicies(PUB_SUB_SERVICE_NAME, policies, false);
+        for (int i = 0; i < REQUESTS; i++) {
+            int component = i % POLICIES;
+            String topic;
+            switch (i / POLICIES % 4) {
+                case 0:
+                    topic = "factory/line" + component % 10 + "/device" + component + "/telemetry";
+                    break;
+                case 1:
+                    topic = "factory/line" + component % 10 + "/device" + component + "/status";
+                    break;
+                case 2:
+                    topic = "factory/line" + component % 10 + "/device" + component + "/logs/" + i;
+                    break;
+                default:
+                    topic = "alarms/line" + i + "/device" + component;
+                    break;
+            }
+            requests[i] = Permission.builder().principal("Component" + component).operation(PUBLISH_TO_TOPIC)
+                    .resource(topic).build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        kernel.shutdown();
+    }
+
+    @Benchmark
+    public boolean authorizeHotRequest() throws AuthorizationException {
+        return authorizationHandler.isAuthorized(PUB_SUB_SERVICE_NAME, requests[0],
+                ResourceLookupPolicy.MQTT_STYLE);
+    }
+
+    @Benchmark
+    public boolean authorizeDistinctRequests() throws AuthorizationException {
+        next = (next + 1) % REQUESTS;
+        return authorizationHandler.isAuthorized(PUB_SUB_SERVICE_NAME, requests[next],
+                ResourceLookupPolicy.MQTT_STYLE);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.config;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.jmh.profilers.ForcedGcMemoryProfiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Heap footprint of the config tree for a realistic 200 component deployment. Run with
+ * {@code -prof com.aws.greengrass.jmh.profilers.ForcedGcMemoryProfiler} to report the used heap while the tree is
+ * alive.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(3)
+@Measurement(iterations = 1)
+@Warmup(iterations = 0)
+public class ConfigFootprintBenchmark {
+    private static final int COMPONENTS = 200;
+    private static final int CONFIGURATION_KEYS = 40;
+
+    @Benchmark
+    public void config200Components() throws Exception {
+        try (Context context = new Context()) {
+            Configuration config = new Configuration(context);
+            config.mergeMap(System.currentTimeMillis(), buildConfig());
+            context.waitForPublishQueueToClear();
+            // look up every node's path as the tlog writer would
+            config.getRoot().deepForEachTopic(t -> t.path());
+            ForcedGcMemoryProfiler.recordUsedMemory();
+        }
+    }
+
+    private static Map<String, Object> buildConfig() {
+        Map<String, Object> services = new HashMap<>();
+        for (int c = 0; c < COMPONENTS; c++) {
+            Map<String, Object> lifecycle = new HashMap<>();
+            lifecycle.put("install", "pip3 install --user -r {artifacts:path}/requirements.txt");
+            lifecycle.put("run", "python3 -u {artifacts:path}/component" + c + ".py");
+            lifecycle.put("setenv", map("PYTHONUNBUFFERED", "1"));
+
+            Map<String, Object> configuration = new HashMap<>();
+            for (int k = 0; k < CONFIGURATION_KEYS; k++) {
+                configuration.put("setting" + k, k % 2 == 0 ? "value" + k : k);
+            }
+            configuration.put("accessControl", map("aws.greengrass.ipc.pubsub",
+                    map("component" + c + ":pubsub:1", map("policyDescription", "Allows publish",
+                            "operations", Arrays.asList("aws.greengrass#PublishToTopic"),
+                            "resources", Arrays.asList("topic/" + c + "/*")))));
+
+            Map<String, Object> service = new HashMap<>();
+            service.put("componentType", "GENERIC");
+            service.put("version", "1.0." + c);
+            service.put("dependencies", Arrays.asList("aws.greengrass.Nucleus"));
+            service.put("lifecycle", lifecycle);
+            service.put("configuration", configuration);
+            service.put("runtime", map("serviceUniqueId", "id" + c));
+            services.put("com.example.Component" + c, service);
+        }
+        return map("services", services);
+    }
+
+    private static Map<String, Object> map(Object... keyValues) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+}
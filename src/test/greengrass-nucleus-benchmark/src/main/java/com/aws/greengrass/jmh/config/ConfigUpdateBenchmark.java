@@ -0,0 +1,81 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.config;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.config.UpdateBehaviorTree;
+import com.aws.greengrass.dependency.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures merging a large deployment into the config tree, including the change notifications that run on the
+ * publish queue. Run with {@code -prof gc} to also report allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Measurement(iterations = 10)
+@Warmup(iterations = 3)
+@State(Scope.Benchmark)
+public class ConfigUpdateBenchmark {
+    private static final int SERVICES = 200;
+    private static final int KEYS_PER_SERVICE = 250;
+
+    private final Map<String, Object> update = buildUpdate();
+    private Context context;
+    private Configuration config;
+    private long timestamp = 1;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        context = new Context();
+        config = new Configuration(context);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public Configuration updateFromMap50kKeys() {
+        config.updateMap(update, new UpdateBehaviorTree(UpdateBehaviorTree.UpdateBehavior.MERGE, timestamp++));
+        context.waitForPublishQueueToClear();
+        return config;
+    }
+
+    private static Map<String, Object> buildUpdate() {
+        Map<String, Object> services = new HashMap<>();
+        for (int s = 0; s < SERVICES; s++) {
+            Map<String, Object> configuration = new HashMap<>();
+            for (int k = 0; k < KEYS_PER_SERVICE; k++) {
+                configuration.put("key" + k, "value" + k);
+            }
+            Map<String, Object> service = new HashMap<>();
+            service.put("configuration", configuration);
+            services.put("component" + s, service);
+        }
+        Map<String, Object> root = new HashMap<>();
+        root.put("services", services);
+        return root;
+    }
+}
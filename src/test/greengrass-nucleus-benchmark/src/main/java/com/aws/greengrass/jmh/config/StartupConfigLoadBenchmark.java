@@ -0,0 +1,130 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.config;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.config.ConfigurationReader;
+import com.aws.greengrass.config.ConfigurationWriter;
+import com.aws.greengrass.config.TlogFormat;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load the config of a 200 component deployment at startup, either by replaying the whole tlog or from the
+ * config snapshot plus the tlog records written after it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Measurement(iterations = 10)
+@Warmup(iterations = 3)
+@State(Scope.Benchmark)
+public class StartupConfigLoadBenchmark {
+    private static final int COMPONENTS = 200;
+    private static final int CONFIGURATION_KEYS = 40;
+    // updates written after the snapshot, as during a deployment that was interrupted by a crash
+    private static final int UPDATES_AFTER_SNAPSHOT = 500;
+
+    @Param({"JSON", "BINARY"})
+    public TlogFormat format;
+
+    @Param({"TLOG", "SNAPSHOT"})
+    public String source;
+
+    private Path dir;
+    private Path tlog;
+    private Path snapshot;
+    private Context context;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("startup-config");
+        tlog = dir.resolve("config.tlog");
+        snapshot = dir.resolve("config.snapshot");
+        try (Context writeContext = new Context()) {
+            Configuration config = new Configuration(writeContext);
+            config.mergeMap(System.currentTimeMillis(), buildConfig());
+            writeContext.waitForPublishQueueToClear();
+            ConfigurationWriter.dump(config, tlog, format);
+            // closing a writer with a snapshot path writes the snapshot for the whole tlog
+            ConfigurationWriter.logTransactionsTo(config, tlog, format).withSnapshot(snapshot).close();
+            try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog, format)) {
+                for (int i = 0; i < UPDATES_AFTER_SNAPSHOT; i++) {
+                    config.lookup("services", "com.example.Component" + i % COMPONENTS, "configuration",
+                            "setting0").withValue("updated" + i);
+                }
+                writeContext.waitForPublishQueueToClear();
+            }
+        }
+        context = new Context();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Utils.deleteFileRecursively(dir.toFile());
+    }
+
+    @Benchmark
+    public Configuration loadConfig() throws IOException {
+        if ("SNAPSHOT".equals(source)) {
+            Configuration config = new Configuration(context);
+            if (!ConfigurationReader.mergeSnapshotInto(config, snapshot, tlog)) {
+                throw new IllegalStateException("Snapshot does not match the tlog");
+            }
+            return config;
+        }
+        Configuration config = ConfigurationReader.createFromTLog(context, tlog);
+        context.waitForPublishQueueToClear();
+        return config;
+    }
+
+    private static Map<String, Object> buildConfig() {
+        Map<String, Object> services = new HashMap<>();
+        for (int c = 0; c < COMPONENTS; c++) {
+            Map<String, Object> lifecycle = new HashMap<>();
+            lifecycle.put("install", "pip3 install --user -r {artifacts:path}/requirements.txt");
+            lifecycle.put("run", "python3 -u {artifacts:path}/component" + c + ".py");
+
+            Map<String, Object> configuration = new HashMap<>();
+            for (int k = 0; k < CONFIGURATION_KEYS; k++) {
+                configuration.put("setting" + k, k % 2 == 0 ? "value" + k : k);
+            }
+
+            Map<String, Object> service = new HashMap<>();
+            service.put("componentType", "GENERIC");
+            service.put("version", "1.0." + c);
+            service.put("dependencies", Arrays.asList("aws.greengrass.Nucleus"));
+            service.put("lifecycle", lifecycle);
+            service.put("configuration", configuration);
+            services.put("com.example.Component" + c, service);
+        }
+        Map<String, Object> root = new HashMap<>();
+        root.put("services", services);
+        return root;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.lifecyclemanager;
+
+import com.aws.greengrass.dependency.State;
+import com.aws.greengrass.lifecyclemanager.Kernel;
+import com.aws.greengrass.util.Utils;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Time for the kernel to start 200 services which have no dependencies on each other, so that their lifecycle threads
+ * change state concurrently, and for the main service depending on all of them to finish. Measures the contention of
+ * the state changes of the services and of sending them to the state change listeners of every dependency.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Measurement(iterations = 10)
+@Warmup(iterations = 3)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class ConcurrentServiceStartupBenchmark {
+    private static final int SERVICES = 200;
+
+    private Path rootDir;
+    private Path configFile;
+    private Kernel kernel;
+    private CountDownLatch mainFinished;
+
+    @Setup(Level.Trial)
+    public void writeConfig() throws IOException {
+        Map<String, Object> services = new HashMap<>();
+        List<String> dependencies = new ArrayList<>();
+        for (int i = 0; i < SERVICES; i++) {
+            String name = "com.example.Component" + i;
+            dependencies.add(name);
+            // nothing to run, so the service finishes as soon as it starts
+            services.put(name, Collections.singletonMap("lifecycle", Collections.emptyMap()));
+        }
+        Map<String, Object> main = new HashMap<>();
+        main.put("lifecycle", Collections.emptyMap());
+        main.put("dependencies", dependencies);
+        services.put("main", main);
+        configFile = Files.createTempFile("concurrent-service-startup", ".yaml");
+        new YAMLMapper().writeValue(configFile.toFile(), Collections.singletonMap("services", services));
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        rootDir = Files.createTempDirectory("concurrent-service-startup");
+        kernel = new Kernel().parseArgs("-r", rootDir.toString(), "-i", configFile.toString());
+        mainFinished = new CountDownLatch(1);
+        kernel.getContext().addGlobalStateChangeListener((service, oldState, newState) -> {
+            if ("main".equals(service.getName()) && State.FINISHED.equals(newState)) {
+                mainFinished.countDown();
+            }
+        });
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        kernel.shutdown();
+        Utils.deleteFileRecursively(rootDir.toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteConfig() throws IOException {
+        Files.deleteIfExists(configFile);
+    }
+
+    @Benchmark
+    public void start200Services() throws InterruptedException, TimeoutException {
+        kernel.launch();
+        if (!mainFinished.await(2, TimeUnit.MINUTES)) {
+            throw new TimeoutException("Services did not finish starting");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.mqttclient;
+
+import com.aws.greengrass.mqttclient.spool.FileSystemSpool;
+import com.aws.greengrass.mqttclient.spool.SpoolMessage;
+import com.aws.greengrass.mqttclient.spool.SpoolerStoreException;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the file system spool with 1 KB messages, each operation spooling in one message and spooling out the
+ * one 10k messages before it, and the time to recover the message order from 1 GB of spooled messages when the spool
+ * is opened.
+ */
+@Fork(1)
+public class FileSystemSpoolBenchmark {
+    private static final int PAYLOAD_SIZE = 1024;
+    private static final Publish REQUEST = Publish.builder().topic("factory/line1/telemetry").qos(QOS.AT_LEAST_ONCE)
+            .payload(new byte[PAYLOAD_SIZE]).build();
+
+    @State(Scope.Benchmark)
+    public static class SteadyState {
+        private static final int BACKLOG = 10_000;
+
+        Path directory;
+        FileSystemSpool spool;
+        long nextId;
+
+        @Setup
+        public void setup() throws IOException, SpoolerStoreException {
+            directory = Files.createTempDirectory("spool");
+            spool = new FileSystemSpool(directory);
+            for (; nextId < BACKLOG; nextId++) {
+                spool.add(nextId, SpoolMessage.builder().id(nextId).request(REQUEST).build());
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            spool.close();
+            Utils.deleteFileRecursively(directory.toFile());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Backlog {
+        private static final long SPOOLED_BYTES = 1024L * 1024 * 1024;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, SpoolerStoreException {
+            directory = Files.createTempDirectory("spool");
+            FileSystemSpool spool = new FileSystemSpool(directory);
+            for (long id = 0; id < SPOOLED_BYTES / PAYLOAD_SIZE; id++) {
+                spool.add(id, SpoolMessage.builder().id(id).request(REQUEST).build());
+            }
+            spool.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Utils.deleteFileRecursively(directory.toFile());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 5)
+    @Warmup(iterations = 3)
+    public SpoolMessage spoolInAndOut(SteadyState state) throws SpoolerStoreException {
+        long id = state.nextId++;
+        state.spool.add(id, SpoolMessage.builder().id(id).request(REQUEST).build());
+        long oldest = id - SteadyState.BACKLOG;
+        SpoolMessage message = state.spool.getMessageById(oldest);
+        state.spool.removeMessageById(oldest);
+        return message;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    @Warmup(iterations = 1)
+    public long recover1GB(Backlog backlog) throws IOException {
+        FileSystemSpool spool = new FileSystemSpool(backlog.directory);
+        AtomicLong bytes = new AtomicLong();
+        spool.recoverMessages((id, payloadSize, qos) -> bytes.addAndGet(payloadSize));
+        spool.close();
+        return bytes.get();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.mqttclient;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.dependency.State;
+import com.aws.greengrass.jmh.profilers.MiscResultRecorderProfiler;
+import com.aws.greengrass.mqttclient.PayloadCompressor;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.status.model.ComponentDetails;
+import com.aws.greengrass.status.model.ComponentStatusDetails;
+import com.aws.greengrass.status.model.FleetStatusDetails;
+import com.aws.greengrass.status.model.MessageType;
+import com.aws.greengrass.status.model.OverallStatus;
+import com.aws.greengrass.status.model.Trigger;
+import com.aws.greengrass.telemetry.AggregatedMetric;
+import com.aws.greengrass.telemetry.AggregatedNamespaceData;
+import com.aws.greengrass.telemetry.MetricsPayload;
+import com.aws.greengrass.telemetry.models.TelemetryUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.AggregationPolicy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of compressing fleet status and telemetry payloads as the nucleus serializes them, with and without the
+ * preset dictionary. Run with {@code -prof com.aws.greengrass.jmh.profilers.MiscResultRecorderProfiler} to also report
+ * the compression ratio of each payload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Measurement(iterations = 5)
+@Warmup(iterations = 3)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class PayloadCompressionBenchmark {
+    private static final ObjectMapper SERIALIZER = new ObjectMapper();
+    private static final String TOPIC = "$aws/things/thing/greengrassv2/health/json";
+
+    @Param({"fleetStatus30Components", "fleetStatus200Components", "telemetry"})
+    public String payload;
+
+    @Param({"true", "false"})
+    public boolean useDictionary;
+
+    Context context;
+    PayloadCompressor compressor;
+    Publish publish;
+
+    @Setup
+    public void setup() throws IOException {
+        context = new Context();
+        Configuration config = new Configuration(context);
+        config.lookup("mqtt", "compression", "topics").withValue(Collections.singletonList(TOPIC));
+        config.lookup("mqtt", "compression", "useDictionary").withValue(useDictionary);
+        compressor = new PayloadCompressor();
+        compressor.configure(config.lookupTopics("mqtt"), true);
+
+        byte[] bytes;
+        if ("telemetry".equals(payload)) {
+            bytes = SERIALIZER.writeValueAsBytes(telemetry());
+        } else {
+            bytes = SERIALIZER.writeValueAsBytes(fleetStatus(payload.contains("200") ? 200 : 30));
+        }
+        publish = Publish.builder().topic(TOPIC).qos(QOS.AT_LEAST_ONCE).payload(bytes).build();
+        MiscResultRecorderProfiler.setResult("compressionRatio",
+                (double) bytes.length / compressor.compress(publish).getPayload().length, "ratio",
+                AggregationPolicy.AVG);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public Publish compress() {
+        return compressor.compress(publish);
+    }
+
+    private static FleetStatusDetails fleetStatus(int componentCount) {
+        List<ComponentDetails> components = new ArrayList<>();
+        for (int i = 0; i < componentCount; i++) {
+            boolean nucleusComponent = i % 5 == 0;
+            components.add(ComponentDetails.builder()
+                    .componentName(nucleusComponent ? "aws.greengrass.Component" + i : "com.example.Component" + i)
+                    .version(nucleusComponent ? "2.12." + i % 3 : "1.0." + i)
+                    .fleetConfigArns(nucleusComponent ? Collections.emptyList() : Collections.singletonList(
+                            "arn:aws:greengrass:us-east-1:123456789012:configuration:thinggroup/factory-line-"
+                                    + i % 4 + ":" + (10 + i % 7)))
+                    .componentStatusDetails(i % 17 == 0 ? ComponentStatusDetails.builder()
+                            .statusCodes(Arrays.asList("RUN_ERROR", "EXIT_CODE(1)"))
+                            .statusReason("The run script exited with code 1").build() : null)
+                    .isRoot(!nucleusComponent)
+                    .state(i % 17 == 0 ? State.BROKEN : i % 3 == 0 ? State.FINISHED : State.RUNNING)
+                    .build());
+        }
+        return FleetStatusDetails.builder().ggcVersion("2.12.0").platform("linux").architecture("aarch64")
+                .thing("factory-gateway-0042").overallStatus(OverallStatus.HEALTHY).sequenceNumber(1842)
+                .timestamp(1_700_000_000_000L).messageType(MessageType.COMPLETE).trigger(Trigger.CADENCE)
+                .componentDetails(components).build();
+    }
+
+    private static MetricsPayload telemetry() {
+        List<AggregatedNamespaceData> data = new ArrayList<>();
+        // an hour of metrics aggregated every 5 minutes
+        for (int interval = 0; interval < 12; interval++) {
+            long timestamp = 1_700_000_000_000L + interval * 300_000L;
+            data.add(AggregatedNamespaceData.builder().timestamp(timestamp).namespace("SystemMetrics")
+                    .metrics(Arrays.asList(metric("CpuUsage", "Average", 12.5 + interval, TelemetryUnit.Percent),
+                            metric("TotalNumberOfFDs", "Average", 1800 + interval * 7, TelemetryUnit.Count),
+                            metric("SystemMemUsage", "Average", 812 + interval, TelemetryUnit.Megabytes)))
+                    .build());
+            List<AggregatedMetric> components = new ArrayList<>();
+            for (String state : Arrays.asList("Installed", "Running", "Finished", "Errored", "Broken", "Stopping",
+                    "New", "Starting", "Stateless")) {
+                components.add(metric("NumberOfComponents" + state, "Max", state.length(), TelemetryUnit.Count));
+            }
+            data.add(AggregatedNamespaceData.builder().timestamp(timestamp).namespace("GreengrassComponents")
+                    .metrics(components).build());
+        }
+        return MetricsPayload.builder().aggregatedNamespaceData(data).build();
+    }
+
+    private static AggregatedMetric metric(String name, String aggregation, double value, TelemetryUnit unit) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(aggregation, value);
+        return AggregatedMetric.builder().name(name).value(values).unit(unit).build();
+    }
+}
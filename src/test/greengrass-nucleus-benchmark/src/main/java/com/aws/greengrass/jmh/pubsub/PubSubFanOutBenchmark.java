@@ -0,0 +1,113 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.pubsub;
+
+import com.aws.greengrass.authorization.AuthorizationHandler;
+import com.aws.greengrass.builtin.services.pubsub.PubSubIPCEventStreamAgent;
+import com.aws.greengrass.builtin.services.pubsub.SubscribeRequest;
+import com.aws.greengrass.util.OrderedExecutorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.aws.greengrass.GreengrassCoreIPCServiceModel;
+import software.amazon.awssdk.aws.greengrass.model.SubscriptionResponseMessage;
+import software.amazon.awssdk.eventstreamrpc.StreamEventPublisher;
+
+import java.lang.reflect.Constructor;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One publisher sending 1 KB binary messages to 50 IPC subscribers. Subscribers encode the message into its
+ * eventstream payload as the IPC server does when sending it. {@code PER_SUBSCRIBER} encodes a copy of the message
+ * for every subscriber, as every subscriber stream did before messages were shared, while {@code SHARED} sends the
+ * message the agent built as is.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Measurement(iterations = 5)
+@Warmup(iterations = 3)
+@State(Scope.Benchmark)
+public class PubSubFanOutBenchmark {
+    private static final String TOPIC = "factory/line1/telemetry";
+    private static final int SUBSCRIBERS = 50;
+
+    @Param({"PER_SUBSCRIBER", "SHARED"})
+    public String encoding;
+
+    private final byte[] payload = new byte[1024];
+    private final Phaser delivered = new Phaser(1);
+    private ExecutorService pool;
+    private PubSubIPCEventStreamAgent agent;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        new Random(0).nextBytes(payload);
+        pool = Executors.newCachedThreadPool();
+        Constructor<PubSubIPCEventStreamAgent> constructor = PubSubIPCEventStreamAgent.class
+                .getDeclaredConstructor(AuthorizationHandler.class, OrderedExecutorService.class);
+        constructor.setAccessible(true);
+        // publishing from internal services is not authorized, so there is no need for an authorization handler
+        agent = constructor.newInstance(null, new OrderedExecutorService(pool));
+        boolean copy = "PER_SUBSCRIBER".equals(encoding);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            agent.subscribe(SubscribeRequest.builder().topic(TOPIC).serviceName("Subscriber" + i)
+                    .callback(new EncodingSubscriber(copy)).build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public void publishTo50Subscribers() {
+        // every subscriber arrives once it encoded the message
+        delivered.bulkRegister(SUBSCRIBERS);
+        agent.publish(TOPIC, payload, "Publisher");
+        delivered.arriveAndAwaitAdvance();
+    }
+
+    private class EncodingSubscriber implements StreamEventPublisher<SubscriptionResponseMessage> {
+        private final boolean copy;
+
+        EncodingSubscriber(boolean copy) {
+            this.copy = copy;
+        }
+
+        @Override
+        public CompletableFuture<Void> sendStreamEvent(SubscriptionResponseMessage event) {
+            SubscriptionResponseMessage toSend = event;
+            if (copy) {
+                toSend = new SubscriptionResponseMessage();
+                toSend.setBinaryMessage(event.getBinaryMessage());
+            }
+            GreengrassCoreIPCServiceModel.getInstance().toJson(toSend);
+            delivered.arriveAndDeregister();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> closeStream() {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
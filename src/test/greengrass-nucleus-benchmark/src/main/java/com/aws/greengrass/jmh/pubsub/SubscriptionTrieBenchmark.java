@@ -0,0 +1,82 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.pubsub;
+
+import com.aws.greengrass.builtin.services.pubsub.SubscriptionTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching local publishes against 10k subscriptions, a mix of exact topics and topics with {@code +} and {@code #}.
+ * The hot topic benchmark publishes to the same topic over and over, while the other one goes through more topics
+ * than the trie caches matches for. Run with {@code -prof gc} to also report allocation per publish.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Measurement(iterations = 5)
+@Warmup(iterations = 3)
+@State(Scope.Benchmark)
+public class SubscriptionTrieBenchmark {
+    private static final int SUBSCRIPTIONS = 10_000;
+    private static final int DEVICES = 1000;
+    private static final int TOPICS = 8192;
+
+    private final SubscriptionTrie<Object> trie = new SubscriptionTrie<>();
+    private final String[] topics = new String[TOPICS];
+    private int next;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            int device = i % DEVICES;
+            String subscription;
+            switch (i % 4) {
+                case 0:
+                    subscription = "factory/line" + device % 10 + "/device" + device + "/telemetry";
+                    break;
+                case 1:
+                    subscription = "factory/+/device" + device + "/+";
+                    break;
+                case 2:
+                    subscription = "factory/line" + device % 10 + "/device" + device + "/#";
+                    break;
+                default:
+                    subscription = "factory/+/+/alarm" + device + "/#";
+                    break;
+            }
+            trie.add(subscription, new Object());
+        }
+        for (int i = 0; i < TOPICS; i++) {
+            int device = i % DEVICES;
+            int sensor = i / DEVICES;
+            topics[i] = "factory/line" + device % 10 + "/device" + device
+                    + (sensor == 0 ? "/telemetry" : "/sensor" + sensor);
+        }
+    }
+
+    @Benchmark
+    public Set<Object> publishHotTopic() {
+        return trie.get(topics[0]);
+    }
+
+    @Benchmark
+    public Set<Object> publishDistinctTopics() {
+        next = (next + 1) % TOPICS;
+        return trie.get(topics[next]);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.util;
+
+import com.aws.greengrass.util.DependencyOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to compute the dependency order of 1,000 synthetic services, each depending on up to 3 others, as the kernel
+ * does after the dependencies of its services changed. The services are listed dependers first, which is the worst
+ * case for resolving them in passes over the list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Measurement(iterations = 5)
+@Warmup(iterations = 3)
+@State(Scope.Benchmark)
+public class DependencyOrderBenchmark {
+    private static final int SERVICES = 1000;
+    private static final int MAX_DEPENDENCIES = 3;
+
+    Map<String, Set<String>> dependencies;
+    List<String> services;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        dependencies = new HashMap<>();
+        services = new ArrayList<>(SERVICES);
+        for (int i = 0; i < SERVICES; i++) {
+            String service = "com.example.Component" + i;
+            Set<String> serviceDependencies = new HashSet<>();
+            for (int d = 0; i > 0 && d < MAX_DEPENDENCIES; d++) {
+                serviceDependencies.add("com.example.Component" + random.nextInt(i));
+            }
+            dependencies.put(service, serviceDependencies);
+            services.add(service);
+        }
+        Collections.reverse(services);
+    }
+
+    @Benchmark
+    public LinkedHashSet<String> order1000Services() {
+        return new DependencyOrder<String>().computeOrderedDependencies(new LinkedHashSet<>(services),
+                dependencies::get);
+    }
+}
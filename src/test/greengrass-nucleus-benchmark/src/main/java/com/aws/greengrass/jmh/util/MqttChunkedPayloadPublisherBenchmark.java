@@ -0,0 +1,71 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.util;
+
+import com.aws.greengrass.dependency.State;
+import com.aws.greengrass.status.model.ComponentDetails;
+import com.aws.greengrass.status.model.FleetStatusDetails;
+import com.aws.greengrass.status.model.MessageType;
+import com.aws.greengrass.status.model.OverallStatus;
+import com.aws.greengrass.status.model.Trigger;
+import com.aws.greengrass.util.MqttChunkedPayloadPublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to chunk a complete fleet status update of a device with 1,000 components into messages of up to 128 KB, as
+ * the fleet status service does on every periodic update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Measurement(iterations = 5)
+@Warmup(iterations = 3)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class MqttChunkedPayloadPublisherBenchmark {
+    private static final int COMPONENTS = 1000;
+    private static final int MAX_PAYLOAD_LENGTH_BYTES = 128_000;
+
+    MqttChunkedPayloadPublisher<ComponentDetails> publisher;
+    List<ComponentDetails> components;
+
+    @Setup
+    public void setup() {
+        // only serializes, nothing is published
+        publisher = new MqttChunkedPayloadPublisher<>(null);
+        publisher.setUpdateTopic("$aws/things/thing/greengrassv2/health/json");
+        publisher.setMaxPayloadLengthBytes(MAX_PAYLOAD_LENGTH_BYTES);
+        components = new ArrayList<>(COMPONENTS);
+        for (int i = 0; i < COMPONENTS; i++) {
+            components.add(ComponentDetails.builder().componentName("com.example.Component" + i)
+                    .version("1.0." + i)
+                    .fleetConfigArns(Collections.singletonList(
+                            "arn:aws:greengrass:us-east-1:123456789012:configuration:thinggroup/group" + i % 10 + ":3"))
+                    .isRoot(true).state(State.RUNNING).build());
+        }
+    }
+
+    @Benchmark
+    public List<byte[]> chunk1000Components() {
+        FleetStatusDetails fleetStatusDetails = FleetStatusDetails.builder().ggcVersion("2.12.0").platform("linux")
+                .architecture("aarch64").thing("thing").overallStatus(OverallStatus.HEALTHY).sequenceNumber(1)
+                .timestamp(System.currentTimeMillis()).messageType(MessageType.COMPLETE).trigger(Trigger.CADENCE)
+                .build();
+        return publisher.serializeChunks(fleetStatusDetails, components);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.jmh.util;
+
+import com.aws.greengrass.util.OrderedExecutorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on the ordered executor with 8 threads submitting tasks at once, each to its own keys like publishers
+ * delivering to different subscribers. Every operation submits a batch of tasks and waits until they ran.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Measurement(iterations = 5)
+@Warmup(iterations = 3)
+@Threads(8)
+public class OrderedExecutorServiceBenchmark {
+    private static final int BATCH = 100;
+    private static final int KEYS_PER_THREAD = 8;
+
+    @State(Scope.Benchmark)
+    public static class Executor {
+        ExecutorService pool;
+        OrderedExecutorService orderedExecutor;
+
+        @Setup
+        public void setup() {
+            pool = Executors.newFixedThreadPool(8);
+            orderedExecutor = new OrderedExecutorService(pool);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdownNow();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final Object[] keys = new Object[KEYS_PER_THREAD];
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = new Object();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void submitOrderedTasks(Executor executor, Keys keys) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            executor.orderedExecutor.execute(done::countDown, keys.keys[i % KEYS_PER_THREAD]);
+        }
+        done.await();
+    }
+}
@@ -389,6 +389,34 @@ class AuthorizationHandlerTest {
                 Permission.builder().principal("compB").operation("OpA").resource(null).build()));
     }
 
+    @Test
+    void GIVEN_cached_decisions_WHEN_policies_reloaded_THEN_decisions_follow_new_policies() throws Exception {
+        AuthorizationHandler authorizationHandler = new AuthorizationHandler(mockKernel, authModule, policyParser);
+        when(mockKernel.findServiceTopic(anyString())).thenReturn(mockTopics);
+        Set<String> serviceOps = new HashSet<>(Arrays.asList("OpA", "OpB", "OpC"));
+        authorizationHandler.registerComponent("ServiceA", serviceOps);
+
+        authorizationHandler.loadAuthorizationPolicies("ServiceA", Collections.singletonList(getAuthZPolicy()),
+                false);
+        Permission compA = Permission.builder().principal("compA").operation("OpA").resource(null).build();
+        Permission compC = Permission.builder().principal("compC").operation("OpA").resource(null).build();
+        // look up twice so that the second decision comes from the cache
+        for (int i = 0; i < 2; i++) {
+            assertTrue(authorizationHandler.isAuthorized("ServiceA", compA));
+            assertThrows(AuthorizationException.class, () -> authorizationHandler.isAuthorized("ServiceA", compC));
+        }
+
+        AuthorizationPolicy reloaded = AuthorizationPolicy.builder()
+                .policyId("Id1")
+                .policyDescription("Test policy")
+                .principals(new HashSet<>(Collections.singletonList("compC")))
+                .operations(new HashSet<>(Collections.singletonList("OpA")))
+                .build();
+        authorizationHandler.loadAuthorizationPolicies("ServiceA", Collections.singletonList(reloaded), true);
+        assertTrue(authorizationHandler.isAuthorized("ServiceA", compC));
+        assertThrows(AuthorizationException.class, () -> authorizationHandler.isAuthorized("ServiceA", compA));
+    }
+
     @Test
     void GIVEN_AuthZ_handler_WHEN_service_registered_THEN_auth_lookup_for_star_resource_works() throws Exception {
         AuthorizationHandler authorizationHandler = new AuthorizationHandler(mockKernel, authModule, policyParser);
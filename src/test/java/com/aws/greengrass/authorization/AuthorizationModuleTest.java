@@ -23,6 +23,7 @@ import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -189,7 +190,9 @@ class AuthorizationModuleTest {
         });
         String componentToRemove = "ComponentB";
         module.deletePermissionsWithDestination(componentToRemove);
-        assertThat(module.resourceAuthZCompleteMap, not(hasKey("ComponentB")));
+        assertThat(module.rawResourceList, not(hasKey("ComponentB")));
+        assertFalse(module.isPresent("ComponentB",
+                Permission.builder().principal("ComponentC").operation("Op2").resource("res2").build()));
     }
 
     @Test
@@ -436,6 +436,13 @@ class WildcardTrieTest {
         assertFalse(rt3.matchesMQTT("12/3"));
         assertFalse(rt3.matchesMQTT("abc/def/g"));
 
+        // an escaped "*" followed by a wildcard stays a literal "*"
+        rt3.add("${*}a*");
+        assertTrue(rt3.matchesStandard("*abc"));
+        assertFalse(rt3.matchesStandard("xa"));
+        assertTrue(rt3.matchesMQTT("*abc"));
+        assertFalse(rt3.matchesMQTT("xa"));
+
         // test invalid escaping sequence
         WildcardTrie rt4 = new WildcardTrie();
         rt4.add("abc${");
@@ -453,4 +460,48 @@ class WildcardTrieTest {
         assertFalse(rt4.matchesStandard("qweca"));
 
     }
+
+    @Test
+    void testMultipleResourcesMatchingLikeAnyOfThem() {
+        // every way of matching a child is tried, also when another child leaves the same remainder to match
+        WildcardTrie rt = new WildcardTrie();
+        rt.add("*/#");
+        rt.add("*a/");
+        assertTrue(rt.matchesStandard("/aa/"));
+
+        WildcardTrie rt2 = new WildcardTrie();
+        rt2.add("b*b/#");
+        rt2.add("b*/+a#");
+        assertTrue(rt2.matchesMQTT("bab//a"));
+
+        // "*" may chomp "/" in both lookup policies, so "*a*" matches "ba/" no matter which resources are added
+        WildcardTrie rt3 = new WildcardTrie();
+        rt3.add("*a*");
+        assertTrue(rt3.matchesStandard("ba/"));
+        assertTrue(rt3.matchesMQTT("ba/"));
+        rt3.add("*b");
+        assertTrue(rt3.matchesStandard("ba/"));
+        assertTrue(rt3.matchesMQTT("ba/"));
+
+        // a MQTT wildcard used invalidly stays a normal character when another resource uses it validly
+        WildcardTrie rt4 = new WildcardTrie();
+        rt4.add("+/");
+        rt4.add("+a/*b");
+        assertFalse(rt4.matchesMQTT("ba/b"));
+        assertTrue(rt4.matchesMQTT("+a/b"));
+        assertTrue(rt4.matchesMQTT("b/"));
+
+        WildcardTrie rt5 = new WildcardTrie();
+        rt5.add("a/+/c");
+        rt5.add("a/+b");
+        assertFalse(rt5.matchesMQTT("a/xb"));
+        assertTrue(rt5.matchesMQTT("a/+b"));
+        assertTrue(rt5.matchesMQTT("a/x/c"));
+
+        WildcardTrie rt6 = new WildcardTrie();
+        rt6.add("/#*");
+        assertFalse(rt6.matchesMQTT(""));
+        assertFalse(rt6.matchesMQTT("/x"));
+        assertTrue(rt6.matchesMQTT("/#x"));
+    }
 }
@@ -10,6 +10,7 @@ import com.aws.greengrass.authorization.Permission;
 import com.aws.greengrass.authorization.exceptions.AuthorizationException;
 import com.aws.greengrass.testcommons.testutilities.GGExtension;
 import com.aws.greengrass.util.OrderedExecutorService;
+import com.google.gson.Gson;
 import org.hamcrest.collection.IsMapContaining;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -54,6 +55,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -161,6 +163,31 @@ class PubSubIPCEventStreamAgentTest {
         }
     }
 
+    @Test
+    void GIVEN_many_subscribers_WHEN_publish_THEN_all_share_one_encoded_message() throws InterruptedException {
+        CountDownLatch sent = new CountDownLatch(2);
+        List<SubscriptionResponseMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            StreamEventPublisher publisher = mock(StreamEventPublisher.class);
+            when(publisher.sendStreamEvent(any())).thenAnswer(invocation -> {
+                synchronized (messages) {
+                    messages.add(invocation.getArgument(0));
+                }
+                sent.countDown();
+                return new CompletableFuture<>();
+            });
+            pubSubIPCEventStreamAgent.getListeners().add(TEST_TOPIC,
+                    SubscriptionCallback.builder().sourceComponent("Subscriber" + i).callback(publisher).build());
+        }
+
+        pubSubIPCEventStreamAgent.publish(TEST_TOPIC, "ABCD".getBytes(), TEST_SERVICE);
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+
+        assertSame(messages.get(0), messages.get(1));
+        Gson gson = mock(Gson.class);
+        assertSame(messages.get(0).toPayload(gson), messages.get(1).toPayload(gson));
+    }
+
     @Test
     void GIVEN_subscribed_to_topic_with_receive_others_mode_WHEN_publish_binary_message_from_same_component_THEN_not_publishes_message()
             throws InterruptedException {
@@ -27,6 +27,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
@@ -137,6 +138,22 @@ public class SubscriptionTrieTest {
         assertEquals(0, trie.size());
     }
 
+    @Test
+    void GIVEN_cached_match_WHEN_subscriptions_change_THEN_match_is_updated() {
+        SubscriptionCallback cb1 = generateSubscriptionCallback();
+        SubscriptionCallback cb2 = generateSubscriptionCallback();
+        trie.add("foo/+", cb1);
+        assertThat(trie.get("foo/bar"), contains(cb1));
+        assertSame(trie.get("foo/bar"), trie.get("foo/bar"));
+
+        trie.add("foo/#", cb2);
+        assertThat(trie.get("foo/bar"), containsInAnyOrder(cb1, cb2));
+        trie.remove("foo/+", cb1);
+        assertThat(trie.get("foo/bar"), contains(cb2));
+        trie.remove("foo/#", cb2);
+        assertThat(trie.get("foo/bar"), is(empty()));
+    }
+
     @Test
     void GIVEN_topics_WHEN_isWildcard_THEN_returns_whether_it_uses_wildcard() {
         assertTrue(SubscriptionTrie.isWildcard("+"));
@@ -9,6 +9,7 @@ package com.aws.greengrass.builtin.services.telemetry;
 import com.aws.greengrass.authorization.AuthorizationHandler;
 import com.aws.greengrass.authorization.Permission;
 import com.aws.greengrass.authorization.exceptions.AuthorizationException;
+import com.aws.greengrass.telemetry.MetricsRecorder;
 import com.aws.greengrass.testcommons.testutilities.GGExtension;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -63,6 +64,8 @@ public class ComponentMetricIPCEventStreamAgentTest {
     AuthenticationData mockAuthenticationData;
     @Mock
     AuthorizationHandler authorizationHandler;
+    @Mock
+    MetricsRecorder metricsRecorder;
     @Captor
     ArgumentCaptor<Permission> permissionArgumentCaptor;
 
@@ -75,7 +78,7 @@ public class ComponentMetricIPCEventStreamAgentTest {
         validComponentMetricRequest = generateComponentRequest("BytesPerSecond");
         lenient().when(mockContext.getContinuation()).thenReturn(mock(ServerConnectionContinuation.class));
         lenient().when(mockContext.getAuthenticationData()).thenReturn(mockAuthenticationData);
-        componentMetricIPCEventStreamAgent = new ComponentMetricIPCEventStreamAgent(authorizationHandler);
+        componentMetricIPCEventStreamAgent = new ComponentMetricIPCEventStreamAgent(authorizationHandler, metricsRecorder);
     }
 
     @AfterEach
@@ -103,6 +106,7 @@ public class ComponentMetricIPCEventStreamAgentTest {
             assertThat(capturedPermission.getOperation(), is(GreengrassCoreIPCService.PUT_COMPONENT_METRIC));
             assertThat(capturedPermission.getPrincipal(), is(VALID_TEST_COMPONENT));
             assertThat(capturedPermission.getResource(), containsString("ExampleName"));
+            verify(metricsRecorder, times(4)).record(any());
         }
     }
 
@@ -40,6 +40,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -135,6 +136,65 @@ class ConfigurationTest {
         Topic nv = config.lookup("number");
     }
 
+    @Test
+    void GIVEN_topics_WHEN_children_updated_and_removed_THEN_modtime_is_newest_child_modtime() {
+        Topics x = config.lookupTopics(1, "x");
+        x.createLeafChild("a").withNewerValue(10, "a");
+        x.createLeafChild("b").withNewerValue(30, "b");
+        x.createLeafChild("c").withNewerValue(20, "c");
+        config.context.waitForPublishQueueToClear();
+        assertEquals(30, x.getModtime());
+        assertEquals(30, config.getRoot().getModtime());
+
+        // older update of a child doesn't change the parent
+        x.find("a").withNewerValue(15, "a1");
+        config.context.waitForPublishQueueToClear();
+        assertEquals(30, x.getModtime());
+
+        // removing the newest child falls back to the next newest
+        x.find("b").remove();
+        config.context.waitForPublishQueueToClear();
+        assertEquals(20, x.getModtime());
+
+        // lowering the newest child's timestamp lowers the parent too
+        x.find("c").withNewerValue(5, "c1", true);
+        config.context.waitForPublishQueueToClear();
+        assertEquals(15, x.getModtime());
+    }
+
+    @Test
+    void GIVEN_nodes_WHEN_get_publish_queue_key_THEN_key_is_service_or_top_level_namespace() {
+        assertNull(config.getRoot().publishQueueKey());
+        assertNull(config.lookupTopics(SERVICES_NAMESPACE_TOPIC).publishQueueKey());
+        assertEquals("services.mainservice",
+                config.lookup(SERVICES_NAMESPACE_TOPIC, "MainService", "configuration", "a").publishQueueKey());
+        assertEquals("services.mainservice", config.lookupTopics("Services", "mainService").publishQueueKey());
+        assertEquals("system", config.lookup("System", "rootpath").publishQueueKey());
+        // built once and kept with the context
+        assertSame(config.lookupTopics("Services", "mainService").publishQueueKey(),
+                config.lookup(SERVICES_NAMESPACE_TOPIC, "MainService", "b").publishQueueKey());
+        assertSame(config.lookup("System", "rootpath").publishQueueKey(),
+                config.lookup("system", "other").publishQueueKey());
+    }
+
+    @Test
+    void GIVEN_topics_modtime_newer_than_children_WHEN_child_updated_THEN_modtime_lowered_to_newest_child() {
+        Topics x = config.lookupTopics(1, "x");
+        x.createLeafChild("a").withNewerValue(10, "a");
+        x.createLeafChild("b").withNewerValue(30, "b");
+        x.createLeafChild("c").withNewerValue(20, "c");
+        config.context.waitForPublishQueueToClear();
+
+        // removing a child with a newer timestamp raises the parent's modtime past all remaining children
+        x.find("c").remove(40);
+        config.context.waitForPublishQueueToClear();
+        assertEquals(40, x.getModtime());
+
+        x.find("a").withNewerValue(15, "a1");
+        config.context.waitForPublishQueueToClear();
+        assertEquals(30, x.getModtime());
+    }
+
     @Test
     void GIVEN_yaml_file_to_merge_WHEN_merge_map_THEN_merge() throws Throwable {
         try (InputStream inputStream = getClass().getResourceAsStream("test.yaml")) {
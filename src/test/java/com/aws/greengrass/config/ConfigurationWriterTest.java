@@ -6,25 +6,25 @@
 package com.aws.greengrass.config;
 
 import com.aws.greengrass.dependency.Context;
-import com.aws.greengrass.lifecyclemanager.Kernel;
+import com.aws.greengrass.util.CommitableFile;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.mock;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConfigurationWriterTest {
     @TempDir
@@ -113,12 +113,9 @@ class ConfigurationWriterTest {
 
     @Test
     void GIVEN_config_with_configuration_writer_WHEN_max_size_reached_THEN_auto_truncate()
-            throws IOException {
+            throws Exception {
         Path tlog = tempDir.resolve("test_truncate.tlog");
         Configuration config = new Configuration(context);
-        Kernel mockKernel = mock(Kernel.class);
-        doNothing().when(mockKernel).writeEffectiveConfigAsTransactionLog(any());
-        context.put(Kernel.class, mockKernel);
 
         try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog).flushImmediately(true)
                 .withAutoTruncate(context)) {
@@ -131,13 +128,15 @@ class ConfigurationWriterTest {
             });
             // wait for truncate to finish
             context.waitForPublishQueueToClear();
+            waitForCompaction(writer);
             // now test1 should be written to the new tlog
             config.lookup("test1").withValue("1");
             context.waitForPublishQueueToClear();
             // verify
             Configuration newTlogConfig1 = ConfigurationReader.createFromTLog(context, tlog);
-            assertNull(newTlogConfig1.find("test0"));
+            assertEquals("exceed limit", newTlogConfig1.find("test0").getOnce());
             assertEquals("1", newTlogConfig1.find("test1").getOnce());
+            assertEquals(1, countLinesContaining(tlog, "test0"));
 
             // trigger truncate again to make sure it succeeds reliably
             context.runOnPublishQueueAndWait(() -> {
@@ -148,24 +147,28 @@ class ConfigurationWriterTest {
 
             // wait for truncate to finish
             context.waitForPublishQueueToClear();
+            waitForCompaction(writer);
             // now test2 should be written to the new tlog
             config.lookup("test2").withValue("2");
             context.waitForPublishQueueToClear();
         }
         // verify
         Configuration newTlogConfig2 = ConfigurationReader.createFromTLog(context, tlog);
-        assertNull(newTlogConfig2.find("test1"));
+        assertEquals("exceed limit", newTlogConfig2.find("test1").getOnce());
         assertEquals("2", newTlogConfig2.find("test2").getOnce());
+        assertEquals(1, countLinesContaining(tlog, "test1"));
+        assertThat(newTlogConfig2.toPOJO(), is(config.toPOJO()));
     }
 
     @Test
-    void GIVEN_config_with_configuration_writer_WHEN_truncate_and_write_effective_config_failed_THEN_recover()
+    void GIVEN_config_with_configuration_writer_WHEN_truncate_and_write_compacted_tlog_failed_THEN_recover()
             throws IOException {
         Path tlog = tempDir.resolve("test_truncate.tlog");
         Configuration config = new Configuration(context);
-        Kernel mockKernel = mock(Kernel.class);
-        doThrow(new IOException("test")).when(mockKernel).writeEffectiveConfigAsTransactionLog(any());
-        context.put(Kernel.class, mockKernel);
+        // the new version of the tlog can't be created while a non-empty directory is in its place
+        Path newTlog = CommitableFile.getNewFile(tlog);
+        Files.createDirectories(newTlog);
+        Files.createFile(newTlog.resolve("blocker"));
 
         try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog).flushImmediately(true)
                 .withAutoTruncate(context)) {
@@ -182,10 +185,250 @@ class ConfigurationWriterTest {
             // truncate should fail and recover, keep using the old tlog
             config.lookup("test2").withValue("new");
             context.waitForPublishQueueToClear();
+            assertEquals(0, writer.collectCompactionMetrics().getCompactions());
         }
         // verify values
         Configuration newTlogConfig = ConfigurationReader.createFromTLog(context, tlog);
         assertEquals("exceed limit", newTlogConfig.find("test1").getOnce());
         assertEquals("new", newTlogConfig.find("test2").getOnce());
     }
+
+    @Test
+    void GIVEN_binary_tlog_WHEN_compacted_THEN_replays_same_config() throws Exception {
+        Path tlog = tempDir.resolve("binary_truncate.tlog");
+        Configuration config = new Configuration(context);
+
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog, TlogFormat.BINARY)
+                .withAutoTruncate(context)) {
+            for (int i = 0; i < 50; i++) {
+                config.lookup("a", "b").withValue(i);
+            }
+            config.lookupTopics("a", "empty");
+            context.waitForPublishQueueToClear();
+            writer.flushImmediately(true);
+            long sizeBefore = Files.size(tlog);
+
+            writer.truncateNow();
+            context.waitForPublishQueueToClear();
+            TlogCompactionMetrics metrics = waitForCompaction(writer);
+            assertEquals(1, metrics.getCompactions());
+            assertTrue(metrics.getBytesReclaimed() > 0);
+            assertTrue(Files.size(tlog) < sizeBefore);
+            assertTrue(Files.exists(CommitableFile.getBackupFile(tlog)));
+
+            config.lookup("a", "c").withValue("after");
+            context.waitForPublishQueueToClear();
+        }
+        assertEquals(TlogFormat.BINARY, ConfigurationReader.getTlogFormat(tlog));
+        Configuration readConfig = ConfigurationReader.createFromTLog(context, tlog);
+        assertThat(readConfig.toPOJO(), is(config.toPOJO()));
+    }
+
+    @Test
+    void GIVEN_config_changing_WHEN_tlog_compacted_THEN_compacted_tlog_replays_every_change() throws Exception {
+        Path tlog = tempDir.resolve("concurrent_truncate.tlog");
+        Configuration config = new Configuration(context);
+
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog).flushImmediately(true)
+                .withAutoTruncate(context)) {
+            for (int i = 0; i < 200; i++) {
+                config.lookup("a", "k" + i).withValue(i);
+            }
+            context.waitForPublishQueueToClear();
+
+            writer.truncateNow();
+            // keep changing the config while it is read, written and swapped in by the compaction
+            for (int round = 0; round < 50; round++) {
+                for (int i = round % 7; i < 200; i += 7) {
+                    config.lookup("a", "k" + i).withValue(round * 1000 + i);
+                }
+                config.lookup("b", "r" + round).withValue(round);
+            }
+            context.waitForPublishQueueToClear();
+            assertEquals(1, waitForCompaction(writer).getCompactions());
+            config.find("b", "r0").remove();
+            context.waitForPublishQueueToClear();
+        }
+        Configuration readConfig = ConfigurationReader.createFromTLog(context, tlog);
+        assertThat(readConfig.toPOJO(), is(config.toPOJO()));
+    }
+
+    @Test
+    void GIVEN_snapshot_WHEN_tlog_appended_or_rewritten_THEN_snapshot_used_only_while_it_matches() throws Exception {
+        Path tlog = tempDir.resolve("snapshot.tlog");
+        Path snapshot = tempDir.resolve("config.snapshot");
+        Configuration config = new Configuration(context);
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog).withSnapshot(snapshot)) {
+            writer.flushImmediately(true);
+            config.lookup("a", "b").withValue(1);
+            config.lookup("a", "c").withValue(Arrays.asList("1", "2"));
+            config.lookupTopics("a", "empty");
+            config.lookup("_private", "x").withValue("not persisted");
+            context.waitForPublishQueueToClear();
+        }
+        assertTrue(Files.exists(snapshot));
+
+        // records appended after the snapshot are replayed on top of it
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog)) {
+            writer.flushImmediately(true);
+            config.lookup("a", "b").withValue(2);
+            config.find("a", "c").remove();
+            context.waitForPublishQueueToClear();
+        }
+        Configuration fromSnapshot = new Configuration(context);
+        assertTrue(ConfigurationReader.mergeSnapshotInto(fromSnapshot, snapshot, tlog));
+        Configuration fromTlog = ConfigurationReader.createFromTLog(context, tlog);
+        assertThat(fromSnapshot.toPOJO(), is(fromTlog.toPOJO()));
+        assertEquals(2, fromSnapshot.find("a", "b").getOnce());
+        assertNull(fromSnapshot.findNode("_private"));
+        assertEquals(fromTlog.find("a", "b").getModtime(), fromSnapshot.find("a", "b").getModtime());
+
+        // a rewritten tlog no longer matches the snapshot
+        Files.delete(tlog);
+        ConfigurationWriter.dump(fromTlog, tlog);
+        assertFalse(ConfigurationReader.mergeSnapshotInto(new Configuration(context), snapshot, tlog));
+    }
+
+    @Test
+    void GIVEN_snapshot_WHEN_tlog_edited_in_the_middle_THEN_snapshot_not_used() throws Exception {
+        Path tlog = tempDir.resolve("edited.tlog");
+        Path snapshot = tempDir.resolve("config.snapshot");
+        Configuration config = new Configuration(context);
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog).withSnapshot(snapshot)) {
+            writer.flushImmediately(true);
+            for (int i = 0; i < 1000; i++) {
+                config.lookup("a", "k" + i).withValue("value" + i);
+            }
+            context.waitForPublishQueueToClear();
+        }
+        assertTrue(ConfigurationReader.mergeSnapshotInto(new Configuration(context), snapshot, tlog));
+
+        // same length, only a value far from both ends of the tlog is changed
+        byte[] content = Files.readAllBytes(tlog);
+        String text = new String(content, StandardCharsets.UTF_8);
+        int middle = text.indexOf("value500");
+        content[middle] = 'V';
+        Files.write(tlog, content);
+        assertFalse(ConfigurationReader.mergeSnapshotInto(new Configuration(context), snapshot, tlog));
+    }
+
+    @Test
+    void GIVEN_snapshot_WHEN_binary_tlog_compacted_THEN_snapshot_matches_compacted_tlog() throws Exception {
+        Path tlog = tempDir.resolve("snapshot_binary.tlog");
+        Path snapshot = tempDir.resolve("config.snapshot");
+        Configuration config = new Configuration(context);
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog, TlogFormat.BINARY)
+                .withAutoTruncate(context).withSnapshot(snapshot)) {
+            for (int i = 0; i < 50; i++) {
+                config.lookup("a", "b").withValue(i);
+            }
+            context.waitForPublishQueueToClear();
+            writer.truncateNow();
+            context.waitForPublishQueueToClear();
+            assertEquals(1, waitForCompaction(writer).getCompactions());
+            // the snapshot is written right after the compacted tlog was swapped in
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!Files.exists(snapshot) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            config.lookup("a", "c").withValue("after");
+            context.waitForPublishQueueToClear();
+            writer.flushImmediately(true);
+            // the snapshot written after compaction only needs the record of a.c from the tlog
+            Configuration fromSnapshot = new Configuration(context);
+            assertTrue(ConfigurationReader.mergeSnapshotInto(fromSnapshot, snapshot, tlog));
+            assertThat(fromSnapshot.toPOJO(), is(config.toPOJO()));
+        }
+    }
+
+    private static TlogCompactionMetrics waitForCompaction(ConfigurationWriter writer) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        TlogCompactionMetrics metrics = writer.collectCompactionMetrics();
+        while (metrics.getCompactions() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            metrics = writer.collectCompactionMetrics();
+        }
+        return metrics;
+    }
+
+    private static long countLinesContaining(Path file, String s) throws IOException {
+        return Files.readAllLines(file).stream().filter(line -> line.contains(s)).count();
+    }
+
+    @Test
+    void GIVEN_binary_tlog_writer_WHEN_config_changes_made_THEN_replayed_from_tlog() throws IOException {
+        Path tlog = tempDir.resolve("binary.tlog");
+        Configuration config = new Configuration(context);
+
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog, TlogFormat.BINARY)
+                .withGroupCommit(1000, 3)) {
+            config.lookup("a", "b", "string").withValue("Some Val");
+            config.lookup("a", "b", "int").withValue(2);
+            config.lookup("a", "b", "long").withValue(Long.MAX_VALUE);
+            config.lookup("a", "b", "double").withValue(2.5);
+            config.lookup("a", "b", "bool").withValue(true);
+            config.lookup("a", "b", "list").withValue(Arrays.asList("1", "2", "3"));
+            config.lookup("a", "b", "null").withValue((String) null);
+            config.lookupTopics("a", "empty");
+            config.lookup("a", "toBeRemoved").withValue("x").remove();
+            context.waitForPublishQueueToClear();
+            writer.flushImmediately(true);
+
+            assertTrue(ConfigurationReader.validateTlog(tlog));
+            assertEquals(TlogFormat.BINARY, ConfigurationReader.getTlogFormat(tlog));
+            Configuration readConfig = ConfigurationReader.createFromTLog(context, tlog);
+            assertThat(readConfig.toPOJO(), is(config.toPOJO()));
+        }
+
+        Files.deleteIfExists(tlog);
+        ConfigurationWriter.dump(config, tlog, TlogFormat.BINARY);
+        Configuration readConfig = new Configuration(context).read(tlog);
+        assertThat(readConfig.toPOJO(), is(config.toPOJO()));
+    }
+
+    @Test
+    void GIVEN_binary_tlog_WHEN_group_commit_window_elapses_THEN_records_durable_without_close() throws Exception {
+        Path tlog = tempDir.resolve("group_commit.tlog");
+        Configuration config = new Configuration(context);
+
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog, TlogFormat.BINARY)
+                .withGroupCommit(10, 1000)) {
+            config.lookup("test").withValue("1");
+            context.waitForPublishQueueToClear();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (Files.size(tlog) == BinaryTlog.MAGIC.length && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("1", ConfigurationReader.createFromTLog(context, tlog).find("test").getOnce());
+        }
+    }
+
+    @Test
+    void GIVEN_binary_tlog_with_torn_tail_WHEN_validate_and_reopen_THEN_tail_ignored_and_truncated()
+            throws IOException {
+        Path tlog = tempDir.resolve("torn.tlog");
+        Configuration config = new Configuration(context);
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog, TlogFormat.BINARY)) {
+            config.lookup("test").withValue("1");
+            context.waitForPublishQueueToClear();
+        }
+        long validLength = Files.size(tlog);
+        // simulate a crash in the middle of a group commit
+        Files.write(tlog, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+        assertTrue(ConfigurationReader.validateTlog(tlog));
+
+        try (ConfigurationWriter writer = ConfigurationWriter.logTransactionsTo(config, tlog, TlogFormat.BINARY)) {
+            assertEquals(validLength, Files.size(tlog));
+            config.lookup("test").withValue("2");
+            context.waitForPublishQueueToClear();
+        }
+        assertEquals("2", ConfigurationReader.createFromTLog(context, tlog).find("test").getOnce());
+
+        // a bad checksum in a complete record is corruption
+        byte[] bytes = Files.readAllBytes(tlog);
+        bytes[BinaryTlog.MAGIC.length + BinaryTlog.RECORD_HEADER_SIZE + 2] ^= 0x7F;
+        Files.write(tlog, bytes);
+        assertFalse(ConfigurationReader.validateTlog(tlog));
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.dependency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContextPublishQueueTest {
+
+    private Context context;
+
+    @BeforeEach
+    void beforeEach() {
+        System.setProperty(Context.PUBLISH_QUEUE_LANES_PROPERTY, "4");
+        context = new Context();
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        System.clearProperty(Context.PUBLISH_QUEUE_LANES_PROPERTY);
+        context.close();
+    }
+
+    @Test
+    void GIVEN_multiple_lanes_WHEN_tasks_published_with_same_key_THEN_run_in_order() {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            expected.add(n);
+            context.runOnPublishQueue("services.a", () -> seen.add(n));
+            context.runOnPublishQueue("services.b", () -> {});
+        }
+        context.waitForPublishQueueToClear();
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void GIVEN_multiple_lanes_WHEN_barrier_task_published_THEN_runs_after_all_earlier_tasks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            context.runOnPublishQueue("services.s" + i, () -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+                done.incrementAndGet();
+            });
+        }
+        AtomicInteger doneAtBarrier = new AtomicInteger(-1);
+        context.runOnPublishQueue(() -> doneAtBarrier.set(done.get()));
+        release.countDown();
+        context.waitForPublishQueueToClear();
+        assertEquals(8, doneAtBarrier.get());
+    }
+
+    @Test
+    void GIVEN_multiple_lanes_WHEN_collect_metrics_THEN_one_entry_per_lane() {
+        for (int i = 0; i < 10; i++) {
+            context.runOnPublishQueue("services.s" + i, () -> {});
+        }
+        context.waitForPublishQueueToClear();
+        List<PublishQueueMetrics> metrics = context.collectPublishQueueMetrics();
+        assertEquals(5, metrics.size());
+        assertEquals("Serial", metrics.get(0).getLane());
+        assertTrue(metrics.stream().skip(1).mapToLong(PublishQueueMetrics::getDispatchedCount).sum() >= 10);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.dependency;
+
+import com.aws.greengrass.lifecyclemanager.GreengrassService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ContextStateChangeTest {
+    private static final State[] TRANSITIONS = {State.INSTALLED, State.STARTING, State.RUNNING, State.STOPPING,
+            State.FINISHED};
+
+    private Context context;
+
+    @BeforeEach
+    void beforeEach() {
+        context = new Context();
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        context.close();
+    }
+
+    @Test
+    void GIVEN_services_changing_state_concurrently_WHEN_notified_THEN_listeners_see_each_service_in_order()
+            throws Exception {
+        Map<GreengrassService, List<State>> seenByListener1 = new ConcurrentHashMap<>();
+        Map<GreengrassService, List<State>> seenByListener2 = new ConcurrentHashMap<>();
+        context.addGlobalStateChangeListener((service, oldState, newState) ->
+                seenByListener1.computeIfAbsent(service, k -> new ArrayList<>()).add(newState));
+        context.addGlobalStateChangeListener((service, oldState, newState) ->
+                seenByListener2.computeIfAbsent(service, k -> new ArrayList<>()).add(newState));
+
+        List<GreengrassService> services = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 50; i++) {
+                GreengrassService service = mock(GreengrassService.class);
+                services.add(service);
+                executor.submit(() -> {
+                    State old = State.NEW;
+                    for (int j = 0; j < 20; j++) {
+                        for (State newState : TRANSITIONS) {
+                            context.globalNotifyStateChanged(service, old, newState);
+                            old = newState;
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertTrue(context.waitForStateChangesToBeDispatched(10_000));
+
+        List<State> expected = new ArrayList<>();
+        for (int j = 0; j < 20; j++) {
+            for (State newState : TRANSITIONS) {
+                expected.add(newState);
+            }
+        }
+        for (GreengrassService service : services) {
+            assertEquals(expected, seenByListener1.get(service));
+            assertEquals(expected, seenByListener2.get(service));
+        }
+    }
+
+    @Test
+    void GIVEN_slow_listener_WHEN_notified_THEN_caller_does_not_wait_for_it() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(2);
+        context.addGlobalStateChangeListener((service, oldState, newState) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            delivered.countDown();
+        });
+        GreengrassService service = mock(GreengrassService.class);
+
+        context.globalNotifyStateChanged(service, State.NEW, State.INSTALLED);
+        context.globalNotifyStateChanged(service, State.INSTALLED, State.STARTING);
+
+        assertFalse(context.waitForStateChangesToBeDispatched(100));
+        release.countDown();
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertTrue(context.waitForStateChangesToBeDispatched(5_000));
+    }
+
+    @Test
+    void GIVEN_state_changes_queued_WHEN_context_shut_down_THEN_queued_and_later_changes_still_sent() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<State> seen = new ArrayList<>();
+        context.addGlobalStateChangeListener((service, oldState, newState) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            synchronized (seen) {
+                seen.add(newState);
+            }
+        });
+        GreengrassService service = mock(GreengrassService.class);
+
+        context.globalNotifyStateChanged(service, State.RUNNING, State.STOPPING);
+        context.shutdown();
+        context.globalNotifyStateChanged(service, State.STOPPING, State.FINISHED);
+        release.countDown();
+        assertTrue(context.waitForStateChangesToBeDispatched(5_000));
+
+        // sent on the caller's thread once the dispatcher has exited
+        context.globalNotifyStateChanged(service, State.FINISHED, State.INSTALLED);
+        assertTrue(context.waitForStateChangesToBeDispatched(5_000));
+        synchronized (seen) {
+            assertEquals(Arrays.asList(State.STOPPING, State.FINISHED, State.INSTALLED), seen);
+        }
+    }
+}
@@ -32,15 +32,19 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static com.aws.greengrass.componentmanager.KernelConfigResolver.VERSION_CONFIG_KEY;
 import static com.aws.greengrass.deployment.DeviceConfiguration.DEFAULT_NUCLEUS_COMPONENT_NAME;
@@ -58,9 +62,11 @@ import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -113,6 +119,30 @@ class KernelTest {
         kernel.getContext().close();
     }
 
+    @Test
+    void GIVEN_virtual_threads_property_WHEN_newExecutorService_THEN_tasks_run_on_virtual_threads_if_supported()
+            throws Exception {
+        System.setProperty(Kernel.VIRTUAL_THREADS_PROPERTY, "true");
+        ExecutorService executorService = Kernel.newExecutorService();
+        try {
+            Method isVirtual;
+            try {
+                isVirtual = Thread.class.getMethod("isVirtual");
+            } catch (NoSuchMethodException e) {
+                // Java < 21 falls back to platform threads
+                isVirtual = null;
+            }
+            Method finalIsVirtual = isVirtual;
+            boolean ranOnVirtualThread = executorService.submit(
+                    () -> finalIsVirtual != null && (boolean) finalIsVirtual.invoke(Thread.currentThread()))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(isVirtual != null, ranOnVirtualThread);
+        } finally {
+            executorService.shutdownNow();
+            System.clearProperty(Kernel.VIRTUAL_THREADS_PROPERTY);
+        }
+    }
+
     @Test
     void GIVEN_kernel_and_services_WHEN_orderedDependencies_THEN_dependencies_are_returned_in_order()
             throws Exception {
@@ -181,6 +211,49 @@ class KernelTest {
         assertEquals(mockMain, od.get(3));
     }
 
+    @Test
+    void GIVEN_ordered_dependencies_WHEN_dependency_added_THEN_order_only_computed_again_if_changed()
+            throws Exception {
+        KernelLifecycle kernelLifecycle = spy(new KernelLifecycle(kernel, new KernelCommandLine(kernel), mock(
+                NucleusPaths.class)));
+        doNothing().when(kernelLifecycle).initConfigAndTlog();
+        kernel.setKernelLifecycle(kernelLifecycle);
+        kernel.parseArgs();
+
+        GreengrassService mockMain = new GreengrassService(
+                kernel.getConfig().lookupTopics(GreengrassService.SERVICES_NAMESPACE_TOPIC, "main"));
+        mockMain.postInject();
+        when(kernelLifecycle.getMain()).thenReturn(mockMain);
+        GreengrassService service1 = new GreengrassService(
+                kernel.getConfig().lookupTopics(GreengrassService.SERVICES_NAMESPACE_TOPIC, "service1"));
+        service1.postInject();
+        GreengrassService service2 = new GreengrassService(
+                kernel.getConfig().lookupTopics(GreengrassService.SERVICES_NAMESPACE_TOPIC, "service2"));
+        service2.postInject();
+        mockMain.addOrUpdateDependency(service1, DependencyType.HARD, false);
+        service1.addOrUpdateDependency(service2, DependencyType.HARD, false);
+
+        Collection<GreengrassService> od = kernel.orderedDependencies();
+        assertThat(od, hasSize(4));
+        assertThrows(UnsupportedOperationException.class, () -> od.remove(mockMain));
+
+        // dependencies already in the order don't change it
+        mockMain.addOrUpdateDependency(service2, DependencyType.SOFT, false);
+        service1.addOrUpdateDependency(service2, DependencyType.SOFT, false);
+        assertSame(od, kernel.orderedDependencies());
+
+        // a new service is added to the order
+        GreengrassService service3 = new GreengrassService(
+                kernel.getConfig().lookupTopics(GreengrassService.SERVICES_NAMESPACE_TOPIC, "service3"));
+        service3.postInject();
+        service2.addOrUpdateDependency(service3, DependencyType.HARD, false);
+        List<GreengrassService> newOd = new ArrayList<>(kernel.orderedDependencies());
+        assertThat(newOd, hasSize(5));
+        assertThat(newOd.indexOf(service3), lessThan(newOd.indexOf(service2)));
+        assertThat(newOd.indexOf(service2), lessThan(newOd.indexOf(service1)));
+        assertEquals(mockMain, newOd.get(4));
+    }
+
     @Test
     void GIVEN_kernel_and_services_WHEN_orderedDependencies_with_a_cycle_THEN_no_dependencies_returned()
             throws InputValidationException {
@@ -402,6 +402,7 @@ class LifecycleTest {
             lifecycle.requestStart();
 
             processed.await(DEFAULT_TEST_TIMEOUT + 1, TimeUnit.SECONDS);
+            assertTrue(context.waitForStateChangesToBeDispatched(5000));
 
             // THEN
             assertEquals(1, runningReported.get());
@@ -0,0 +1,139 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.lifecyclemanager;
+
+import com.amazon.aws.iot.greengrass.component.common.DependencyType;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.dependency.State;
+import com.aws.greengrass.telemetry.MetricsRecorder;
+import com.aws.greengrass.telemetry.impl.Metric;
+import com.aws.greengrass.testcommons.testutilities.GGExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, GGExtension.class})
+class ServiceStartupTest {
+    @Mock
+    private MetricsRecorder metricsRecorder;
+    private Context context;
+
+    @BeforeEach
+    void beforeEach() {
+        context = new Context();
+        context.put(MetricsRecorder.class, metricsRecorder);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        context.close();
+    }
+
+    @Test
+    void GIVEN_services_WHEN_dependencyLevels_THEN_one_more_than_highest_dependency() {
+        GreengrassService a = service("A", Collections.emptyMap());
+        GreengrassService b = service("B", Collections.singletonMap(a, DependencyType.HARD));
+        GreengrassService c = service("C", Collections.emptyMap());
+        GreengrassService main = service("main", map(b, c));
+
+        Map<GreengrassService, Integer> levels = ServiceStartup.dependencyLevels(Arrays.asList(a, c, b, main));
+
+        assertEquals(0, levels.get(a));
+        assertEquals(1, levels.get(b));
+        assertEquals(0, levels.get(c));
+        assertEquals(2, levels.get(main));
+    }
+
+    @Test
+    void GIVEN_concurrency_limit_WHEN_start_THEN_services_requested_by_level_as_others_started() throws Exception {
+        GreengrassService a = service("A", Collections.emptyMap());
+        GreengrassService b = service("B", Collections.singletonMap(a, DependencyType.HARD));
+        GreengrassService c = service("C", Collections.emptyMap());
+        ServiceStartup startup = new ServiceStartup(context, Arrays.asList(a, b, c), Arrays.asList(a, b, c), 2);
+
+        startup.start();
+        // C has no dependencies, so it is requested before B
+        verify(a).requestStart();
+        verify(c).requestStart();
+        verify(b, never()).requestStart();
+
+        context.globalNotifyStateChanged(a, State.NEW, State.INSTALLED);
+        context.globalNotifyStateChanged(a, State.INSTALLED, State.STARTING);
+        context.globalNotifyStateChanged(a, State.STARTING, State.RUNNING);
+        assertTrue(context.waitForStateChangesToBeDispatched(5000));
+        verify(b).requestStart();
+        verify(metricsRecorder, never()).record(any());
+
+        context.globalNotifyStateChanged(c, State.STARTING, State.FINISHED);
+        context.globalNotifyStateChanged(b, State.STARTING, State.BROKEN);
+        assertTrue(context.waitForStateChangesToBeDispatched(5000));
+
+        ArgumentCaptor<Metric> metric = ArgumentCaptor.forClass(Metric.class);
+        verify(metricsRecorder).record(metric.capture());
+        assertEquals(ServiceStartup.NAMESPACE, metric.getValue().getNamespace());
+        assertEquals(ServiceStartup.STARTUP_TIME_METRIC_NAME, metric.getValue().getName());
+    }
+
+    @Test
+    void GIVEN_concurrency_limit_WHEN_service_waits_for_dependency_not_started_THEN_slot_released() throws Exception {
+        // X is neither started along nor running, e.g. it doesn't start on its own
+        GreengrassService x = mock(GreengrassService.class);
+        when(x.getState()).thenReturn(State.INSTALLED);
+        GreengrassService a = service("A", Collections.singletonMap(x, DependencyType.HARD));
+        GreengrassService c = service("C", Collections.emptyMap());
+        ServiceStartup startup = new ServiceStartup(context, Arrays.asList(a, c), Arrays.asList(a, c), 1);
+
+        startup.start();
+        verify(a).requestStart();
+        verify(c, never()).requestStart();
+
+        context.globalNotifyStateChanged(a, State.NEW, State.INSTALLED);
+        assertTrue(context.waitForStateChangesToBeDispatched(5000));
+        verify(c).requestStart();
+
+        context.globalNotifyStateChanged(c, State.STARTING, State.RUNNING);
+        assertTrue(context.waitForStateChangesToBeDispatched(5000));
+        verify(metricsRecorder, never()).record(any());
+
+        context.globalNotifyStateChanged(a, State.STARTING, State.RUNNING);
+        assertTrue(context.waitForStateChangesToBeDispatched(5000));
+        verify(metricsRecorder).record(any());
+    }
+
+    private static GreengrassService service(String name, Map<GreengrassService, DependencyType> dependencies) {
+        GreengrassService service = mock(GreengrassService.class);
+        lenient().when(service.getName()).thenReturn(name);
+        lenient().when(service.getState()).thenReturn(State.NEW);
+        when(service.getDependencies()).thenReturn(dependencies);
+        return service;
+    }
+
+    private static Map<GreengrassService, DependencyType> map(GreengrassService first, GreengrassService second) {
+        Map<GreengrassService, DependencyType> dependencies = new HashMap<>();
+        dependencies.put(first, DependencyType.HARD);
+        dependencies.put(second, DependencyType.SOFT);
+        return dependencies;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.deployment.DeviceConfiguration;
+import com.aws.greengrass.mqttclient.spool.FileSystemSpool;
+import com.aws.greengrass.mqttclient.spool.Spool;
+import com.aws.greengrass.mqttclient.spool.SpoolMessage;
+import com.aws.greengrass.mqttclient.spool.SpoolerStorageType;
+import com.aws.greengrass.mqttclient.spool.SpoolerStoreException;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.mqttclient.v5.UserProperty;
+import com.aws.greengrass.testcommons.testutilities.GGExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith({GGExtension.class, MockitoExtension.class})
+class FileSystemSpoolTest {
+
+    @Mock
+    DeviceConfiguration deviceConfiguration;
+
+    @TempDir
+    Path spoolDirectory;
+
+    Configuration config = new Configuration(new Context());
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        config.lookup("spooler", "storageType").withValue(SpoolerStorageType.FileSystem.toString());
+        config.lookup("spooler", "maxSizeInBytes").withValue(1024L * 1024);
+        lenient().when(deviceConfiguration.getSpoolerNamespace()).thenReturn(config.lookupTopics("spooler"));
+        lenient().when(deviceConfiguration.getSpoolerDirectory()).thenReturn(spoolDirectory);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        config.context.close();
+    }
+
+    @Test
+    void GIVEN_spooled_messages_WHEN_spool_reopened_THEN_messages_recovered_in_order()
+            throws InterruptedException, SpoolerStoreException {
+        Publish request = Publish.builder().topic("spool/a").qos(QOS.AT_LEAST_ONCE).retain(true)
+                .payload(new byte[]{1, 2, 3}).payloadFormat(Publish.PayloadFormatIndicator.UTF8)
+                .messageExpiryIntervalSeconds(60L).responseTopic("spool/response")
+                .correlationData(new byte[]{4}).contentType("text/plain")
+                .userProperties(Collections.singletonList(new UserProperty("key", "value"))).build();
+        Publish request2 = Publish.builder().topic("spool/b").qos(QOS.AT_MOST_ONCE).payload(new byte[10]).build();
+
+        Spool spool = new Spool(deviceConfiguration);
+        long id1 = spool.addMessage(request).getId();
+        long id2 = spool.addMessage(request2).getId();
+        long id3 = spool.addMessage(request2).getId();
+        spool.removeMessageById(id2);
+        spool.close();
+
+        Spool recovered = new Spool(deviceConfiguration);
+        assertEquals(2, recovered.getCurrentMessageCount());
+        assertEquals(13, recovered.getCurrentSpoolerSize());
+        assertNull(recovered.getMessageById(id2));
+        assertEquals(id1, recovered.popId());
+        assertEquals(id3, recovered.popId());
+
+        Publish recoveredRequest = recovered.getMessageById(id1).getRequest();
+        assertEquals(request.getTopic(), recoveredRequest.getTopic());
+        assertEquals(request.getQos(), recoveredRequest.getQos());
+        assertEquals(request.isRetain(), recoveredRequest.isRetain());
+        assertArrayEquals(request.getPayload(), recoveredRequest.getPayload());
+        assertEquals(request.getPayloadFormat(), recoveredRequest.getPayloadFormat());
+        assertEquals(request.getMessageExpiryIntervalSeconds(), recoveredRequest.getMessageExpiryIntervalSeconds());
+        assertEquals(request.getResponseTopic(), recoveredRequest.getResponseTopic());
+        assertArrayEquals(request.getCorrelationData(), recoveredRequest.getCorrelationData());
+        assertEquals(request.getContentType(), recoveredRequest.getContentType());
+        assertEquals(request.getUserProperties(), recoveredRequest.getUserProperties());
+
+        // ids continue after the recovered messages
+        assertEquals(id3 + 1, recovered.addMessage(request2).getId());
+        recovered.close();
+    }
+
+    @Test
+    void GIVEN_deflated_message_WHEN_removed_THEN_payload_size_and_qos_passed_on() throws Exception {
+        FileSystemSpool spool = new FileSystemSpool(spoolDirectory, 1024 * 1024, true);
+        Publish request = Publish.builder().topic("spool").qos(QOS.AT_LEAST_ONCE).payload(new byte[1000]).build();
+        spool.add(0, SpoolMessage.builder().id(0).request(request).build());
+        StringBuilder removed = new StringBuilder();
+
+        spool.removeMessageById(0, (id, size, qos) -> removed.append(id).append(':').append(size).append(':')
+                .append(qos).append(' '));
+        spool.removeMessageById(0, (id, size, qos) -> removed.append("again"));
+
+        assertEquals("0:1000:AT_LEAST_ONCE ", removed.toString());
+        assertNull(spool.getMessageById(0));
+        spool.close();
+    }
+
+    @Test
+    void GIVEN_small_segments_WHEN_all_messages_of_a_segment_removed_THEN_segment_deleted() throws Exception {
+        FileSystemSpool spool = new FileSystemSpool(spoolDirectory, 400);
+        Publish request = Publish.builder().topic("spool").qos(QOS.AT_LEAST_ONCE).payload(new byte[100]).build();
+        for (long id = 0; id < 6; id++) {
+            spool.add(id, SpoolMessage.builder().id(id).request(request).build());
+        }
+        // two messages fit into a segment
+        assertEquals(3, spool.getSegmentCount());
+        assertEquals(3, countSegmentFiles());
+
+        spool.removeMessageById(0);
+        assertEquals(3, spool.getSegmentCount());
+        spool.removeMessageById(1);
+        spool.removeMessageById(3);
+        assertEquals(2, spool.getSegmentCount());
+        assertEquals(2, countSegmentFiles());
+        assertNotNull(spool.getMessageById(2));
+        assertNull(spool.getMessageById(3));
+        spool.close();
+    }
+
+    @Test
+    void GIVEN_torn_last_record_WHEN_spool_reopened_THEN_only_complete_messages_recovered() throws Exception {
+        FileSystemSpool spool = new FileSystemSpool(spoolDirectory, 1024);
+        byte[] payload = new byte[50];
+        Arrays.fill(payload, (byte) 0x7F);
+        Publish request = Publish.builder().topic("spool").qos(QOS.AT_LEAST_ONCE).payload(payload).build();
+        for (long id = 0; id < 3; id++) {
+            spool.add(id, SpoolMessage.builder().id(id).request(request).build());
+        }
+        spool.close();
+
+        // corrupt the end of the last record as a write interrupted by a crash would
+        Path segment;
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            segment = files.findFirst().get();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int last = bytes.length - 1;
+        while (bytes[last] == 0) {
+            last--;
+        }
+        bytes[last] = 0;
+        Files.write(segment, bytes);
+
+        FileSystemSpool recovered = new FileSystemSpool(spoolDirectory, 1024);
+        StringBuilder ids = new StringBuilder();
+        recovered.recoverMessages((id, size, qos) -> ids.append(id).append(':').append(size).append(' '));
+        assertEquals("0:50 1:50 ", ids.toString());
+        assertNull(recovered.getMessageById(2));
+        recovered.close();
+    }
+
+    private long countSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.count();
+        }
+    }
+}
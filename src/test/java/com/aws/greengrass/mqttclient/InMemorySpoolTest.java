@@ -10,6 +10,7 @@ import com.aws.greengrass.dependency.Context;
 import com.aws.greengrass.deployment.DeviceConfiguration;
 import com.aws.greengrass.mqttclient.spool.Spool;
 import com.aws.greengrass.mqttclient.spool.SpoolMessage;
+import com.aws.greengrass.mqttclient.spool.SpoolerEvictionPolicy;
 import com.aws.greengrass.mqttclient.spool.SpoolerStoreException;
 import com.aws.greengrass.mqttclient.v5.Publish;
 import com.aws.greengrass.testcommons.testutilities.GGExtension;
@@ -24,6 +25,7 @@ import software.amazon.awssdk.crt.mqtt.QualityOfService;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -70,6 +72,19 @@ class InMemorySpoolTest {
         assertEquals(id2, id);
     }
 
+    @Test
+    void GIVEN_spooled_messages_WHEN_pop_ids_THEN_return_at_most_max_count_ids_in_order() throws InterruptedException, SpoolerStoreException {
+        Publish request = PublishRequest.builder().topic("spool").payload(new byte[0])
+                .qos(QualityOfService.AT_LEAST_ONCE).build().toPublish();
+
+        long id1 = spool.addMessage(request).getId();
+        long id2 = spool.addMessage(request).getId();
+        long id3 = spool.addMessage(request).getId();
+
+        assertEquals(Arrays.asList(id1, id2), spool.popIds(2));
+        assertEquals(Collections.singletonList(id3), spool.popIds(2));
+    }
+
     @Test
     void GIVEN_spooler_is_not_full_WHEN_add_message_THEN_add_message_without_message_dropped() throws InterruptedException, SpoolerStoreException {
         Publish request = PublishRequest.builder().topic("spool").payload(new byte[0])
@@ -117,6 +132,25 @@ class InMemorySpoolTest {
         verify(spool, times(1)).removeMessageById(id2);
     }
 
+    @Test
+    void GIVEN_qos_1_eviction_policy_drop_oldest_WHEN_spooler_is_full_THEN_drop_oldest_qos_1_message() throws InterruptedException, SpoolerStoreException {
+        config.lookup("spooler", "qos0EvictionPolicy").withValue(SpoolerEvictionPolicy.RejectNew.toString());
+        config.lookup("spooler", "qos1EvictionPolicy").withValue(SpoolerEvictionPolicy.DropOldest.toString());
+        Spool spool = spy(new Spool(deviceConfiguration));
+        Publish request1 = PublishRequest.builder().topic("spool").payload(new byte[10])
+                .qos(QualityOfService.AT_MOST_ONCE).build().toPublish();
+        Publish request2 = PublishRequest.builder().topic("spool").payload(new byte[10])
+                .qos(QualityOfService.AT_LEAST_ONCE).build().toPublish();
+
+        long id1 = spool.addMessage(request1).getId();
+        long id2 = spool.addMessage(request2).getId();
+        spool.addMessage(request2);
+
+        verify(spool, never()).removeMessageById(id1);
+        verify(spool, times(1)).removeMessageById(id2);
+        assertEquals(20, spool.getCurrentSpoolerSize());
+    }
+
     @Test
     void GIVEN_message_size_exceeds_max_size_of_spooler_when_add_message_THEN_throw_exception() throws InterruptedException, SpoolerStoreException {
         Publish request = PublishRequest.builder().topic("spool").payload(ByteBuffer.allocate(30).array())
@@ -32,6 +32,7 @@ import org.junit.jupiter.api.extension.ExtensionContext;
 import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -89,6 +90,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atMostOnce;
@@ -655,7 +657,7 @@ class MqttClientTest {
         SpoolMessage message = SpoolMessage.builder().id(0L).request(request.toPublish()).build();
 
         when(spool.addMessage(request.toPublish())).thenReturn(message);
-        when(spool.popId()).thenThrow(InterruptedException.class);
+        when(spool.popIds(anyInt())).thenThrow(InterruptedException.class);
 
         CompletableFuture<Integer> future = client.publish(request);
 
@@ -719,16 +721,14 @@ class MqttClientTest {
 
         MqttClient client = spy(new MqttClient(deviceConfiguration, spool, true, (c) -> builder, executorService));
         long id = 1L;
-        when(spool.popId()).thenReturn(id);
         PublishRequest request = PublishRequest.builder().topic("spool")
                 .payload("What's up".getBytes(StandardCharsets.UTF_8))
                 .qos(QualityOfService.AT_LEAST_ONCE).build();
         SpoolMessage message = SpoolMessage.builder().id(id).request(request.toPublish()).build();
-        when(spool.getMessageById(id)).thenReturn(message);
         AwsIotMqttClient awsIotMqttClient = mock(AwsIotMqttClient.class);
         when(awsIotMqttClient.publish(any())).thenReturn(CompletableFuture.completedFuture(null));
 
-        client.publishSingleSpoolerMessage(awsIotMqttClient);
+        client.publishSpoolerMessage(awsIotMqttClient, message);
 
         verify(spool).removeMessageById(anyLong());
         verify(awsIotMqttClient).publish(any());
@@ -745,18 +745,16 @@ class MqttClientTest {
                 executorService));
 
         long id = 1L;
-        when(spool.popId()).thenReturn(id);
         PublishRequest request = PublishRequest.builder().topic("spool")
                 .payload("What's up".getBytes(StandardCharsets.UTF_8))
                 .qos(QualityOfService.AT_LEAST_ONCE).build();
         SpoolMessage message = SpoolMessage.builder().id(id).request(request.toPublish()).build();
-        when(spool.getMessageById(id)).thenReturn(message);
         AwsIotMqttClient awsIotMqttClient = mock(AwsIotMqttClient.class);
         CompletableFuture<PubAck> future = new CompletableFuture<>();
         future.completeExceptionally(new ExecutionException("exception", new Throwable()));
         when(awsIotMqttClient.publish(any())).thenReturn(future);
 
-        client.publishSingleSpoolerMessage(awsIotMqttClient);
+        client.publishSpoolerMessage(awsIotMqttClient, message);
 
         verify(awsIotMqttClient).publish(any());
         verify(spool, never()).removeMessageById(anyLong());
@@ -773,12 +771,10 @@ class MqttClientTest {
                 executorService));
 
         long id = 1L;
-        when(spool.popId()).thenReturn(id);
         PublishRequest request = PublishRequest.builder().topic("spool")
                 .payload("What's up".getBytes(StandardCharsets.UTF_8))
                 .qos(QualityOfService.AT_LEAST_ONCE).build();
         SpoolMessage message = SpoolMessage.builder().id(id).request(request.toPublish()).build();
-        when(spool.getMessageById(id)).thenReturn(message);
         AwsIotMqtt5Client awsIotMqttClient = mock(AwsIotMqtt5Client.class);
         // Retryable exception
         CompletableFuture<PubAck> future =
@@ -786,7 +782,7 @@ class MqttClientTest {
                         "", Collections.emptyList()));
         when(awsIotMqttClient.publish(any())).thenReturn(future);
 
-        client.publishSingleSpoolerMessage(awsIotMqttClient);
+        client.publishSpoolerMessage(awsIotMqttClient, message);
 
         verify(awsIotMqttClient).publish(any());
         verify(spool, never()).removeMessageById(anyLong());
@@ -798,7 +794,7 @@ class MqttClientTest {
                         "", Collections.emptyList()));
         when(awsIotMqttClient.publish(any())).thenReturn(future);
 
-        client.publishSingleSpoolerMessage(awsIotMqttClient);
+        client.publishSpoolerMessage(awsIotMqttClient, message);
 
         verify(awsIotMqttClient, times(2)).publish(any());
         verify(spool).removeMessageById(id);
@@ -815,19 +811,17 @@ class MqttClientTest {
                 executorService));
 
         long id = 1L;
-        when(spool.popId()).thenReturn(id);
         PublishRequest request = PublishRequest.builder().topic("spool")
                 .payload("What's up".getBytes(StandardCharsets.UTF_8))
                 .qos(QualityOfService.AT_LEAST_ONCE).build();
         SpoolMessage message = SpoolMessage.builder().id(id).request(request.toPublish()).build();
         message.getRetried().set(DEFAULT_MQTT_MAX_OF_PUBLISH_RETRY_COUNT);
-        when(spool.getMessageById(id)).thenReturn(message);
         AwsIotMqttClient awsIotMqttClient = mock(AwsIotMqttClient.class);
         CompletableFuture<PubAck> future = new CompletableFuture<>();
         future.completeExceptionally(new ExecutionException("exception", new Throwable()));
         when(awsIotMqttClient.publish(any())).thenReturn(future);
 
-        client.publishSingleSpoolerMessage(awsIotMqttClient);
+        client.publishSpoolerMessage(awsIotMqttClient, message);
 
         verify(awsIotMqttClient).publish(any());
         verify(spool, times(1)).removeMessageById(anyLong());
@@ -843,7 +837,8 @@ class MqttClientTest {
         MqttClient client = spy(new MqttClient(deviceConfiguration, spool, true, (c) -> builder, executorService));
         client.setMqttOnline(true);
         long id = 1L;
-        when(spool.popId()).thenReturn(id).thenThrow(InterruptedException.class);
+        when(spool.popIds(anyInt())).thenReturn(Collections.singletonList(id))
+                .thenThrow(InterruptedException.class);
         PublishRequest request = PublishRequest.builder().topic("spool")
                 .payload("What's up".getBytes(StandardCharsets.UTF_8))
                 .qos(QualityOfService.AT_LEAST_ONCE).build();
@@ -862,9 +857,38 @@ class MqttClientTest {
         verify(awsIotMqttClient).publish(any());
         verify(spool).getMessageById(anyLong());
         verify(spool).removeMessageById(anyLong());
-        // The 3rd call is to trigger Interrupted Exception and exit the loop
-        verify(spool, times(2)).popId();
-        verify(client, times(2)).publishSingleSpoolerMessage(awsIotMqttClient);
+        // The 2nd call is to trigger Interrupted Exception and exit the loop
+        verify(spool, times(2)).popIds(anyInt());
+        verify(client, times(1)).publishSpoolerMessage(awsIotMqttClient, message);
+    }
+
+    @Test
+    void GIVEN_publish_interrupted_in_batch_WHEN_spool_messages_THEN_ids_left_put_back_in_order(
+            ExtensionContext context) throws InterruptedException {
+        ignoreExceptionOfType(context, InterruptedException.class);
+
+        MqttClient client = spy(new MqttClient(deviceConfiguration, spool, true, (c) -> builder, executorService));
+        client.setMqttOnline(true);
+        when(spool.popIds(anyInt())).thenReturn(Arrays.asList(1L, 2L, 3L));
+        Publish request1 = Publish.builder().topic("spool/1").qos(QOS.AT_LEAST_ONCE).payload(new byte[1]).build();
+        Publish request2 = Publish.builder().topic("spool/2").qos(QOS.AT_LEAST_ONCE).payload(new byte[1]).build();
+        when(spool.getMessageById(1L)).thenReturn(SpoolMessage.builder().id(1L).request(request1).build());
+        when(spool.getMessageById(2L)).thenReturn(SpoolMessage.builder().id(2L).request(request2).build());
+
+        AwsIotMqttClient awsIotMqttClient = mock(AwsIotMqttClient.class);
+        when(client.getNewMqttClient()).thenReturn(awsIotMqttClient);
+        when(awsIotMqttClient.connect()).thenReturn(CompletableFuture.completedFuture(true));
+        when(awsIotMqttClient.publish(request1)).thenReturn(CompletableFuture.completedFuture(null));
+        when(awsIotMqttClient.publish(request2)).thenThrow(new RuntimeException(new InterruptedException()));
+
+        client.runSpooler();
+
+        verify(spool).removeMessageById(1L);
+        // the interrupted message and the one after it go back to the front of the queue, oldest first
+        InOrder inOrder = Mockito.inOrder(spool);
+        inOrder.verify(spool).addId(3L);
+        inOrder.verify(spool).addId(2L);
+        verify(spool, times(2)).addId(anyLong());
     }
 
     @Test
@@ -877,7 +901,8 @@ class MqttClientTest {
         client.setMqttOnline(true);
 
         long id = 1L;
-        when(spool.popId()).thenReturn(id).thenReturn(id).thenThrow(InterruptedException.class);
+        when(spool.popIds(anyInt())).thenReturn(Collections.singletonList(id))
+                .thenReturn(Collections.singletonList(id)).thenThrow(InterruptedException.class);
         Publish request = Publish.builder().topic("spool")
                 .payload("What's up".getBytes(StandardCharsets.UTF_8))
                 .qos(QOS.AT_LEAST_ONCE).build();
@@ -898,8 +923,8 @@ class MqttClientTest {
         verify(spool, times(2)).getMessageById(anyLong());
         verify(spool, never()).removeMessageById(anyLong());
         // The 3rd call is to trigger Interrupted Exception and exit the loop
-        verify(spool, times(3)).popId();
-        verify(client, times(3)).publishSingleSpoolerMessage(awsIotMqttClient);
+        verify(spool, times(3)).popIds(anyInt());
+        verify(client, times(2)).publishSpoolerMessage(awsIotMqttClient, message);
     }
 
 
@@ -920,13 +945,14 @@ class MqttClientTest {
         SpoolMessage message = SpoolMessage.builder().id(id).request(request).build();
         when(spool.getMessageById(id)).thenReturn(message);
         // Throw an InterruptedException to break the while loop in the client.spoolMessages()
-        when(spool.popId()).thenReturn(id).thenThrow(new InterruptedException("interrupted"));
+        when(spool.popIds(anyInt())).thenReturn(Collections.singletonList(id))
+                .thenThrow(new InterruptedException("interrupted"));
 
         client.getCallbacks().onConnectionResumed(false);
 
         // Confirm the spooler was working
         verify(spool, times(1)).getMessageById(anyLong());
-        verify(spool, times(2)).popId();
+        verify(spool, times(2)).popIds(anyInt());
 
         SpoolerConfig config = SpoolerConfig.builder().spoolSizeInBytes(10L)
                 .storageType(SpoolerStorageType.Memory).keepQos0WhenOffline(false).build();
@@ -0,0 +1,123 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.mqttclient.v5.UserProperty;
+import com.aws.greengrass.testcommons.testutilities.GGExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GGExtension.class)
+class PayloadCompressorTest {
+    private static final byte[] FLEET_STATUS = ("{\"ggcVersion\":\"2.12.0\",\"platform\":\"linux\",\"architecture\":"
+            + "\"amd64\",\"thing\":\"thing\",\"overallDeviceStatus\":\"HEALTHY\",\"sequenceNumber\":42,"
+            + "\"timestamp\":1700000000000,\"messageType\":\"COMPLETE\",\"trigger\":\"CADENCE\",\"components\":["
+            + "{\"componentName\":\"aws.greengrass.Nucleus\",\"version\":\"2.12.0\",\"fleetConfigArns\":[],"
+            + "\"componentStatusDetails\":null,\"isRoot\":false,\"status\":\"FINISHED\"},"
+            + "{\"componentName\":\"com.example.Sensor\",\"version\":\"1.0.0\",\"fleetConfigArns\":["
+            + "\"arn:aws:greengrass:us-east-1:123456789012:configuration:thinggroup/group:1\"],"
+            + "\"componentStatusDetails\":null,\"isRoot\":true,\"status\":\"RUNNING\"}]}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    Configuration config = new Configuration(new Context());
+    PayloadCompressor compressor = new PayloadCompressor();
+
+    @BeforeEach
+    void beforeEach() {
+        config.lookup("mqtt", "compression", "topics")
+                .withValue(Collections.singletonList("$aws/things/+/greengrassv2/#"));
+        compressor.configure(config.lookupTopics("mqtt"), true);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        config.context.close();
+    }
+
+    @Test
+    void GIVEN_matching_topic_WHEN_compress_THEN_payload_deflated_with_dictionary_and_signaled() throws Exception {
+        Publish publish = Publish.builder().topic("$aws/things/thing/greengrassv2/health/json").qos(QOS.AT_LEAST_ONCE)
+                .payload(FLEET_STATUS).payloadFormat(Publish.PayloadFormatIndicator.UTF8)
+                .userProperties(Collections.singletonList(new UserProperty("key", "value"))).build();
+
+        Publish compressed = compressor.compress(publish);
+
+        assertTrue(compressed.getPayload().length < FLEET_STATUS.length);
+        assertNull(compressed.getPayloadFormat());
+        assertEquals(Arrays.asList(new UserProperty("key", "value"),
+                new UserProperty(PayloadCompressor.CONTENT_ENCODING_PROPERTY, PayloadCompressor.DEFLATE_ENCODING)),
+                compressed.getUserProperties());
+        assertArrayEquals(FLEET_STATUS, PayloadCompressor.decompress(compressed.getPayload()));
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed.getPayload());
+        inflater.inflate(new byte[1]);
+        assertTrue(inflater.needsDictionary());
+        inflater.end();
+        // already encoded payloads are left alone
+        assertSame(compressed, compressor.compress(compressed));
+    }
+
+    @Test
+    void GIVEN_dictionary_disabled_WHEN_compress_THEN_payload_deflated_without_dictionary() throws Exception {
+        config.lookup("mqtt", "compression", "useDictionary").withValue(false);
+        compressor.configure(config.lookupTopics("mqtt"), true);
+        Publish publish = Publish.builder().topic("$aws/things/thing/greengrassv2/health/json").qos(QOS.AT_LEAST_ONCE)
+                .payload(FLEET_STATUS).build();
+
+        Publish compressed = compressor.compress(publish);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed.getPayload());
+        inflater.inflate(new byte[1]);
+        assertFalse(inflater.needsDictionary());
+        inflater.end();
+        assertArrayEquals(FLEET_STATUS, PayloadCompressor.decompress(compressed.getPayload()));
+    }
+
+    @Test
+    void GIVEN_messages_not_compressed_WHEN_compress_THEN_message_unchanged() {
+        Publish otherTopic = Publish.builder().topic("factory/telemetry").qos(QOS.AT_LEAST_ONCE)
+                .payload(FLEET_STATUS).build();
+        assertSame(otherTopic, compressor.compress(otherTopic));
+
+        Publish small = Publish.builder().topic("$aws/things/thing/greengrassv2/health/json").qos(QOS.AT_LEAST_ONCE)
+                .payload("{}".getBytes(StandardCharsets.UTF_8)).build();
+        assertSame(small, compressor.compress(small));
+
+        // random bytes don't compress
+        byte[] random = new byte[1024];
+        new Random(0).nextBytes(random);
+        Publish incompressible = Publish.builder().topic("$aws/things/thing/greengrassv2/health/json")
+                .qos(QOS.AT_LEAST_ONCE).payload(random).build();
+        assertSame(incompressible, compressor.compress(incompressible));
+
+        Publish publish = Publish.builder().topic("$aws/things/thing/greengrassv2/health/json").qos(QOS.AT_LEAST_ONCE)
+                .payload(FLEET_STATUS).build();
+        compressor.configure(config.lookupTopics("mqtt"), false);
+        assertSame(publish, compressor.compress(publish));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.testcommons.testutilities.GGExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GGExtension.class)
+class PublishCoalescerTest {
+    Configuration config = new Configuration(new Context());
+    ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor();
+    BlockingQueue<Publish> spooled = new LinkedBlockingQueue<>();
+    PublishCoalescer coalescer = new PublishCoalescer(ses, spooled::put);
+
+    @BeforeEach
+    void beforeEach() {
+        config.lookup("mqtt", "coalescing", "topics").withValue(Collections.singletonList("telemetry/#"));
+        config.lookup("mqtt", "coalescing", "windowMs").withValue(50);
+        config.lookup("mqtt", "coalescing", "maxBatchSizeInBytes").withValue(20);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        ses.shutdownNow();
+        config.context.close();
+    }
+
+    @Test
+    void GIVEN_length_prefixed_framing_WHEN_batch_full_THEN_batch_spooled() throws Exception {
+        coalescer.configure(config.lookupTopics("mqtt"), 128 * 1024);
+
+        assertTrue(coalescer.offer(publish("telemetry/a", "12345")));
+        assertTrue(coalescer.offer(publish("telemetry/a", "67890")));
+        assertTrue(spooled.isEmpty());
+
+        // 3 framed payloads of 5 bytes don't fit in 20 bytes
+        assertTrue(coalescer.offer(publish("telemetry/a", "abcde")));
+        Publish batch = spooled.poll();
+        assertNotNull(batch);
+        assertEquals("telemetry/a", batch.getTopic());
+        assertEquals(QOS.AT_LEAST_ONCE, batch.getQos());
+        ByteBuffer payload = ByteBuffer.wrap(batch.getPayload());
+        assertEquals(18, payload.remaining());
+        for (String expected : Arrays.asList("12345", "67890")) {
+            byte[] bytes = new byte[payload.getInt()];
+            payload.get(bytes);
+            assertEquals(expected, new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        coalescer.flushAll();
+        batch = spooled.poll();
+        assertNotNull(batch);
+        assertEquals(9, batch.getPayload().length);
+    }
+
+    @Test
+    void GIVEN_json_array_framing_WHEN_window_ends_THEN_batch_spooled() throws Exception {
+        config.lookup("mqtt", "coalescing", "framing").withValue("JsonArray");
+        coalescer.configure(config.lookupTopics("mqtt"), 128 * 1024);
+
+        assertTrue(coalescer.offer(publish("telemetry/a", "{\"a\":1}")));
+        assertTrue(coalescer.offer(publish("telemetry/a", "2")));
+        // not JSON
+        assertFalse(coalescer.offer(publish("telemetry/a", "{")));
+        Publish batch = spooled.poll();
+        assertNotNull(batch);
+        assertArrayEquals("[{\"a\":1},2]".getBytes(StandardCharsets.UTF_8), batch.getPayload());
+        assertEquals(Publish.PayloadFormatIndicator.UTF8, batch.getPayloadFormat());
+
+        assertTrue(coalescer.offer(publish("telemetry/b", "[3]")));
+        batch = spooled.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals("telemetry/b", batch.getTopic());
+        assertArrayEquals("[[3]]".getBytes(StandardCharsets.UTF_8), batch.getPayload());
+    }
+
+    @Test
+    void GIVEN_messages_not_coalesced_WHEN_offer_THEN_returns_false() throws Exception {
+        coalescer.configure(config.lookupTopics("mqtt"), 128 * 1024);
+
+        assertFalse(coalescer.offer(publish("status/a", "1")));
+        assertFalse(coalescer.offer(Publish.builder().topic("telemetry/a").qos(QOS.AT_LEAST_ONCE)
+                .payload(new byte[1]).retain(true).build()));
+        assertFalse(coalescer.offer(publish("telemetry/a", "larger than a batch")));
+        assertNull(spooled.poll());
+
+        config.lookup("mqtt", "coalescing", "topics").withValue(Collections.emptyList());
+        coalescer.configure(config.lookupTopics("mqtt"), 128 * 1024);
+        assertFalse(coalescer.offer(publish("telemetry/a", "1")));
+    }
+
+    private static Publish publish(String topic, String payload) {
+        return Publish.builder().topic(topic).qos(QOS.AT_LEAST_ONCE).payload(payload.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.mqttclient.v5.PubAck;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.testcommons.testutilities.GGExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import software.amazon.awssdk.crt.mqtt5.packets.PubAckPacket;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(GGExtension.class)
+class PublishRateLimitPolicyTest {
+    private static final PubAck THROTTLED =
+            new PubAck(PubAckPacket.PubAckReasonCode.QUOTA_EXCEEDED.getValue(), null, Collections.emptyList());
+
+    Configuration config = new Configuration(new Context());
+    PublishRateLimitPolicy policy = new PublishRateLimitPolicy();
+
+    @BeforeEach
+    void beforeEach() {
+        config.lookup("mqtt", "rateLimits", "maxPublishesPerSecondPerConnection").withValue(10);
+        config.lookup("mqtt", "rateLimits", "priorityReservedFraction").withValue(0.5);
+        policy.configure(config.lookupTopics("mqtt"));
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        config.context.close();
+    }
+
+    @Test
+    void GIVEN_bulk_publish_WHEN_get_wait_time_THEN_priority_publishes_wait_less() {
+        PublishRateLimiter limiter = policy.newConnectionLimiter();
+        Publish telemetry = Publish.builder().topic("factory/telemetry").qos(QOS.AT_LEAST_ONCE)
+                .payload(new byte[10]).build();
+        Publish shadowUpdate = Publish.builder().topic("$aws/things/thing/shadow/update").qos(QOS.AT_LEAST_ONCE)
+                .payload(new byte[10]).build();
+
+        limiter.acquire(telemetry);
+
+        // telemetry may only use half of the 10 publishes per second
+        long priorityWait = limiter.getWaitTimeMicros(shadowUpdate);
+        assertTrue(priorityWait > 0);
+        assertTrue(limiter.getWaitTimeMicros(telemetry) > priorityWait);
+    }
+
+    @Test
+    void GIVEN_throttled_publishes_WHEN_acknowledged_THEN_rates_halved_once_per_second() {
+        policy.onPublishAcknowledged(THROTTLED);
+        policy.onPublishAcknowledged(THROTTLED);
+
+        PublishRateLimitMetrics metrics = policy.collectMetrics();
+        assertEquals(0.5, metrics.getRateFactor());
+        assertEquals(5.0, metrics.getPublishesPerSecondPerConnection());
+        assertEquals(256 * 1024, metrics.getBytesPerSecondPerConnection());
+        assertEquals(2, metrics.getThrottledPublishes());
+
+        // successful publishes right after the back off don't raise the rates yet
+        policy.onPublishAcknowledged(new PubAck(PubAckPacket.PubAckReasonCode.SUCCESS.getValue(), null, null));
+        metrics = policy.collectMetrics();
+        assertEquals(0.5, metrics.getRateFactor());
+        assertEquals(0, metrics.getThrottledPublishes());
+    }
+
+    @Test
+    void GIVEN_adaptive_disabled_WHEN_throttled_THEN_rates_unchanged() {
+        config.lookup("mqtt", "rateLimits", "adaptive").withValue(false);
+        policy.configure(config.lookupTopics("mqtt"));
+
+        policy.onPublishAcknowledged(THROTTLED);
+
+        PublishRateLimitMetrics metrics = policy.collectMetrics();
+        assertEquals(1.0, metrics.getRateFactor());
+        assertEquals(10.0, metrics.getPublishesPerSecondPerConnection());
+        assertEquals(1, metrics.getThrottledPublishes());
+    }
+}
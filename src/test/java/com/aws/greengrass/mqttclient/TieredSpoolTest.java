@@ -0,0 +1,132 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.mqttclient;
+
+import com.aws.greengrass.config.Configuration;
+import com.aws.greengrass.dependency.Context;
+import com.aws.greengrass.deployment.DeviceConfiguration;
+import com.aws.greengrass.mqttclient.spool.Spool;
+import com.aws.greengrass.mqttclient.spool.SpoolerStorageType;
+import com.aws.greengrass.mqttclient.spool.SpoolerStoreException;
+import com.aws.greengrass.mqttclient.spool.SpoolerTier;
+import com.aws.greengrass.mqttclient.v5.Publish;
+import com.aws.greengrass.mqttclient.v5.QOS;
+import com.aws.greengrass.testcommons.testutilities.GGExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith({GGExtension.class, MockitoExtension.class})
+class TieredSpoolTest {
+
+    @Mock
+    DeviceConfiguration deviceConfiguration;
+
+    @TempDir
+    Path spoolDirectory;
+
+    Configuration config = new Configuration(new Context());
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        config.lookup("spooler", "storageType").withValue(SpoolerStorageType.Tiered.toString());
+        config.lookup("spooler", "maxSizeInBytes").withValue(1024L * 1024);
+        config.lookup("spooler", "memoryTierSizeInBytes").withValue(300L);
+        lenient().when(deviceConfiguration.getSpoolerNamespace()).thenReturn(config.lookupTopics("spooler"));
+        lenient().when(deviceConfiguration.getSpoolerDirectory()).thenReturn(spoolDirectory);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        config.context.close();
+    }
+
+    @Test
+    void GIVEN_more_messages_than_memory_tier_holds_WHEN_add_message_THEN_oldest_messages_overflow_to_disk()
+            throws InterruptedException, SpoolerStoreException {
+        Spool spool = new Spool(deviceConfiguration);
+        byte[] payload = new byte[100];
+        Arrays.fill(payload, (byte) 'a');
+        for (int i = 0; i < 10; i++) {
+            spool.addMessage(Publish.builder().topic("spool").qos(QOS.AT_LEAST_ONCE).payload(payload).build());
+        }
+
+        assertEquals(10, spool.getCurrentMessageCount());
+        assertEquals(3, spool.getCurrentMessageCount(SpoolerTier.Memory));
+        assertEquals(7, spool.getCurrentMessageCount(SpoolerTier.Disk));
+        assertEquals(1000, spool.getCurrentSpoolerSize());
+        assertEquals(300, spool.getCurrentSpoolerSize(SpoolerTier.Memory));
+        assertEquals(700, spool.getCurrentSpoolerSize(SpoolerTier.Disk));
+
+        // drained oldest first, from disk and then from memory
+        for (int i = 0; i < 10; i++) {
+            spool.prefetch();
+            long id = spool.popId();
+            assertEquals(i, id);
+            assertArrayEquals(payload, spool.getMessageById(id).getRequest().getPayload());
+            spool.removeMessageById(id);
+        }
+        assertEquals(0, spool.getCurrentSpoolerSize(SpoolerTier.Memory));
+        assertEquals(0, spool.getCurrentSpoolerSize(SpoolerTier.Disk));
+        spool.close();
+    }
+
+    @Test
+    void GIVEN_message_handed_out_from_memory_WHEN_it_overflows_to_disk_THEN_retry_count_kept()
+            throws InterruptedException, SpoolerStoreException {
+        Spool spool = new Spool(deviceConfiguration);
+        Publish request = Publish.builder().topic("spool").qos(QOS.AT_LEAST_ONCE).payload(new byte[100]).build();
+        long id = spool.addMessage(request).getId();
+        assertEquals(id, spool.popId());
+        spool.getMessageById(id).getRetried().incrementAndGet();
+        spool.addId(id);
+
+        for (int i = 0; i < 5; i++) {
+            spool.addMessage(request);
+        }
+        assertEquals(3, spool.getCurrentMessageCount(SpoolerTier.Memory));
+        assertEquals(1, spool.getMessageById(id).getRetried().get());
+
+        spool.getMessageById(id).getRetried().incrementAndGet();
+        assertEquals(2, spool.getMessageById(id).getRetried().get());
+        spool.removeMessageById(id);
+        assertNull(spool.getMessageById(id));
+        spool.close();
+    }
+
+    @Test
+    void GIVEN_messages_in_both_tiers_WHEN_spool_reopened_THEN_all_messages_recovered()
+            throws InterruptedException, SpoolerStoreException {
+        Spool spool = new Spool(deviceConfiguration);
+        for (int i = 0; i < 5; i++) {
+            spool.addMessage(Publish.builder().topic("spool/" + i).qos(QOS.AT_LEAST_ONCE).payload(new byte[100])
+                    .build());
+        }
+        spool.close();
+
+        Spool recovered = new Spool(deviceConfiguration);
+        assertEquals(5, recovered.getCurrentMessageCount(SpoolerTier.Disk));
+        assertEquals(0, recovered.getCurrentMessageCount(SpoolerTier.Memory));
+        assertEquals(500, recovered.getCurrentSpoolerSize());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("spool/" + i, recovered.getMessageById(recovered.popId()).getRequest().getTopic());
+        }
+        recovered.close();
+    }
+}
@@ -5,6 +5,7 @@
 
 package com.aws.greengrass.telemetry;
 
+import com.aws.greengrass.lifecyclemanager.KernelMetricsEmitter;
 import com.aws.greengrass.logging.impl.GreengrassLogMessage;
 import com.aws.greengrass.telemetry.impl.Metric;
 import com.aws.greengrass.telemetry.impl.MetricFactory;
@@ -38,6 +39,7 @@ import static com.aws.greengrass.telemetry.MetricsAggregator.AGGREGATE_METRICS_F
 import static com.aws.greengrass.testcommons.testutilities.ExceptionLogProtector.ignoreExceptionOfType;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith({MockitoExtension.class, GGExtension.class})
 class MetricsAggregatorTest {
@@ -164,6 +166,76 @@ class MetricsAggregatorTest {
         }
     }
 
+    @Test
+    void GIVEN_metrics_aggregated_WHEN_aggregate_again_THEN_only_new_metric_logs_are_read()
+            throws InterruptedException, IOException {
+        long lastAgg = Instant.now().toEpochMilli();
+        Metric m1 = new Metric(GREENGRASS_COMPONENTS_NS, "A", TelemetryUnit.Count, TelemetryAggregation.Sum);
+        greengrassComponentsMetricsFactory.putMetricData(m1, 10);
+        greengrassComponentsMetricsFactory.putMetricData(m1, 20);
+        TimeUnit.MILLISECONDS.sleep(100);
+        long currTimestamp = Instant.now().toEpochMilli();
+        metricsAggregator.aggregateMetrics(lastAgg, currTimestamp);
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        greengrassComponentsMetricsFactory.putMetricData(m1, 5);
+        TimeUnit.MILLISECONDS.sleep(100);
+        // The metric logs which were already aggregated are not read again, whatever the interval
+        metricsAggregator.aggregateMetrics(0, Instant.now().toEpochMilli());
+
+        Path path = TelemetryConfig.getTelemetryDirectory().resolve("AggregateMetrics.log");
+        List<String> aggregatedMetricLogs = Files.readAllLines(path);
+        assertEquals(2, aggregatedMetricLogs.size());
+        AggregatedNamespaceData first = mapper.readValue(
+                mapper.readTree(aggregatedMetricLogs.get(0)).get("message").asText(), AggregatedNamespaceData.class);
+        assertEquals((double) 30, first.getMetrics().get(0).getValue().get("Sum"));
+        AggregatedNamespaceData second = mapper.readValue(
+                mapper.readTree(aggregatedMetricLogs.get(1)).get("message").asText(), AggregatedNamespaceData.class);
+        assertEquals((double) 5, second.getMetrics().get(0).getValue().get("Sum"));
+    }
+
+    @Test
+    void GIVEN_recorded_metrics_WHEN_aggregate_THEN_aggregate_them_from_memory()
+            throws InterruptedException, IOException {
+        MetricsRecorder metricsRecorder = new MetricsRecorder();
+        MetricsAggregator aggregator = new MetricsAggregator(metricsRecorder);
+        long lastAgg = Instant.now().toEpochMilli();
+        for (int value : new int[]{10, 20, 30}) {
+            metricsRecorder.record(Metric.builder().namespace(GREENGRASS_COMPONENTS_NS).name("A")
+                    .unit(TelemetryUnit.Count).aggregation(TelemetryAggregation.Average).value(value)
+                    .timestamp(Instant.now().toEpochMilli()).build());
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        aggregator.aggregateMetrics(lastAgg, Instant.now().toEpochMilli());
+
+        // Nothing is written to the telemetry log files unless asked to
+        assertFalse(Files.exists(TelemetryConfig.getTelemetryDirectory().resolve(GREENGRASS_COMPONENTS_NS + ".log")));
+        Path path = TelemetryConfig.getTelemetryDirectory().resolve("AggregateMetrics.log");
+        List<String> aggregatedMetricLogs = Files.readAllLines(path);
+        assertEquals(1, aggregatedMetricLogs.size());
+        AggregatedNamespaceData am = mapper.readValue(
+                mapper.readTree(aggregatedMetricLogs.get(0)).get("message").asText(), AggregatedNamespaceData.class);
+        assertEquals(GREENGRASS_COMPONENTS_NS, am.getNamespace());
+        assertEquals(1, am.getMetrics().size());
+        assertEquals((double) 20, am.getMetrics().get(0).getValue().get("Average"));
+
+        // Metrics which are also written to the files are aggregated once
+        aggregator.setWriteMetricsToFiles(true);
+        lastAgg = Instant.now().toEpochMilli();
+        metricsRecorder.record(Metric.builder().namespace(GREENGRASS_COMPONENTS_NS).name("A")
+                .unit(TelemetryUnit.Count).aggregation(TelemetryAggregation.Average).value(40)
+                .timestamp(Instant.now().toEpochMilli()).build());
+        TimeUnit.MILLISECONDS.sleep(100);
+        aggregator.aggregateMetrics(lastAgg, Instant.now().toEpochMilli());
+
+        assertTrue(Files.exists(TelemetryConfig.getTelemetryDirectory().resolve(GREENGRASS_COMPONENTS_NS + ".log")));
+        aggregatedMetricLogs = Files.readAllLines(path);
+        assertEquals(2, aggregatedMetricLogs.size());
+        am = mapper.readValue(mapper.readTree(aggregatedMetricLogs.get(1)).get("message").asText(),
+                AggregatedNamespaceData.class);
+        assertEquals((double) 40, am.getMetrics().get(0).getValue().get("Average"));
+    }
+
     @Test
     void GIVEN_aggregated_metrics_WHEN_publish_THEN_collect_only_the_latest_values() throws InterruptedException {
         //Create a sample file with aggregated metrics so we can test the freshness of the file and logs
@@ -214,6 +286,33 @@ class MetricsAggregatorTest {
         assertEquals(2 + 1, aggregatedNamespaceDataMap.get(currentTimestamp).size());
     }
 
+    @Test
+    void GIVEN_aggregated_metrics_of_local_namespaces_WHEN_publish_THEN_they_are_not_published()
+            throws InterruptedException {
+        long lastPublish = Instant.now().toEpochMilli();
+        long currentTimestamp = Instant.now().toEpochMilli();
+        Map<String, Object> map = new HashMap<>();
+        map.put("Average", 4000);
+        List<AggregatedMetric> metricList = new ArrayList<>();
+        metricList.add(new AggregatedMetric("C", map, TelemetryUnit.Count));
+        aggregatedMetricFactory.logMetrics(new TelemetryLoggerMessage(
+                new AggregatedNamespaceData(currentTimestamp, GREENGRASS_COMPONENTS_NS, metricList)));
+        for (String namespace : KernelMetricsEmitter.LOCAL_NAMESPACES) {
+            aggregatedMetricFactory.logMetrics(new TelemetryLoggerMessage(
+                    new AggregatedNamespaceData(currentTimestamp, namespace, metricList)));
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        currentTimestamp = Instant.now().toEpochMilli();
+        Map<Long, List<AggregatedNamespaceData>> metricsMap =
+                metricsAggregator.getMetricsToPublish(lastPublish, currentTimestamp);
+
+        // the aggregated point of the component states and the accumulated point of their namespace only
+        assertEquals(1 + 1, metricsMap.get(currentTimestamp).size());
+        for (AggregatedNamespaceData am : metricsMap.get(currentTimestamp)) {
+            assertEquals(GREENGRASS_COMPONENTS_NS, am.getNamespace());
+        }
+    }
+
     @Test
     void GIVEN_invalid_aggregated_metrics_WHEN_publish_THEN_parse_them_properly(ExtensionContext exContext) throws InterruptedException {
         ignoreExceptionOfType(exContext, MismatchedInputException.class);
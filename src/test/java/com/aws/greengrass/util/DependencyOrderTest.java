@@ -9,16 +9,19 @@ import com.aws.greengrass.testcommons.testutilities.GGExtension;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItems;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @ExtendWith(GGExtension.class)
 class DependencyOrderTest {
@@ -45,4 +48,22 @@ class DependencyOrderTest {
                 tree.keySet(), tree::get);
         assertThat(result, hasItems("C"));
     }
+
+    @Test
+    void GIVEN_dependency_outside_of_set_WHEN_compute_order_THEN_dependers_left_out_and_rest_in_order() {
+        Map<String, Set<String>> tree = new HashMap<String, Set<String>>() {{
+            put("A", new HashSet<>(Arrays.asList("B", "C")));
+            put("B", new HashSet<>(Arrays.asList("D")));
+            put("C", new HashSet<>(Arrays.asList("D")));
+            put("D", Collections.emptySet());
+            put("E", new HashSet<>(Arrays.asList("Missing")));
+            put("F", new HashSet<>(Arrays.asList("E", "D")));
+        }};
+        List<String> result = new ArrayList<>(new DependencyOrder<String>().computeOrderedDependencies(
+                tree.keySet(), tree::get));
+        assertEquals(4, result.size());
+        assertEquals("D", result.get(0));
+        assertThat(result.subList(1, 3), hasItems("B", "C"));
+        assertEquals("A", result.get(3));
+    }
 }
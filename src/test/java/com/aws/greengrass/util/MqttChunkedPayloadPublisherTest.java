@@ -23,13 +23,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -213,6 +218,33 @@ class MqttChunkedPayloadPublisherTest {
         verify(mqttClient, times(0)).publish(publishRequestArgumentCaptor.capture());
     }
 
+    @Test
+    void GIVEN_many_variable_payloads_WHEN_publish_THEN_each_published_once_below_size_limit() throws IOException {
+        ChunkableTestMessage message = new ChunkableTestMessage("commonPayload");
+        List<String> payloads = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            payloads.add(RandomStringUtils.randomAlphanumeric(10 + i % 50));
+        }
+        publisher.setMaxPayloadLengthBytes(4000);
+
+        publisher.publish(message, payloads);
+        verify(mqttClient, atLeast(2)).publish(publishRequestArgumentCaptor.capture());
+        List<PublishRequest> publishRequests = publishRequestArgumentCaptor.getAllValues();
+
+        List<String> published = new ArrayList<>();
+        for (int i = 0; i < publishRequests.size(); i++) {
+            byte[] payload = publishRequests.get(i).getPayload();
+            assertThat(payload.length, lessThan(4000));
+            ChunkableTestMessage chunk = MAPPER.readValue(payload, ChunkableTestMessage.class);
+            assertEquals("commonPayload", chunk.getCommonPayload());
+            assertEquals(i + 1, chunk.getId());
+            assertEquals(publishRequests.size(), chunk.getTotalChunks());
+            published.addAll(chunk.getVariablePayload());
+        }
+        assertEquals(new HashSet<>(payloads), new HashSet<>(published));
+        assertEquals(payloads.size(), published.size());
+    }
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
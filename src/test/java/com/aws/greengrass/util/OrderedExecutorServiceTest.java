@@ -12,15 +12,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 @ExtendWith({MockitoExtension.class, GGExtension.class})
@@ -74,6 +78,33 @@ class OrderedExecutorServiceTest {
         }
     }
 
+    @Test
+    void GIVEN_max_tasks_per_key_with_drop_policy_WHEN_key_is_full_THEN_task_dropped_and_depth_reported()
+            throws InterruptedException {
+        OrderedExecutorService bounded = new OrderedExecutorService(executor)
+                .withMaxTasksPerKey(2, OrderedExecutorService.QueueFullPolicy.DROP);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            bounded.execute(() -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+                ran.incrementAndGet();
+            }, "key");
+        }
+        assertEquals(3, bounded.getDroppedTaskCount());
+        assertEquals(Collections.singletonMap("key", 2), bounded.getQueueDepths());
+
+        release.countDown();
+        while (!bounded.getKeyedOrderedTasks().isEmpty()) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(2, ran.get());
+        assertTrue(bounded.getQueueDepths().isEmpty());
+    }
+
     private Runnable createRunnable(final String randomStringToCheck, final Queue<String> queue){
         return () -> {
             String firstRandomVarFromQueue = queue.poll();
@@ -0,0 +1,149 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.aws.greengrass.util;
+
+import com.aws.greengrass.testcommons.testutilities.GGExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(GGExtension.class)
+class ProcessOutputPumpTest {
+
+    @Test
+    void GIVEN_output_in_chunks_WHEN_split_THEN_lines_split_on_cr_and_lf() {
+        List<String> lines = new ArrayList<>();
+        ProcessOutputPump.LineSplitter splitter = new ProcessOutputPump.LineSplitter(l -> lines.add(l.toString()),
+                1024);
+
+        accept(splitter, "first\r");
+        accept(splitter, "\nsec");
+        accept(splitter, "ond\n\nprogress 1%\rprogress 2%\r\rlast");
+        splitter.flush();
+
+        assertEquals(Arrays.asList("first\n", "second\n", "\n", "progress 1%\n", "progress 2%\n", "\n", "last"),
+                lines);
+        assertEquals(6, splitter.getNlines());
+    }
+
+    @Test
+    void GIVEN_long_line_WHEN_split_THEN_split_at_max_length_without_splitting_characters() {
+        List<String> lines = new ArrayList<>();
+        ProcessOutputPump.LineSplitter splitter = new ProcessOutputPump.LineSplitter(l -> lines.add(l.toString()), 8);
+
+        // each e with an acute accent is 2 bytes in UTF-8
+        accept(splitter, "abcdefghij\nabcde\u00e9\u00e9\u00e9\n");
+
+        assertEquals(Arrays.asList("abcdefgh\n", "ij\n", "abcde\u00e9\n", "\u00e9\u00e9\n"), lines);
+    }
+
+    @Test
+    void GIVEN_process_output_WHEN_registered_THEN_lines_sent_and_eof_signaled_and_pipe_closed() throws Exception {
+        ProcessOutputPump pump = new ProcessOutputPump(1, 1024);
+        try {
+            Process process = mock(Process.class);
+            when(process.isAlive()).thenReturn(true, true, false);
+            List<String> lines = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch eof = new CountDownLatch(1);
+            AtomicBoolean closed = new AtomicBoolean();
+            InputStream in = new ByteArrayInputStream("hello\nworld\npartial".getBytes(StandardCharsets.UTF_8)) {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+
+            ProcessOutputPump.Pipe pipe = pump.register(process, in, l -> lines.add(l.toString()), eof::countDown);
+
+            assertTrue(eof.await(5, TimeUnit.SECONDS));
+            assertTrue(pipe.awaitEof(0));
+            assertTrue(closed.get());
+            assertEquals(Arrays.asList("hello\n", "world\n", "partial"), lines);
+            assertEquals(2, pipe.getNlines());
+        } finally {
+            pump.shutdown();
+        }
+    }
+
+    @Test
+    void GIVEN_pipe_draining_in_blocking_read_WHEN_pump_turn_THEN_other_pipes_still_pumped() throws Exception {
+        ProcessOutputPump pump = new ProcessOutputPump(1, 1024);
+        CountDownLatch drainReading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // still alive as far as the pump thread knows, so it keeps taking turns over the draining pipe
+            Process exiting = mock(Process.class);
+            when(exiting.isAlive()).thenReturn(true);
+            InputStream blocking = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    return read(new byte[1], 0, 1);
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    drainReading.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    return -1;
+                }
+            };
+            ProcessOutputPump.Pipe drained = pump.register(exiting, blocking, null, () -> {
+            });
+            drained.processExited();
+            assertTrue(drainReading.await(5, TimeUnit.SECONDS));
+
+            // the pump turn over the draining pipe returns right away instead of waiting for the drain
+            assertFalse(drained.pump(new byte[16]));
+
+            Process running = mock(Process.class);
+            when(running.isAlive()).thenReturn(true);
+            List<String> lines = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch pumped = new CountDownLatch(1);
+            pump.register(running, new ByteArrayInputStream("hello\n".getBytes(StandardCharsets.UTF_8)), l -> {
+                lines.add(l.toString());
+                pumped.countDown();
+            }, () -> {
+            });
+
+            assertTrue(pumped.await(5, TimeUnit.SECONDS));
+            assertEquals(Collections.singletonList("hello\n"), lines);
+            assertFalse(drained.awaitEof(0));
+
+            release.countDown();
+            assertTrue(drained.awaitEof(5000));
+        } finally {
+            release.countDown();
+            pump.shutdown();
+        }
+    }
+
+    private static void accept(ProcessOutputPump.LineSplitter splitter, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        splitter.accept(bytes, bytes.length);
+    }
+}